@@ -0,0 +1,80 @@
+package sk.isdd.validator.batch;
+
+import sk.isdd.validator.digest.DigestResult;
+
+import java.util.List;
+
+/**
+ * Outcome of single file of batch run, as recorded in {@link CheckpointJournal}.
+ */
+public final class BatchEntry {
+
+    /**
+     * Final state of the file. Every state is final, failed files are not retried by resumed runs.
+     */
+    public enum Status {
+
+        /**
+         * Digests were calculated.
+         */
+        DONE,
+
+        /**
+         * File could not be read ({@code XmlFile.isReadingFailed()}).
+         */
+        READ_FAILED,
+
+        /**
+         * File is not well-formed XML ({@code XmlFile.isParsingFailed()}).
+         */
+        PARSE_FAILED,
+
+        /**
+         * Canonicalization of the file failed.
+         */
+        C14N_FAILED,
+
+        /**
+         * Processing failed for any other reason, e.g. the file exhausted memory.
+         */
+        FAILED,
+
+        /**
+         * File exceeded its parse budget ({@code XmlFile.getBudgetFailure()}), e.g. size, depth or time limit.
+         */
+        BUDGET_EXCEEDED
+    }
+
+    private final Status status;
+    private final String path;
+    private final List<DigestResult> results;
+
+    /**
+     * @param status final state of the file
+     * @param path absolute normalized path of the file
+     * @param results digests, empty unless {@link Status#DONE}
+     */
+    public BatchEntry(Status status, String path, List<DigestResult> results) {
+        this.status = status;
+        this.path = path;
+        this.results = results;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    public String getPath() {
+        return path;
+    }
+
+    public List<DigestResult> getResults() {
+        return results;
+    }
+
+    @Override
+    public String toString() {
+        return path + "\t" + ((status == Status.DONE) ? results.toString() : status.toString());
+    }
+
+}
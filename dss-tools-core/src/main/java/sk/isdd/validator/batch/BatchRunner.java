@@ -0,0 +1,273 @@
+package sk.isdd.validator.batch;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import sk.isdd.validator.ApplicationException;
+import sk.isdd.validator.digest.DigestEngine;
+import sk.isdd.validator.digest.DigestResult;
+import sk.isdd.validator.enumerations.DigestAlgorithm;
+import sk.isdd.validator.enumerations.XmlC14nMethod;
+import sk.isdd.validator.io.IoPriority;
+import sk.isdd.validator.store.BlobStore;
+import sk.isdd.validator.store.DigestIndex;
+import sk.isdd.validator.xml.XmlFile;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+
+/**
+ * Resumable batch run: reads, optionally parses, canonicalizes and digests files by {@link XmlFile},
+ * recording every outcome in {@link CheckpointJournal}.
+ *
+ * <p> Files already recorded in the journal are skipped, including failed ones, so a file which can't be read
+ * or parsed is not retried endlessly. Errors (including {@link OutOfMemoryError} of single huge file, or runtime
+ * failure of the journal) are recorded as failure of the file and the run continues, failure of the listener is logged.
+ */
+public class BatchRunner {
+
+    private static final Logger LOG = LoggerFactory.getLogger(BatchRunner.class);
+
+    /**
+     * Counters of finished run.
+     */
+    public static final class Summary {
+
+        private final long processed;
+        private final long skipped;
+        private final long failed;
+
+        Summary(long processed, long skipped, long failed) {
+            this.processed = processed;
+            this.skipped = skipped;
+            this.failed = failed;
+        }
+
+        public long getProcessed() {
+            return processed;
+        }
+
+        /**
+         * Number of files skipped as completed by previous run.
+         */
+        public long getSkipped() {
+            return skipped;
+        }
+
+        /**
+         * Number of files processed by this run with other status than {@link BatchEntry.Status#DONE}.
+         */
+        public long getFailed() {
+            return failed;
+        }
+
+        @Override
+        public String toString() {
+            return processed + " processed (" + failed + " failed), " + skipped + " skipped as completed";
+        }
+    }
+
+    private final XmlC14nMethod method;
+    private final List<DigestAlgorithm> algorithms;
+    private final boolean parse;
+    private final int threads;
+    private BlobStore blobStore;
+    private DigestIndex digestIndex;
+
+    /**
+     * @param method canonicalization method, {@link XmlC14nMethod#C14N_NONE} digests raw bytes
+     * @param algorithms digest algorithms
+     * @param parse parse each file into DOM first, recording ill-formed documents as {@link BatchEntry.Status#PARSE_FAILED}
+     * @param threads number of files processed in parallel
+     */
+    public BatchRunner(XmlC14nMethod method, List<DigestAlgorithm> algorithms, boolean parse, int threads) {
+        this.method = method;
+        this.algorithms = algorithms;
+        this.parse = parse;
+        this.threads = Math.max(1, threads);
+    }
+
+    /**
+     * Save canonical forms of processed files to content-addressed store (each distinct form once).
+     *
+     * @param blobStore the store, null to not save
+     */
+    public void setBlobStore(BlobStore blobStore) {
+        this.blobStore = blobStore;
+    }
+
+    /**
+     * Record digests of processed files in the reverse index.
+     *
+     * @param digestIndex the index, its algorithm must be one of the run's algorithms; null to not index
+     */
+    public void setDigestIndex(DigestIndex digestIndex) {
+
+        if (digestIndex != null && !algorithms.contains(digestIndex.getAlgorithm())) {
+            throw new IllegalArgumentException("Index of " + digestIndex.getAlgorithm().getJavaName() + " is not digested by the run.");
+        }
+        this.digestIndex = digestIndex;
+    }
+
+    /**
+     * Process all files not completed yet according to the journal.
+     *
+     * @param files files of the batch
+     * @param journal journal opened with the same method and algorithms
+     * @param listener receives entries processed by this run (serialized calls from worker threads), may be {@code null}
+     * @return counters of the run
+     * @throws IOException if writing of the journal fails
+     */
+    public Summary run(Iterable<Path> files, CheckpointJournal journal, Consumer<BatchEntry> listener) throws IOException {
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        Semaphore inFlight = new Semaphore(threads * 4);
+        AtomicLong processed = new AtomicLong();
+        AtomicLong failed = new AtomicLong();
+        AtomicReference<IOException> journalFailure = new AtomicReference<>();
+        long skipped = 0;
+
+        try {
+            for (Path file : files) {
+                String path = file.toAbsolutePath().normalize().toString();
+                if (journal.isCompleted(path)) {
+                    skipped++;
+                    continue;
+                }
+                if (journalFailure.get() != null) {
+                    break;
+                }
+
+                inFlight.acquire();
+                executor.execute(() -> {
+                    boolean recorded = false;
+                    try {
+                        BatchEntry entry = process(path);
+                        journal.append(entry);
+                        recorded = true;
+                        processed.incrementAndGet();
+                        if (entry.getStatus() != BatchEntry.Status.DONE) {
+                            failed.incrementAndGet();
+                        }
+                        if (listener != null) {
+                            synchronized (listener) {
+                                listener.accept(entry);
+                            }
+                        }
+                    } catch (IOException e) {
+                        journalFailure.compareAndSet(null, e);
+                    } catch (RuntimeException e) {
+                        if (recorded) {
+                            LOG.warn("Listener failed on file \"" + path + "\": " + e.getMessage(), e);
+                        } else {
+                            LOG.warn("File \"" + path + "\" failed: " + e.getMessage(), e);
+                            // the entry was not journaled, recorded as failed like any other failure of the file
+                            processed.incrementAndGet();
+                            failed.incrementAndGet();
+                            try {
+                                journal.append(failure(BatchEntry.Status.FAILED, path));
+                            } catch (IOException | RuntimeException f) {
+                                journalFailure.compareAndSet(null, (f instanceof IOException) ? (IOException) f
+                                        : new IOException("Unable to journal \"" + path + "\": " + f.getMessage(), f));
+                            }
+                        }
+                    } finally {
+                        inFlight.release();
+                    }
+                });
+            }
+
+            executor.shutdown();
+            executor.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ApplicationException("Batch run interrupted.", e);
+        } finally {
+            executor.shutdownNow();
+            journal.flush();
+        }
+
+        if (journalFailure.get() != null) {
+            throw journalFailure.get();
+        }
+        Summary summary = new Summary(processed.get(), skipped, failed.get());
+        LOG.info("Batch run finished: " + summary);
+        return summary;
+    }
+
+    /**
+     * Process single file, all failures are returned as entry status.
+     */
+    BatchEntry process(String path) {
+
+        try {
+            XmlFile xmlFile = new XmlFile(path);
+            xmlFile.setIoPriority(IoPriority.BACKGROUND);
+
+            if (parse && xmlFile.parseXml() == null) {
+                return failure(xmlFile.getBudgetFailure() != null ? BatchEntry.Status.BUDGET_EXCEEDED
+                        : xmlFile.isReadingFailed() ? BatchEntry.Status.READ_FAILED : BatchEntry.Status.PARSE_FAILED, path);
+            }
+
+            byte[] bytes = xmlFile.canonicalize(method);
+            if (bytes == null) {
+                return failure(xmlFile.getBudgetFailure() != null ? BatchEntry.Status.BUDGET_EXCEEDED
+                        : xmlFile.isReadingFailed() ? BatchEntry.Status.READ_FAILED : BatchEntry.Status.C14N_FAILED, path);
+            }
+
+            List<DigestResult> results = DigestEngine.calculate(bytes, algorithms);
+            if (blobStore != null) {
+                save(bytes, results);
+            }
+            if (digestIndex != null) {
+                index(path, results);
+            }
+            return new BatchEntry(BatchEntry.Status.DONE, path, results);
+
+        } catch (OutOfMemoryError e) {
+            LOG.error("File \"" + path + "\" exhausted memory, recorded as failed.");
+            return failure(BatchEntry.Status.FAILED, path);
+
+        } catch (IOException | RuntimeException e) {
+            LOG.warn("File \"" + path + "\" failed: " + e.getMessage(), e);
+            return failure(BatchEntry.Status.FAILED, path);
+        }
+    }
+
+    /**
+     * Save canonical form, reusing its SHA-256 if calculated.
+     */
+    private void save(byte[] bytes, List<DigestResult> results) throws IOException {
+
+        for (DigestResult result : results) {
+            if (result.getAlgorithm() == DigestAlgorithm.SHA256) {
+                blobStore.put(bytes, result.getDigest());
+                return;
+            }
+        }
+        blobStore.put(bytes);
+    }
+
+    private void index(String path, List<DigestResult> results) {
+
+        for (DigestResult result : results) {
+            if (result.getAlgorithm() == digestIndex.getAlgorithm()) {
+                digestIndex.put(result.getDigest(), path, method, System.currentTimeMillis());
+            }
+        }
+    }
+
+    private static BatchEntry failure(BatchEntry.Status status, String path) {
+        return new BatchEntry(status, path, Collections.emptyList());
+    }
+
+}
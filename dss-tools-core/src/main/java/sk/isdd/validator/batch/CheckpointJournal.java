@@ -0,0 +1,313 @@
+package sk.isdd.validator.batch;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import sk.isdd.validator.ApplicationException;
+import sk.isdd.validator.digest.DigestResult;
+import sk.isdd.validator.enumerations.DigestAlgorithm;
+import sk.isdd.validator.enumerations.XmlC14nMethod;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.zip.CRC32C;
+
+/**
+ * Compact append-only journal of files completed by a batch run, allowing the run to be resumed.
+ *
+ * <p> The journal starts by header identifying the run settings (c14n method and digest algorithms),
+ * so a journal is never resumed by a run with different settings; a journal with torn header is reported as damaged. Each record is framed as
+ * {@code int length | int crc32c | payload} where payload is {@code byte status | UTF path | byte count |
+ * count * (byte algorithm index | digest)}. Records are buffered and flushed (and forced to disk) in batches,
+ * a torn or corrupted tail left by a crash is detected by its checksum and truncated when the journal is opened.
+ *
+ * <p> Completed paths are kept in memory as sorted array of 64-bit hashes only, 8 bytes per file.
+ * Files completed by the current run are not tracked, the run is expected to visit every file once.
+ */
+public class CheckpointJournal implements Closeable {
+
+    private static final Logger LOG = LoggerFactory.getLogger(CheckpointJournal.class);
+
+    private static final int MAGIC = 0x44534a31;
+    private static final int MAX_RECORD = 1024 * 1024;
+    private static final int DEFAULT_FLUSH_RECORDS = 1000;
+    private static final long DEFAULT_FLUSH_MILLIS = 1000;
+
+    private final Path file;
+    private final List<DigestAlgorithm> algorithms;
+    private final FileChannel channel;
+    private final DataOutputStream output;
+    private final ByteArrayOutputStream record = new ByteArrayOutputStream();
+    private final long[] completed;
+
+    private int flushRecords = DEFAULT_FLUSH_RECORDS;
+    private long flushMillis = DEFAULT_FLUSH_MILLIS;
+    private int pending;
+    private long lastFlush = System.currentTimeMillis();
+    private long appended;
+
+    private CheckpointJournal(Path file, List<DigestAlgorithm> algorithms, FileChannel channel, long[] completed) {
+        this.file = file;
+        this.algorithms = algorithms;
+        this.channel = channel;
+        this.completed = completed;
+        this.output = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(channel), 64 * 1024));
+    }
+
+    /**
+     * Open existing journal or create new one.
+     *
+     * @param file the journal file
+     * @param method c14n method of the run
+     * @param algorithms digest algorithms of the run
+     * @param replayed receives entries already recorded in the journal, may be {@code null}
+     * @return opened journal positioned at its end
+     * @throws IOException if the journal cannot be read or written
+     * @throws ApplicationException if the journal belongs to run with different settings
+     */
+    public static CheckpointJournal open(Path file, XmlC14nMethod method, List<DigestAlgorithm> algorithms,
+                                         Consumer<BatchEntry> replayed) throws IOException {
+
+        if (algorithms.isEmpty() || algorithms.size() > Byte.MAX_VALUE) {
+            throw new IllegalArgumentException("1 to 127 digest algorithms expected.");
+        }
+        byte[] header = header(method, algorithms);
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+
+        try {
+            long size = channel.size();
+            long[] completed = new long[0];
+
+            if (size == 0) {
+                channel.write(ByteBuffer.wrap(header));
+                channel.force(true);
+
+            } else {
+                long[] hashes = new long[1024];
+                int count = 0;
+                long offset = header.length;
+
+                try (InputStream in = new BufferedInputStream(Files.newInputStream(file), 64 * 1024)) {
+                    byte[] written = in.readNBytes(header.length);
+                    if (written.length < header.length || ByteBuffer.wrap(written).getInt() != MAGIC) {
+                        // header is written and forced before any record, a short one was torn by a crash at creation
+                        throw new ApplicationException("Journal \"" + file + "\" is damaged (torn or unknown header), delete it to start over.");
+                    }
+                    if (!Arrays.equals(written, header)) {
+                        throw new ApplicationException("Journal \"" + file + "\" was written by run with different settings.");
+                    }
+                    DataInputStream data = new DataInputStream(in);
+
+                    while (offset < size) {
+                        BatchEntry entry;
+                        try {
+                            int length = data.readInt();
+                            int crc = data.readInt();
+                            if (length <= 0 || length > MAX_RECORD) {
+                                break;
+                            }
+                            byte[] payload = data.readNBytes(length);
+                            CRC32C checksum = new CRC32C();
+                            checksum.update(payload);
+                            if (payload.length != length || (int) checksum.getValue() != crc) {
+                                break;
+                            }
+                            entry = decode(payload, algorithms);
+                            offset += 8 + length;
+
+                        } catch (EOFException e) {
+                            break;
+                        }
+
+                        if (count == hashes.length) {
+                            hashes = Arrays.copyOf(hashes, count * 2);
+                        }
+                        hashes[count++] = hash(entry.getPath());
+                        if (replayed != null) {
+                            replayed.accept(entry);
+                        }
+                    }
+                }
+
+                if (offset < size) {
+                    LOG.warn("Journal \"" + file + "\" has torn tail of " + (size - offset) + " bytes, truncating.");
+                    channel.truncate(offset);
+                }
+                completed = Arrays.copyOf(hashes, count);
+                Arrays.sort(completed);
+                LOG.info("Journal \"" + file + "\" resumed with " + count + " completed files.");
+            }
+
+            channel.position(channel.size());
+            return new CheckpointJournal(file, new ArrayList<>(algorithms), channel, completed);
+
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Set flush policy: records are flushed after given count or age, whichever comes first.
+     */
+    public void setFlushPolicy(int records, long millis) {
+        this.flushRecords = records;
+        this.flushMillis = millis;
+    }
+
+    /**
+     * Return true if the file was completed by previous run (with any status).
+     *
+     * @param path absolute normalized path of the file
+     */
+    public boolean isCompleted(String path) {
+        return Arrays.binarySearch(completed, hash(path)) >= 0;
+    }
+
+    /**
+     * Number of files completed by previous runs.
+     */
+    public int getResumedCount() {
+        return completed.length;
+    }
+
+    /**
+     * Number of files appended by this run.
+     */
+    public synchronized long getAppendedCount() {
+        return appended;
+    }
+
+    /**
+     * Append entry, flushed according to flush policy.
+     *
+     * @throws IOException if writing fails
+     */
+    public synchronized void append(BatchEntry entry) throws IOException {
+
+        record.reset();
+        write(new DataOutputStream(record), entry, algorithms);
+
+        CRC32C checksum = new CRC32C();
+        checksum.update(record.toByteArray());
+        output.writeInt(record.size());
+        output.writeInt((int) checksum.getValue());
+        record.writeTo(output);
+        appended++;
+
+        if (++pending >= flushRecords || System.currentTimeMillis() - lastFlush >= flushMillis) {
+            flush();
+        }
+    }
+
+    /**
+     * Write buffered records and force them to disk.
+     *
+     * @throws IOException if writing fails
+     */
+    public synchronized void flush() throws IOException {
+
+        output.flush();
+        channel.force(false);
+        pending = 0;
+        lastFlush = System.currentTimeMillis();
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+
+        try {
+            flush();
+        } finally {
+            channel.close();
+        }
+        LOG.info("Journal \"" + file + "\" closed, " + appended + " files appended.");
+    }
+
+    private static BatchEntry decode(byte[] payload, List<DigestAlgorithm> algorithms) throws IOException {
+        return read(new DataInputStream(new ByteArrayInputStream(payload)), algorithms);
+    }
+
+    /**
+     * Write entry as record payload, algorithms are written as indexes to given list.
+     */
+    static void write(DataOutputStream out, BatchEntry entry, List<DigestAlgorithm> algorithms) throws IOException {
+
+        out.writeByte(entry.getStatus().ordinal());
+        out.writeUTF(entry.getPath());
+        out.writeByte(entry.getResults().size());
+        for (DigestResult result : entry.getResults()) {
+            int index = algorithms.indexOf(result.getAlgorithm());
+            if (index < 0) {
+                throw new IllegalArgumentException("Algorithm " + result.getAlgorithm() + " is not journaled.");
+            }
+            out.writeByte(index);
+            out.write(result.getDigest());
+        }
+    }
+
+    /**
+     * Read entry written by {@link #write(DataOutputStream, BatchEntry, List)}.
+     */
+    static BatchEntry read(DataInputStream in, List<DigestAlgorithm> algorithms) throws IOException {
+
+        BatchEntry.Status status = BatchEntry.Status.values()[in.readUnsignedByte()];
+        String path = in.readUTF();
+        int count = in.readUnsignedByte();
+
+        List<DigestResult> results = (count == 0) ? Collections.emptyList() : new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            DigestAlgorithm algorithm = algorithms.get(in.readUnsignedByte());
+            byte[] digest = new byte[algorithm.getDigestLength()];
+            in.readFully(digest);
+            results.add(new DigestResult(algorithm, digest));
+        }
+        return new BatchEntry(status, path, results);
+    }
+
+    private static byte[] header(XmlC14nMethod method, List<DigestAlgorithm> algorithms) throws IOException {
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream header = new DataOutputStream(bytes);
+        header.writeInt(MAGIC);
+        header.writeUTF(method.getText());
+        header.writeByte(algorithms.size());
+        for (DigestAlgorithm algorithm : algorithms) {
+            header.writeUTF(algorithm.getName());
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * 64-bit FNV-1a hash of the path.
+     */
+    static long hash(String path) {
+
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < path.length(); i++) {
+            char c = path.charAt(i);
+            hash = (hash ^ (c & 0xff)) * 0x100000001b3L;
+            hash = (hash ^ (c >>> 8)) * 0x100000001b3L;
+        }
+        return hash;
+    }
+
+}
@@ -0,0 +1,394 @@
+package sk.isdd.validator.batch;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import sk.isdd.validator.ApplicationException;
+import sk.isdd.validator.enumerations.DigestAlgorithm;
+import sk.isdd.validator.enumerations.XmlC14nMethod;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.BlockingDeque;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
+
+/**
+ * Coordinator of batch run distributed to {@link ShardWorker} processes, possibly on many nodes.
+ *
+ * <p> Files not completed yet according to the journal are partitioned into shards by {@link ShardStrategy}.
+ * Workers connect to the coordinator (see {@link ShardProtocol}) and pull one shard at a time, so faster workers
+ * take more shards. Entries of a shard are merged into the journal when the worker finishes the shard.
+ * When a worker dies (connection closed or silent for {@value #WORKER_TIMEOUT_MILLIS} ms), files of its shard
+ * not reported yet are put back in front of the queue for another worker. A shard failing that way
+ * {@code maxAttempts} times is finished with the entries reported so far and the rest of its files
+ * is split in halves, which get one more attempt each, until the file killing workers is isolated and recorded
+ * as {@link BatchEntry.Status#FAILED}, so such a file can't stop the run nor fail the files sharing its shard.
+ * The journal makes the distributed run resumable as a local one.
+ *
+ * <p> File paths are sent as absolute paths, workers on other nodes need them mounted at the same location.
+ * Workers present the token shared with the coordinator ({@link #setToken(String)}), connections with other
+ * tokens are refused.
+ */
+public class ShardCoordinator {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ShardCoordinator.class);
+
+    /**
+     * Environment variable holding the token shared by the coordinator and its workers.
+     */
+    public static final String TOKEN_ENVIRONMENT = "DSS_TOOLS_SHARD_TOKEN";
+
+    private static final int WORKER_TIMEOUT_MILLIS = 5 * ShardProtocol.HEARTBEAT_MILLIS;
+
+    /**
+     * Files of one shard with entries reported so far, guarded by the owning worker connection.
+     */
+    private static final class Shard {
+
+        private final int id;
+        private final Set<String> remaining;
+        private final List<BatchEntry> entries = new ArrayList<>();
+        private int attempts;
+
+        Shard(int id, Collection<String> paths) {
+            this.id = id;
+            this.remaining = new LinkedHashSet<>(paths);
+        }
+    }
+
+    private final XmlC14nMethod method;
+    private final List<DigestAlgorithm> algorithms;
+    private final boolean parse;
+    private final ShardStrategy strategy;
+    private final int shardCount;
+    private final int maxAttempts;
+
+    private final BlockingDeque<Shard> pending = new LinkedBlockingDeque<>();
+    private final AtomicInteger nextShardId = new AtomicInteger();
+    // shards not merged into the journal yet, waited on by the run
+    private final AtomicInteger unfinished = new AtomicInteger();
+    private final AtomicLong processed = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicInteger connections = new AtomicInteger();
+    private final AtomicReference<IOException> journalFailure = new AtomicReference<>();
+    private volatile String token = "";
+
+    /**
+     * @param method canonicalization method, {@link XmlC14nMethod#C14N_NONE} digests raw bytes
+     * @param algorithms digest algorithms
+     * @param parse workers parse each file into DOM first
+     * @param strategy partitioning of files into shards
+     * @param shardCount number of shards, 0 for about 1000 files per shard
+     * @param maxAttempts number of workers a shard is given to before its remaining files are failed
+     */
+    public ShardCoordinator(XmlC14nMethod method, List<DigestAlgorithm> algorithms, boolean parse,
+                            ShardStrategy strategy, int shardCount, int maxAttempts) {
+        this.method = method;
+        this.algorithms = algorithms;
+        this.parse = parse;
+        this.strategy = strategy;
+        this.shardCount = shardCount;
+        this.maxAttempts = Math.max(1, maxAttempts);
+    }
+
+    /**
+     * Set the secret workers have to present (e.g. from {@link #TOKEN_ENVIRONMENT}).
+     *
+     * @param token the token, null or empty for none
+     */
+    public void setToken(String token) {
+        this.token = (token == null) ? "" : token;
+    }
+
+    /**
+     * Distribute all files not completed yet according to the journal to workers connecting to the server socket,
+     * and wait until all of them are recorded.
+     *
+     * @param files files of the batch
+     * @param journal journal opened with the same method and algorithms
+     * @param server bound socket accepting worker connections, closed when the run ends
+     * @param listener receives merged entries (serialized calls), may be {@code null}
+     * @param workersGone tells that no more workers will connect (e.g. all spawned ones exited), may be {@code null}
+     * @return counters of the run
+     * @throws IOException if writing of the journal fails
+     * @throws ApplicationException if interrupted or all workers are gone before the run ends
+     */
+    public BatchRunner.Summary run(Iterable<Path> files, CheckpointJournal journal, ServerSocket server,
+                                   Consumer<BatchEntry> listener, BooleanSupplier workersGone) throws IOException {
+
+        List<String> paths = new ArrayList<>();
+        long skipped = 0;
+        for (Path file : files) {
+            String path = file.toAbsolutePath().normalize().toString();
+            if (journal.isCompleted(path)) {
+                skipped++;
+            } else {
+                paths.add(path);
+            }
+        }
+
+        int count = (shardCount > 0) ? shardCount : Math.max(1, (paths.size() + 999) / 1000);
+        for (List<String> shard : strategy.partition(paths, count)) {
+            if (!shard.isEmpty()) {
+                pending.add(new Shard(nextShardId.getAndIncrement(), shard));
+            }
+        }
+        unfinished.set(pending.size());
+        LOG.info(paths.size() + " files in " + pending.size() + " shards (" + strategy.getText() + "), "
+                + skipped + " skipped as completed; waiting for workers on port " + server.getLocalPort() + ".");
+
+        ExecutorService handlers = Executors.newCachedThreadPool();
+        Thread acceptor = new Thread(() -> accept(server, handlers, journal, listener), "shard-acceptor");
+        acceptor.setDaemon(true);
+        acceptor.start();
+
+        try {
+            while (!awaitFinished(1000)) {
+                if (journalFailure.get() != null) {
+                    throw journalFailure.get();
+                }
+                if (workersGone != null && connections.get() == 0 && workersGone.getAsBoolean()) {
+                    throw new ApplicationException("All workers are gone, " + unfinished.get() + " shards unfinished.");
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ApplicationException("Coordinated batch run interrupted.", e);
+
+        } finally {
+            server.close();
+            handlers.shutdown();
+            try {
+                handlers.awaitTermination(WORKER_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            handlers.shutdownNow();
+            journal.flush();
+        }
+
+        if (journalFailure.get() != null) {
+            throw journalFailure.get();
+        }
+        BatchRunner.Summary summary = new BatchRunner.Summary(processed.get(), skipped, failed.get());
+        LOG.info("Coordinated batch run finished: " + summary);
+        return summary;
+    }
+
+    private void accept(ServerSocket server, ExecutorService handlers, CheckpointJournal journal, Consumer<BatchEntry> listener) {
+
+        while (!server.isClosed()) {
+            try {
+                Socket socket = server.accept();
+                connections.incrementAndGet();
+                handlers.execute(() -> {
+                    try {
+                        serve(socket, journal, listener);
+                    } finally {
+                        connections.decrementAndGet();
+                    }
+                });
+            } catch (SocketException e) {
+                // server closed, run ended
+            } catch (IOException e) {
+                LOG.warn("Cannot accept worker connection: " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Serve single worker connection until there are no more shards or the worker dies.
+     */
+    private void serve(Socket socket, CheckpointJournal journal, Consumer<BatchEntry> listener) {
+
+        String worker = socket.getRemoteSocketAddress().toString();
+        Shard shard = null;
+        try (Socket connection = socket) {
+            connection.setSoTimeout(WORKER_TIMEOUT_MILLIS);
+            DataInputStream in = new DataInputStream(new BufferedInputStream(connection.getInputStream()));
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(connection.getOutputStream()));
+
+            ShardProtocol.expect(in, ShardProtocol.HELLO);
+            if (in.readInt() != ShardProtocol.VERSION) {
+                throw new IOException("Unsupported protocol version.");
+            }
+            if (!ShardProtocol.isAuthorized(token, in.readUTF())) {
+                throw new IOException("Wrong token, connection refused.");
+            }
+            worker = in.readUTF() + " (" + worker + ")";
+            int threads = in.readInt();
+            LOG.info("Worker " + worker + " connected with " + threads + " threads.");
+            ShardProtocol.writeJob(out, method, algorithms, parse);
+
+            while ((shard = nextShard()) != null) {
+                out.writeByte(ShardProtocol.SHARD);
+                out.writeInt(shard.id);
+                out.writeInt(shard.remaining.size());
+                for (String path : shard.remaining) {
+                    out.writeUTF(path);
+                }
+                out.flush();
+
+                receive(in, shard);
+                complete(shard, journal, listener);
+                shard = null;
+            }
+
+            out.writeByte(ShardProtocol.BYE);
+            out.flush();
+            LOG.info("Worker " + worker + " released.");
+
+        } catch (IOException | RuntimeException e) {
+            LOG.warn("Worker " + worker + " lost: " + e);
+            if (shard != null) {
+                retry(shard, journal, listener);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            if (shard != null) {
+                pending.addFirst(shard);
+            }
+        }
+    }
+
+    /**
+     * Take next shard, waiting while shards of other workers may still come back; null when all are finished.
+     */
+    private Shard nextShard() throws InterruptedException {
+
+        while (unfinished.get() > 0) {
+            Shard shard = pending.poll(200, TimeUnit.MILLISECONDS);
+            if (shard != null) {
+                return shard;
+            }
+        }
+        return null;
+    }
+
+    private void receive(DataInputStream in, Shard shard) throws IOException {
+
+        while (true) {
+            byte type = in.readByte();
+            if (type == ShardProtocol.HEARTBEAT) {
+                continue;
+            }
+            int id = in.readInt();
+            if (id != shard.id) {
+                throw new IOException("Protocol error: shard " + shard.id + " expected, got " + id);
+            }
+
+            if (type == ShardProtocol.ENTRY) {
+                BatchEntry entry = CheckpointJournal.read(in, algorithms);
+                if (shard.remaining.remove(entry.getPath())) {
+                    shard.entries.add(entry);
+                }
+            } else if (type == ShardProtocol.SHARD_DONE) {
+                if (!shard.remaining.isEmpty()) {
+                    throw new IOException("Shard " + shard.id + " finished without " + shard.remaining.size() + " files.");
+                }
+                return;
+            } else {
+                throw new IOException("Protocol error: unexpected message " + type);
+            }
+        }
+    }
+
+    private void retry(Shard shard, CheckpointJournal journal, Consumer<BatchEntry> listener) {
+
+        if (++shard.attempts < maxAttempts) {
+            LOG.info("Shard " + shard.id + " returned to queue, " + shard.remaining.size() + " files left.");
+            pending.addFirst(shard);
+            return;
+        }
+
+        if (shard.remaining.size() > 1) {
+            // bisect: the halves get one attempt each, single files all attempts again before they are failed
+            List<String> files = new ArrayList<>(shard.remaining);
+            int half = files.size() / 2;
+            unfinished.addAndGet(2);
+            for (List<String> part : Arrays.asList(files.subList(half, files.size()), files.subList(0, half))) {
+                Shard child = new Shard(nextShardId.getAndIncrement(), part);
+                child.attempts = (part.size() > 1) ? maxAttempts - 1 : 0;
+                pending.addFirst(child);
+            }
+            LOG.warn("Shard " + shard.id + " failed " + shard.attempts + " times, " + files.size()
+                    + " remaining files split into shards of " + half + " and " + (files.size() - half) + " files.");
+            shard.remaining.clear();
+            complete(shard, journal, listener);
+            return;
+        }
+
+        LOG.error("Shard " + shard.id + " failed " + shard.attempts + " times, file " + shard.remaining
+                + " recorded as failed.");
+        for (String path : shard.remaining) {
+            shard.entries.add(new BatchEntry(BatchEntry.Status.FAILED, path, Collections.emptyList()));
+        }
+        shard.remaining.clear();
+        complete(shard, journal, listener);
+    }
+
+    /**
+     * Merge entries of finished shard into the journal.
+     */
+    private void complete(Shard shard, CheckpointJournal journal, Consumer<BatchEntry> listener) {
+
+        try {
+            for (BatchEntry entry : shard.entries) {
+                journal.append(entry);
+                processed.incrementAndGet();
+                if (entry.getStatus() != BatchEntry.Status.DONE) {
+                    failed.incrementAndGet();
+                }
+                if (listener != null) {
+                    synchronized (listener) {
+                        listener.accept(entry);
+                    }
+                }
+            }
+        } catch (IOException e) {
+            journalFailure.compareAndSet(null, e);
+        }
+        if (unfinished.decrementAndGet() == 0) {
+            synchronized (unfinished) {
+                unfinished.notifyAll();
+            }
+        }
+    }
+
+    /**
+     * Wait until all shards are merged into the journal.
+     *
+     * @return true if all shards are finished
+     */
+    private boolean awaitFinished(long millis) throws InterruptedException {
+
+        synchronized (unfinished) {
+            if (unfinished.get() > 0) {
+                unfinished.wait(millis);
+            }
+            return unfinished.get() == 0;
+        }
+    }
+
+}
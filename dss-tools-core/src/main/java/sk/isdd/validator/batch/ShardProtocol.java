@@ -0,0 +1,109 @@
+package sk.isdd.validator.batch;
+
+import sk.isdd.validator.enumerations.DigestAlgorithm;
+import sk.isdd.validator.enumerations.XmlC14nMethod;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Binary protocol between {@link ShardCoordinator} and {@link ShardWorker} over a plain TCP connection.
+ *
+ * <p> Every message starts by its type byte. Worker starts by {@link #HELLO}, coordinator answers by {@link #JOB}
+ * and then sends one {@link #SHARD} at a time. Worker streams {@link #ENTRY} per file (journal record payload,
+ * see {@link CheckpointJournal}) and ends the shard by {@link #SHARD_DONE}; {@link #HEARTBEAT}s are sent meanwhile
+ * so that a silent connection means a dead worker. Coordinator ends by {@link #BYE} when all shards are finished.
+ */
+final class ShardProtocol {
+
+    static final int VERSION = 2;
+
+    /**
+     * Worker greeting: {@code int version | UTF token | UTF name | int threads}. The token is the secret shared
+     * with the coordinator, empty if none.
+     */
+    static final byte HELLO = 1;
+
+    /**
+     * Run settings: {@code UTF method | byte count | count * UTF algorithm | boolean parse}.
+     */
+    static final byte JOB = 2;
+
+    /**
+     * Shard to be processed: {@code int shard | int count | count * UTF path}.
+     */
+    static final byte SHARD = 3;
+
+    /**
+     * Outcome of single file: {@code int shard | entry payload}.
+     */
+    static final byte ENTRY = 4;
+
+    /**
+     * All files of the shard were sent: {@code int shard}.
+     */
+    static final byte SHARD_DONE = 5;
+
+    /**
+     * Worker is alive.
+     */
+    static final byte HEARTBEAT = 6;
+
+    /**
+     * No more shards, worker disconnects.
+     */
+    static final byte BYE = 7;
+
+    /**
+     * Interval of worker heartbeats.
+     */
+    static final int HEARTBEAT_MILLIS = 2000;
+
+    private ShardProtocol() {
+    }
+
+    static void writeJob(DataOutputStream out, XmlC14nMethod method, List<DigestAlgorithm> algorithms, boolean parse) throws IOException {
+
+        out.writeByte(JOB);
+        out.writeUTF(method.getText());
+        out.writeByte(algorithms.size());
+        for (DigestAlgorithm algorithm : algorithms) {
+            out.writeUTF(algorithm.getName());
+        }
+        out.writeBoolean(parse);
+    }
+
+    static List<DigestAlgorithm> readAlgorithms(DataInputStream in) throws IOException {
+
+        int count = in.readUnsignedByte();
+        List<DigestAlgorithm> algorithms = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            algorithms.add(DigestAlgorithm.forName(in.readUTF()));
+        }
+        return algorithms;
+    }
+
+    /**
+     * Compare shared tokens in constant time.
+     */
+    static boolean isAuthorized(String expected, String presented) {
+        return MessageDigest.isEqual(expected.getBytes(StandardCharsets.UTF_8), presented.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Read type of next message and check it is the expected one.
+     */
+    static void expect(DataInputStream in, byte type) throws IOException {
+
+        byte actual = in.readByte();
+        if (actual != type) {
+            throw new IOException("Protocol error: message " + type + " expected, got " + actual);
+        }
+    }
+
+}
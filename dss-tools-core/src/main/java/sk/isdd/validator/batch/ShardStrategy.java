@@ -0,0 +1,109 @@
+package sk.isdd.validator.batch;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * Enumeration of ways to partition files of a batch into shards processed by {@link ShardWorker}s.
+ */
+public enum ShardStrategy {
+
+    /**
+     * Shard by 64-bit hash of the path. Stable: a file always lands in the same shard of the same shard count,
+     * without looking at the file.
+     */
+    HASH("hash") {
+        @Override
+        List<List<String>> partition(List<String> paths, int count) {
+
+            List<List<String>> shards = emptyShards(count);
+            for (String path : paths) {
+                shards.get((int) Math.floorMod(CheckpointJournal.hash(path), (long) count)).add(path);
+            }
+            return shards;
+        }
+    },
+
+    /**
+     * Size-balanced bins: files in decreasing size are put into the bin with least bytes so far,
+     * so that shards take similar time even for skewed file sizes. Sizes are read by the coordinator.
+     */
+    SIZE("size") {
+        @Override
+        List<List<String>> partition(List<String> paths, int count) {
+
+            long[] sizes = new long[paths.size()];
+            Integer[] order = new Integer[paths.size()];
+            for (int i = 0; i < sizes.length; i++) {
+                order[i] = i;
+                try {
+                    sizes[i] = Files.size(Paths.get(paths.get(i)));
+                } catch (IOException e) {
+                    // unreadable file is cheap, its failure is recorded by the worker
+                }
+            }
+            Arrays.sort(order, Comparator.comparingLong((Integer i) -> sizes[i]).reversed());
+
+            List<List<String>> shards = emptyShards(count);
+            long[] loads = new long[count];
+            PriorityQueue<Integer> lightest = new PriorityQueue<>(Comparator.comparingLong((Integer bin) -> loads[bin])
+                    .thenComparingInt(bin -> bin));
+            for (int bin = 0; bin < count; bin++) {
+                lightest.add(bin);
+            }
+            for (Integer i : order) {
+                int bin = lightest.poll();
+                shards.get(bin).add(paths.get(i));
+                loads[bin] += Math.max(1, sizes[i]);
+                lightest.add(bin);
+            }
+            return shards;
+        }
+    };
+
+    private final String text;
+
+    ShardStrategy(String text) {
+        this.text = text;
+    }
+
+    public String getText() {
+        return text;
+    }
+
+    /**
+     * Partition paths into given number of shards, some of them may be empty.
+     */
+    abstract List<List<String>> partition(List<String> paths, int count);
+
+    private static List<List<String>> emptyShards(int count) {
+
+        List<List<String>> shards = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            shards.add(new ArrayList<>());
+        }
+        return shards;
+    }
+
+    /**
+     * Returns the strategy for given text.
+     *
+     * @throws IllegalArgumentException if the text doesn't match any strategy
+     */
+    public static ShardStrategy forText(String text) {
+
+        for (ShardStrategy strategy : values()) {
+            if (strategy.text.equals(text)) {
+                return strategy;
+            }
+        }
+        throw new IllegalArgumentException("Unsupported shard strategy: " + text);
+    }
+
+}
@@ -0,0 +1,199 @@
+package sk.isdd.validator.batch;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import sk.isdd.validator.enumerations.DigestAlgorithm;
+import sk.isdd.validator.enumerations.XmlC14nMethod;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.ConnectException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Worker process of the distributed batch run, see {@link ShardCoordinator}.
+ *
+ * <p> Connects to the coordinator, receives run settings and then processes shards one by one, files of a shard
+ * in parallel by the same code as local {@link BatchRunner}. Heartbeats are sent from separate thread, so that
+ * a long file doesn't make the worker look dead.
+ */
+public class ShardWorker {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ShardWorker.class);
+
+    private final int threads;
+    private final long connectTimeoutMillis;
+    private volatile String token = "";
+
+    /**
+     * @param threads number of files processed in parallel
+     * @param connectTimeoutMillis how long to retry connecting to the coordinator which is not listening yet
+     */
+    public ShardWorker(int threads, long connectTimeoutMillis) {
+        this.threads = Math.max(1, threads);
+        this.connectTimeoutMillis = connectTimeoutMillis;
+    }
+
+    /**
+     * Set the secret shared with the coordinator (see {@link ShardCoordinator#TOKEN_ENVIRONMENT}).
+     *
+     * @param token the token, null or empty for none
+     */
+    public void setToken(String token) {
+        this.token = (token == null) ? "" : token;
+    }
+
+    /**
+     * Work for the coordinator until it has no more shards.
+     *
+     * @param host coordinator host
+     * @param port coordinator port
+     * @return number of shards processed
+     * @throws IOException if the coordinator can't be reached or the connection fails
+     */
+    public int run(String host, int port) throws IOException {
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        ScheduledExecutorService heartbeat = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "shard-heartbeat");
+            thread.setDaemon(true);
+            return thread;
+        });
+        int shards = 0;
+
+        try (Socket socket = connect(host, port)) {
+            DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+
+            out.writeByte(ShardProtocol.HELLO);
+            out.writeInt(ShardProtocol.VERSION);
+            out.writeUTF(token);
+            out.writeUTF(getName());
+            out.writeInt(threads);
+            out.flush();
+
+            ShardProtocol.expect(in, ShardProtocol.JOB);
+            XmlC14nMethod method = XmlC14nMethod.forText(in.readUTF());
+            List<DigestAlgorithm> algorithms = ShardProtocol.readAlgorithms(in);
+            BatchRunner runner = new BatchRunner(method, algorithms, in.readBoolean(), threads);
+
+            heartbeat.scheduleAtFixedRate(() -> {
+                try {
+                    synchronized (out) {
+                        out.writeByte(ShardProtocol.HEARTBEAT);
+                        out.flush();
+                    }
+                } catch (IOException e) {
+                    // connection failure is reported by the main loop
+                }
+            }, ShardProtocol.HEARTBEAT_MILLIS, ShardProtocol.HEARTBEAT_MILLIS, TimeUnit.MILLISECONDS);
+
+            byte type;
+            while ((type = in.readByte()) == ShardProtocol.SHARD) {
+                int id = in.readInt();
+                int count = in.readInt();
+                List<String> paths = new ArrayList<>(count);
+                for (int i = 0; i < count; i++) {
+                    paths.add(in.readUTF());
+                }
+                LOG.info("Shard " + id + " received, " + count + " files.");
+
+                process(id, paths, runner, algorithms, executor, out);
+                synchronized (out) {
+                    out.writeByte(ShardProtocol.SHARD_DONE);
+                    out.writeInt(id);
+                    out.flush();
+                }
+                shards++;
+            }
+            if (type != ShardProtocol.BYE) {
+                throw new IOException("Protocol error: unexpected message " + type);
+            }
+
+        } finally {
+            heartbeat.shutdownNow();
+            executor.shutdownNow();
+        }
+
+        LOG.info("Worker finished, " + shards + " shards processed.");
+        return shards;
+    }
+
+    private void process(int id, List<String> paths, BatchRunner runner, List<DigestAlgorithm> algorithms,
+                         ExecutorService executor, DataOutputStream out) throws IOException {
+
+        List<Future<?>> futures = new ArrayList<>(paths.size());
+        for (String path : paths) {
+            futures.add(executor.submit(() -> {
+                BatchEntry entry = runner.process(path);
+                synchronized (out) {
+                    out.writeByte(ShardProtocol.ENTRY);
+                    out.writeInt(id);
+                    CheckpointJournal.write(out, entry, algorithms);
+                }
+                return null;
+            }));
+        }
+
+        try {
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Worker interrupted.", e);
+        } catch (ExecutionException e) {
+            throw (e.getCause() instanceof IOException) ? (IOException) e.getCause() : new IOException(e.getCause());
+        }
+    }
+
+    private Socket connect(String host, int port) throws IOException {
+
+        long deadline = System.currentTimeMillis() + connectTimeoutMillis;
+        while (true) {
+            Socket socket = new Socket();
+            try {
+                socket.connect(new InetSocketAddress(host, port), 5000);
+                socket.setTcpNoDelay(true);
+                return socket;
+
+            } catch (ConnectException e) {
+                socket.close();
+                if (System.currentTimeMillis() >= deadline) {
+                    throw e;
+                }
+                try {
+                    Thread.sleep(500);
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                    throw new IOException("Worker interrupted.", ie);
+                }
+            }
+        }
+    }
+
+    private static String getName() {
+
+        String host;
+        try {
+            host = InetAddress.getLocalHost().getHostName();
+        } catch (IOException e) {
+            host = "localhost";
+        }
+        return host + "/" + ProcessHandle.current().pid();
+    }
+
+}
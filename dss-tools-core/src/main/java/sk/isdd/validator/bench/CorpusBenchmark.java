@@ -0,0 +1,229 @@
+package sk.isdd.validator.bench;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import sk.isdd.validator.ApplicationException;
+import sk.isdd.validator.digest.DigestEngine;
+import sk.isdd.validator.enumerations.DigestAlgorithm;
+import sk.isdd.validator.enumerations.XmlC14nMethod;
+import sk.isdd.validator.xml.XmlFile;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * End-to-end throughput benchmark of the same pipeline as the GUI: {@link XmlFile#readFile()},
+ * optional {@link XmlFile#parseXml()}, {@link XmlFile#canonicalize(XmlC14nMethod)} and digests of the result.
+ *
+ * <p> Every file is processed by fresh {@code XmlFile}, latency is measured per file from construction to digests.
+ * Warmup files are processed first and left out of the report.
+ */
+public class CorpusBenchmark {
+
+    private static final Logger LOG = LoggerFactory.getLogger(CorpusBenchmark.class);
+
+    /**
+     * Measured results.
+     */
+    public static final class Report {
+
+        private final int files;
+        private final int failed;
+        private final long bytes;
+        private final long elapsedNanos;
+        private final long[] latencies;
+        private final long peakRss;
+        private final long peakHeap;
+
+        Report(int files, int failed, long bytes, long elapsedNanos, long[] latencies, long peakRss, long peakHeap) {
+            this.files = files;
+            this.failed = failed;
+            this.bytes = bytes;
+            this.elapsedNanos = elapsedNanos;
+            this.latencies = latencies;
+            this.peakRss = peakRss;
+            this.peakHeap = peakHeap;
+        }
+
+        public int getFiles() {
+            return files;
+        }
+
+        public int getFailed() {
+            return failed;
+        }
+
+        public double getFilesPerSecond() {
+            return files * 1e9 / Math.max(1, elapsedNanos);
+        }
+
+        public double getMegabytesPerSecond() {
+            return bytes / 1048576.0 * 1e9 / Math.max(1, elapsedNanos);
+        }
+
+        /**
+         * Return latency percentile in milliseconds.
+         *
+         * @param percentile percentile between 0 and 100
+         */
+        public double getLatencyMillis(double percentile) {
+            if (latencies.length == 0) {
+                return 0;
+            }
+            int index = (int) Math.ceil(percentile / 100.0 * latencies.length) - 1;
+            return latencies[Math.max(0, Math.min(latencies.length - 1, index))] / 1e6;
+        }
+
+        /**
+         * Return peak resident set size of the process in bytes (VmHWM), -1 where not available.
+         */
+        public long getPeakRss() {
+            return peakRss;
+        }
+
+        /**
+         * Return sum of peak usages of heap memory pools in bytes.
+         */
+        public long getPeakHeap() {
+            return peakHeap;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("files:        %d (%d failed), %.1f MB%n"
+                            + "throughput:   %.1f files/s, %.1f MB/s%n"
+                            + "latency:      p50 %.2f ms, p99 %.2f ms, max %.2f ms%n"
+                            + "peak RSS:     %s%n"
+                            + "peak heap:    %.1f MB",
+                    files, failed, bytes / 1048576.0, getFilesPerSecond(), getMegabytesPerSecond(),
+                    getLatencyMillis(50), getLatencyMillis(99), getLatencyMillis(100),
+                    (peakRss < 0) ? "n/a" : String.format("%.1f MB", peakRss / 1048576.0), peakHeap / 1048576.0);
+        }
+    }
+
+    private final XmlC14nMethod method;
+    private final List<DigestAlgorithm> algorithms;
+    private final boolean parse;
+    private final int threads;
+
+    /**
+     * @param method canonicalization method
+     * @param algorithms digests calculated of canonical output
+     * @param parse parse each file into DOM before canonicalization, as the GUI does
+     * @param threads number of files processed at once
+     */
+    public CorpusBenchmark(XmlC14nMethod method, List<DigestAlgorithm> algorithms, boolean parse, int threads) {
+        this.method = method;
+        this.algorithms = algorithms;
+        this.parse = parse;
+        this.threads = Math.max(1, threads);
+    }
+
+    /**
+     * Run the benchmark.
+     *
+     * @param files files of the corpus
+     * @param warmup number of files processed before measurement (taken from the start of the list)
+     * @return measured results
+     */
+    public Report run(List<Path> files, int warmup) {
+
+        warmup = Math.min(warmup, files.size());
+        if (warmup > 0) {
+            LOG.info("Warming up by " + warmup + " files.");
+            process(files.subList(0, warmup), new long[warmup], new AtomicLong(), new AtomicInteger());
+        }
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            pool.resetPeakUsage();
+        }
+
+        List<Path> measured = files.subList(warmup, files.size());
+        long[] latencies = new long[measured.size()];
+        AtomicLong bytes = new AtomicLong();
+        AtomicInteger failed = new AtomicInteger();
+
+        long start = System.nanoTime();
+        process(measured, latencies, bytes, failed);
+        long elapsed = System.nanoTime() - start;
+
+        Arrays.sort(latencies);
+        long peakHeap = 0;
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP && pool.getPeakUsage() != null) {
+                peakHeap += pool.getPeakUsage().getUsed();
+            }
+        }
+        return new Report(measured.size(), failed.get(), bytes.get(), elapsed, latencies, readPeakRss(), peakHeap);
+    }
+
+    private void process(List<Path> files, long[] latencies, AtomicLong bytes, AtomicInteger failed) {
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            for (int i = 0; i < files.size(); i++) {
+                int index = i;
+                executor.execute(() -> latencies[index] = process(files.get(index), bytes, failed));
+            }
+            executor.shutdown();
+            executor.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ApplicationException("Benchmark interrupted.", e);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private long process(Path file, AtomicLong bytes, AtomicInteger failed) {
+
+        long start = System.nanoTime();
+        try {
+            XmlFile xmlFile = new XmlFile(file.toFile());
+            if (xmlFile.readFile() == null || (parse && xmlFile.parseXml() == null)) {
+                failed.incrementAndGet();
+            } else {
+                byte[] canonical = xmlFile.canonicalize(method);
+                if (canonical == null || DigestEngine.calculate(canonical, algorithms).size() != algorithms.size()) {
+                    failed.incrementAndGet();
+                }
+            }
+            bytes.addAndGet(xmlFile.length());
+
+        } catch (OutOfMemoryError | RuntimeException e) {
+            LOG.warn("File \"" + file + "\" failed: " + e);
+            failed.incrementAndGet();
+        }
+        return System.nanoTime() - start;
+    }
+
+    /**
+     * Read peak resident set size from /proc/self/status (Linux only).
+     */
+    private static long readPeakRss() {
+
+        try {
+            for (String line : Files.readAllLines(Paths.get("/proc/self/status"))) {
+                if (line.startsWith("VmHWM:")) {
+                    return Long.parseLong(line.replaceAll("[^0-9]", "")) * 1024;
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            LOG.debug("Peak RSS not available: " + e.getMessage());
+        }
+        return -1;
+    }
+
+}
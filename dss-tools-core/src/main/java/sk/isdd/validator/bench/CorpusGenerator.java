@@ -0,0 +1,308 @@
+package sk.isdd.validator.bench;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import sk.isdd.validator.digest.DigestEngine;
+import sk.isdd.validator.enumerations.DigestAlgorithm;
+import sk.isdd.validator.enumerations.XmlC14nMethod;
+import sk.isdd.validator.xml.CanonicalInputStream;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.List;
+import java.util.SplittableRandom;
+
+/**
+ * Generator of deterministic synthetic XML corpus shaped like production documents, for benchmarks and load tests.
+ *
+ * <p> The same seed, sizes and shapes always produce byte-identical files: each file has its own random generator
+ * derived from the seed and the file index. File sizes are distributed log-uniformly between the bounds
+ * (so a range from kilobytes to gigabytes has files of all magnitudes), shapes are assigned round robin.
+ * Files are written as streams, memory use doesn't depend on their size.
+ */
+public class CorpusGenerator {
+
+    private static final Logger LOG = LoggerFactory.getLogger(CorpusGenerator.class);
+
+    private static final String[] WORDS = {"alfa", "beta", "gama", "delta", "k\u00f4\u0148", "\u017elt\u00fd", "\u00fa\u010det", "fakt\u00fara",
+            "zmluva", "pr\u00edloha", "podpis", "arch\u00edv", "z\u00e1znam", "verzia", "stav", "\u00fadaj"};
+
+    private static final String DSIG_NS = "http://www.w3.org/2000/09/xmldsig#";
+
+    private final long seed;
+    private final long minSize;
+    private final long maxSize;
+    private final List<CorpusShape> shapes;
+
+    /**
+     * @param seed seed of the corpus
+     * @param minSize minimal file size in bytes
+     * @param maxSize maximal file size in bytes
+     * @param shapes shapes of the files, assigned round robin
+     */
+    public CorpusGenerator(long seed, long minSize, long maxSize, List<CorpusShape> shapes) {
+        if (minSize < 1 || maxSize < minSize || shapes.isEmpty()) {
+            throw new IllegalArgumentException("Invalid corpus size range or shapes.");
+        }
+        this.seed = seed;
+        this.minSize = minSize;
+        this.maxSize = maxSize;
+        this.shapes = new ArrayList<>(shapes);
+    }
+
+    /**
+     * Generate files of the corpus into directory.
+     *
+     * @param directory target directory, created if needed
+     * @param count number of files
+     * @return generated files in order
+     * @throws IOException if writing fails
+     */
+    public List<Path> generate(Path directory, int count) throws IOException {
+
+        Files.createDirectories(directory);
+        List<Path> files = new ArrayList<>(count);
+        for (int index = 0; index < count; index++) {
+            files.add(generateFile(directory, index));
+        }
+        return files;
+    }
+
+    /**
+     * Generate single file of the corpus.
+     *
+     * @param directory target directory
+     * @param index index of the file in the corpus
+     * @return the generated file
+     * @throws IOException if writing fails
+     */
+    public Path generateFile(Path directory, int index) throws IOException {
+
+        SplittableRandom random = new SplittableRandom(seed ^ ((index + 1) * 0x9E3779B97F4A7C15L));
+        CorpusShape shape = shapes.get(index % shapes.size());
+        double logMin = Math.log(minSize);
+        long size = Math.round(Math.exp(logMin + random.nextDouble() * (Math.log(maxSize) - logMin)));
+        Path file = directory.resolve(String.format("doc-%06d-%s.xml", index, shape.getText()));
+
+        try (Output out = new Output(file)) {
+            out.write("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n<!-- dss-tools corpus, seed " + seed + ", file "
+                    + index + ", shape " + shape.getText() + " -->\n");
+            switch (shape) {
+                case RECORDS:
+                    writeRecords(out, random, size, "<export xmlns=\"urn:dss-tools:corpus\" xmlns:m=\"urn:dss-tools:meta\""
+                            + " m:generator=\"dss-tools\">\n", "</export>\n");
+                    break;
+                case DEEP:
+                    writeDeep(out, random, size);
+                    break;
+                case NAMESPACED:
+                    writeNamespaced(out, random, size);
+                    break;
+                case BLOB:
+                    writeBlobs(out, random, size);
+                    break;
+                case SIGNED:
+                    writeRecords(out, random, size, "<sig:document xmlns:sig=\"urn:dss-tools:signed\""
+                            + " xmlns:m=\"urn:dss-tools:meta\" Id=\"doc-" + index + "\">\n", "");
+                    break;
+                default:
+                    throw new IllegalStateException("Unknown shape " + shape);
+            }
+        }
+
+        if (shape == CorpusShape.SIGNED) {
+            sign(file, random, index);
+        }
+        LOG.info("Corpus file \"" + file + "\" generated, " + Files.size(file) + " bytes.");
+        return file;
+    }
+
+    private static void writeRecords(Output out, SplittableRandom random, long size, String root, String end) throws IOException {
+
+        out.write(root);
+        for (int i = 0; out.count < size; i++) {
+            StringBuilder record = new StringBuilder(256);
+            record.append("  <record id=\"r").append(i).append("\" m:seq=\"").append(i).append("\">");
+            record.append("<name>").append(word(random)).append(' ').append(word(random)).append(" &amp; syn</name>");
+            record.append("<amount currency=\"EUR\">").append(random.nextInt(1000000)).append('.')
+                    .append(random.nextInt(10)).append(random.nextInt(10)).append("</amount>");
+            record.append("<tags>");
+            for (int t = random.nextInt(4); t >= 0; t--) {
+                record.append("<tag>").append(word(random)).append("</tag>");
+            }
+            record.append("</tags>");
+            if (random.nextInt(8) == 0) {
+                record.append("<!-- checked by ").append(word(random)).append(" -->");
+            }
+            if (random.nextInt(16) == 0) {
+                record.append("<?audit step=\"").append(i).append("\"?>");
+            }
+            record.append("<note><![CDATA[").append(word(random)).append(" <raw> & ").append(word(random)).append("]]></note>");
+            record.append("</record>\n");
+            out.write(record.toString());
+        }
+        if (end.isEmpty()) {
+            out.write("</sig:document>\n");
+        } else {
+            out.write(end);
+        }
+    }
+
+    private static void writeDeep(Output out, SplittableRandom random, long size) throws IOException {
+
+        out.write("<tree xmlns=\"urn:dss-tools:deep\">\n");
+        while (out.count < size) {
+            int depth = 50 + random.nextInt(350);
+            StringBuilder branch = new StringBuilder(depth * 48);
+            for (int level = 0; level < depth; level++) {
+                branch.append("<node level=\"").append(level).append('"');
+                if (level % 50 == 0) {
+                    branch.append(" xmlns:d").append(level).append("=\"urn:dss-tools:deep:").append(level).append('"');
+                }
+                branch.append('>');
+                if (random.nextInt(4) == 0) {
+                    branch.append(word(random));
+                }
+            }
+            branch.append("<leaf>").append(word(random)).append("</leaf>");
+            for (int level = 0; level < depth; level++) {
+                branch.append("</node>");
+            }
+            branch.append('\n');
+            out.write(branch.toString());
+        }
+        out.write("</tree>\n");
+    }
+
+    private static void writeNamespaced(Output out, SplittableRandom random, long size) throws IOException {
+
+        StringBuilder root = new StringBuilder("<p0:root xmlns=\"urn:dss-tools:default\"");
+        for (int p = 0; p < 20; p++) {
+            root.append(" xmlns:p").append(p).append("=\"urn:dss-tools:ns:").append(p).append('"');
+        }
+        root.append(" xml:lang=\"sk\">\n");
+        out.write(root.toString());
+
+        for (int i = 0; out.count < size; i++) {
+            int a = random.nextInt(20);
+            int b = random.nextInt(20);
+            StringBuilder item = new StringBuilder(256);
+            item.append("  <p").append(a).append(":item p").append(b).append(":ref=\"").append(i)
+                    .append("\" plain=\"").append(word(random)).append('"');
+            if (random.nextInt(4) == 0) {
+                item.append(" xml:lang=\"en\"");
+            }
+            if (random.nextInt(5) == 0) {
+                item.append(" xmlns:p").append(b).append("=\"urn:dss-tools:redeclared:").append(b).append('"');
+            }
+            item.append('>');
+            item.append("<value").append(random.nextInt(3) == 0 ? " xmlns=\"urn:dss-tools:other\"" : "")
+                    .append('>').append(word(random)).append("</value>");
+            item.append("<p").append(b).append(":empty/>");
+            item.append("</p").append(a).append(":item>\n");
+            out.write(item.toString());
+        }
+        out.write("</p0:root>\n");
+    }
+
+    private static void writeBlobs(Output out, SplittableRandom random, long size) throws IOException {
+
+        out.write("<payloads xmlns=\"urn:dss-tools:blob\">\n");
+        Base64.Encoder encoder = Base64.getMimeEncoder(76, new byte[]{'\n'});
+        for (int i = 0; out.count < size; i++) {
+            long remaining = Math.max(1, (size - out.count) * 3 / 4);
+            int length = (int) Math.min(remaining, 1024 + random.nextInt(1024 * 1024));
+            byte[] data = new byte[length];
+            for (int k = 0; k < length; k += 8) {
+                long bits = random.nextLong();
+                for (int j = 0; j < 8 && k + j < length; j++) {
+                    data[k + j] = (byte) (bits >>> (j * 8));
+                }
+            }
+            out.write("  <payload id=\"b" + i + "\" encoding=\"base64\" length=\"" + length + "\">\n");
+            out.write(encoder.encode(data));
+            out.write("\n  </payload>\n");
+        }
+        out.write("</payloads>\n");
+    }
+
+    /**
+     * Insert enveloped signature as the last child of the root. Reference digest is calculated by streaming c14n
+     * of the unsigned document, which is what the enveloped-signature transform yields.
+     */
+    private static void sign(Path file, SplittableRandom random, int index) throws IOException {
+
+        byte[] end = "</sig:document>\n".getBytes(StandardCharsets.UTF_8);
+        byte[] digest;
+        try (InputStream in = new CanonicalInputStream(new BufferedInputStream(Files.newInputStream(file), 64 * 1024),
+                XmlC14nMethod.C14N_EXCL_OMIT_COMMENTS)) {
+            digest = DigestEngine.calculate(in, Collections.singletonList(DigestAlgorithm.SHA256)).get(0).getDigest();
+        }
+
+        byte[] value = new byte[256];
+        for (int i = 0; i < value.length; i++) {
+            value[i] = (byte) random.nextInt(256);
+        }
+        String signature = "<ds:Signature xmlns:ds=\"" + DSIG_NS + "\" Id=\"sig-" + index + "\"><ds:SignedInfo>"
+                + "<ds:CanonicalizationMethod Algorithm=\"" + XmlC14nMethod.C14N_EXCL_OMIT_COMMENTS.getUri() + "\"/>"
+                + "<ds:SignatureMethod Algorithm=\"http://www.w3.org/2001/04/xmldsig-more#rsa-sha256\"/>"
+                + "<ds:Reference URI=\"\"><ds:Transforms>"
+                + "<ds:Transform Algorithm=\"" + DSIG_NS + "enveloped-signature\"/>"
+                + "<ds:Transform Algorithm=\"" + XmlC14nMethod.C14N_EXCL_OMIT_COMMENTS.getUri() + "\"/>"
+                + "</ds:Transforms><ds:DigestMethod Algorithm=\"" + DigestAlgorithm.SHA256.getUri() + "\"/>"
+                + "<ds:DigestValue>" + Base64.getEncoder().encodeToString(digest) + "</ds:DigestValue>"
+                + "</ds:Reference></ds:SignedInfo>"
+                + "<ds:SignatureValue>" + Base64.getEncoder().encodeToString(value) + "</ds:SignatureValue>"
+                + "</ds:Signature>";
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            channel.truncate(channel.size() - end.length);
+        }
+        Files.write(file, (signature + new String(end, StandardCharsets.UTF_8)).getBytes(StandardCharsets.UTF_8),
+                StandardOpenOption.APPEND);
+    }
+
+    private static String word(SplittableRandom random) {
+        return WORDS[random.nextInt(WORDS.length)];
+    }
+
+    /**
+     * Buffered UTF-8 output counting written bytes.
+     */
+    private static final class Output implements Closeable {
+
+        private final OutputStream stream;
+        private long count;
+
+        Output(Path file) throws IOException {
+            this.stream = new BufferedOutputStream(Files.newOutputStream(file), 1024 * 1024);
+        }
+
+        void write(String text) throws IOException {
+            write(text.getBytes(StandardCharsets.UTF_8));
+        }
+
+        void write(byte[] bytes) throws IOException {
+            stream.write(bytes);
+            count += bytes.length;
+        }
+
+        @Override
+        public void close() throws IOException {
+            stream.close();
+        }
+    }
+
+}
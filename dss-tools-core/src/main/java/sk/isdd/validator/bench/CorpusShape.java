@@ -0,0 +1,60 @@
+package sk.isdd.validator.bench;
+
+/**
+ * Enumeration of document shapes produced by {@link CorpusGenerator}, each stressing different part of the pipeline.
+ */
+public enum CorpusShape {
+
+    /**
+     * Flat export of many small records under single root, with comments and processing instructions.
+     */
+    RECORDS("records"),
+
+    /**
+     * Deeply nested elements (hundreds of levels), stressing per-level state of parsers and canonicalizers.
+     */
+    DEEP("deep"),
+
+    /**
+     * Many namespace declarations, prefixed attributes, redeclared default namespaces and {@code xml:*} attributes,
+     * stressing namespace rendering of c14n.
+     */
+    NAMESPACED("namespaced"),
+
+    /**
+     * Large Base64 encoded binary payloads, stressing text handling and digests.
+     */
+    BLOB("blob"),
+
+    /**
+     * Records signed by enveloped {@code ds:Signature}: its reference digest over exclusive c14n is valid,
+     * the signature value is random (no key is involved).
+     */
+    SIGNED("signed");
+
+    private final String text;
+
+    CorpusShape(String text) {
+        this.text = text;
+    }
+
+    public String getText() {
+        return text;
+    }
+
+    /**
+     * Returns the shape for given text.
+     *
+     * @throws IllegalArgumentException if the text doesn't match any shape
+     */
+    public static CorpusShape forText(String text) {
+
+        for (CorpusShape shape : values()) {
+            if (shape.text.equals(text)) {
+                return shape;
+            }
+        }
+        throw new IllegalArgumentException("Unsupported corpus shape: " + text);
+    }
+
+}
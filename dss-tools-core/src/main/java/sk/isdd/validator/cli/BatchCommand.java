@@ -0,0 +1,72 @@
+package sk.isdd.validator.cli;
+
+import sk.isdd.validator.batch.BatchRunner;
+import sk.isdd.validator.batch.CheckpointJournal;
+import sk.isdd.validator.enumerations.DigestAlgorithm;
+import sk.isdd.validator.enumerations.XmlC14nMethod;
+import sk.isdd.validator.store.BlobStore;
+import sk.isdd.validator.store.DigestIndex;
+
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Batch mode: resumable digest run over many files, checkpointed in a journal.
+ * Canonical forms can be archived to content-addressed store ({@code --store DIR}), each distinct form once,
+ * digests of the first algorithm can be recorded in reverse index ({@code --index DIR}).
+ */
+public class BatchCommand implements CliCommand {
+
+    @Override
+    public String getName() {
+        return "batch";
+    }
+
+    @Override
+    public String getUsage() {
+        return "--journal FILE [--parse yes] [--method excl-c14n] [--digest SHA256[,SHA512]] [--threads N] [--print all|new]"
+                + " [--store DIR] [--index DIR] <file|dir>...  resumable batch run";
+    }
+
+    @Override
+    public int run(CliArguments arguments) throws Exception {
+
+        if (!arguments.has("journal")) {
+            throw new IllegalArgumentException("--journal expected");
+        }
+        List<DigestAlgorithm> algorithms = new ArrayList<>();
+        for (String name : arguments.get("digest", "SHA256").split(",")) {
+            algorithms.add(DigestAlgorithm.forName(name.trim()));
+        }
+        XmlC14nMethod method = arguments.getMethod("method", XmlC14nMethod.C14N_NONE);
+        boolean printAll = arguments.get("print", "new").equals("all");
+
+        BatchRunner runner = new BatchRunner(method, algorithms, arguments.get("parse", "no").equals("yes"),
+                arguments.getInt("threads", Runtime.getRuntime().availableProcessors()));
+        BlobStore store = arguments.has("store") ? new BlobStore(Paths.get(arguments.get("store", null))) : null;
+        runner.setBlobStore(store);
+        DigestIndex index = arguments.has("index") ? DigestIndex.open(Paths.get(arguments.get("index", null)), algorithms.get(0)) : null;
+        runner.setDigestIndex(index);
+
+        try (CheckpointJournal journal = CheckpointJournal.open(Paths.get(arguments.get("journal", null)), method, algorithms,
+                printAll ? System.out::println : null)) {
+            BatchRunner.Summary summary = runner.run(arguments.getFiles(), journal, System.out::println);
+            System.err.println(summary);
+            if (store != null) {
+                System.err.println(store);
+            }
+            if (index != null) {
+                index.compactIfNeeded();
+                System.err.println(index.size() + " digests indexed in " + index.getRecordCount() + " records");
+            }
+            return (summary.getFailed() == 0) ? 0 : 1;
+
+        } finally {
+            if (index != null) {
+                index.close();
+            }
+        }
+    }
+
+}
@@ -0,0 +1,41 @@
+package sk.isdd.validator.cli;
+
+import sk.isdd.validator.bench.CorpusBenchmark;
+import sk.isdd.validator.enumerations.DigestAlgorithm;
+import sk.isdd.validator.enumerations.XmlC14nMethod;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Bench mode: end-to-end throughput benchmark of read, parse, c14n and digest over a corpus.
+ */
+public class BenchCommand implements CliCommand {
+
+    @Override
+    public String getName() {
+        return "bench";
+    }
+
+    @Override
+    public String getUsage() {
+        return "[--parse yes] [--method excl-c14n] [--digest SHA256[,SHA512]] [--threads N] [--warmup N] <file|dir>..."
+                + "  benchmark the pipeline";
+    }
+
+    @Override
+    public int run(CliArguments arguments) throws Exception {
+
+        List<DigestAlgorithm> algorithms = new ArrayList<>();
+        for (String name : arguments.get("digest", "SHA256").split(",")) {
+            algorithms.add(DigestAlgorithm.forName(name.trim()));
+        }
+        CorpusBenchmark benchmark = new CorpusBenchmark(arguments.getMethod("method", XmlC14nMethod.C14N_EXCL_OMIT_COMMENTS),
+                algorithms, arguments.get("parse", "yes").equals("yes"), arguments.getInt("threads", 1));
+
+        CorpusBenchmark.Report report = benchmark.run(arguments.getFiles(), arguments.getInt("warmup", 10));
+        System.out.println(report);
+        return (report.getFailed() == 0) ? 0 : 1;
+    }
+
+}
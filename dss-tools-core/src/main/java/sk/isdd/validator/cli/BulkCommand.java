@@ -0,0 +1,75 @@
+package sk.isdd.validator.cli;
+
+import sk.isdd.validator.digest.SmallFileDigester;
+import sk.isdd.validator.enumerations.DigestAlgorithm;
+import sk.isdd.validator.enumerations.XmlC14nMethod;
+import sk.isdd.validator.store.DigestIndex;
+import sk.isdd.validator.store.DigestResultStore;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+
+/**
+ * Bulk mode: fast path digesting many small files with reused buffers and digests.
+ * Digests of the first algorithm can be bulk loaded into reverse index ({@code --index DIR}).
+ */
+public class BulkCommand implements CliCommand {
+
+    @Override
+    public String getName() {
+        return "bulk";
+    }
+
+    @Override
+    public String getUsage() {
+        return "[--digest SHA256[,SHA512]] [--threads N] [--threshold BYTES] [--print all|summary] [--index DIR]"
+                + " <file|dir>...  digest small files";
+    }
+
+    @Override
+    public int run(CliArguments arguments) throws Exception {
+
+        List<DigestAlgorithm> algorithms = new ArrayList<>();
+        for (String name : arguments.get("digest", "SHA256").split(",")) {
+            algorithms.add(DigestAlgorithm.forName(name.trim()));
+        }
+        SmallFileDigester digester = new SmallFileDigester(algorithms,
+                arguments.getInt("threads", Runtime.getRuntime().availableProcessors()),
+                arguments.getInt("threshold", SmallFileDigester.DEFAULT_THRESHOLD));
+
+        try (DigestResultStore store = new DigestResultStore()) {
+            SmallFileDigester.Summary summary = digester.digest(arguments.getFiles(), store);
+
+            if (arguments.get("print", "all").equals("all")) {
+                Writer out = new BufferedWriter(new OutputStreamWriter(System.out, StandardCharsets.UTF_8), 64 * 1024);
+                for (DigestAlgorithm algorithm : algorithms) {
+                    store.forEach(algorithm, (row, path, digest) -> {
+                        try {
+                            out.write(path + "\t" + algorithm.getJavaName() + "=" + Base64.getEncoder().encodeToString(digest) + "\n");
+                        } catch (IOException e) {
+                            throw new UncheckedIOException(e);
+                        }
+                    });
+                }
+                out.flush();
+            }
+            if (arguments.has("index")) {
+                try (DigestIndex index = DigestIndex.open(Paths.get(arguments.get("index", null)), algorithms.get(0))) {
+                    long indexed = index.putAll(store, XmlC14nMethod.C14N_NONE, System.currentTimeMillis());
+                    System.err.println(indexed + " records indexed, " + index.size() + " digests in the index");
+                }
+            }
+            System.err.println(summary);
+            return (summary.getFailed() == 0) ? 0 : 1;
+        }
+    }
+
+}
@@ -0,0 +1,77 @@
+package sk.isdd.validator.cli;
+
+import sk.isdd.validator.enumerations.DigestAlgorithm;
+import sk.isdd.validator.manifest.FingerprintStore;
+import sk.isdd.validator.manifest.ManifestVerifier;
+
+import java.io.BufferedReader;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Check mode: verify files against manifest, streaming problems to output and progress to error output.
+ *
+ * <p> With {@code --fingerprints} unchanged files are verified by quick fingerprint and fully digested
+ * only once per {@code --full-scan-days}.
+ */
+public class CheckCommand implements CliCommand {
+
+    @Override
+    public String getName() {
+        return "check";
+    }
+
+    @Override
+    public String getUsage() {
+        return "[--digest SHA256] [--base DIR] [--threads N] [--print all|problems] [--fingerprints FILE] [--full-scan-days 30]"
+                + " <manifest|->  verify manifest";
+    }
+
+    @Override
+    public int run(CliArguments arguments) throws Exception {
+
+        if (arguments.getPositional().size() != 1) {
+            throw new IllegalArgumentException("single manifest expected");
+        }
+        ManifestVerifier verifier = new ManifestVerifier(Paths.get(arguments.get("base", "")),
+                DigestAlgorithm.forName(arguments.get("digest", "SHA256")),
+                arguments.getInt("threads", Runtime.getRuntime().availableProcessors()));
+        boolean printAll = arguments.get("print", "problems").equals("all");
+
+        FingerprintStore fingerprints = null;
+        if (arguments.has("fingerprints")) {
+            fingerprints = FingerprintStore.load(Paths.get(arguments.get("fingerprints", null)));
+            verifier.setFingerprints(fingerprints, TimeUnit.DAYS.toMillis(arguments.getLong("full-scan-days", 30)));
+        }
+
+        String manifest = arguments.getPositional().get(0);
+        ManifestVerifier.Progress progress;
+        try (BufferedReader reader = manifest.equals("-")
+                ? new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8))
+                : Files.newBufferedReader(Paths.get(manifest), StandardCharsets.UTF_8)) {
+
+            progress = verifier.verify(reader, new ManifestVerifier.Listener() {
+                @Override
+                public void onResult(ManifestVerifier.Result result) {
+                    if (printAll || result.getStatus() != ManifestVerifier.Status.OK) {
+                        System.out.println(result);
+                    }
+                }
+
+                @Override
+                public void onProgress(ManifestVerifier.Progress progress) {
+                    System.err.println(progress);
+                }
+            });
+        }
+
+        if (fingerprints != null) {
+            fingerprints.save();
+        }
+        return (progress.getProblems() == 0) ? 0 : 1;
+    }
+
+}
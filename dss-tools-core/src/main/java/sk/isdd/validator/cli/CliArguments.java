@@ -0,0 +1,99 @@
+package sk.isdd.validator.cli;
+
+import sk.isdd.validator.enumerations.XmlC14nMethod;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Minimal parser of command line arguments.
+ *
+ * <p> Options have the form {@code --name value} or {@code --flag} (boolean, when followed by another option
+ * or nothing). Everything else is positional.
+ */
+public class CliArguments {
+
+    private final Map<String, String> options = new HashMap<>();
+    private final List<String> positional = new ArrayList<>();
+
+    /**
+     * Parse given arguments.
+     *
+     * @param args the arguments without the command name
+     */
+    public CliArguments(String[] args) {
+
+        for (int i = 0; i < args.length; i++) {
+            if (args[i].startsWith("--") && args[i].length() > 2) {
+                String name = args[i].substring(2);
+                if (i + 1 < args.length && !args[i + 1].startsWith("--")) {
+                    options.put(name, args[++i]);
+                } else {
+                    options.put(name, "true");
+                }
+            } else {
+                positional.add(args[i]);
+            }
+        }
+    }
+
+    public boolean has(String name) {
+        return options.containsKey(name);
+    }
+
+    public String get(String name, String defaultValue) {
+        return options.getOrDefault(name, defaultValue);
+    }
+
+    public int getInt(String name, int defaultValue) {
+        return has(name) ? Integer.parseInt(options.get(name)) : defaultValue;
+    }
+
+    public long getLong(String name, long defaultValue) {
+        return has(name) ? Long.parseLong(options.get(name)) : defaultValue;
+    }
+
+    /**
+     * Return canonicalization method given by its common text (e.g. "incl-c14n").
+     *
+     * @throws IllegalArgumentException if the method is not supported
+     */
+    public XmlC14nMethod getMethod(String name, XmlC14nMethod defaultValue) {
+        return has(name) ? XmlC14nMethod.forText(options.get(name)) : defaultValue;
+    }
+
+    public List<String> getPositional() {
+        return positional;
+    }
+
+    /**
+     * Expand positional arguments into regular files, directories are walked recursively.
+     *
+     * @return list of regular files in walk order
+     * @throws IOException if a directory cannot be walked
+     */
+    public List<Path> getFiles() throws IOException {
+
+        List<Path> files = new ArrayList<>();
+        for (String name : positional) {
+            Path path = Paths.get(name);
+            if (Files.isDirectory(path)) {
+                try (Stream<Path> walk = Files.walk(path)) {
+                    files.addAll(walk.filter(Files::isRegularFile).sorted().collect(Collectors.toList()));
+                }
+            } else {
+                files.add(path);
+            }
+        }
+        return files;
+    }
+
+}
@@ -0,0 +1,31 @@
+package sk.isdd.validator.cli;
+
+/**
+ * Single mode (sub-command) of the command line interface.
+ */
+public interface CliCommand {
+
+    /**
+     * Name used to select the command on the command line (e.g. "dedup").
+     *
+     * @return the command name
+     */
+    String getName();
+
+    /**
+     * One line usage description printed by the help.
+     *
+     * @return the usage text
+     */
+    String getUsage();
+
+    /**
+     * Run the command.
+     *
+     * @param arguments parsed arguments following the command name
+     * @return process exit code, 0 for success
+     * @throws Exception any failure, reported by the launcher
+     */
+    int run(CliArguments arguments) throws Exception;
+
+}
@@ -0,0 +1,58 @@
+package sk.isdd.validator.cli;
+
+import sk.isdd.validator.enumerations.XmlC14nMethod;
+import sk.isdd.validator.io.IoPriority;
+import sk.isdd.validator.io.IoScheduler;
+import sk.isdd.validator.xml.CanonicalComparator;
+
+import java.io.BufferedInputStream;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+
+/**
+ * Compare mode: test two documents for canonical equivalence, stop at the first difference.
+ */
+public class CompareCommand implements CliCommand {
+
+    @Override
+    public String getName() {
+        return "compare";
+    }
+
+    @Override
+    public String getUsage() {
+        return "[--method incl-c14n] <file1> <file2>  compare canonical forms, exit code 1 if different";
+    }
+
+    @Override
+    public int run(CliArguments arguments) throws Exception {
+
+        List<String> files = arguments.getPositional();
+        if (files.size() != 2) {
+            throw new IllegalArgumentException("exactly two files expected");
+        }
+        XmlC14nMethod method = arguments.getMethod("method", XmlC14nMethod.C14N_OMIT_COMMENTS);
+
+        CanonicalComparator.Difference difference;
+        try (InputStream first = open(files.get(0)); InputStream second = open(files.get(1))) {
+            difference = CanonicalComparator.compare(first, second, method);
+        }
+
+        if (difference == null) {
+            System.out.println("EQUIVALENT");
+            return 0;
+        }
+
+        System.out.println("DIFFERENT at canonical offset " + difference.getOffset());
+        System.out.println("  " + files.get(0) + ": " + difference.getFirstPath());
+        System.out.println("  " + files.get(1) + ": " + difference.getSecondPath());
+        return 1;
+    }
+
+    private static InputStream open(String file) throws IOException {
+        return new BufferedInputStream(IoScheduler.getDefault().wrap(new FileInputStream(file), IoPriority.INTERACTIVE));
+    }
+
+}
@@ -0,0 +1,68 @@
+package sk.isdd.validator.cli;
+
+import sk.isdd.validator.container.ContainerDigester;
+import sk.isdd.validator.digest.DigestResult;
+import sk.isdd.validator.enumerations.DigestAlgorithm;
+import sk.isdd.validator.enumerations.XmlC14nMethod;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Container mode: digest entries of ZIP/ASiC containers without extraction.
+ */
+public class ContainerCommand implements CliCommand {
+
+    @Override
+    public String getName() {
+        return "container";
+    }
+
+    @Override
+    public String getUsage() {
+        return "[--method excl-c14n] [--digest SHA256[,SHA512]] [--threads N] <zip|->...  digest container entries";
+    }
+
+    @Override
+    public int run(CliArguments arguments) throws Exception {
+
+        List<DigestAlgorithm> algorithms = new ArrayList<>();
+        for (String name : arguments.get("digest", "SHA256").split(",")) {
+            algorithms.add(DigestAlgorithm.forName(name.trim()));
+        }
+        ContainerDigester digester = new ContainerDigester(arguments.getMethod("method", XmlC14nMethod.C14N_NONE),
+                algorithms, arguments.getInt("threads", Runtime.getRuntime().availableProcessors()));
+
+        boolean failed = false;
+        for (String container : arguments.getPositional()) {
+            List<ContainerDigester.EntryResult> results;
+            if (container.equals("-")) {
+                results = digester.digest(System.in);
+            } else {
+                Path file = Paths.get(container);
+                String mimeType = ContainerDigester.getMimeType(file);
+                if (mimeType != null) {
+                    System.out.println("# " + container + ": " + mimeType);
+                }
+                results = digester.digest(file);
+            }
+
+            for (ContainerDigester.EntryResult result : results) {
+                StringBuilder line = new StringBuilder(container).append('\t').append(result.getName());
+                if (result.isFailed()) {
+                    line.append("\tFAILED: ").append(result.getError());
+                    failed = true;
+                } else {
+                    for (DigestResult digest : result.getResults()) {
+                        line.append('\t').append(digest);
+                    }
+                }
+                System.out.println(line);
+            }
+        }
+        return failed ? 1 : 0;
+    }
+
+}
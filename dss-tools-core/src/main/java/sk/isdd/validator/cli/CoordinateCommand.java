@@ -0,0 +1,119 @@
+package sk.isdd.validator.cli;
+
+import sk.isdd.validator.batch.BatchRunner;
+import sk.isdd.validator.batch.CheckpointJournal;
+import sk.isdd.validator.batch.ShardCoordinator;
+import sk.isdd.validator.batch.ShardStrategy;
+import sk.isdd.validator.enumerations.DigestAlgorithm;
+import sk.isdd.validator.enumerations.XmlC14nMethod;
+
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Coordinate mode: resumable batch run distributed by shards to worker processes, optionally spawned locally.
+ */
+public class CoordinateCommand implements CliCommand {
+
+    @Override
+    public String getName() {
+        return "coordinate";
+    }
+
+    @Override
+    public String getUsage() {
+        return "--journal FILE [--listen [HOST:]PORT] [--spawn N] [--worker-threads N] [--shard hash|size] [--shards N]"
+                + " [--attempts N] [--parse yes] [--method excl-c14n] [--digest SHA256[,SHA512]] [--print all|new]"
+                + " <file|dir>...  distribute batch run to workers (token in " + ShardCoordinator.TOKEN_ENVIRONMENT
+                + " required to listen on other than loopback)";
+    }
+
+    @Override
+    public int run(CliArguments arguments) throws Exception {
+
+        if (!arguments.has("journal")) {
+            throw new IllegalArgumentException("--journal expected");
+        }
+        List<DigestAlgorithm> algorithms = new ArrayList<>();
+        for (String name : arguments.get("digest", "SHA256").split(",")) {
+            algorithms.add(DigestAlgorithm.forName(name.trim()));
+        }
+        XmlC14nMethod method = arguments.getMethod("method", XmlC14nMethod.C14N_NONE);
+        boolean printAll = arguments.get("print", "new").equals("all");
+
+        ShardCoordinator coordinator = new ShardCoordinator(method, algorithms, arguments.get("parse", "no").equals("yes"),
+                ShardStrategy.forText(arguments.get("shard", ShardStrategy.HASH.getText())),
+                arguments.getInt("shards", 0), arguments.getInt("attempts", 3));
+
+        String listen = arguments.get("listen", "0");
+        int colon = listen.lastIndexOf(':');
+        InetAddress address = InetAddress.getByName((colon < 0) ? "127.0.0.1" : listen.substring(0, colon));
+        String token = System.getenv(ShardCoordinator.TOKEN_ENVIRONMENT);
+        if (!address.isLoopbackAddress() && (token == null || token.isEmpty())) {
+            throw new IllegalArgumentException("listening on " + address.getHostAddress() + " requires shared token in "
+                    + ShardCoordinator.TOKEN_ENVIRONMENT);
+        }
+        coordinator.setToken(token);
+        ServerSocket server = new ServerSocket();
+        server.bind(new InetSocketAddress(address, Integer.parseInt(listen.substring(colon + 1))));
+
+        List<Process> workers = new ArrayList<>();
+        int spawn = arguments.getInt("spawn", 0);
+        for (int i = 0; i < spawn; i++) {
+            workers.add(spawnWorker(server, arguments.getInt("worker-threads",
+                    Math.max(1, Runtime.getRuntime().availableProcessors() / spawn))));
+        }
+        if (spawn == 0) {
+            System.err.println("Waiting for workers on " + server.getLocalSocketAddress());
+        }
+
+        try (CheckpointJournal journal = CheckpointJournal.open(Paths.get(arguments.get("journal", null)), method, algorithms,
+                printAll ? System.out::println : null)) {
+            BatchRunner.Summary summary = coordinator.run(arguments.getFiles(), journal, server, System.out::println,
+                    (spawn == 0) ? null : () -> workers.stream().noneMatch(Process::isAlive));
+            System.err.println(summary);
+            return (summary.getFailed() == 0) ? 0 : 1;
+
+        } finally {
+            for (Process worker : workers) {
+                worker.destroy();
+            }
+        }
+    }
+
+    /**
+     * Start worker JVM with the same class path, connecting to the bound address of the server
+     * (loopback if the server is bound to the wildcard address).
+     */
+    private static Process spawnWorker(ServerSocket server, int threads) throws Exception {
+
+        List<String> command = new ArrayList<>();
+        command.add(Paths.get(System.getProperty("java.home"), "bin", "java").toString());
+        for (String name : System.getProperties().stringPropertyNames()) {
+            if (name.startsWith("dss-tools.")) {
+                command.add("-D" + name + "=" + System.getProperty(name));
+            }
+        }
+        command.add("-cp");
+        command.add(System.getProperty("java.class.path"));
+        command.add(ToolsCli.class.getName());
+        command.add("worker");
+        command.add("--threads");
+        command.add(String.valueOf(threads));
+        command.add("--connect");
+        // wildcard is not an address to connect to, any interface of the host is reached by loopback then
+        InetAddress address = server.getInetAddress();
+        if (address.isAnyLocalAddress()) {
+            address = InetAddress.getLoopbackAddress();
+        }
+        command.add(address.getHostAddress() + ":" + server.getLocalPort());
+
+        return new ProcessBuilder(command).redirectOutput(ProcessBuilder.Redirect.DISCARD)
+                .redirectError(ProcessBuilder.Redirect.INHERIT).start();
+    }
+
+}
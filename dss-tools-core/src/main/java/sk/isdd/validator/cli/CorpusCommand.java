@@ -0,0 +1,69 @@
+package sk.isdd.validator.cli;
+
+import sk.isdd.validator.bench.CorpusGenerator;
+import sk.isdd.validator.bench.CorpusShape;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Corpus mode: generate deterministic synthetic XML corpus for benchmarks.
+ */
+public class CorpusCommand implements CliCommand {
+
+    @Override
+    public String getName() {
+        return "corpus";
+    }
+
+    @Override
+    public String getUsage() {
+        return "--out DIR [--count N] [--seed N] [--min-size 4k] [--max-size 16m]"
+                + " [--shapes records,deep,namespaced,blob,signed]  generate synthetic corpus";
+    }
+
+    @Override
+    public int run(CliArguments arguments) throws Exception {
+
+        if (!arguments.has("out")) {
+            throw new IllegalArgumentException("--out expected");
+        }
+        List<CorpusShape> shapes = new ArrayList<>();
+        for (String text : arguments.get("shapes", "records,deep,namespaced,blob,signed").split(",")) {
+            shapes.add(CorpusShape.forText(text.trim()));
+        }
+
+        CorpusGenerator generator = new CorpusGenerator(arguments.getLong("seed", 1),
+                parseSize(arguments.get("min-size", "4k")), parseSize(arguments.get("max-size", "16m")), shapes);
+        List<Path> files = generator.generate(Paths.get(arguments.get("out", null)), arguments.getInt("count", 100));
+        System.err.println(files.size() + " files generated");
+        return 0;
+    }
+
+    /**
+     * Parse size with optional k, m or g suffix (binary units).
+     */
+    static long parseSize(String text) {
+
+        String value = text.trim().toLowerCase();
+        long unit = 1;
+        if (value.endsWith("k")) {
+            unit = 1024;
+        } else if (value.endsWith("m")) {
+            unit = 1024 * 1024;
+        } else if (value.endsWith("g")) {
+            unit = 1024L * 1024 * 1024;
+        }
+        if (unit > 1) {
+            value = value.substring(0, value.length() - 1);
+        }
+        try {
+            return Long.parseLong(value) * unit;
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid size: " + text);
+        }
+    }
+
+}
@@ -0,0 +1,51 @@
+package sk.isdd.validator.cli;
+
+import sk.isdd.validator.dedup.EquivalenceFinder;
+import sk.isdd.validator.enumerations.XmlC14nMethod;
+import sk.isdd.validator.io.IoPriority;
+
+import java.nio.file.Path;
+import java.util.Base64;
+
+/**
+ * Dedup mode: print groups of files with equal canonical form.
+ */
+public class DedupCommand implements CliCommand {
+
+    @Override
+    public String getName() {
+        return "dedup";
+    }
+
+    @Override
+    public String getUsage() {
+        return "[--method incl-c14n] [--threads N] <file|dir>...  group files by canonical SHA-256";
+    }
+
+    @Override
+    public int run(CliArguments arguments) throws Exception {
+
+        XmlC14nMethod method = arguments.getMethod("method", XmlC14nMethod.C14N_OMIT_COMMENTS);
+        int threads = arguments.getInt("threads", Runtime.getRuntime().availableProcessors());
+
+        EquivalenceFinder finder = new EquivalenceFinder(method, threads);
+        finder.setIoPriority(IoPriority.BACKGROUND);
+        EquivalenceFinder.Report report = finder.find(arguments.getFiles());
+
+        for (EquivalenceFinder.Group group : report.getGroups()) {
+            System.out.println(Base64.getEncoder().encodeToString(group.getDigest()) + " (" + group.getFiles().size() + " files)");
+            for (Path file : group.getFiles()) {
+                System.out.println("  " + file);
+            }
+        }
+        for (Path file : report.getFailed()) {
+            System.out.println("FAILED " + file);
+        }
+
+        System.err.println(report.getFiles() + " files, " + report.getFastHashed() + " fast hashed, "
+                + report.getRawHashed() + " raw hashed, " + report.getCanonicalized() + " canonicalized, "
+                + report.getGroups().size() + " groups, " + report.getFailed().size() + " failed");
+        return 0;
+    }
+
+}
@@ -0,0 +1,126 @@
+package sk.isdd.validator.cli;
+
+import sk.isdd.validator.compress.CompressionFormat;
+import sk.isdd.validator.digest.DigestEngine;
+import sk.isdd.validator.digest.DigestResult;
+import sk.isdd.validator.enumerations.DigestAlgorithm;
+import sk.isdd.validator.enumerations.XmlC14nMethod;
+import sk.isdd.validator.source.DocumentSource;
+import sk.isdd.validator.source.DocumentSources;
+import sk.isdd.validator.xml.CanonicalInputStream;
+import sk.isdd.validator.xml.ParallelCanonicalizer;
+import sk.isdd.validator.xml.ParseBudget;
+
+import java.io.BufferedInputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Digest mode: stream files (or standard input) through transparent decompression and optional c14n into digests.
+ * Inputs are any locations of {@link DocumentSources}: files, standard input, path lists and S3 objects.
+ *
+ * <p> Decompression runs as separate pipeline stage overlapping with canonicalization and hashing.
+ * With more threads, documents are canonicalized in parallel by partitions of root's children.
+ */
+public class DigestCommand implements CliCommand {
+
+    @Override
+    public String getName() {
+        return "digest";
+    }
+
+    @Override
+    public String getUsage() {
+        return "[--bytes compressed|decompressed] [--method excl-c14n] [--threads N] [--digest SHA256[,SHA512]] <file|dir|-|list:FILE|list0:FILE|s3://BUCKET/KEY>..."
+                + "  digest (decompressed) files";
+    }
+
+    @Override
+    public int run(CliArguments arguments) throws Exception {
+
+        List<DigestAlgorithm> algorithms = new ArrayList<>();
+        for (String name : arguments.get("digest", "SHA256").split(",")) {
+            algorithms.add(DigestAlgorithm.forName(name.trim()));
+        }
+        XmlC14nMethod method = arguments.getMethod("method", XmlC14nMethod.C14N_NONE);
+        boolean compressed = arguments.get("bytes", "decompressed").equals("compressed");
+        int threads = arguments.getInt("threads", 1);
+
+        try (Stream<DocumentSource> sources = DocumentSources.resolve(arguments.getPositional())) {
+            for (Iterator<DocumentSource> i = sources.iterator(); i.hasNext(); ) {
+                DocumentSource source = i.next();
+                try (InputStream in = source.openStream()) {
+                    print(source.getName(), digest(in, compressed, method, threads, algorithms));
+                }
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Digest the document streamed through optional canonicalization, the same bytes as {@code XmlFile} digests.
+     */
+    static List<DigestResult> digest(InputStream source, boolean compressed, XmlC14nMethod method, int threads,
+                                     List<DigestAlgorithm> algorithms) throws Exception {
+
+        InputStream in = compressed ? new BufferedInputStream(source, 64 * 1024) : CompressionFormat.open(source, true);
+        if (method != XmlC14nMethod.C14N_NONE && threads > 1) {
+            try {
+                return digestParallel(in, method, threads, algorithms);
+            } finally {
+                in.close();
+            }
+        }
+        if (method != XmlC14nMethod.C14N_NONE) {
+            in = new CanonicalInputStream(in, method, ParseBudget.getDefault());
+        }
+        try {
+            return DigestEngine.calculate(in, algorithms);
+        } finally {
+            in.close();
+        }
+    }
+
+    private static List<DigestResult> digestParallel(InputStream in, XmlC14nMethod method, int threads,
+                                                      List<DigestAlgorithm> algorithms) throws Exception {
+
+        List<DigestAlgorithm> provided = new ArrayList<>();
+        List<MessageDigest> digests = new ArrayList<>();
+        OutputStream target = OutputStream.nullOutputStream();
+        for (DigestAlgorithm algorithm : algorithms) {
+            try {
+                MessageDigest md = algorithm.getMessageDigest();
+                target = new DigestOutputStream(target, md);
+                provided.add(algorithm);
+                digests.add(md);
+            } catch (NoSuchAlgorithmException e) {
+                System.err.println("Message digest algorithm \"" + algorithm.getJavaName() + "\" not provided.");
+            }
+        }
+
+        new ParallelCanonicalizer(method, threads).canonicalize(in, target);
+
+        List<DigestResult> results = new ArrayList<>();
+        for (int i = 0; i < digests.size(); i++) {
+            results.add(new DigestResult(provided.get(i), digests.get(i).digest()));
+        }
+        return results;
+    }
+
+    private static void print(String name, List<DigestResult> results) {
+
+        StringBuilder line = new StringBuilder(name);
+        for (DigestResult result : results) {
+            line.append('\t').append(result);
+        }
+        System.out.println(line);
+    }
+
+}
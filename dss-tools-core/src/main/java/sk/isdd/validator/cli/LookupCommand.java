@@ -0,0 +1,65 @@
+package sk.isdd.validator.cli;
+
+import sk.isdd.validator.enumerations.DigestAlgorithm;
+import sk.isdd.validator.store.DigestIndex;
+
+import java.nio.file.Paths;
+import java.util.Base64;
+import java.util.List;
+
+/**
+ * Lookup mode: print files having given digests according to reverse index built by {@code batch} or {@code bulk}.
+ */
+public class LookupCommand implements CliCommand {
+
+    @Override
+    public String getName() {
+        return "lookup";
+    }
+
+    @Override
+    public String getUsage() {
+        return "--index DIR [--digest SHA256] <base64|hex digest>...  find files by digest";
+    }
+
+    @Override
+    public int run(CliArguments arguments) throws Exception {
+
+        if (!arguments.has("index")) {
+            throw new IllegalArgumentException("--index expected");
+        }
+        DigestAlgorithm algorithm = DigestAlgorithm.forName(arguments.get("digest", "SHA256"));
+
+        int missing = 0;
+        try (DigestIndex index = DigestIndex.open(Paths.get(arguments.get("index", null)), algorithm)) {
+            for (String value : arguments.getPositional()) {
+                List<DigestIndex.Entry> entries = index.lookup(decode(value, algorithm));
+                if (entries.isEmpty()) {
+                    System.out.println(value + " NOT FOUND");
+                    missing++;
+                }
+                for (DigestIndex.Entry entry : entries) {
+                    System.out.println(value + "\t" + entry);
+                }
+            }
+        }
+        return (missing == 0) ? 0 : 1;
+    }
+
+    private static byte[] decode(String value, DigestAlgorithm algorithm) {
+
+        if (value.length() == algorithm.getDigestLength() * 2 && value.matches("[0-9a-fA-F]+")) {
+            byte[] digest = new byte[algorithm.getDigestLength()];
+            for (int i = 0; i < digest.length; i++) {
+                digest[i] = (byte) Integer.parseInt(value.substring(2 * i, 2 * i + 2), 16);
+            }
+            return digest;
+        }
+        byte[] digest = Base64.getDecoder().decode(value);
+        if (digest.length != algorithm.getDigestLength()) {
+            throw new IllegalArgumentException("\"" + value + "\" is not " + algorithm.getJavaName() + " digest.");
+        }
+        return digest;
+    }
+
+}
@@ -0,0 +1,53 @@
+package sk.isdd.validator.cli;
+
+import sk.isdd.validator.enumerations.DigestAlgorithm;
+import sk.isdd.validator.enumerations.XmlC14nMethod;
+import sk.isdd.validator.manifest.ManifestFormat;
+import sk.isdd.validator.manifest.ManifestWriter;
+
+import java.io.BufferedWriter;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+
+/**
+ * Manifest mode: write sha256sum compatible (or BSD tag, or c14n extended) manifest of files.
+ */
+public class ManifestCommand implements CliCommand {
+
+    @Override
+    public String getName() {
+        return "manifest";
+    }
+
+    @Override
+    public String getUsage() {
+        return "[--format gnu|bsd|c14n] [--digest SHA256] [--method excl-c14n] [--threads N] [--out FILE] <file|dir>...  write manifest";
+    }
+
+    @Override
+    public int run(CliArguments arguments) throws Exception {
+
+        ManifestFormat format = ManifestFormat.forText(arguments.get("format", ManifestFormat.GNU.getText()));
+        ManifestWriter writer = new ManifestWriter(DigestAlgorithm.forName(arguments.get("digest", "SHA256")),
+                arguments.getMethod("method", XmlC14nMethod.C14N_NONE), format,
+                arguments.getInt("threads", Runtime.getRuntime().availableProcessors()));
+
+        Writer output = arguments.has("out")
+                ? Files.newBufferedWriter(Paths.get(arguments.get("out", null)), StandardCharsets.UTF_8)
+                : new BufferedWriter(new OutputStreamWriter(System.out, StandardCharsets.UTF_8));
+        try {
+            writer.write(arguments.getFiles(), output);
+        } finally {
+            if (arguments.has("out")) {
+                output.close();
+            } else {
+                output.flush();
+            }
+        }
+        return 0;
+    }
+
+}
@@ -0,0 +1,60 @@
+package sk.isdd.validator.cli;
+
+import sk.isdd.validator.digest.DigestResult;
+import sk.isdd.validator.digest.EmbeddedPayloadDigester;
+import sk.isdd.validator.enumerations.DigestAlgorithm;
+import sk.isdd.validator.io.IoPriority;
+import sk.isdd.validator.io.IoScheduler;
+
+import java.io.BufferedInputStream;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Payload mode: stream-decode Base64 content of chosen elements and digest it without building the document.
+ */
+public class PayloadCommand implements CliCommand {
+
+    @Override
+    public String getName() {
+        return "payload";
+    }
+
+    @Override
+    public String getUsage() {
+        return "--element NAME [--ns URI] [--digest SHA256[,SHA512]] <file|dir>...  digest embedded Base64 payloads";
+    }
+
+    @Override
+    public int run(CliArguments arguments) throws Exception {
+
+        if (!arguments.has("element")) {
+            throw new IllegalArgumentException("--element expected");
+        }
+        List<DigestAlgorithm> algorithms = new ArrayList<>();
+        for (String name : arguments.get("digest", "SHA256").split(",")) {
+            algorithms.add(DigestAlgorithm.forName(name.trim()));
+        }
+
+        int count = 0;
+        for (Path file : arguments.getFiles()) {
+            try (InputStream in = new BufferedInputStream(IoScheduler.getDefault().wrap(Files.newInputStream(file), IoPriority.INTERACTIVE))) {
+                for (EmbeddedPayloadDigester.Payload payload
+                        : EmbeddedPayloadDigester.digest(in, arguments.get("ns", null), arguments.get("element", null), algorithms)) {
+                    StringBuilder line = new StringBuilder();
+                    line.append(file).append('\t').append(payload.getElementPath()).append('\t').append(payload.getDecodedLength());
+                    for (DigestResult result : payload.getResults()) {
+                        line.append('\t').append(result);
+                    }
+                    System.out.println(line);
+                    count++;
+                }
+            }
+        }
+        return (count > 0) ? 0 : 1;
+    }
+
+}
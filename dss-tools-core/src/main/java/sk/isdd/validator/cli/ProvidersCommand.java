@@ -0,0 +1,48 @@
+package sk.isdd.validator.cli;
+
+import sk.isdd.validator.digest.ProviderSelector;
+import sk.isdd.validator.enumerations.DigestAlgorithm;
+
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * Providers mode: benchmark security providers of all digest algorithms and show the bound ones.
+ */
+public class ProvidersCommand implements CliCommand {
+
+    @Override
+    public String getName() {
+        return "providers";
+    }
+
+    @Override
+    public String getUsage() {
+        return "[--recalibrate yes]  benchmark digest providers, caching the selection if missing (or renewing it)";
+    }
+
+    @Override
+    public int run(CliArguments arguments) throws Exception {
+
+        List<ProviderSelector.Measurement> measurements = ProviderSelector.calibrate();
+        for (ProviderSelector.Measurement measurement : measurements) {
+            System.out.println(measurement);
+        }
+
+        Path cacheFile = ProviderSelector.getDefaultCacheFile();
+        if (cacheFile != null
+                && (arguments.get("recalibrate", "no").equals("yes") || !ProviderSelector.isCalibrated(cacheFile))) {
+            ProviderSelector.store(cacheFile, measurements);
+            ProviderSelector.select(cacheFile);
+        }
+
+        System.out.println();
+        System.out.println("Bound providers (" + cacheFile + "):");
+        for (DigestAlgorithm algorithm : DigestAlgorithm.values()) {
+            System.out.println(String.format("%-10s %s", algorithm.getName(),
+                    (algorithm.getProvider() != null) ? algorithm.getProvider().getName() : "-"));
+        }
+        return 0;
+    }
+
+}
@@ -0,0 +1,75 @@
+package sk.isdd.validator.cli;
+
+import sk.isdd.validator.enumerations.DigestAlgorithm;
+import sk.isdd.validator.enumerations.XmlC14nMethod;
+import sk.isdd.validator.io.IoPriority;
+import sk.isdd.validator.io.IoScheduler;
+import sk.isdd.validator.xml.ParseBudget;
+import sk.isdd.validator.xml.SubsetCanonicalizer;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.OutputStream;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.util.Base64;
+
+/**
+ * Subset mode: canonicalize (and optionally digest) single element selected by Id or XPath.
+ */
+public class SubsetCommand implements CliCommand {
+
+    @Override
+    public String getName() {
+        return "subset";
+    }
+
+    @Override
+    public String getUsage() {
+        return "[--method excl-c14n] (--id ID | --xpath EXPR) [--digest SHA256 | --out FILE] <file>  canonicalize subtree";
+    }
+
+    @Override
+    public int run(CliArguments arguments) throws Exception {
+
+        if (arguments.getPositional().size() != 1 || arguments.has("id") == arguments.has("xpath")) {
+            throw new IllegalArgumentException("single file and either --id or --xpath expected");
+        }
+        XmlC14nMethod method = arguments.getMethod("method", XmlC14nMethod.C14N_EXCL_OMIT_COMMENTS);
+
+        MessageDigest md = arguments.has("digest") ? DigestAlgorithm.forName(arguments.get("digest", null)).getMessageDigest() : null;
+        OutputStream target = arguments.has("out")
+                ? new BufferedOutputStream(new FileOutputStream(arguments.get("out", null)))
+                : (md != null) ? OutputStream.nullOutputStream() : System.out;
+        if (md != null) {
+            target = new DigestOutputStream(target, md);
+        }
+
+        String file = arguments.getPositional().get(0);
+        SubsetCanonicalizer.Source source = () -> new BufferedInputStream(
+                IoScheduler.getDefault().wrap(new FileInputStream(file), IoPriority.INTERACTIVE));
+        boolean found;
+        try {
+            found = arguments.has("id")
+                    ? SubsetCanonicalizer.canonicalizeById(source, arguments.get("id", null), method, null, ParseBudget.getDefault(), target)
+                    : SubsetCanonicalizer.canonicalizeByXPath(source, arguments.get("xpath", null), method, null, ParseBudget.getDefault(), target);
+        } finally {
+            target.flush();
+            if (target != System.out) {
+                target.close();
+            }
+        }
+
+        if (!found) {
+            System.err.println("Selected element not found.");
+            return 1;
+        }
+        if (md != null) {
+            System.out.println(Base64.getEncoder().encodeToString(md.digest()));
+        }
+        return 0;
+    }
+
+}
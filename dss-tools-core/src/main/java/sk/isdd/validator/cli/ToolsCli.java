@@ -0,0 +1,90 @@
+package sk.isdd.validator.cli;
+
+import org.bouncycastle.jce.provider.BouncyCastleProvider;
+import sk.isdd.validator.digest.ProviderSelector;
+
+import java.security.Security;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Command line launcher of the core tools, counterpart of the GUI application for batch and service use.
+ *
+ * <p> First argument selects the mode (command), the rest is passed to it.
+ */
+public class ToolsCli {
+
+    /**
+     * Registered commands in order of the help listing.
+     */
+    private static final Map<String, CliCommand> COMMANDS = new LinkedHashMap<>();
+
+    static {
+        register(new DigestCommand());
+        register(new BulkCommand());
+        register(new DedupCommand());
+        register(new CompareCommand());
+        register(new SubsetCommand());
+        register(new VerifyCommand());
+        register(new PayloadCommand());
+        register(new ContainerCommand());
+        register(new ManifestCommand());
+        register(new CheckCommand());
+        register(new BatchCommand());
+        register(new LookupCommand());
+        register(new CoordinateCommand());
+        register(new WorkerCommand());
+        register(new WatchCommand());
+        register(new ProvidersCommand());
+        register(new CorpusCommand());
+        register(new BenchCommand());
+    }
+
+    private static void register(CliCommand command) {
+        COMMANDS.put(command.getName(), command);
+    }
+
+    public static void main(String[] args) {
+        System.exit(run(args));
+    }
+
+    /**
+     * Run the command selected by the first argument.
+     *
+     * @param args all command line arguments
+     * @return process exit code
+     */
+    public static int run(String[] args) {
+
+        if (args.length == 0 || !COMMANDS.containsKey(args[0])) {
+            printUsage();
+            return 2;
+        }
+
+        Security.addProvider(new BouncyCastleProvider());
+        ProviderSelector.select(ProviderSelector.getDefaultCacheFile());
+
+        try {
+            return COMMANDS.get(args[0]).run(new CliArguments(Arrays.copyOfRange(args, 1, args.length)));
+
+        } catch (IllegalArgumentException e) {
+            System.err.println("Invalid arguments: " + e.getMessage());
+            printUsage();
+            return 2;
+
+        } catch (Exception e) {
+            System.err.println("Command \"" + args[0] + "\" failed: " + e.getMessage());
+            return 1;
+        }
+    }
+
+    private static void printUsage() {
+
+        System.err.println("Usage: ToolsCli <command> [options]");
+        for (CliCommand command : COMMANDS.values()) {
+            System.err.println("  " + command.getName() + " " + command.getUsage());
+        }
+    }
+
+}
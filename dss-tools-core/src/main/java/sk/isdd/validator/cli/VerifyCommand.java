@@ -0,0 +1,54 @@
+package sk.isdd.validator.cli;
+
+import sk.isdd.validator.dsig.ReferenceResult;
+import sk.isdd.validator.dsig.ReferenceVerifier;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * Verify mode: check digests of all XML-DSig references of signed documents.
+ */
+public class VerifyCommand implements CliCommand {
+
+    @Override
+    public String getName() {
+        return "verify";
+    }
+
+    @Override
+    public String getUsage() {
+        return "[--threads N] <file|dir>...  verify ds:Reference digests, exit code 1 if any is not valid";
+    }
+
+    @Override
+    public int run(CliArguments arguments) throws Exception {
+
+        ReferenceVerifier verifier = new ReferenceVerifier(arguments.getInt("threads", Runtime.getRuntime().availableProcessors()));
+        boolean allValid = true;
+
+        for (Path file : arguments.getFiles()) {
+            List<ReferenceResult> results;
+            try {
+                results = verifier.verify(file);
+            } catch (IOException | RuntimeException e) {
+                // report and go on with the next document
+                System.out.println(file + ": cannot verify: " + e.getMessage());
+                allValid = false;
+                continue;
+            }
+            long valid = results.stream().filter(ReferenceResult::isValid).count();
+            System.out.println(file + ": " + valid + "/" + results.size() + " references valid");
+
+            for (ReferenceResult result : results) {
+                if (!result.isValid()) {
+                    System.out.println("  " + result);
+                    allValid = false;
+                }
+            }
+        }
+        return allValid ? 0 : 1;
+    }
+
+}
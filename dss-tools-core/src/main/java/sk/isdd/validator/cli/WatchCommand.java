@@ -0,0 +1,67 @@
+package sk.isdd.validator.cli;
+
+import sk.isdd.validator.enumerations.DigestAlgorithm;
+import sk.isdd.validator.enumerations.XmlC14nMethod;
+import sk.isdd.validator.watch.LineSink;
+import sk.isdd.validator.watch.WatchDaemon;
+
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+/**
+ * Watch mode: daemon digesting files dropped into inbox directories, runs until terminated.
+ */
+public class WatchCommand implements CliCommand {
+
+    @Override
+    public String getName() {
+        return "watch";
+    }
+
+    @Override
+    public String getUsage() {
+        return "[--recursive yes] [--debounce MS] [--threads N] [--method excl-c14n] [--digest SHA256[,SHA512]]"
+                + " [--out FILE | --port N] <dir>...  digest files dropped into directories";
+    }
+
+    @Override
+    public int run(CliArguments arguments) throws Exception {
+
+        if (arguments.getPositional().isEmpty()) {
+            throw new IllegalArgumentException("directory expected");
+        }
+        List<DigestAlgorithm> algorithms = new ArrayList<>();
+        for (String name : arguments.get("digest", "SHA256").split(",")) {
+            algorithms.add(DigestAlgorithm.forName(name.trim()));
+        }
+
+        LineSink sink = arguments.has("out") ? LineSink.toFile(Paths.get(arguments.get("out", null)))
+                : arguments.has("port") ? LineSink.toSocket(arguments.getInt("port", 0))
+                : LineSink.toStandardOutput();
+
+        WatchDaemon daemon = new WatchDaemon(arguments.getMethod("method", XmlC14nMethod.C14N_NONE), algorithms,
+                arguments.getInt("threads", Runtime.getRuntime().availableProcessors()), arguments.getLong("debounce", 200),
+                arguments.get("recursive", "no").equals("yes"), sink);
+        for (String directory : arguments.getPositional()) {
+            daemon.watch(Paths.get(directory));
+        }
+
+        CountDownLatch stopped = new CountDownLatch(1);
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            try {
+                daemon.close();
+                sink.close();
+                stopped.await();
+            } catch (Exception e) {
+                // exiting anyway
+            }
+        }));
+
+        daemon.run();
+        stopped.countDown();
+        return 0;
+    }
+
+}
@@ -0,0 +1,42 @@
+package sk.isdd.validator.cli;
+
+import sk.isdd.validator.batch.ShardCoordinator;
+import sk.isdd.validator.batch.ShardWorker;
+
+/**
+ * Worker mode: process shards of a batch run distributed by the coordinator.
+ */
+public class WorkerCommand implements CliCommand {
+
+    @Override
+    public String getName() {
+        return "worker";
+    }
+
+    @Override
+    public String getUsage() {
+        return "--connect HOST:PORT [--threads N] [--wait MS]  process shards for the coordinator (token in "
+                + ShardCoordinator.TOKEN_ENVIRONMENT + ")";
+    }
+
+    @Override
+    public int run(CliArguments arguments) throws Exception {
+
+        if (!arguments.has("connect")) {
+            throw new IllegalArgumentException("--connect expected");
+        }
+        String connect = arguments.get("connect", null);
+        int colon = connect.lastIndexOf(':');
+        if (colon < 0) {
+            throw new IllegalArgumentException("--connect HOST:PORT expected");
+        }
+
+        ShardWorker worker = new ShardWorker(arguments.getInt("threads", Runtime.getRuntime().availableProcessors()),
+                arguments.getLong("wait", 30000));
+        worker.setToken(System.getenv(ShardCoordinator.TOKEN_ENVIRONMENT));
+        int shards = worker.run(connect.substring(0, colon), Integer.parseInt(connect.substring(colon + 1)));
+        System.err.println(shards + " shards processed");
+        return 0;
+    }
+
+}
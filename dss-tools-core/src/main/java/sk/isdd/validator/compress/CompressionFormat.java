@@ -0,0 +1,150 @@
+package sk.isdd.validator.compress;
+
+import com.github.luben.zstd.ZstdInputStream;
+import org.tukaani.xz.XZInputStream;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Enumeration of compression formats recognized on the read path by their magic bytes.
+ *
+ * <p> gzip and zlib are decoded by the JDK, xz by XZ for Java and zstd by zstd-jni.
+ */
+public enum CompressionFormat {
+
+    /**
+     * Data is not compressed (or compressed by unknown format) and is read as is.
+     */
+    NONE("none"),
+
+    /**
+     * gzip (RFC 1952), including concatenated members.
+     */
+    GZIP("gzip"),
+
+    /**
+     * zlib (RFC 1950) wrapped deflate stream.
+     */
+    ZLIB("zlib"),
+
+    /**
+     * xz (LZMA2) container.
+     */
+    XZ("xz"),
+
+    /**
+     * Zstandard frames.
+     */
+    ZSTD("zstd");
+
+    private static final int MAGIC_LENGTH = 6;
+
+    private final String name;
+
+    CompressionFormat(String name) {
+        this.name = name;
+    }
+
+    /**
+     * Return common name of the format, e.g. "gzip".
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Detect format of the stream by its leading bytes. The stream position is kept.
+     *
+     * @param in stream supporting mark and reset
+     * @return detected format, {@link #NONE} if not recognized
+     * @throws IOException if reading fails
+     */
+    public static CompressionFormat detect(InputStream in) throws IOException {
+
+        if (!in.markSupported()) {
+            throw new IllegalArgumentException("Stream with mark support expected.");
+        }
+        in.mark(MAGIC_LENGTH);
+        byte[] magic = in.readNBytes(MAGIC_LENGTH);
+        in.reset();
+        return detect(magic, magic.length);
+    }
+
+    /**
+     * Detect format by leading bytes of data.
+     *
+     * @param magic first bytes of the data
+     * @param length number of valid bytes in magic
+     * @return detected format, {@link #NONE} if not recognized
+     */
+    public static CompressionFormat detect(byte[] magic, int length) {
+
+        if (length >= 2 && (magic[0] & 0xff) == 0x1f && (magic[1] & 0xff) == 0x8b) {
+            return GZIP;
+        }
+        if (length >= 4 && (magic[0] & 0xff) == 0x28 && (magic[1] & 0xff) == 0xb5
+                && (magic[2] & 0xff) == 0x2f && (magic[3] & 0xff) == 0xfd) {
+            return ZSTD;
+        }
+        if (length >= 6 && (magic[0] & 0xff) == 0xfd && magic[1] == '7' && magic[2] == 'z'
+                && magic[3] == 'X' && magic[4] == 'Z' && magic[5] == 0) {
+            return XZ;
+        }
+        // deflate with 32K window and valid header checksum, only common levels to not confuse text starting by "x"
+        if (length >= 2 && (magic[0] & 0xff) == 0x78) {
+            int level = magic[1] & 0xff;
+            if (level == 0x01 || level == 0x5e || level == 0x9c || level == 0xda) {
+                return ZLIB;
+            }
+        }
+        return NONE;
+    }
+
+    /**
+     * Wrap compressed stream by decoder of this format.
+     *
+     * @param in the compressed stream
+     * @return stream of decompressed bytes, the same stream for {@link #NONE}
+     * @throws IOException if the stream header is invalid
+     */
+    public InputStream decode(InputStream in) throws IOException {
+
+        switch (this) {
+            case GZIP:
+                return new GZIPInputStream(in, 64 * 1024);
+            case ZLIB:
+                return new InflaterInputStream(in);
+            case XZ:
+                return new XZInputStream(in);
+            case ZSTD:
+                return new ZstdInputStream(in);
+            default:
+                return in;
+        }
+    }
+
+    /**
+     * Open stream of decompressed data, format is detected automatically.
+     *
+     * @param in the possibly compressed stream
+     * @param pipelined decompress on separate thread, overlapping with processing of the result
+     * @return stream of decompressed bytes
+     * @throws IOException if reading fails
+     * @see PipelinedInputStream
+     */
+    public static InputStream open(InputStream in, boolean pipelined) throws IOException {
+
+        InputStream buffered = in.markSupported() ? in : new BufferedInputStream(in, 64 * 1024);
+        CompressionFormat format = detect(buffered);
+        if (format == NONE) {
+            return buffered;
+        }
+        InputStream decoded = format.decode(buffered);
+        return pipelined ? new PipelinedInputStream(decoded) : decoded;
+    }
+
+}
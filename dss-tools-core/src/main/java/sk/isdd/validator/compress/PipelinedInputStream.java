@@ -0,0 +1,137 @@
+package sk.isdd.validator.compress;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.util.Arrays;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Input stream reading its source on separate daemon thread.
+ *
+ * <p> Used as separate pipeline stage: the producer thread reads (e.g. decompresses) chunks ahead
+ * into bounded queue, while the consumer processes (e.g. hashes) previous chunks. Memory is bounded
+ * by chunk size times queue depth. Failures of the producer (errors included) are rethrown to the consumer.
+ */
+public class PipelinedInputStream extends InputStream {
+
+    private static final int DEFAULT_CHUNK_SIZE = 256 * 1024;
+    private static final int DEFAULT_DEPTH = 4;
+
+    /**
+     * Marker of the end of the source.
+     */
+    private static final byte[] END = new byte[0];
+
+    private final InputStream source;
+    private final BlockingQueue<byte[]> queue;
+    private final Thread producer;
+
+    private volatile Throwable failure;
+    private volatile boolean closed;
+
+    private byte[] current = null;
+    private int position;
+    private boolean finished;
+
+    /**
+     * Pipeline with default chunk size and depth.
+     */
+    public PipelinedInputStream(InputStream source) {
+        this(source, DEFAULT_CHUNK_SIZE, DEFAULT_DEPTH);
+    }
+
+    /**
+     * @param source stream to be read ahead
+     * @param chunkSize size of read ahead chunks
+     * @param depth maximum number of chunks read ahead
+     */
+    public PipelinedInputStream(InputStream source, int chunkSize, int depth) {
+
+        this.source = source;
+        this.queue = new ArrayBlockingQueue<>(depth);
+        this.producer = new Thread(() -> produce(chunkSize), "pipeline-reader");
+        this.producer.setDaemon(true);
+        this.producer.start();
+    }
+
+    private void produce(int chunkSize) {
+
+        try {
+            while (!closed) {
+                byte[] chunk = source.readNBytes(chunkSize);
+                if (chunk.length == 0) {
+                    break;
+                }
+                queue.put((chunk.length == chunkSize) ? chunk : Arrays.copyOf(chunk, chunk.length));
+            }
+        } catch (InterruptedException e) {
+            return;
+        } catch (Throwable t) {
+            // errors too, the consumer would wait for the end forever otherwise
+            failure = t;
+        }
+
+        try {
+            queue.put(END);
+        } catch (InterruptedException e) {
+            // closed by consumer
+        }
+    }
+
+    @Override
+    public int read() throws IOException {
+
+        byte[] single = new byte[1];
+        int n = read(single, 0, 1);
+        return (n < 0) ? -1 : (single[0] & 0xff);
+    }
+
+    @Override
+    public int read(byte[] target, int offset, int length) throws IOException {
+
+        if (closed) {
+            throw new IOException("Stream closed.");
+        }
+        if (length == 0) {
+            return 0;
+        }
+
+        while (current == null || position == current.length) {
+            if (finished) {
+                return -1;
+            }
+            try {
+                current = queue.take();
+                position = 0;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Pipeline read interrupted.");
+            }
+            if (current == END) {
+                finished = true;
+                if (failure instanceof Error) {
+                    throw (Error) failure;
+                }
+                if (failure != null) {
+                    throw new IOException("Pipeline source failed: " + failure.getMessage(), failure);
+                }
+            }
+        }
+
+        int n = Math.min(length, current.length - position);
+        System.arraycopy(current, position, target, offset, n);
+        position += n;
+        return n;
+    }
+
+    @Override
+    public void close() throws IOException {
+
+        closed = true;
+        producer.interrupt();
+        source.close();
+    }
+
+}
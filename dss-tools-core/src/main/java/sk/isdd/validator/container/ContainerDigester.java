@@ -0,0 +1,308 @@
+package sk.isdd.validator.container;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import sk.isdd.validator.ApplicationException;
+import sk.isdd.validator.digest.DigestEngine;
+import sk.isdd.validator.digest.DigestResult;
+import sk.isdd.validator.enumerations.DigestAlgorithm;
+import sk.isdd.validator.enumerations.XmlC14nMethod;
+import sk.isdd.validator.io.IoPriority;
+import sk.isdd.validator.io.IoScheduler;
+import sk.isdd.validator.xml.CanonicalInputStream;
+import sk.isdd.validator.xml.ParseBudget;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipInputStream;
+
+/**
+ * Digests entries of ZIP based containers (plain ZIP, ASiC-S, ASiC-E) without extracting them to disk.
+ *
+ * <p> Every entry is streamed through optional canonicalization (XML entries only) into the digest engine.
+ * Containers available as files are opened by {@link ZipFile}, whose random access allows entries to be
+ * inflated, canonicalized and hashed in parallel. Non seekable input (e.g. standard input) is read sequentially
+ * by {@link ZipInputStream}.
+ */
+public class ContainerDigester {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ContainerDigester.class);
+
+    /**
+     * Name of the ASiC entry holding media type of the container.
+     */
+    public static final String MIMETYPE_ENTRY = "mimetype";
+
+    /**
+     * Digest results of single container entry.
+     */
+    public static final class EntryResult {
+
+        private final String name;
+        private final long size;
+        private final boolean canonicalized;
+        private final List<DigestResult> results;
+        private final String error;
+
+        EntryResult(String name, long size, boolean canonicalized, List<DigestResult> results, String error) {
+            this.name = name;
+            this.size = size;
+            this.canonicalized = canonicalized;
+            this.results = results;
+            this.error = error;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        /**
+         * Uncompressed size of the entry, before canonicalization.
+         */
+        public long getSize() {
+            return size;
+        }
+
+        /**
+         * Whether digests were calculated over canonical form of the entry.
+         */
+        public boolean isCanonicalized() {
+            return canonicalized;
+        }
+
+        /**
+         * Digest results, empty if the entry failed.
+         */
+        public List<DigestResult> getResults() {
+            return results;
+        }
+
+        /**
+         * Reason of failure, {@code null} on success.
+         */
+        public String getError() {
+            return error;
+        }
+
+        public boolean isFailed() {
+            return error != null;
+        }
+
+        @Override
+        public String toString() {
+            return name + " (" + size + " bytes" + (canonicalized ? ", c14n" : "") + ") "
+                    + (isFailed() ? "FAILED: " + error : results.toString());
+        }
+    }
+
+    private final XmlC14nMethod method;
+    private final Collection<DigestAlgorithm> algorithms;
+    private final int threads;
+
+    /**
+     * Priority class of container reads scheduled by {@link IoScheduler}.
+     */
+    private volatile IoPriority ioPriority = IoPriority.INTERACTIVE;
+
+    /**
+     * @param method canonicalization of XML entries, {@code null} or {@link XmlC14nMethod#C14N_NONE} digests raw bytes
+     * @param algorithms digests to be calculated
+     * @param threads maximum number of entries processed in parallel
+     */
+    public ContainerDigester(XmlC14nMethod method, Collection<DigestAlgorithm> algorithms, int threads) {
+        this.method = (method == null) ? XmlC14nMethod.C14N_NONE : method;
+        this.algorithms = algorithms;
+        this.threads = Math.max(1, threads);
+    }
+
+    public IoPriority getIoPriority() {
+        return ioPriority;
+    }
+
+    /**
+     * Set priority class of subsequent container file reads, batch jobs should use {@link IoPriority#BACKGROUND}.
+     */
+    public void setIoPriority(IoPriority ioPriority) {
+        this.ioPriority = ioPriority;
+    }
+
+    /**
+     * Digest all entries of container file in parallel.
+     *
+     * @param container the ZIP file
+     * @return results of file entries in central directory order, directories are left out
+     * @throws IOException if the container cannot be opened
+     * @throws ApplicationException if the processing is interrupted
+     */
+    public List<EntryResult> digest(Path container) throws IOException {
+
+        long started = System.currentTimeMillis();
+        try (ZipFile zip = new ZipFile(container.toFile())) {
+
+            List<ZipEntry> entries = new ArrayList<>();
+            for (Enumeration<? extends ZipEntry> e = zip.entries(); e.hasMoreElements(); ) {
+                ZipEntry entry = e.nextElement();
+                if (!entry.isDirectory()) {
+                    entries.add(entry);
+                }
+            }
+
+            List<EntryResult> results = new ArrayList<>(entries.size());
+            int workers = Math.min(threads, entries.size());
+            if (workers <= 1) {
+                for (ZipEntry entry : entries) {
+                    results.add(digestEntry(entry.getName(), open(zip, entry)));
+                }
+
+            } else {
+                // ZipFile serializes raw reads only, inflating, c14n and hashing of entries run concurrently
+                ExecutorService executor = Executors.newFixedThreadPool(workers);
+                try {
+                    List<Future<EntryResult>> futures = new ArrayList<>(entries.size());
+                    for (ZipEntry entry : entries) {
+                        futures.add(executor.submit(() -> digestEntry(entry.getName(), open(zip, entry))));
+                    }
+                    for (Future<EntryResult> future : futures) {
+                        results.add(future.get());
+                    }
+
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new ApplicationException("Container processing interrupted.", e);
+                } catch (ExecutionException e) {
+                    throw new IOException("Cannot read container entry: " + e.getCause().getMessage(), e.getCause());
+                } finally {
+                    executor.shutdownNow();
+                }
+            }
+
+            LOG.info(entries.size() + " entries of " + container + " digested by " + Math.max(1, workers)
+                    + " workers in " + (System.currentTimeMillis() - started) + " ms.");
+            return results;
+        }
+    }
+
+    /**
+     * Digest all entries of container stream sequentially.
+     *
+     * @param container the ZIP stream, it is read to its end but not closed
+     * @return results of file entries in local header order, directories are left out
+     * @throws IOException if reading fails
+     */
+    public List<EntryResult> digest(InputStream container) throws IOException {
+
+        ZipInputStream zip = new ZipInputStream(container);
+        List<EntryResult> results = new ArrayList<>();
+
+        ZipEntry entry;
+        while ((entry = zip.getNextEntry()) != null) {
+            if (!entry.isDirectory()) {
+                results.add(digestEntry(entry.getName(), new FilterInputStream(zip) {
+                    @Override
+                    public void close() {
+                        // keep the container open for next entries
+                    }
+                }));
+            }
+            zip.closeEntry();
+        }
+        return results;
+    }
+
+    /**
+     * Return media type of ASiC container, i.e. content of its "mimetype" entry.
+     *
+     * @param container the ZIP file
+     * @return the media type, {@code null} for plain ZIP
+     * @throws IOException if the container cannot be read
+     */
+    public static String getMimeType(Path container) throws IOException {
+
+        try (ZipFile zip = new ZipFile(container.toFile())) {
+            ZipEntry entry = zip.getEntry(MIMETYPE_ENTRY);
+            if (entry == null) {
+                return null;
+            }
+            try (InputStream in = zip.getInputStream(entry)) {
+                return new String(in.readNBytes(1024), StandardCharsets.US_ASCII).trim();
+            }
+        }
+    }
+
+    /**
+     * Open entry after its compressed bytes are admitted by the scheduler, entries of unknown size are throttled as read.
+     */
+    private InputStream open(ZipFile zip, ZipEntry entry) throws IOException {
+
+        if (entry.getCompressedSize() < 0) {
+            return IoScheduler.getDefault().wrap(zip.getInputStream(entry), ioPriority);
+        }
+        IoScheduler.getDefault().acquire(ioPriority, entry.getCompressedSize());
+        return zip.getInputStream(entry);
+    }
+
+    private EntryResult digestEntry(String name, InputStream entry) {
+
+        boolean canonicalize = method != XmlC14nMethod.C14N_NONE && isXml(name);
+        CountingInputStream counter = new CountingInputStream(entry);
+
+        try (InputStream in = canonicalize ? new CanonicalInputStream(counter, method, ParseBudget.getDefault()) : counter) {
+            List<DigestResult> results = DigestEngine.calculate(in, algorithms);
+            return new EntryResult(name, counter.count, canonicalize, results, null);
+
+        } catch (IOException | RuntimeException e) {
+            LOG.warn("Container entry " + name + " failed: " + e.getMessage());
+            return new EntryResult(name, counter.count, canonicalize, Collections.emptyList(), String.valueOf(e.getMessage()));
+        }
+    }
+
+    private static boolean isXml(String name) {
+        return name.toLowerCase(Locale.ROOT).endsWith(".xml");
+    }
+
+    /**
+     * Counts bytes read from the underlying stream.
+     */
+    private static class CountingInputStream extends FilterInputStream {
+
+        private long count;
+
+        CountingInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b >= 0) {
+                count++;
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int n = super.read(b, off, len);
+            if (n > 0) {
+                count += n;
+            }
+            return n;
+        }
+    }
+
+}
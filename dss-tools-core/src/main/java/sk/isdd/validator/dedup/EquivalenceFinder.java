@@ -0,0 +1,356 @@
+package sk.isdd.validator.dedup;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import sk.isdd.validator.ApplicationException;
+import sk.isdd.validator.enumerations.DigestAlgorithm;
+import sk.isdd.validator.enumerations.XmlC14nMethod;
+import sk.isdd.validator.io.IoPriority;
+import sk.isdd.validator.io.IoScheduler;
+import sk.isdd.validator.xml.XmlFile;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Function;
+import java.util.zip.CRC32C;
+
+/**
+ * Finds groups of files having the same canonical form under chosen {@link XmlC14nMethod}.
+ *
+ * <p> Canonicalization is by far the most expensive step, so it is paid only once per distinct raw content.
+ * Byte-identical files are recognized by cascade of cheap filters first:
+ * <ol>
+ *     <li> file size (metadata only) - a file with unique size has unique content,
+ *     <li> CRC32C of the content, only within groups of equal size,
+ *     <li> SHA-256 of the raw content, only within groups of equal size and CRC32C, confirming identity.
+ * </ol>
+ * One representative of each distinct raw content is then canonicalized and hashed by SHA-256,
+ * equal canonical digests form the resulting groups. Hashing and canonicalization run in parallel.
+ *
+ * <p> Files which cannot be read or canonicalized are reported separately.
+ */
+public class EquivalenceFinder {
+
+    private static final Logger LOG = LoggerFactory.getLogger(EquivalenceFinder.class);
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * Grouping key of files failed in any stage.
+     */
+    private static final Object FAILED = new Object();
+
+    /**
+     * Files sharing the same canonical digest.
+     */
+    public static class Group {
+
+        private final byte[] digest;
+        private final List<Path> files;
+
+        Group(byte[] digest, List<Path> files) {
+            this.digest = digest;
+            this.files = files;
+        }
+
+        /**
+         * SHA-256 digest of the common canonical form.
+         */
+        public byte[] getDigest() {
+            return digest;
+        }
+
+        public List<Path> getFiles() {
+            return files;
+        }
+    }
+
+    /**
+     * Outcome of the search including statistics of the filter cascade.
+     */
+    public static class Report {
+
+        private final List<Group> groups = new ArrayList<>();
+        private final List<Path> failed = new ArrayList<>();
+        private int files;
+        private int fastHashed;
+        private int rawHashed;
+        private int canonicalized;
+
+        /**
+         * Groups with at least two equivalent files, largest first.
+         */
+        public List<Group> getGroups() {
+            return groups;
+        }
+
+        /**
+         * Files which could not be read or canonicalized.
+         */
+        public List<Path> getFailed() {
+            return failed;
+        }
+
+        public int getFiles() {
+            return files;
+        }
+
+        /**
+         * Number of files whose CRC32C had to be calculated (size not unique).
+         */
+        public int getFastHashed() {
+            return fastHashed;
+        }
+
+        /**
+         * Number of files whose raw SHA-256 had to be calculated (size and CRC32C not unique).
+         */
+        public int getRawHashed() {
+            return rawHashed;
+        }
+
+        /**
+         * Number of canonicalizations performed, one per distinct raw content.
+         */
+        public int getCanonicalized() {
+            return canonicalized;
+        }
+    }
+
+    private final XmlC14nMethod method;
+    private final int threads;
+
+    /**
+     * Priority class of file reads scheduled by {@link IoScheduler}.
+     */
+    private volatile IoPriority ioPriority = IoPriority.INTERACTIVE;
+
+    /**
+     * @param method canonicalization method defining the equivalence
+     * @param threads number of worker threads
+     */
+    public EquivalenceFinder(XmlC14nMethod method, int threads) {
+        this.method = method;
+        this.threads = threads;
+    }
+
+    public IoPriority getIoPriority() {
+        return ioPriority;
+    }
+
+    /**
+     * Set priority class of subsequent file reads, batch jobs should use {@link IoPriority#BACKGROUND}.
+     */
+    public void setIoPriority(IoPriority ioPriority) {
+        this.ioPriority = ioPriority;
+    }
+
+    /**
+     * Search given files for canonically equivalent ones.
+     *
+     * @param files the files to be compared
+     * @return report with groups of equivalent files
+     */
+    public Report find(Collection<Path> files) {
+
+        Report report = new Report();
+        report.files = files.size();
+        long started = System.currentTimeMillis();
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            // stage 1: size
+            Map<Object, List<Path>> bySize = groupBy(files, path -> {
+                try {
+                    return Files.size(path);
+                } catch (IOException e) {
+                    return null;
+                }
+            });
+            moveFailed(bySize, report);
+
+            // stage 2: CRC32C within equal sizes
+            List<List<Path>> units = new ArrayList<>();
+            List<Path> sameSize = splitUnique(bySize, units);
+            report.fastHashed = sameSize.size();
+            Map<Object, List<Path>> byFastHash = groupBy(sameSize, parallel(executor, sameSize, this::fastHash));
+            moveFailed(byFastHash, report);
+
+            // stage 3: raw SHA-256 within equal CRC32C
+            List<Path> sameFastHash = splitUnique(byFastHash, units);
+            report.rawHashed = sameFastHash.size();
+            Map<Object, List<Path>> byRawHash = groupBy(sameFastHash, parallel(executor, sameFastHash, this::rawHash));
+            moveFailed(byRawHash, report);
+            units.addAll(byRawHash.values());
+
+            // stage 4: canonicalize one representative of each distinct content
+            List<Path> representatives = new ArrayList<>(units.size());
+            for (List<Path> unit : units) {
+                representatives.add(unit.get(0));
+            }
+            report.canonicalized = representatives.size();
+            Function<Path, Object> canonical = parallel(executor, representatives, this::canonicalHash);
+
+            Map<Object, List<Path>> byCanonicalHash = new HashMap<>();
+            for (List<Path> unit : units) {
+                Object key = canonical.apply(unit.get(0));
+                if (key == null) {
+                    report.failed.addAll(unit);
+                } else {
+                    byCanonicalHash.computeIfAbsent(key, k -> new ArrayList<>()).addAll(unit);
+                }
+            }
+
+            for (Map.Entry<Object, List<Path>> entry : byCanonicalHash.entrySet()) {
+                if (entry.getValue().size() > 1) {
+                    Collections.sort(entry.getValue());
+                    report.groups.add(new Group(((ByteBuffer) entry.getKey()).array(), entry.getValue()));
+                }
+            }
+            report.groups.sort(Comparator.comparingInt((Group group) -> group.getFiles().size()).reversed());
+
+        } finally {
+            executor.shutdownNow();
+        }
+
+        LOG.info("Equivalence search of " + report.files + " files finished in " + (System.currentTimeMillis() - started)
+                + " ms; " + report.canonicalized + " canonicalized, " + report.groups.size() + " groups found.");
+        return report;
+    }
+
+    /*
+     * Keys of the individual stages, null means failure.
+     */
+
+    private Object fastHash(Path path) {
+
+        CRC32C crc = new CRC32C();
+        try (InputStream in = IoScheduler.getDefault().wrap(Files.newInputStream(path), ioPriority)) {
+            byte[] buffer = new byte[BUFFER_SIZE];
+            for (int read; (read = in.read(buffer)) > 0; ) {
+                crc.update(buffer, 0, read);
+            }
+            return Files.size(path) + ":" + crc.getValue();
+
+        } catch (IOException e) {
+            LOG.warn("Cannot read file \"" + path + "\": " + e.getMessage());
+            return null;
+        }
+    }
+
+    private Object rawHash(Path path) {
+
+        try (InputStream in = IoScheduler.getDefault().wrap(Files.newInputStream(path), ioPriority)) {
+            MessageDigest md = DigestAlgorithm.SHA256.getMessageDigest();
+            byte[] buffer = new byte[BUFFER_SIZE];
+            for (int read; (read = in.read(buffer)) > 0; ) {
+                md.update(buffer, 0, read);
+            }
+            return ByteBuffer.wrap(md.digest());
+
+        } catch (IOException | NoSuchAlgorithmException e) {
+            LOG.warn("Cannot hash file \"" + path + "\": " + e.getMessage());
+            return null;
+        }
+    }
+
+    private Object canonicalHash(Path path) {
+
+        XmlFile xmlFile = new XmlFile(path.toFile());
+        xmlFile.setIoPriority(ioPriority);
+        byte[] canonical = xmlFile.canonicalize(method);
+        if (canonical == null) {
+            return null;
+        }
+
+        try {
+            return ByteBuffer.wrap(DigestAlgorithm.SHA256.getMessageDigest().digest(canonical));
+        } catch (NoSuchAlgorithmException e) {
+            throw new ApplicationException("SHA-256 is not provided: " + e.getMessage(), e);
+        }
+    }
+
+    /*
+     * Grouping helpers
+     */
+
+    /**
+     * Calculate keys of given files in parallel.
+     *
+     * @return lookup of calculated keys
+     */
+    private Function<Path, Object> parallel(ExecutorService executor, List<Path> files, Function<Path, Object> keyFunction) {
+
+        List<Future<Object>> futures = new ArrayList<>(files.size());
+        for (Path file : files) {
+            futures.add(executor.submit(() -> keyFunction.apply(file)));
+        }
+
+        Map<Path, Object> keys = new HashMap<>();
+        try {
+            for (int i = 0; i < files.size(); i++) {
+                keys.put(files.get(i), futures.get(i).get());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ApplicationException("Equivalence search interrupted.", e);
+        } catch (ExecutionException e) {
+            throw new ApplicationException("Equivalence search failed: " + e.getCause().getMessage(), e.getCause());
+        }
+        return keys::get;
+    }
+
+    private static Map<Object, List<Path>> groupBy(Collection<Path> files, Function<Path, Object> keyFunction) {
+
+        Map<Object, List<Path>> groups = new HashMap<>();
+        for (Path file : files) {
+            Object key = keyFunction.apply(file);
+            groups.computeIfAbsent((key == null) ? FAILED : key, k -> new ArrayList<>()).add(file);
+        }
+        return groups;
+    }
+
+    /**
+     * Failed files are grouped under the marker key, move them to the report.
+     */
+    private static void moveFailed(Map<Object, List<Path>> groups, Report report) {
+
+        List<Path> failed = groups.remove(FAILED);
+        if (failed != null) {
+            report.failed.addAll(failed);
+        }
+    }
+
+    /**
+     * Move singleton groups (unique content) to units, return members of the rest for the next stage.
+     */
+    private static List<Path> splitUnique(Map<Object, List<Path>> groups, List<List<Path>> units) {
+
+        List<Path> candidates = new ArrayList<>();
+        for (List<Path> group : groups.values()) {
+            if (group.size() == 1) {
+                units.add(group);
+            } else {
+                candidates.addAll(group);
+            }
+        }
+        return candidates;
+    }
+
+}
@@ -0,0 +1,156 @@
+package sk.isdd.validator.digest;
+
+import sk.isdd.validator.ApplicationException;
+import sk.isdd.validator.enumerations.DigestAlgorithm;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Incremental Base64 decoder feeding decoded bytes straight into message digests.
+ *
+ * <p> Text is accepted in arbitrary chunks (e.g. as split by a StAX parser), whitespace is ignored as in MIME Base64.
+ * Only a fixed size buffer is allocated, regardless of the payload size.
+ */
+public class Base64DigestDecoder {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final byte[] VALUES = new byte[128];
+
+    static {
+        java.util.Arrays.fill(VALUES, (byte) -1);
+        String alphabet = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789+/";
+        for (int i = 0; i < alphabet.length(); i++) {
+            VALUES[alphabet.charAt(i)] = (byte) i;
+        }
+    }
+
+    private final List<DigestAlgorithm> algorithms = new ArrayList<>();
+    private final List<MessageDigest> digests = new ArrayList<>();
+    private final byte[] buffer = new byte[BUFFER_SIZE];
+
+    private int count;
+    private int quantum;
+    private int quantumSize;
+    private int padding;
+    private long decodedLength;
+
+    /**
+     * @param algorithms digests to be calculated over decoded bytes
+     * @throws ApplicationException if some algorithm is not provided
+     */
+    public Base64DigestDecoder(Collection<DigestAlgorithm> algorithms) {
+
+        for (DigestAlgorithm algorithm : algorithms) {
+            try {
+                digests.add(algorithm.getMessageDigest());
+                this.algorithms.add(algorithm);
+            } catch (NoSuchAlgorithmException e) {
+                throw new ApplicationException("Message digest algorithm \"" + algorithm.getJavaName() + "\" not provided.", e);
+            }
+        }
+    }
+
+    /**
+     * Decode next chunk of Base64 text.
+     *
+     * @throws ApplicationException on character outside Base64 alphabet or data after padding
+     */
+    public void update(char[] chars, int offset, int length) {
+
+        for (int i = offset; i < offset + length; i++) {
+            char c = chars[i];
+            if (c == ' ' || c == '\n' || c == '\r' || c == '\t') {
+                continue;
+            }
+            if (c == '=') {
+                padding++;
+                quantumSize++;
+                if (quantumSize == 4) {
+                    emitQuantum();
+                }
+                continue;
+            }
+            int value = (c < 128) ? VALUES[c] : -1;
+            if (value < 0 || padding > 0) {
+                throw new ApplicationException("Invalid Base64 content at decoded offset " + decodedLength + ".");
+            }
+            quantum = (quantum << 6) | value;
+            quantumSize++;
+            if (quantumSize == 4) {
+                emitQuantum();
+            }
+        }
+    }
+
+    /**
+     * Finish decoding and return digests of all decoded bytes. The decoder can then be reused for next payload.
+     *
+     * @return results in the order of algorithms
+     * @throws ApplicationException if the text ends in the middle of a quantum
+     */
+    public List<DigestResult> finish() {
+
+        if (quantumSize != 0) {
+            throw new ApplicationException("Truncated Base64 content after " + decodedLength + " decoded bytes.");
+        }
+        flush();
+
+        List<DigestResult> results = new ArrayList<>(digests.size());
+        for (int i = 0; i < digests.size(); i++) {
+            results.add(new DigestResult(algorithms.get(i), digests.get(i).digest()));
+        }
+        padding = 0;
+        return results;
+    }
+
+    /**
+     * Number of bytes decoded since the last {@link #finish()}. Reset by {@link #reset()}.
+     */
+    public long getDecodedLength() {
+        return decodedLength;
+    }
+
+    /**
+     * Reset decoded length counter, digests are reset by {@link #finish()}.
+     */
+    public void reset() {
+        decodedLength = 0;
+    }
+
+    private void emitQuantum() {
+
+        if (count + 3 > buffer.length) {
+            flush();
+        }
+        int bytes = 3 - padding;
+        if (bytes < 1) {
+            throw new ApplicationException("Invalid Base64 padding at decoded offset " + decodedLength + ".");
+        }
+
+        // padded positions contribute zero bits
+        int bits = quantum << (6 * padding);
+        buffer[count++] = (byte) (bits >> 16);
+        if (bytes > 1) {
+            buffer[count++] = (byte) (bits >> 8);
+        }
+        if (bytes > 2) {
+            buffer[count++] = (byte) bits;
+        }
+        decodedLength += bytes;
+        quantum = 0;
+        quantumSize = 0;
+    }
+
+    private void flush() {
+
+        for (MessageDigest digest : digests) {
+            digest.update(buffer, 0, count);
+        }
+        count = 0;
+    }
+
+}
@@ -0,0 +1,113 @@
+package sk.isdd.validator.digest;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import sk.isdd.validator.enumerations.DigestAlgorithm;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Plain Java message digest engine, usable without any GUI toolkit.
+ *
+ * <p> Calculates digests enumerated in {@link DigestAlgorithm} over given data.
+ * Algorithms not provided by registered security providers are skipped.
+ */
+public class DigestEngine {
+
+    private static final Logger LOG = LoggerFactory.getLogger(DigestEngine.class);
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * Calculate all enumerated message digests of given data.
+     *
+     * @param data the bytes to be digested
+     * @return list of results in enumeration order, unsupported algorithms are left out
+     */
+    public static List<DigestResult> calculate(byte[] data) {
+        return calculate(data, Arrays.asList(DigestAlgorithm.values()));
+    }
+
+    /**
+     * Calculate chosen message digests of given data.
+     *
+     * @param data the bytes to be digested
+     * @param algorithms algorithms to be calculated
+     * @return list of results in given order, unsupported algorithms are left out
+     */
+    public static List<DigestResult> calculate(byte[] data, Collection<DigestAlgorithm> algorithms) {
+
+        List<DigestResult> results = new ArrayList<>(algorithms.size());
+
+        for (DigestAlgorithm algorithm : algorithms) {
+            try {
+                results.add(calculate(data, algorithm));
+
+            } catch (NoSuchAlgorithmException e) {
+                LOG.warn("Message digest algorithm \"" + algorithm.getJavaName() + "\" not provided.");
+            }
+        }
+        return results;
+    }
+
+    /**
+     * Calculate single message digest of given data.
+     *
+     * @param data the bytes to be digested
+     * @param algorithm algorithm to be calculated
+     * @return the digest result
+     * @throws NoSuchAlgorithmException if the algorithm is not provided
+     */
+    public static DigestResult calculate(byte[] data, DigestAlgorithm algorithm) throws NoSuchAlgorithmException {
+
+        MessageDigest md = algorithm.getMessageDigest();
+        md.update(data);
+        return new DigestResult(algorithm, md.digest());
+    }
+
+    /**
+     * Calculate chosen message digests of streamed data in one pass, without holding the data in memory.
+     * The stream is read to its end but not closed.
+     *
+     * @param data the stream to be digested
+     * @param algorithms algorithms to be calculated
+     * @return list of results in given order, unsupported algorithms are left out
+     * @throws IOException if reading fails
+     */
+    public static List<DigestResult> calculate(InputStream data, Collection<DigestAlgorithm> algorithms) throws IOException {
+
+        List<DigestAlgorithm> provided = new ArrayList<>(algorithms.size());
+        List<MessageDigest> digests = new ArrayList<>(algorithms.size());
+        for (DigestAlgorithm algorithm : algorithms) {
+            try {
+                digests.add(algorithm.getMessageDigest());
+                provided.add(algorithm);
+
+            } catch (NoSuchAlgorithmException e) {
+                LOG.warn("Message digest algorithm \"" + algorithm.getJavaName() + "\" not provided.");
+            }
+        }
+
+        byte[] buffer = new byte[BUFFER_SIZE];
+        int n;
+        while ((n = data.read(buffer)) >= 0) {
+            for (MessageDigest digest : digests) {
+                digest.update(buffer, 0, n);
+            }
+        }
+
+        List<DigestResult> results = new ArrayList<>(digests.size());
+        for (int i = 0; i < digests.size(); i++) {
+            results.add(new DigestResult(provided.get(i), digests.get(i).digest()));
+        }
+        return results;
+    }
+
+}
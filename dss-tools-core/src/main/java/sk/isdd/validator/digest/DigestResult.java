@@ -0,0 +1,54 @@
+package sk.isdd.validator.digest;
+
+import sk.isdd.validator.enumerations.DigestAlgorithm;
+
+import java.util.Base64;
+
+/**
+ * Immutable pair of algorithm and its calculated message digest.
+ *
+ * <p> Plain Java counterpart of the GUI data class, suitable for embedding.
+ */
+public final class DigestResult {
+
+    private final DigestAlgorithm algorithm;
+    private final byte[] digest;
+
+    /**
+     * Create result out of algorithm and its calculated digest pair.
+     *
+     * @param algorithm enumeration object representing used algorithm
+     * @param digest the message digest created from source by given algorithm
+     */
+    public DigestResult(DigestAlgorithm algorithm, byte[] digest) {
+        this.algorithm = algorithm;
+        this.digest = digest;
+    }
+
+    /**
+     * Return algorithm as whole enumeration object.
+     */
+    public DigestAlgorithm getAlgorithm() {
+        return algorithm;
+    }
+
+    /**
+     * Get raw digest message.
+     */
+    public byte[] getDigest() {
+        return digest;
+    }
+
+    /**
+     * Return Base 64 encoded message digest.
+     */
+    public String getDigestBase64() {
+        return Base64.getEncoder().encodeToString(digest);
+    }
+
+    @Override
+    public String toString() {
+        return algorithm.getJavaName() + "=" + getDigestBase64();
+    }
+
+}
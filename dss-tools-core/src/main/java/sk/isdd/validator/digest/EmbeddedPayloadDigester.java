@@ -0,0 +1,179 @@
+package sk.isdd.validator.digest;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import sk.isdd.validator.ApplicationException;
+import sk.isdd.validator.enumerations.DigestAlgorithm;
+import sk.isdd.validator.xml.BudgetExceededException;
+import sk.isdd.validator.xml.ParseBudget;
+import sk.isdd.validator.xml.StreamingCanonicalizer;
+
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.InputStream;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Digest of large Base64 payloads embedded in XML (e.g. ds:Object content or attachments of custom envelopes).
+ *
+ * <p> The document is read by StAX without coalescing, so the parser hands over long text in chunks.
+ * Chunks are copied out of the parser buffer and decoded by {@link Base64DigestDecoder} directly into the digests.
+ * No String or DOM node is ever built for the payload, memory use is flat regardless of its size.
+ */
+public class EmbeddedPayloadDigester {
+
+    private static final Logger LOG = LoggerFactory.getLogger(EmbeddedPayloadDigester.class);
+
+    private static final int CHUNK_SIZE = 16 * 1024;
+
+    /**
+     * Digests of one decoded payload element.
+     */
+    public static final class Payload {
+
+        private final String elementPath;
+        private final long decodedLength;
+        private final List<DigestResult> results;
+
+        Payload(String elementPath, long decodedLength, List<DigestResult> results) {
+            this.elementPath = elementPath;
+            this.decodedLength = decodedLength;
+            this.results = results;
+        }
+
+        /**
+         * XPath-like location of the payload element, e.g. "/Envelope[1]/Attachment[2]".
+         */
+        public String getElementPath() {
+            return elementPath;
+        }
+
+        public long getDecodedLength() {
+            return decodedLength;
+        }
+
+        public List<DigestResult> getResults() {
+            return results;
+        }
+
+        @Override
+        public String toString() {
+            return elementPath + " (" + decodedLength + " bytes) " + results;
+        }
+    }
+
+    /**
+     * Decode and digest content of all elements with given name.
+     *
+     * @param source the XML document
+     * @param namespace namespace URI of payload elements, {@code null} matches any namespace
+     * @param localName local name of payload elements
+     * @param algorithms digests to be calculated over decoded content
+     * @return payloads in document order, nested matches are not supported
+     * @throws ApplicationException if the document is not well-formed, a payload contains child elements
+     *                              or is not valid Base64
+     * @throws BudgetExceededException if the document is over the default {@link ParseBudget}
+     */
+    public static List<Payload> digest(InputStream source, String namespace, String localName,
+                                       Collection<DigestAlgorithm> algorithms) {
+        return digest(source, namespace, localName, algorithms, ParseBudget.getDefault());
+    }
+
+    /**
+     * Decode and digest content of all elements with given name within the budget.
+     *
+     * @param source the XML document
+     * @param namespace namespace URI of payload elements, {@code null} matches any namespace
+     * @param localName local name of payload elements
+     * @param algorithms digests to be calculated over decoded content
+     * @param budget limits of the document, time limit starts now
+     * @return payloads in document order, nested matches are not supported
+     * @throws ApplicationException if the document is not well-formed, a payload contains child elements
+     *                              or is not valid Base64
+     * @throws BudgetExceededException if the document is over the budget
+     */
+    public static List<Payload> digest(InputStream source, String namespace, String localName,
+                                       Collection<DigestAlgorithm> algorithms, ParseBudget budget) {
+
+        ParseBudget.Meter meter = budget.start();
+        XMLStreamReader reader = StreamingCanonicalizer.newReader(source, meter);
+        Base64DigestDecoder decoder = new Base64DigestDecoder(algorithms);
+        char[] chunk = new char[CHUNK_SIZE];
+
+        List<Payload> payloads = new ArrayList<>();
+        Deque<String> path = new ArrayDeque<>();
+        Deque<Map<String, Integer>> siblings = new ArrayDeque<>();
+        siblings.push(new HashMap<>());
+        String payloadPath = null;
+
+        try {
+            while (reader.hasNext()) {
+                int event = reader.next();
+                meter.event(reader);
+
+                if (event == XMLStreamConstants.START_ELEMENT) {
+                    if (payloadPath != null) {
+                        throw new ApplicationException("Payload " + payloadPath + " contains child element "
+                                + reader.getLocalName() + ".");
+                    }
+                    String name = reader.getLocalName();
+                    int position = siblings.peek().merge(name, 1, Integer::sum);
+                    path.push(name + "[" + position + "]");
+                    siblings.push(new HashMap<>());
+
+                    if (name.equals(localName) && (namespace == null || namespace.equals(reader.getNamespaceURI()))) {
+                        payloadPath = toPath(path);
+                        decoder.reset();
+                    }
+
+                } else if (event == XMLStreamConstants.END_ELEMENT) {
+                    if (payloadPath != null) {
+                        Payload payload = new Payload(payloadPath, decoder.getDecodedLength(), decoder.finish());
+                        LOG.debug("Payload digested: " + payload);
+                        payloads.add(payload);
+                        payloadPath = null;
+                    }
+                    path.pop();
+                    siblings.pop();
+
+                } else if (payloadPath != null && (event == XMLStreamConstants.CHARACTERS
+                        || event == XMLStreamConstants.CDATA || event == XMLStreamConstants.SPACE)) {
+                    int length = reader.getTextLength();
+                    for (int copied = 0; copied < length; ) {
+                        int n = reader.getTextCharacters(copied, chunk, 0, Math.min(chunk.length, length - copied));
+                        decoder.update(chunk, 0, n);
+                        copied += n;
+                    }
+                }
+            }
+            reader.close();
+
+        } catch (XMLStreamException e) {
+            BudgetExceededException exceeded = ParseBudget.exceeded(e);
+            if (exceeded != null) {
+                throw exceeded;
+            }
+            throw new ApplicationException("Cannot read XML document: " + e.getMessage(), e);
+        }
+        return payloads;
+    }
+
+    private static String toPath(Deque<String> path) {
+
+        StringBuilder builder = new StringBuilder();
+        Iterator<String> names = path.descendingIterator();
+        while (names.hasNext()) {
+            builder.append('/').append(names.next());
+        }
+        return builder.toString();
+    }
+
+}
@@ -0,0 +1,328 @@
+package sk.isdd.validator.digest;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import sk.isdd.validator.enumerations.DigestAlgorithm;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.Provider;
+import java.security.Security;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Random;
+
+/**
+ * Binds every {@link DigestAlgorithm} to the fastest correct security provider on this machine.
+ *
+ * <p> JCA returns implementation of the first registered provider, which is not always the fastest one
+ * (e.g. SUN provider has SHA intrinsics, while Bouncy Castle is the only one supplying RIPEMD or WHIRLPOOL).
+ * Calibration hashes the same data by every candidate provider, rejects providers disagreeing with the majority
+ * and selects the one with the best throughput. Results are cached in a properties file, keyed by JVM, architecture
+ * and registered providers.
+ *
+ * <p> Calibration takes seconds, so it runs only on demand ({@link #store(Path, List)}, e.g. the {@code providers}
+ * command); {@link #select(Path)} only binds a valid cached selection, before any work starts, and leaves JCA
+ * defaults otherwise. Providers have to be registered before selection.
+ */
+public final class ProviderSelector {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ProviderSelector.class);
+
+    /**
+     * System property overriding the cache file location, "none" disables the selection.
+     */
+    public static final String CACHE_PROPERTY = "dss-tools.providers";
+
+    private static final String FINGERPRINT_KEY = "fingerprint";
+    private static final int DATA_SIZE = 256 * 1024;
+    private static final long WARMUP_NANOS = 50_000_000L;
+    private static final long MEASURE_NANOS = 25_000_000L;
+    private static final int ROUNDS = 3;
+
+    /**
+     * Throughput of single provider implementing single algorithm.
+     */
+    public static final class Measurement {
+
+        private final DigestAlgorithm algorithm;
+        private final String provider;
+        private final double megabytesPerSecond;
+        private final boolean correct;
+
+        Measurement(DigestAlgorithm algorithm, String provider, double megabytesPerSecond, boolean correct) {
+            this.algorithm = algorithm;
+            this.provider = provider;
+            this.megabytesPerSecond = megabytesPerSecond;
+            this.correct = correct;
+        }
+
+        public DigestAlgorithm getAlgorithm() {
+            return algorithm;
+        }
+
+        public String getProvider() {
+            return provider;
+        }
+
+        public double getMegabytesPerSecond() {
+            return megabytesPerSecond;
+        }
+
+        /**
+         * False if the provider's digest disagreed with other providers.
+         */
+        public boolean isCorrect() {
+            return correct;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%-10s %-8s %8.1f MB/s%s", algorithm.getName(), provider, megabytesPerSecond,
+                    correct ? "" : " INCORRECT");
+        }
+    }
+
+    private ProviderSelector() {
+    }
+
+    /**
+     * Return cache file location, by default ".dss-tools/providers.properties" in user home.
+     *
+     * @return the cache file or null if selection is disabled
+     */
+    public static Path getDefaultCacheFile() {
+
+        String location = System.getProperty(CACHE_PROPERTY);
+        if ("none".equals(location)) {
+            return null;
+        }
+        return (location != null) ? Paths.get(location)
+                : Paths.get(System.getProperty("user.home"), ".dss-tools", "providers.properties");
+    }
+
+    /**
+     * Check the cache holds calibration valid for this environment.
+     *
+     * @param cacheFile calibration cache, may be null
+     */
+    public static boolean isCalibrated(Path cacheFile) {
+        return cacheFile != null && load(cacheFile) != null;
+    }
+
+    /**
+     * Bind all algorithms to their fastest providers by cached calibration. Never calibrates, algorithms are
+     * left with JCA defaults when the cache is missing or stale. Call before digesting starts, providers are not
+     * meant to change under running digests.
+     *
+     * @param cacheFile calibration cache, null disables the selection
+     * @return providers bound to algorithms, algorithms without provider are left out
+     */
+    public static Map<DigestAlgorithm, Provider> select(Path cacheFile) {
+
+        Map<DigestAlgorithm, Provider> selected = new EnumMap<>(DigestAlgorithm.class);
+        Properties cache = (cacheFile != null) ? load(cacheFile) : null;
+        if (cache == null) {
+            if (cacheFile != null) {
+                LOG.debug("No valid digest provider calibration in \"" + cacheFile + "\", JCA defaults are used.");
+            }
+            return selected;
+        }
+
+        for (DigestAlgorithm algorithm : DigestAlgorithm.values()) {
+            String name = cache.getProperty(algorithm.getName());
+            Provider provider = (name != null) ? Security.getProvider(name) : null;
+            if (provider != null) {
+                selected.put(algorithm, provider);
+            }
+        }
+        LOG.debug("Digest providers loaded from \"" + cacheFile + "\".");
+
+        for (Map.Entry<DigestAlgorithm, Provider> entry : selected.entrySet()) {
+            entry.getKey().bindProvider(entry.getValue());
+        }
+        LOG.info("Digest providers selected: " + selected.entrySet().stream()
+                .map(e -> e.getKey().getName() + "=" + e.getValue().getName()).reduce((a, b) -> a + ", " + b).orElse("none"));
+        return selected;
+    }
+
+    /**
+     * Select the fastest correct provider of every algorithm and save the selection to the cache,
+     * without binding it (see {@link #select(Path)}).
+     *
+     * @param cacheFile calibration cache
+     * @param measurements result of {@link #calibrate()}
+     * @return providers selected for algorithms, algorithms without provider are left out
+     */
+    public static Map<DigestAlgorithm, Provider> store(Path cacheFile, List<Measurement> measurements) {
+
+        Map<DigestAlgorithm, Measurement> best = new EnumMap<>(DigestAlgorithm.class);
+        for (Measurement measurement : measurements) {
+            Measurement current = best.get(measurement.getAlgorithm());
+            if (measurement.isCorrect()
+                    && (current == null || measurement.getMegabytesPerSecond() > current.getMegabytesPerSecond())) {
+                best.put(measurement.getAlgorithm(), measurement);
+            }
+        }
+        Map<DigestAlgorithm, Provider> selected = new EnumMap<>(DigestAlgorithm.class);
+        for (Measurement measurement : best.values()) {
+            Provider provider = Security.getProvider(measurement.getProvider());
+            if (provider != null) {
+                selected.put(measurement.getAlgorithm(), provider);
+            }
+        }
+        save(cacheFile, selected);
+        return selected;
+    }
+
+    /**
+     * Measure throughput of all registered providers of all algorithms.
+     *
+     * @return measurements grouped by algorithm in enumeration order
+     */
+    public static List<Measurement> calibrate() {
+
+        byte[] data = new byte[DATA_SIZE];
+        new Random(DATA_SIZE).nextBytes(data);
+        List<Measurement> measurements = new ArrayList<>();
+
+        for (DigestAlgorithm algorithm : DigestAlgorithm.values()) {
+            Provider[] candidates = Security.getProviders("MessageDigest." + algorithm.getJavaName());
+            if (candidates == null) {
+                continue;
+            }
+
+            // digests of the same data by every candidate, majority is considered correct
+            Map<String, byte[]> digests = new LinkedHashMap<>();
+            Map<String, Integer> votes = new LinkedHashMap<>();
+            for (Provider candidate : candidates) {
+                try {
+                    byte[] digest = MessageDigest.getInstance(algorithm.getJavaName(), candidate).digest(data);
+                    digests.put(candidate.getName(), digest);
+                    votes.merge(Arrays.toString(digest), 1, Integer::sum);
+                } catch (NoSuchAlgorithmException | RuntimeException e) {
+                    LOG.debug("Provider " + candidate.getName() + " failed " + algorithm.getName() + ": " + e.getMessage());
+                }
+            }
+            String majority = votes.entrySet().stream().max(Map.Entry.comparingByValue()).map(Map.Entry::getKey).orElse(null);
+
+            // candidates are measured in interleaved rounds, best round counts, to level out JIT and noise
+            List<Provider> measured = new ArrayList<>();
+            for (String name : digests.keySet()) {
+                measured.add(Security.getProvider(name));
+            }
+            double[] best = new double[measured.size()];
+            for (int i = 0; i < measured.size(); i++) {
+                measure(algorithm, measured.get(i), data, WARMUP_NANOS);
+            }
+            for (int round = 0; round < ROUNDS; round++) {
+                for (int i = 0; i < measured.size(); i++) {
+                    best[i] = Math.max(best[i], measure(algorithm, measured.get(i), data, MEASURE_NANOS));
+                }
+            }
+
+            for (int i = 0; i < measured.size(); i++) {
+                String name = measured.get(i).getName();
+                boolean correct = Arrays.toString(digests.get(name)).equals(majority);
+                measurements.add(new Measurement(algorithm, name, best[i], correct));
+            }
+        }
+        return measurements;
+    }
+
+    private static double measure(DigestAlgorithm algorithm, Provider provider, byte[] data, long nanos) {
+
+        try {
+            MessageDigest md = MessageDigest.getInstance(algorithm.getJavaName(), provider);
+            long bytes = 0;
+            long start = System.nanoTime();
+            long elapsed;
+            do {
+                md.digest(data);
+                bytes += data.length;
+                elapsed = System.nanoTime() - start;
+            } while (elapsed < nanos);
+            return bytes * 1e9 / elapsed / 1024 / 1024;
+
+        } catch (NoSuchAlgorithmException e) {
+            return 0;
+        }
+    }
+
+    /**
+     * Identification of the environment the calibration is valid for.
+     */
+    private static String fingerprint() {
+
+        StringBuilder builder = new StringBuilder();
+        builder.append(System.getProperty("java.vm.name")).append(' ').append(System.getProperty("java.vm.version"))
+                .append(' ').append(System.getProperty("os.arch"));
+        for (Provider provider : Security.getProviders()) {
+            builder.append(' ').append(provider.getName()).append(':').append(provider.getVersionStr());
+        }
+        return builder.toString();
+    }
+
+    private static Properties load(Path cacheFile) {
+
+        if (!Files.isRegularFile(cacheFile)) {
+            return null;
+        }
+        Properties cache = new Properties();
+        try (InputStream in = Files.newInputStream(cacheFile)) {
+            cache.load(in);
+        } catch (IOException e) {
+            LOG.warn("Cannot read provider cache \"" + cacheFile + "\": " + e.getMessage());
+            return null;
+        }
+        return fingerprint().equals(cache.getProperty(FINGERPRINT_KEY)) ? cache : null;
+    }
+
+    private static void save(Path cacheFile, Map<DigestAlgorithm, Provider> selected) {
+
+        Properties cache = new Properties();
+        cache.setProperty(FINGERPRINT_KEY, fingerprint());
+        for (Map.Entry<DigestAlgorithm, Provider> entry : selected.entrySet()) {
+            cache.setProperty(entry.getKey().getName(), entry.getValue().getName());
+        }
+
+        // written aside and moved over, so concurrent runs never read a half written cache
+        Path directory = cacheFile.toAbsolutePath().getParent();
+        Path temporary = null;
+        try {
+            Files.createDirectories(directory);
+            temporary = Files.createTempFile(directory, cacheFile.getFileName().toString(), ".tmp");
+            try (OutputStream out = Files.newOutputStream(temporary)) {
+                cache.store(out, "dss-tools digest provider calibration");
+            }
+            try {
+                Files.move(temporary, cacheFile, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temporary, cacheFile, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } catch (IOException e) {
+            LOG.warn("Cannot write provider cache \"" + cacheFile + "\": " + e.getMessage());
+            if (temporary != null) {
+                try {
+                    Files.deleteIfExists(temporary);
+                } catch (IOException ignored) {
+                    // best effort
+                }
+            }
+        }
+    }
+
+}
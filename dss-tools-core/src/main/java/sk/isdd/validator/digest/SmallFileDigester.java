@@ -0,0 +1,253 @@
+package sk.isdd.validator.digest;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import sk.isdd.validator.ApplicationException;
+import sk.isdd.validator.enumerations.DigestAlgorithm;
+import sk.isdd.validator.io.IoPriority;
+import sk.isdd.validator.io.IoScheduler;
+import sk.isdd.validator.store.DigestResultStore;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.DigestException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Fast path for digesting huge numbers of small files (typically 2 - 20 kB), where per-file overhead dominates.
+ *
+ * <p> Files are processed in batches. Each worker thread owns a reused arena buffer, reused {@link MessageDigest}
+ * instances and reused output arrays, so nothing is allocated per file except its path. A file costs open, fstat
+ * (channel size), a single read into the arena and close. Once the batch is loaded, each algorithm hashes all files
+ * in a tight loop (keeping one digest state and its intrinsics hot) into packed output arrays, which are stored
+ * into {@link DigestResultStore} in bulk. Files larger than the threshold are streamed by the regular engine.
+ */
+public class SmallFileDigester {
+
+    private static final Logger LOG = LoggerFactory.getLogger(SmallFileDigester.class);
+
+    /**
+     * Files larger than this are streamed instead of loaded into the arena.
+     */
+    public static final int DEFAULT_THRESHOLD = 256 * 1024;
+
+    private static final int ARENA_SIZE = 8 * 1024 * 1024;
+    private static final int BATCH_FILES = 512;
+
+    /**
+     * Counters of finished run.
+     */
+    public static final class Summary {
+
+        private final long files;
+        private final long bytes;
+        private final long failed;
+        private final long elapsedMillis;
+
+        Summary(long files, long bytes, long failed, long elapsedMillis) {
+            this.files = files;
+            this.bytes = bytes;
+            this.failed = failed;
+            this.elapsedMillis = elapsedMillis;
+        }
+
+        public long getFiles() {
+            return files;
+        }
+
+        public long getBytes() {
+            return bytes;
+        }
+
+        public long getFailed() {
+            return failed;
+        }
+
+        public long getElapsedMillis() {
+            return elapsedMillis;
+        }
+
+        public double getFilesPerSecond() {
+            return files * 1000.0 / Math.max(1, elapsedMillis);
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%d files (%d failed), %d bytes in %d ms, %.0f files/s", files, failed, bytes,
+                    elapsedMillis, getFilesPerSecond());
+        }
+    }
+
+    /**
+     * Reusable state of single worker thread.
+     */
+    private class Worker {
+
+        private final byte[] arena = new byte[ARENA_SIZE];
+        private final MessageDigest[] digests = new MessageDigest[algorithms.size()];
+        private final byte[][] outputs = new byte[algorithms.size()][];
+        private final String[] paths = new String[BATCH_FILES];
+        private final int[] offsets = new int[BATCH_FILES];
+        private final int[] lengths = new int[BATCH_FILES];
+        private int count;
+        private int used;
+
+        Worker() throws NoSuchAlgorithmException {
+            for (int a = 0; a < digests.length; a++) {
+                digests[a] = algorithms.get(a).getMessageDigest();
+                outputs[a] = new byte[BATCH_FILES * algorithms.get(a).getDigestLength()];
+            }
+        }
+
+        void process(List<Path> batch) throws DigestException {
+
+            for (Path file : batch) {
+                String path = file.toString();
+                try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+                    long size = channel.size();
+
+                    if (size > threshold) {
+                        InputStream in = IoScheduler.getDefault().wrap(Channels.newInputStream(channel), IoPriority.BACKGROUND);
+                        store.addAll(path, DigestEngine.calculate(in, algorithms));
+                        files.incrementAndGet();
+                        bytes.addAndGet(size);
+                        continue;
+                    }
+                    if (used + size > arena.length || count == BATCH_FILES) {
+                        hash();
+                    }
+
+                    IoScheduler.getDefault().acquire(IoPriority.BACKGROUND, size);
+                    ByteBuffer target = ByteBuffer.wrap(arena, used, (int) size);
+                    while (target.hasRemaining() && channel.read(target) >= 0) {
+                        // file shorter than its size (truncated meanwhile) ends by -1
+                    }
+                    paths[count] = path;
+                    offsets[count] = used;
+                    lengths[count] = target.position() - used;
+                    used = target.position();
+                    count++;
+
+                } catch (IOException e) {
+                    LOG.warn("Cannot read file \"" + path + "\": " + e.getMessage());
+                    failed.incrementAndGet();
+                }
+            }
+            hash();
+        }
+
+        /**
+         * Hash all loaded files algorithm by algorithm and store packed results.
+         */
+        private void hash() throws DigestException {
+
+            if (count == 0) {
+                return;
+            }
+            for (int a = 0; a < digests.length; a++) {
+                MessageDigest md = digests[a];
+                byte[] output = outputs[a];
+                int length = md.getDigestLength();
+                for (int i = 0; i < count; i++) {
+                    md.update(arena, offsets[i], lengths[i]);
+                    md.digest(output, i * length, length);
+                }
+                store.addBatch(paths, count, algorithms.get(a), output);
+            }
+
+            files.addAndGet(count);
+            bytes.addAndGet(used);
+            count = 0;
+            used = 0;
+        }
+    }
+
+    private final List<DigestAlgorithm> algorithms;
+    private final int threads;
+    private final int threshold;
+    private final AtomicLong files = new AtomicLong();
+    private final AtomicLong bytes = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private DigestResultStore store;
+
+    /**
+     * @param algorithms digest algorithms, all must be provided
+     * @param threads number of worker threads, each owning one arena
+     * @param threshold size limit of files loaded into the arena, larger ones are streamed
+     */
+    public SmallFileDigester(List<DigestAlgorithm> algorithms, int threads, int threshold) {
+
+        if (threshold > ARENA_SIZE) {
+            throw new IllegalArgumentException("Threshold larger than arena of " + ARENA_SIZE + " bytes.");
+        }
+        this.algorithms = algorithms;
+        this.threads = Math.max(1, threads);
+        this.threshold = threshold;
+    }
+
+    /**
+     * Digest all files into the store.
+     *
+     * @param fileList files to be digested, their paths are stored as given
+     * @param target store receiving one row per file and algorithm
+     * @return counters of the run, unreadable files are logged and counted as failed
+     * @throws ApplicationException if an algorithm is not provided or the run is interrupted
+     */
+    public synchronized Summary digest(List<Path> fileList, DigestResultStore target) {
+
+        long started = System.currentTimeMillis();
+        store = target;
+        files.set(0);
+        bytes.set(0);
+        failed.set(0);
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        ThreadLocal<Worker> workers = ThreadLocal.withInitial(() -> {
+            try {
+                return new Worker();
+            } catch (NoSuchAlgorithmException e) {
+                throw new ApplicationException("Message digest algorithm not provided: " + e.getMessage(), e);
+            }
+        });
+
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int from = 0; from < fileList.size(); from += BATCH_FILES) {
+                List<Path> batch = fileList.subList(from, Math.min(fileList.size(), from + BATCH_FILES));
+                futures.add(executor.submit(() -> {
+                    workers.get().process(batch);
+                    return null;
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ApplicationException("Small file digesting interrupted.", e);
+        } catch (ExecutionException e) {
+            throw new ApplicationException("Small file digesting failed: " + e.getCause().getMessage(), e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+
+        Summary summary = new Summary(files.get(), bytes.get(), failed.get(), System.currentTimeMillis() - started);
+        LOG.info("Small files digested: " + summary);
+        return summary;
+    }
+
+}
@@ -0,0 +1,174 @@
+package sk.isdd.validator.dsig;
+
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+import org.w3c.dom.NodeList;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Immutable description of single ds:Reference extracted from ds:SignedInfo.
+ *
+ * <p> It is detached from the DOM it was parsed from, so it can be passed between threads freely.
+ */
+public class ReferenceDescriptor {
+
+    static final String DSIG_NS = "http://www.w3.org/2000/09/xmldsig#";
+    static final String EXC_C14N_NS = "http://www.w3.org/2001/10/xml-exc-c14n#";
+
+    /**
+     * Single ds:Transform with its algorithm and optional InclusiveNamespaces PrefixList.
+     */
+    public static class Transform {
+
+        private final String algorithm;
+        private final List<String> inclusivePrefixes;
+
+        Transform(String algorithm, List<String> inclusivePrefixes) {
+            this.algorithm = algorithm;
+            this.inclusivePrefixes = inclusivePrefixes;
+        }
+
+        public String getAlgorithm() {
+            return algorithm;
+        }
+
+        /**
+         * InclusiveNamespaces PrefixList of exclusive c14n, empty if not given.
+         */
+        public List<String> getInclusivePrefixes() {
+            return inclusivePrefixes;
+        }
+    }
+
+    private final int signatureIndex;
+    private final int referenceIndex;
+    private final String id;
+    private final String uri;
+    private final List<Transform> transforms;
+    private final String digestMethod;
+    private final byte[] digestValue;
+
+    ReferenceDescriptor(int signatureIndex, int referenceIndex, String id, String uri, List<Transform> transforms,
+                        String digestMethod, byte[] digestValue) {
+        this.signatureIndex = signatureIndex;
+        this.referenceIndex = referenceIndex;
+        this.id = id;
+        this.uri = uri;
+        this.transforms = transforms;
+        this.digestMethod = digestMethod;
+        this.digestValue = digestValue;
+    }
+
+    /**
+     * Extract all references of given ds:Signature element.
+     *
+     * @param signature the ds:Signature element
+     * @param signatureIndex position of the signature among all signatures of the document (document order)
+     * @return descriptors in order of appearance
+     * @throws IllegalArgumentException if the signature structure is malformed
+     */
+    static List<ReferenceDescriptor> parse(Element signature, int signatureIndex) {
+
+        Element signedInfo = firstChild(signature, "SignedInfo");
+        if (signedInfo == null) {
+            throw new IllegalArgumentException("ds:SignedInfo is missing");
+        }
+
+        List<ReferenceDescriptor> references = new ArrayList<>();
+        for (Element reference : children(signedInfo, "Reference")) {
+
+            List<Transform> transforms = new ArrayList<>();
+            Element transformsElement = firstChild(reference, "Transforms");
+            if (transformsElement != null) {
+                for (Element transform : children(transformsElement, "Transform")) {
+                    List<String> prefixes = Collections.emptyList();
+                    NodeList inclusive = transform.getElementsByTagNameNS(EXC_C14N_NS, "InclusiveNamespaces");
+                    if (inclusive.getLength() > 0) {
+                        String list = ((Element) inclusive.item(0)).getAttribute("PrefixList").trim();
+                        prefixes = list.isEmpty() ? Collections.emptyList() : Arrays.asList(list.split("\\s+"));
+                    }
+                    transforms.add(new Transform(transform.getAttribute("Algorithm"), prefixes));
+                }
+            }
+
+            Element digestMethod = firstChild(reference, "DigestMethod");
+            Element digestValue = firstChild(reference, "DigestValue");
+            if (digestMethod == null || digestValue == null) {
+                throw new IllegalArgumentException("ds:DigestMethod or ds:DigestValue is missing in reference " + references.size());
+            }
+
+            references.add(new ReferenceDescriptor(signatureIndex, references.size(),
+                    reference.hasAttribute("Id") ? reference.getAttribute("Id") : null,
+                    reference.hasAttribute("URI") ? reference.getAttribute("URI") : null,
+                    Collections.unmodifiableList(transforms),
+                    digestMethod.getAttribute("Algorithm"),
+                    Base64.getMimeDecoder().decode(digestValue.getTextContent().trim())));
+        }
+        return references;
+    }
+
+    static Element firstChild(Element parent, String localName) {
+        List<Element> children = children(parent, localName);
+        return children.isEmpty() ? null : children.get(0);
+    }
+
+    static List<Element> children(Element parent, String localName) {
+
+        List<Element> result = new ArrayList<>();
+        for (Node child = parent.getFirstChild(); child != null; child = child.getNextSibling()) {
+            if (child.getNodeType() == Node.ELEMENT_NODE && DSIG_NS.equals(child.getNamespaceURI())
+                    && localName.equals(child.getLocalName())) {
+                result.add((Element) child);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Position of the owning signature in document order.
+     */
+    public int getSignatureIndex() {
+        return signatureIndex;
+    }
+
+    /**
+     * Position of the reference within its ds:SignedInfo.
+     */
+    public int getReferenceIndex() {
+        return referenceIndex;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    /**
+     * URI attribute, null if missing (application defined data object).
+     */
+    public String getUri() {
+        return uri;
+    }
+
+    public List<Transform> getTransforms() {
+        return transforms;
+    }
+
+    public String getDigestMethod() {
+        return digestMethod;
+    }
+
+    public byte[] getDigestValue() {
+        return digestValue;
+    }
+
+    @Override
+    public String toString() {
+        return "Signature " + signatureIndex + " reference " + referenceIndex + " (URI=\"" + uri + "\")";
+    }
+
+}
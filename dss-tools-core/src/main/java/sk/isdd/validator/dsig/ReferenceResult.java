@@ -0,0 +1,67 @@
+package sk.isdd.validator.dsig;
+
+/**
+ * Outcome of single reference digest verification.
+ */
+public class ReferenceResult {
+
+    /**
+     * Verification status of the reference.
+     */
+    public enum Status {
+        /** Calculated digest matches ds:DigestValue. */
+        VALID,
+        /** Calculated digest differs from ds:DigestValue. */
+        INVALID,
+        /** Referenced data cannot be found. */
+        UNRESOLVED,
+        /** Transform, digest method or URI scheme is not supported. */
+        UNSUPPORTED,
+        /** Processing failed (e.g. malformed data). */
+        FAILED
+    }
+
+    private final ReferenceDescriptor reference;
+    private final Status status;
+    private final byte[] calculatedDigest;
+    private final String message;
+
+    ReferenceResult(ReferenceDescriptor reference, Status status, byte[] calculatedDigest, String message) {
+        this.reference = reference;
+        this.status = status;
+        this.calculatedDigest = calculatedDigest;
+        this.message = message;
+    }
+
+    public ReferenceDescriptor getReference() {
+        return reference;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    public boolean isValid() {
+        return status == Status.VALID;
+    }
+
+    /**
+     * Digest calculated over the transformed data, null if not calculated.
+     */
+    public byte[] getCalculatedDigest() {
+        return calculatedDigest;
+    }
+
+    /**
+     * Reason of non valid status, null if valid.
+     */
+    public String getMessage() {
+        return message;
+    }
+
+    @Override
+    public String toString() {
+        return reference + ": " + status + ((message == null) ? "" : " - " + message);
+    }
+
+}
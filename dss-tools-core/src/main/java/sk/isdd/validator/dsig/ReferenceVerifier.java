@@ -0,0 +1,407 @@
+package sk.isdd.validator.dsig;
+
+import org.apache.xml.security.c14n.Canonicalizer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.w3c.dom.Attr;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.NamedNodeMap;
+import org.w3c.dom.Node;
+import org.w3c.dom.NodeList;
+import sk.isdd.validator.ApplicationException;
+import sk.isdd.validator.dsig.ReferenceResult.Status;
+import sk.isdd.validator.enumerations.DigestAlgorithm;
+import sk.isdd.validator.enumerations.XmlC14nMethod;
+import sk.isdd.validator.io.IoPriority;
+import sk.isdd.validator.io.IoScheduler;
+import sk.isdd.validator.xml.BudgetExceededException;
+import sk.isdd.validator.xml.ParseBudget;
+import sk.isdd.validator.xml.XmlCanonicalizer;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Verification engine of XML-DSig reference digests.
+ *
+ * <p> For every ds:Reference of every ds:Signature in the document, referenced data is resolved, transforms are applied,
+ * the result is hashed by the DigestMethod (mapped by {@link DigestAlgorithm#forUri(String)}) and compared to DigestValue.
+ * Signature values themselves are not verified, that requires the signer's key.
+ *
+ * <p> The signature is parsed once to extract {@link ReferenceDescriptor}s, then all references are verified in parallel.
+ * DOM is not thread safe even for reading, therefore each worker thread works on its own private copy of the document:
+ * the first worker takes the parsed document, the others deep clones of it made before the workers start (the document
+ * is never parsed twice). Copies are mutable by their owner only, which makes the enveloped-signature transform
+ * a simple detach and reattach of the signature element.
+ *
+ * <p> Supported references: whole document ({@code URI=""}, {@code #xpointer(/)}), same-document Id ({@code #id},
+ * {@code #xpointer(id('id'))}) and detached local files relative to the document directory (files outside of it are
+ * reported unresolved).
+ * Supported transforms: enveloped signature, all {@link XmlC14nMethod}s (including InclusiveNamespaces) and base64.
+ */
+public class ReferenceVerifier {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ReferenceVerifier.class);
+
+    private static final String ENVELOPED = ReferenceDescriptor.DSIG_NS + "enveloped-signature";
+    private static final String BASE64 = ReferenceDescriptor.DSIG_NS + "base64";
+
+    /**
+     * Private DOM copy of single worker thread with lazily built Id lookup.
+     */
+    private static class WorkerDocument {
+
+        private final Document document;
+        private final List<Element> signatures;
+        private Map<String, Element> ids;
+
+        WorkerDocument(Document document) {
+            this.document = document;
+            this.signatures = signatures(document);
+        }
+
+        Element getElementById(String id) {
+
+            if (ids == null) {
+                ids = new HashMap<>();
+                NodeList elements = document.getElementsByTagName("*");
+                for (int i = 0; i < elements.getLength(); i++) {
+                    NamedNodeMap attributes = elements.item(i).getAttributes();
+                    for (int j = 0; j < attributes.getLength(); j++) {
+                        Attr attribute = (Attr) attributes.item(j);
+                        String name = (attribute.getLocalName() == null) ? attribute.getName() : attribute.getLocalName();
+                        if ("Id".equals(name) || "ID".equals(name) || "id".equals(name)) {
+                            ids.putIfAbsent(attribute.getValue(), (Element) elements.item(i));
+                        }
+                    }
+                }
+            }
+            return ids.get(id);
+        }
+    }
+
+    private final int threads;
+
+    /**
+     * Priority class of file reads scheduled by {@link IoScheduler}.
+     */
+    private volatile IoPriority ioPriority = IoPriority.INTERACTIVE;
+
+    /**
+     * Limits of parsing the signed document and canonicalization of detached references.
+     */
+    private volatile ParseBudget budget = ParseBudget.getDefault();
+
+    /**
+     * @param threads maximum number of worker threads
+     */
+    public ReferenceVerifier(int threads) {
+        this.threads = threads;
+    }
+
+    public IoPriority getIoPriority() {
+        return ioPriority;
+    }
+
+    /**
+     * Set priority class of subsequent file reads, batch jobs should use {@link IoPriority#BACKGROUND}.
+     */
+    public void setIoPriority(IoPriority ioPriority) {
+        this.ioPriority = ioPriority;
+    }
+
+    public ParseBudget getBudget() {
+        return budget;
+    }
+
+    /**
+     * Set limits of subsequent verifications.
+     */
+    public void setBudget(ParseBudget budget) {
+        this.budget = budget;
+    }
+
+    /**
+     * Verify all references of all signatures in the file.
+     *
+     * @param file the signed document, detached references are resolved relative to its directory
+     * @return results in document order
+     * @throws IOException if the file cannot be read
+     * @throws ApplicationException if the document cannot be parsed or a signature is malformed
+     */
+    public List<ReferenceResult> verify(Path file) throws IOException {
+        return verify(read(file), file.toAbsolutePath().getParent());
+    }
+
+    /**
+     * Verify all references of all signatures in the document.
+     *
+     * @param document the signed document bytes
+     * @param baseDirectory directory to resolve detached references against
+     * @return results in document order
+     * @throws ApplicationException if the document cannot be parsed or a signature is malformed
+     * @throws BudgetExceededException if the document is over the budget
+     */
+    public List<ReferenceResult> verify(byte[] document, Path baseDirectory) {
+
+        long started = System.currentTimeMillis();
+        ParseBudget budget = this.budget;
+        Document parsed = parse(document, budget);
+
+        List<ReferenceDescriptor> references = new ArrayList<>();
+        List<Element> signatures = signatures(parsed);
+        for (int i = 0; i < signatures.size(); i++) {
+            try {
+                references.addAll(ReferenceDescriptor.parse(signatures.get(i), i));
+            } catch (IllegalArgumentException e) {
+                throw new ApplicationException("Malformed signature " + i + ": " + e.getMessage(), e);
+            }
+        }
+
+        List<ReferenceResult> results = new ArrayList<>(references.size());
+        int workers = Math.max(1, Math.min(threads, references.size()));
+
+        // the parsed document is handed to the first worker, others get clones made before any worker touches it
+        Queue<Document> available = new ConcurrentLinkedQueue<>();
+        available.add(parsed);
+        for (int i = 1; i < workers; i++) {
+            available.add((Document) parsed.cloneNode(true));
+        }
+        ThreadLocal<WorkerDocument> copies = ThreadLocal.withInitial(() -> new WorkerDocument(available.remove()));
+
+        if (workers == 1) {
+            try {
+                for (ReferenceDescriptor reference : references) {
+                    results.add(verifyReference(reference, copies.get(), baseDirectory, budget));
+                }
+            } finally {
+                copies.remove();
+            }
+
+        } else {
+            ExecutorService executor = Executors.newFixedThreadPool(workers);
+            try {
+                List<Future<ReferenceResult>> futures = new ArrayList<>(references.size());
+                for (ReferenceDescriptor reference : references) {
+                    futures.add(executor.submit(() -> verifyReference(reference, copies.get(), baseDirectory, budget)));
+                }
+                for (Future<ReferenceResult> future : futures) {
+                    results.add(future.get());
+                }
+
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new ApplicationException("Reference verification interrupted.", e);
+            } catch (ExecutionException e) {
+                throw new ApplicationException("Reference verification failed: " + e.getCause().getMessage(), e.getCause());
+            } finally {
+                executor.shutdownNow();
+            }
+        }
+
+        LOG.info(signatures.size() + " signatures with " + references.size() + " references verified by " + workers
+                + " workers in " + (System.currentTimeMillis() - started) + " ms.");
+        return results;
+    }
+
+    /**
+     * Resolve, transform, digest and compare single reference. Runs on a worker thread with its private document.
+     */
+    private ReferenceResult verifyReference(ReferenceDescriptor reference, WorkerDocument worker, Path baseDirectory,
+                                            ParseBudget budget) {
+
+        DigestAlgorithm algorithm = DigestAlgorithm.forUri(reference.getDigestMethod(), null);
+        if (algorithm == null) {
+            return new ReferenceResult(reference, Status.UNSUPPORTED, null, "digest method " + reference.getDigestMethod());
+        }
+
+        try {
+            // resolve: data is either DOM node or octets
+            String uri = reference.getUri();
+            boolean keepComments = false;
+            Object data;
+
+            if (uri == null) {
+                return new ReferenceResult(reference, Status.UNRESOLVED, null, "reference without URI");
+            } else if (uri.isEmpty()) {
+                data = worker.document;
+            } else if (uri.equals("#xpointer(/)")) {
+                data = worker.document;
+                keepComments = true;
+            } else if (uri.startsWith("#xpointer(id(")) {
+                data = worker.getElementById(uri.substring(13, uri.length() - 2).replace("'", "").replace("\"", ""));
+                keepComments = true;
+            } else if (uri.startsWith("#")) {
+                data = worker.getElementById(uri.substring(1));
+            } else if (uri.matches("^[a-zA-Z][a-zA-Z0-9+.-]*:.*") && !uri.startsWith("file:")) {
+                return new ReferenceResult(reference, Status.UNSUPPORTED, null, "remote URI " + uri);
+            } else {
+                Path file = resolveDetached(uri, baseDirectory);
+                if (file == null) {
+                    return new ReferenceResult(reference, Status.UNRESOLVED, null, "outside of document directory " + uri);
+                }
+                data = Files.isReadable(file) ? read(file) : null;
+            }
+
+            if (data == null) {
+                return new ReferenceResult(reference, Status.UNRESOLVED, null, "cannot resolve " + uri);
+            }
+
+            // transform
+            Element excluded = null;
+            for (ReferenceDescriptor.Transform transform : reference.getTransforms()) {
+                String name = transform.getAlgorithm();
+
+                if (ENVELOPED.equals(name)) {
+                    if (!(data instanceof Node)) {
+                        return new ReferenceResult(reference, Status.FAILED, null, "enveloped transform over octets");
+                    }
+                    excluded = worker.signatures.get(reference.getSignatureIndex());
+
+                } else if (!name.isEmpty() && XmlC14nMethod.isSupportedUri(name)) {
+                    data = canonicalize(data, XmlC14nMethod.forUri(name), transform.getInclusivePrefixes(), excluded, budget);
+                    excluded = null;
+
+                } else if (BASE64.equals(name)) {
+                    String text = (data instanceof Node) ? ((Node) data).getTextContent()
+                            : new String((byte[]) data, StandardCharsets.US_ASCII);
+                    data = Base64.getMimeDecoder().decode(text.trim());
+
+                } else {
+                    return new ReferenceResult(reference, Status.UNSUPPORTED, null, "transform " + name);
+                }
+            }
+
+            // node-set to octets by default inclusive c14n
+            if (data instanceof Node) {
+                data = canonicalize(data, keepComments ? XmlC14nMethod.C14N_WITH_COMMENTS : XmlC14nMethod.C14N_OMIT_COMMENTS,
+                        null, excluded, budget);
+            }
+
+            MessageDigest md = algorithm.getMessageDigest();
+            byte[] digest = md.digest((byte[]) data);
+
+            if (MessageDigest.isEqual(digest, reference.getDigestValue())) {
+                return new ReferenceResult(reference, Status.VALID, digest, null);
+            }
+            return new ReferenceResult(reference, Status.INVALID, digest, "digest value mismatch");
+
+        } catch (Exception e) {
+            LOG.debug("Verification of " + reference + " failed: " + e.getMessage(), e);
+            return new ReferenceResult(reference, Status.FAILED, null, e.getMessage());
+        }
+    }
+
+    /**
+     * Resolve detached reference against the document directory. The URI is decoded by URI rules ({@code %XX} only,
+     * {@code +} is literal), fragment and query are ignored.
+     *
+     * @return the file or null if it lies outside of the base directory (after normalization and symbolic links)
+     * @throws URISyntaxException if the URI is malformed
+     * @throws IOException if symbolic links cannot be resolved
+     */
+    static Path resolveDetached(String uri, Path baseDirectory) throws URISyntaxException, IOException {
+
+        String path = new URI(uri.replaceFirst("^file:(//)?", "")).getPath();
+        if (path == null || path.isEmpty()) {
+            throw new URISyntaxException(uri, "no path");
+        }
+
+        Path base = baseDirectory.toAbsolutePath().normalize();
+        Path file = base.resolve(path).normalize();
+        if (!file.startsWith(base)) {
+            return null;
+        }
+        if (Files.exists(file) && !file.toRealPath().startsWith(base.toRealPath())) {
+            return null;
+        }
+        return file;
+    }
+
+    private byte[] read(Path file) throws IOException {
+        try (InputStream in = IoScheduler.getDefault().wrap(Files.newInputStream(file), ioPriority)) {
+            return in.readAllBytes();
+        }
+    }
+
+    /**
+     * Canonicalize node (optionally without excluded element) or octets.
+     */
+    private static byte[] canonicalize(Object data, XmlC14nMethod method, List<String> prefixes, Element excluded,
+                                       ParseBudget budget) throws Exception {
+
+        if (data instanceof byte[]) {
+            return XmlCanonicalizer.canonicalize((byte[]) data, method, budget);
+        }
+
+        Node node = (Node) data;
+        Node parent = null;
+        Node next = null;
+        if (excluded != null) {
+            parent = excluded.getParentNode();
+            next = excluded.getNextSibling();
+            parent.removeChild(excluded);
+        }
+
+        try {
+            Canonicalizer c14n = Canonicalizer.getInstance(method.getUri());
+            ByteArrayOutputStream output = new ByteArrayOutputStream();
+            c14n.setWriter(output);
+            c14n.notReset();
+            if (prefixes == null || prefixes.isEmpty()) {
+                c14n.canonicalizeSubtree(node);
+            } else {
+                c14n.canonicalizeSubtree(node, String.join(" ", prefixes));
+            }
+            return output.toByteArray();
+
+        } finally {
+            if (excluded != null) {
+                parent.insertBefore(excluded, next);
+            }
+        }
+    }
+
+    private static List<Element> signatures(Document document) {
+
+        List<Element> signatures = new ArrayList<>();
+        NodeList nodes = document.getElementsByTagNameNS(ReferenceDescriptor.DSIG_NS, "Signature");
+        for (int i = 0; i < nodes.getLength(); i++) {
+            signatures.add((Element) nodes.item(i));
+        }
+        return signatures;
+    }
+
+    private static Document parse(byte[] document, ParseBudget budget) {
+
+        try {
+            org.apache.xml.security.Init.init();
+            return XmlCanonicalizer.parse(document, budget);
+
+        } catch (BudgetExceededException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new ApplicationException("Cannot parse signed document: " + e.getMessage(), e);
+        }
+    }
+
+}
@@ -2,6 +2,7 @@ package sk.isdd.validator.enumerations;
 
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
+import java.security.Provider;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -13,41 +14,49 @@ import java.util.Map;
 public enum DigestAlgorithm implements UriBasedEnum, OidBasedEnum {
 
     // @formatter:off
-    SHA1(     "SHA1",      "SHA-1",     "1.3.14.3.2.26",           "http://www.w3.org/2000/09/xmldsig#sha1"),
-    SHA224(   "SHA224",    "SHA-224",   "2.16.840.1.101.3.4.2.4",  "http://www.w3.org/2001/04/xmldsig-more#sha224"),
-    SHA256(   "SHA256",    "SHA-256",   "2.16.840.1.101.3.4.2.1",  "http://www.w3.org/2001/04/xmlenc#sha256"),
-    SHA384(   "SHA384",    "SHA-384",   "2.16.840.1.101.3.4.2.2",  "http://www.w3.org/2001/04/xmldsig-more#sha384"),
-    SHA512(   "SHA512",    "SHA-512",   "2.16.840.1.101.3.4.2.3",  "http://www.w3.org/2001/04/xmlenc#sha512"),
-    SHA3_224( "SHA3-224",  "SHA3-224",  "2.16.840.1.101.3.4.2.7",  "http://www.w3.org/2007/05/xmldsig-more#sha3-224"),
-    SHA3_256( "SHA3-256",  "SHA3-256",  "2.16.840.1.101.3.4.2.8",  "http://www.w3.org/2007/05/xmldsig-more#sha3-256"),
-    SHA3_384( "SHA3-384",  "SHA3-384",  "2.16.840.1.101.3.4.2.9",  "http://www.w3.org/2007/05/xmldsig-more#sha3-384"),
-    SHA3_512( "SHA3-512",  "SHA3-512",  "2.16.840.1.101.3.4.2.10", "http://www.w3.org/2007/05/xmldsig-more#sha3-512"),
-    MD2(      "MD2",       "MD2",       "1.2.840.113549.2.2",      "http://www.w3.org/2001/04/xmldsig-more#md2"),
-    MD4(      "MD4",       "MD4",       "1.2.840.113549.2.4",      "http://www.w3.org/2001/04/xmldsig-more#md4"),
-    MD5(      "MD5",       "MD5",       "1.2.840.113549.2.5",      "http://www.w3.org/2001/04/xmldsig-more#md5"),
-    RIPEMD128("RIPEMD128", "RIPEMD128", "1.3.36.3.2.2",            "http://www.w3.org/2001/04/xmlenc#ripemd128"),
-    RIPEMD160("RIPEMD160", "RIPEMD160", "1.3.36.3.2.1",            "http://www.w3.org/2001/04/xmlenc#ripemd160"),
-    RIPEMD256("RIPEMD256", "RIPEMD256", "1.3.36.3.2.3",            "http://www.w3.org/2001/04/xmlenc#ripemd256"),
-    WHIRLPOOL("WHIRLPOOL", "WHIRLPOOL", "1.0.10118.3.0.55",        "http://www.w3.org/2007/05/xmldsig-more#whirlpool");
+    SHA1(     "SHA1",      "SHA-1",     "1.3.14.3.2.26",           20, "http://www.w3.org/2000/09/xmldsig#sha1"),
+    SHA224(   "SHA224",    "SHA-224",   "2.16.840.1.101.3.4.2.4",  28, "http://www.w3.org/2001/04/xmldsig-more#sha224"),
+    SHA256(   "SHA256",    "SHA-256",   "2.16.840.1.101.3.4.2.1",  32, "http://www.w3.org/2001/04/xmlenc#sha256"),
+    SHA384(   "SHA384",    "SHA-384",   "2.16.840.1.101.3.4.2.2",  48, "http://www.w3.org/2001/04/xmldsig-more#sha384"),
+    SHA512(   "SHA512",    "SHA-512",   "2.16.840.1.101.3.4.2.3",  64, "http://www.w3.org/2001/04/xmlenc#sha512"),
+    SHA3_224( "SHA3-224",  "SHA3-224",  "2.16.840.1.101.3.4.2.7",  28, "http://www.w3.org/2007/05/xmldsig-more#sha3-224"),
+    SHA3_256( "SHA3-256",  "SHA3-256",  "2.16.840.1.101.3.4.2.8",  32, "http://www.w3.org/2007/05/xmldsig-more#sha3-256"),
+    SHA3_384( "SHA3-384",  "SHA3-384",  "2.16.840.1.101.3.4.2.9",  48, "http://www.w3.org/2007/05/xmldsig-more#sha3-384"),
+    SHA3_512( "SHA3-512",  "SHA3-512",  "2.16.840.1.101.3.4.2.10", 64, "http://www.w3.org/2007/05/xmldsig-more#sha3-512"),
+    MD2(      "MD2",       "MD2",       "1.2.840.113549.2.2",      16, "http://www.w3.org/2001/04/xmldsig-more#md2"),
+    MD4(      "MD4",       "MD4",       "1.2.840.113549.2.4",      16, "http://www.w3.org/2001/04/xmldsig-more#md4"),
+    MD5(      "MD5",       "MD5",       "1.2.840.113549.2.5",      16, "http://www.w3.org/2001/04/xmldsig-more#md5"),
+    RIPEMD128("RIPEMD128", "RIPEMD128", "1.3.36.3.2.2",            16, "http://www.w3.org/2001/04/xmlenc#ripemd128"),
+    RIPEMD160("RIPEMD160", "RIPEMD160", "1.3.36.3.2.1",            20, "http://www.w3.org/2001/04/xmlenc#ripemd160"),
+    RIPEMD256("RIPEMD256", "RIPEMD256", "1.3.36.3.2.3",            32, "http://www.w3.org/2001/04/xmlenc#ripemd256"),
+    WHIRLPOOL("WHIRLPOOL", "WHIRLPOOL", "1.0.10118.3.0.55",        64, "http://www.w3.org/2007/05/xmldsig-more#whirlpool");
     // @formatter:on
 
     private final String name;
     private final String javaName;
     private final String oid;
+    private final int digestLength;
     private final String uri;
 
+    /**
+     * Security provider bound to this algorithm (e.g. the fastest one), null uses JCA provider preference order.
+     */
+    private volatile Provider provider;
+
     /**
      * Enumeration constructor.
      *
-     * @param name      the string representation of enumeration's name (e.g. for SHA256 enum it must be "SHA256")
-     * @param javaName  the string as used by java java.security.MessageDigest library
-     * @param oid       ISO/ITU object identifier (e.g. "2.16.840.1.101.3.4.2.1" for SHA256)
-     * @param uri       URI identifier (e.g. "http://www.w3.org/2001/04/xmlenc#sha256" for SHA256)
+     * @param name         the string representation of enumeration's name (e.g. for SHA256 enum it must be "SHA256")
+     * @param javaName     the string as used by java java.security.MessageDigest library
+     * @param oid          ISO/ITU object identifier (e.g. "2.16.840.1.101.3.4.2.1" for SHA256)
+     * @param digestLength fixed length of the resulting digest in bytes (e.g. 32 for SHA256)
+     * @param uri          URI identifier (e.g. "http://www.w3.org/2001/04/xmlenc#sha256" for SHA256)
      */
-    DigestAlgorithm(final String name, final String javaName, final String oid, final String uri) {
+    DigestAlgorithm(final String name, final String javaName, final String oid, final int digestLength, final String uri) {
         this.name = name;
         this.javaName = javaName;
         this.oid = oid;
+        this.digestLength = digestLength;
         this.uri = uri;
     }
 
@@ -232,6 +241,15 @@ public enum DigestAlgorithm implements UriBasedEnum, OidBasedEnum {
         return oid;
     }
 
+    /**
+     * Get the fixed length of the digest produced by this algorithm.
+     *
+     * @return the digest length in bytes
+     */
+    public int getDigestLength() {
+        return digestLength;
+    }
+
     /**
      * Get the algorithm URI.
      *
@@ -242,13 +260,33 @@ public enum DigestAlgorithm implements UriBasedEnum, OidBasedEnum {
     }
 
     /**
-     * Get a new instance of MessageDigest for the current digest algorithm.
+     * Bind the algorithm to given security provider, see {@code sk.isdd.validator.digest.ProviderSelector}.
+     *
+     * @param provider provider implementing the algorithm, null restores JCA provider preference order
+     */
+    public void bindProvider(Provider provider) {
+        this.provider = provider;
+    }
+
+    /**
+     * Get the bound security provider.
+     *
+     * @return the provider or null if not bound
+     */
+    public Provider getProvider() {
+        return provider;
+    }
+
+    /**
+     * Get a new instance of MessageDigest for the current digest algorithm, from the bound provider if any.
      *
      * @return an instance of MessageDigest
      * @throws NoSuchAlgorithmException if the algorithm is not supported
      */
     public MessageDigest getMessageDigest() throws NoSuchAlgorithmException {
-        return MessageDigest.getInstance(javaName);
+
+        Provider bound = provider;
+        return (bound != null) ? MessageDigest.getInstance(javaName, bound) : MessageDigest.getInstance(javaName);
     }
 
 }
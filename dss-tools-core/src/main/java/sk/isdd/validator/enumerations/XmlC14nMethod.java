@@ -1,6 +1,6 @@
 package sk.isdd.validator.enumerations;
 
-import sk.isdd.validator.fx.I18nEnum;
+import sk.isdd.validator.i18n.I18nEnum;
 
 import java.util.HashMap;
 import java.util.Map;
@@ -0,0 +1,39 @@
+package sk.isdd.validator.flow;
+
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.util.concurrent.Flow;
+
+/**
+ * Named document submitted to {@link DigestPipeline}, its content is published as buffers.
+ */
+public final class DigestDocument {
+
+    private final String name;
+    private final Flow.Publisher<ByteBuffer> content;
+
+    /**
+     * @param name name identifying the document in results
+     * @param content publisher of the document bytes, subscribed once
+     */
+    public DigestDocument(String name, Flow.Publisher<ByteBuffer> content) {
+        this.name = name;
+        this.content = content;
+    }
+
+    /**
+     * Create document of local file read by {@link FilePublisher}.
+     */
+    public static DigestDocument of(Path file) {
+        return new DigestDocument(file.toString(), new FilePublisher(file));
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public Flow.Publisher<ByteBuffer> getContent() {
+        return content;
+    }
+
+}
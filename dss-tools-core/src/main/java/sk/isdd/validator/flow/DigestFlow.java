@@ -0,0 +1,146 @@
+package sk.isdd.validator.flow;
+
+import sk.isdd.validator.digest.DigestResult;
+import sk.isdd.validator.enumerations.DigestAlgorithm;
+import sk.isdd.validator.enumerations.XmlC14nMethod;
+
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * {@link CompletableFuture} facade of the reactive digest pipeline for single documents.
+ *
+ * <p> Futures complete with digests in order of requested algorithms (unsupported ones left out), or exceptionally
+ * with the failure of reading, decompression or c14n. Cancelling the future cancels the pipeline.
+ */
+public class DigestFlow {
+
+    private static final AtomicInteger THREADS = new AtomicInteger();
+
+    /**
+     * Shared pool of daemon threads, digest tasks block while waiting for published data.
+     */
+    private static final ExecutorService DEFAULT_EXECUTOR = Executors.newCachedThreadPool(r -> {
+        Thread thread = new Thread(r, "digest-flow-" + THREADS.incrementAndGet());
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private DigestFlow() {
+    }
+
+    /**
+     * Return executor used by pipeline stages created without explicit one.
+     */
+    public static Executor getDefaultExecutor() {
+        return DEFAULT_EXECUTOR;
+    }
+
+    /**
+     * Digest document published as buffers.
+     *
+     * @param content publisher of the document bytes
+     * @param method canonicalization method
+     * @param algorithms algorithms to be calculated
+     * @return future digests of the document
+     */
+    public static CompletableFuture<List<DigestResult>> digest(Flow.Publisher<ByteBuffer> content, XmlC14nMethod method,
+                                                               Collection<DigestAlgorithm> algorithms) {
+
+        DigestProcessor processor = new DigestProcessor(method, algorithms);
+        ResultCollector collector = new ResultCollector();
+        processor.subscribe(collector);
+        content.subscribe(processor);
+        return collector.future;
+    }
+
+    /**
+     * Digest local file.
+     *
+     * @param file the file to be digested
+     * @param method canonicalization method
+     * @param algorithms algorithms to be calculated
+     * @return future digests of the file
+     */
+    public static CompletableFuture<List<DigestResult>> digest(Path file, XmlC14nMethod method,
+                                                               Collection<DigestAlgorithm> algorithms) {
+        return digest(new FilePublisher(file), method, algorithms);
+    }
+
+    /**
+     * Digest document held in memory.
+     *
+     * @param content the document bytes from position to limit
+     * @param method canonicalization method
+     * @param algorithms algorithms to be calculated
+     * @return future digests of the document
+     */
+    public static CompletableFuture<List<DigestResult>> digest(ByteBuffer content, XmlC14nMethod method,
+                                                               Collection<DigestAlgorithm> algorithms) {
+        return digest(subscriber -> subscriber.onSubscribe(new Flow.Subscription() {
+            private boolean done;
+
+            @Override
+            public void request(long n) {
+                if (!done) {
+                    done = true;
+                    subscriber.onNext(content.duplicate());
+                    subscriber.onComplete();
+                }
+            }
+
+            @Override
+            public void cancel() {
+                done = true;
+            }
+        }), method, algorithms);
+    }
+
+    /**
+     * Subscriber collecting all results into completed future.
+     */
+    static class ResultCollector implements Flow.Subscriber<DigestResult> {
+
+        private final CompletableFuture<List<DigestResult>> future = new CompletableFuture<>();
+        private final List<DigestResult> results = new ArrayList<>();
+
+        CompletableFuture<List<DigestResult>> getFuture() {
+            return future;
+        }
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            future.whenComplete((r, t) -> {
+                if (future.isCancelled()) {
+                    subscription.cancel();
+                }
+            });
+            subscription.request(Long.MAX_VALUE);
+        }
+
+        @Override
+        public void onNext(DigestResult item) {
+            results.add(item);
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            future.completeExceptionally(throwable);
+        }
+
+        @Override
+        public void onComplete() {
+            future.complete(results);
+        }
+    }
+
+}
@@ -0,0 +1,198 @@
+package sk.isdd.validator.flow;
+
+import sk.isdd.validator.enumerations.DigestAlgorithm;
+import sk.isdd.validator.enumerations.XmlC14nMethod;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Reactive processor digesting stream of documents, each by its own {@link DigestProcessor}.
+ *
+ * <p> Documents are requested from upstream only while both limits allow it: at most parallelism documents are
+ * digested at once, and no more documents are taken in than downstream demanded results for. Results are
+ * emitted in completion order, failure of a document is reported in its {@link DocumentDigest}, not as stream
+ * error. Supports single downstream subscriber.
+ */
+public class DigestPipeline implements Flow.Processor<DigestDocument, DocumentDigest> {
+
+    private final XmlC14nMethod method;
+    private final List<DigestAlgorithm> algorithms;
+    private final int parallelism;
+    private final Executor executor;
+
+    private final Queue<DocumentDigest> completed = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger active = new AtomicInteger();
+    private final AtomicBoolean subscribed = new AtomicBoolean();
+    private final AtomicInteger connected = new AtomicInteger();
+    private final AtomicLong demand = new AtomicLong();
+    private final AtomicInteger wip = new AtomicInteger();
+
+    private volatile Flow.Subscription upstream;
+    private volatile Flow.Subscriber<? super DocumentDigest> subscriber;
+    private volatile boolean upstreamDone;
+    private volatile Throwable failure;
+    private volatile boolean cancelled;
+
+    private long requested;
+    private long emitted;
+    private boolean done;
+
+    /**
+     * @param method canonicalization method of all documents
+     * @param algorithms algorithms to be calculated
+     * @param parallelism maximum of documents digested at once
+     * @param executor executor of the document digests
+     */
+    public DigestPipeline(XmlC14nMethod method, Collection<DigestAlgorithm> algorithms, int parallelism, Executor executor) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("Parallelism must be positive.");
+        }
+        this.method = method;
+        this.algorithms = new ArrayList<>(algorithms);
+        this.parallelism = parallelism;
+        this.executor = executor;
+    }
+
+    /**
+     * Create pipeline running on the default executor of {@link DigestFlow}, parallelism by available processors.
+     */
+    public DigestPipeline(XmlC14nMethod method, Collection<DigestAlgorithm> algorithms) {
+        this(method, algorithms, Runtime.getRuntime().availableProcessors(), DigestFlow.getDefaultExecutor());
+    }
+
+    @Override
+    public void onSubscribe(Flow.Subscription subscription) {
+
+        if (upstream != null) {
+            subscription.cancel();
+            return;
+        }
+        upstream = subscription;
+        if (connected.incrementAndGet() == 2) {
+            drain();
+        }
+    }
+
+    @Override
+    public void onNext(DigestDocument document) {
+
+        active.incrementAndGet();
+        DigestProcessor processor = new DigestProcessor(method, algorithms, executor);
+        DigestFlow.ResultCollector collector = new DigestFlow.ResultCollector();
+        processor.subscribe(collector);
+        collector.getFuture().whenComplete((results, t) -> {
+            completed.add(new DocumentDigest(document.getName(), results, t));
+            active.decrementAndGet();
+            drain();
+        });
+        document.getContent().subscribe(processor);
+    }
+
+    @Override
+    public void onError(Throwable throwable) {
+        failure = throwable;
+        drain();
+    }
+
+    @Override
+    public void onComplete() {
+        upstreamDone = true;
+        drain();
+    }
+
+    @Override
+    public void subscribe(Flow.Subscriber<? super DocumentDigest> subscriber) {
+
+        if (!subscribed.compareAndSet(false, true)) {
+            subscriber.onSubscribe(new Flow.Subscription() {
+                @Override
+                public void request(long n) {
+                }
+
+                @Override
+                public void cancel() {
+                }
+            });
+            subscriber.onError(new IllegalStateException("Digest pipeline supports single subscriber only."));
+            return;
+        }
+
+        this.subscriber = subscriber;
+        subscriber.onSubscribe(new Flow.Subscription() {
+            @Override
+            public void request(long n) {
+                if (n <= 0) {
+                    failure = new IllegalArgumentException("Non-positive request " + n + " (reactive streams rule 3.9).");
+                } else {
+                    demand.getAndUpdate(d -> (d + n < 0) ? Long.MAX_VALUE : d + n);
+                }
+                drain();
+            }
+
+            @Override
+            public void cancel() {
+                cancelled = true;
+                drain();
+            }
+        });
+
+        if (connected.incrementAndGet() == 2) {
+            drain();
+        }
+    }
+
+    /**
+     * Emit completed results within demand and request documents to keep the window full,
+     * serialized by work-in-progress counter.
+     */
+    private void drain() {
+
+        if (wip.getAndIncrement() != 0) {
+            return;
+        }
+        do {
+            if (!done && connected.get() == 2) {
+                if (cancelled) {
+                    done = true;
+                    upstream.cancel();
+
+                } else if (failure != null) {
+                    done = true;
+                    upstream.cancel();
+                    subscriber.onError(failure);
+
+                } else {
+                    DocumentDigest result;
+                    while (demand.get() > 0 && (result = completed.poll()) != null) {
+                        demand.decrementAndGet();
+                        emitted++;
+                        subscriber.onNext(result);
+                    }
+
+                    if (upstreamDone && active.get() == 0 && completed.isEmpty()) {
+                        done = true;
+                        subscriber.onComplete();
+
+                    } else if (!upstreamDone) {
+                        long window = Math.min(parallelism, demand.get());
+                        long outstanding = requested - emitted;
+                        if (window > outstanding) {
+                            requested += window - outstanding;
+                            upstream.request(window - outstanding);
+                        }
+                    }
+                }
+            }
+        } while (wip.decrementAndGet() != 0);
+    }
+
+}
@@ -0,0 +1,213 @@
+package sk.isdd.validator.flow;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import sk.isdd.validator.compress.CompressionFormat;
+import sk.isdd.validator.digest.DigestEngine;
+import sk.isdd.validator.digest.DigestResult;
+import sk.isdd.validator.enumerations.DigestAlgorithm;
+import sk.isdd.validator.enumerations.XmlC14nMethod;
+import sk.isdd.validator.xml.CanonicalInputStream;
+import sk.isdd.validator.xml.ParseBudget;
+
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Reactive stage digesting single document: subscribes to its bytes as buffers and publishes one
+ * {@link DigestResult} per provided algorithm, same as {@link sk.isdd.validator.xml.XmlFile} pipeline
+ * (transparent decompression, optional c14n, digest), within {@link ParseBudget} (the default one unless set),
+ * document over the budget fails with {@link sk.isdd.validator.xml.BudgetExceededException}.
+ *
+ * <p> Upstream is consumed with bounded prefetch, next buffer is requested only after the previous one was
+ * digested, so a fast publisher never buffers more than a few buffers here. The work starts when both upstream
+ * and the (single) downstream subscriber are connected and runs on the given executor, occupying one thread
+ * while the document is being digested. Results are emitted as downstream demands them.
+ */
+public class DigestProcessor implements Flow.Processor<ByteBuffer, DigestResult> {
+
+    private static final Logger LOG = LoggerFactory.getLogger(DigestProcessor.class);
+
+    /**
+     * Number of buffers requested ahead of the digest.
+     */
+    private static final int PREFETCH = 4;
+
+    private final XmlC14nMethod method;
+    private final List<DigestAlgorithm> algorithms;
+    private final Executor executor;
+    private volatile ParseBudget budget = ParseBudget.getDefault();
+
+    private final SubscriberInputStream source = new SubscriberInputStream(PREFETCH);
+    private final AtomicInteger connected = new AtomicInteger();
+    private final AtomicBoolean subscribed = new AtomicBoolean();
+    private final AtomicLong demand = new AtomicLong();
+    private final AtomicInteger wip = new AtomicInteger();
+
+    private volatile Flow.Subscriber<? super DigestResult> subscriber;
+    private volatile List<DigestResult> results;
+    private volatile Throwable failure;
+    private volatile boolean cancelled;
+
+    private int emitted;
+    private boolean done;
+
+    /**
+     * @param method canonicalization method, {@link XmlC14nMethod#C14N_NONE} digests bytes as they are
+     * @param algorithms algorithms to be calculated, unsupported ones are left out
+     * @param executor executor running the digest, one blocking task per document
+     */
+    public DigestProcessor(XmlC14nMethod method, Collection<DigestAlgorithm> algorithms, Executor executor) {
+        this.method = (method == null) ? XmlC14nMethod.C14N_NONE : method;
+        this.algorithms = new ArrayList<>(algorithms);
+        this.executor = executor;
+    }
+
+    /**
+     * Create processor running on the default executor of {@link DigestFlow}.
+     */
+    public DigestProcessor(XmlC14nMethod method, Collection<DigestAlgorithm> algorithms) {
+        this(method, algorithms, DigestFlow.getDefaultExecutor());
+    }
+
+    public ParseBudget getBudget() {
+        return budget;
+    }
+
+    /**
+     * Set limits of the document, before the processor is subscribed.
+     */
+    public void setBudget(ParseBudget budget) {
+        this.budget = budget;
+    }
+
+    @Override
+    public void onSubscribe(Flow.Subscription subscription) {
+        if (source.attach(subscription) && connected.incrementAndGet() == 2) {
+            start();
+        }
+    }
+
+    @Override
+    public void onNext(ByteBuffer item) {
+        source.onNext(item);
+    }
+
+    @Override
+    public void onError(Throwable throwable) {
+        source.onError(throwable);
+    }
+
+    @Override
+    public void onComplete() {
+        source.onComplete();
+    }
+
+    @Override
+    public void subscribe(Flow.Subscriber<? super DigestResult> subscriber) {
+
+        if (!subscribed.compareAndSet(false, true)) {
+            subscriber.onSubscribe(new Flow.Subscription() {
+                @Override
+                public void request(long n) {
+                }
+
+                @Override
+                public void cancel() {
+                }
+            });
+            subscriber.onError(new IllegalStateException("Digest processor supports single subscriber only."));
+            return;
+        }
+
+        this.subscriber = subscriber;
+        subscriber.onSubscribe(new Flow.Subscription() {
+            @Override
+            public void request(long n) {
+                if (n <= 0) {
+                    failure = new IllegalArgumentException("Non-positive request " + n + " (reactive streams rule 3.9).");
+                    source.cancel();
+                } else {
+                    demand.getAndUpdate(d -> (d + n < 0) ? Long.MAX_VALUE : d + n);
+                }
+                drain();
+            }
+
+            @Override
+            public void cancel() {
+                cancelled = true;
+                source.cancel();
+            }
+        });
+
+        if (connected.incrementAndGet() == 2) {
+            start();
+        }
+    }
+
+    private void start() {
+
+        try {
+            executor.execute(this::digest);
+        } catch (RejectedExecutionException e) {
+            source.cancel();
+            failure = e;
+            drain();
+        }
+    }
+
+    private void digest() {
+
+        try (InputStream in = new CanonicalInputStream(CompressionFormat.open(source, false), method, budget)) {
+            results = DigestEngine.calculate(in, algorithms);
+
+        } catch (Exception e) {
+            if (!cancelled) {
+                Throwable upstream = source.getFailure();
+                if (upstream == null) {
+                    LOG.warn("Digest of published document failed: " + e.getMessage());
+                }
+                failure = (upstream != null) ? upstream : e;
+            }
+        }
+        drain();
+    }
+
+    /**
+     * Emit results within demand, serialized by work-in-progress counter.
+     */
+    private void drain() {
+
+        if (wip.getAndIncrement() != 0) {
+            return;
+        }
+        do {
+            if (!done && !cancelled) {
+                if (failure != null) {
+                    done = true;
+                    subscriber.onError(failure);
+
+                } else if (results != null) {
+                    while (emitted < results.size() && demand.get() > 0 && !cancelled) {
+                        demand.decrementAndGet();
+                        subscriber.onNext(results.get(emitted++));
+                    }
+                    if (emitted == results.size() && !cancelled) {
+                        done = true;
+                        subscriber.onComplete();
+                    }
+                }
+            }
+        } while (wip.decrementAndGet() != 0);
+    }
+
+}
@@ -0,0 +1,50 @@
+package sk.isdd.validator.flow;
+
+import sk.isdd.validator.digest.DigestResult;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Result of single {@link DigestDocument}: its digests, or the failure which prevented them.
+ */
+public final class DocumentDigest {
+
+    private final String name;
+    private final List<DigestResult> results;
+    private final Throwable failure;
+
+    DocumentDigest(String name, List<DigestResult> results, Throwable failure) {
+        this.name = name;
+        this.results = (results == null) ? Collections.emptyList() : Collections.unmodifiableList(results);
+        this.failure = failure;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Return digests in order of requested algorithms, empty if failed.
+     */
+    public List<DigestResult> getResults() {
+        return results;
+    }
+
+    /**
+     * Return reason of the failure, null if digested.
+     */
+    public Throwable getFailure() {
+        return failure;
+    }
+
+    public boolean isSuccessful() {
+        return failure == null;
+    }
+
+    @Override
+    public String toString() {
+        return name + ": " + (isSuccessful() ? results.toString() : "failed (" + failure.getMessage() + ")");
+    }
+
+}
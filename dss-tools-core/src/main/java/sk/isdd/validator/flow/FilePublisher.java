@@ -0,0 +1,149 @@
+package sk.isdd.validator.flow;
+
+import sk.isdd.validator.io.IoPriority;
+import sk.isdd.validator.io.IoScheduler;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Read stage of the reactive pipeline: publishes content of a file as buffers, reading only as much as demanded.
+ *
+ * <p> Each subscriber gets its own reading of the whole file by positional reads of {@value #CHUNK_SIZE} bytes,
+ * scheduled by {@link IoScheduler} in the given priority class. Reads run on the executor, never on the thread
+ * calling {@code request}.
+ */
+public class FilePublisher implements Flow.Publisher<ByteBuffer> {
+
+    private static final int CHUNK_SIZE = 64 * 1024;
+
+    private final Path file;
+    private final Executor executor;
+    private final IoPriority priority;
+
+    /**
+     * @param file the file to be published
+     * @param executor executor of the reads
+     * @param priority I/O priority class of the reads
+     */
+    public FilePublisher(Path file, Executor executor, IoPriority priority) {
+        this.file = file;
+        this.executor = executor;
+        this.priority = priority;
+    }
+
+    /**
+     * Create interactive publisher reading on the default executor of {@link DigestFlow}.
+     */
+    public FilePublisher(Path file) {
+        this(file, DigestFlow.getDefaultExecutor(), IoPriority.INTERACTIVE);
+    }
+
+    @Override
+    public void subscribe(Flow.Subscriber<? super ByteBuffer> subscriber) {
+        subscriber.onSubscribe(new FileSubscription(subscriber));
+    }
+
+    private class FileSubscription implements Flow.Subscription {
+
+        private final Flow.Subscriber<? super ByteBuffer> subscriber;
+        private final AtomicLong demand = new AtomicLong();
+        private final AtomicInteger wip = new AtomicInteger();
+
+        private volatile boolean cancelled;
+        private volatile Throwable failure;
+        private FileChannel channel;
+        private long position;
+        private boolean done;
+
+        FileSubscription(Flow.Subscriber<? super ByteBuffer> subscriber) {
+            this.subscriber = subscriber;
+        }
+
+        @Override
+        public void request(long n) {
+
+            if (n <= 0) {
+                failure = new IllegalArgumentException("Non-positive request " + n + " (reactive streams rule 3.9).");
+            } else {
+                demand.getAndUpdate(d -> (d + n < 0) ? Long.MAX_VALUE : d + n);
+            }
+            if (wip.getAndIncrement() == 0) {
+                executor.execute(this::drain);
+            }
+        }
+
+        @Override
+        public void cancel() {
+            cancelled = true;
+            if (wip.getAndIncrement() == 0) {
+                executor.execute(this::drain);
+            }
+        }
+
+        private void drain() {
+
+            int missed = 1;
+            do {
+                while (!done && (cancelled || failure != null || demand.get() > 0)) {
+                    if (cancelled) {
+                        finish();
+                    } else if (failure != null) {
+                        finish();
+                        subscriber.onError(failure);
+                    } else {
+                        readChunk();
+                    }
+                }
+                missed = wip.addAndGet(-missed);
+            } while (missed != 0);
+        }
+
+        private void readChunk() {
+
+            ByteBuffer buffer = ByteBuffer.allocate(CHUNK_SIZE);
+            int n;
+            try {
+                if (channel == null) {
+                    channel = FileChannel.open(file, StandardOpenOption.READ);
+                }
+                IoScheduler.getDefault().acquire(priority, CHUNK_SIZE);
+                n = channel.read(buffer, position);
+
+            } catch (IOException e) {
+                failure = e;
+                return;
+            }
+
+            if (n < 0) {
+                finish();
+                subscriber.onComplete();
+                return;
+            }
+            position += n;
+            buffer.flip();
+            demand.decrementAndGet();
+            subscriber.onNext(buffer);
+        }
+
+        private void finish() {
+
+            done = true;
+            if (channel != null) {
+                try {
+                    channel.close();
+                } catch (IOException e) {
+                    // nothing more to read
+                }
+            }
+        }
+    }
+
+}
@@ -0,0 +1,155 @@
+package sk.isdd.validator.flow;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.Flow;
+import java.util.concurrent.LinkedBlockingQueue;
+
+/**
+ * Blocking input stream fed by a {@link Flow.Publisher} of buffers, bridge to the stream based c14n and digest.
+ *
+ * <p> At most prefetch buffers are requested ahead, next buffer is requested only when the reader consumed one,
+ * so a slow reader slows down the publisher instead of queueing its data. Reading blocks, it is meant to be done
+ * on its own thread. Buffers are read from their position, they are not retained after being consumed.
+ */
+class SubscriberInputStream extends InputStream implements Flow.Subscriber<ByteBuffer> {
+
+    private static final ByteBuffer END = ByteBuffer.allocate(0);
+
+    private final int prefetch;
+    private final BlockingQueue<ByteBuffer> queue = new LinkedBlockingQueue<>();
+
+    private volatile Flow.Subscription subscription;
+    private volatile Throwable failure;
+    private volatile boolean cancelled;
+
+    private ByteBuffer current;
+    private boolean ended;
+
+    SubscriberInputStream(int prefetch) {
+        this.prefetch = prefetch;
+    }
+
+    /**
+     * Attach upstream subscription, the second one is cancelled.
+     *
+     * @return true if subscription was attached
+     */
+    synchronized boolean attach(Flow.Subscription subscription) {
+
+        if (this.subscription != null) {
+            subscription.cancel();
+            return false;
+        }
+        this.subscription = subscription;
+        if (cancelled) {
+            subscription.cancel();
+        } else {
+            subscription.request(prefetch);
+        }
+        return true;
+    }
+
+    @Override
+    public void onSubscribe(Flow.Subscription subscription) {
+        attach(subscription);
+    }
+
+    @Override
+    public void onNext(ByteBuffer item) {
+        queue.add(item);
+    }
+
+    @Override
+    public void onError(Throwable throwable) {
+        failure = throwable;
+        queue.add(END);
+    }
+
+    @Override
+    public void onComplete() {
+        queue.add(END);
+    }
+
+    /**
+     * Return failure signalled by the publisher, or null.
+     */
+    Throwable getFailure() {
+        return failure;
+    }
+
+    /**
+     * Cancel the subscription, blocked reader fails.
+     */
+    synchronized void cancel() {
+
+        if (!cancelled) {
+            cancelled = true;
+            if (subscription != null) {
+                subscription.cancel();
+            }
+            queue.add(END);
+        }
+    }
+
+    @Override
+    public int read() throws IOException {
+
+        byte[] single = new byte[1];
+        int n = read(single, 0, 1);
+        return (n < 0) ? -1 : (single[0] & 0xff);
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+
+        if (len == 0) {
+            return 0;
+        }
+        while (current == null || !current.hasRemaining()) {
+            if (ended) {
+                return -1;
+            }
+            if (current != null) {
+                current = null;
+                subscription.request(1);
+            }
+
+            ByteBuffer next;
+            try {
+                next = queue.take();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while waiting for data.");
+            }
+
+            if (next == END) {
+                ended = true;
+                if (cancelled) {
+                    throw new IOException("Subscription cancelled.", new CancellationException());
+                }
+                if (failure != null) {
+                    throw new IOException("Publisher failed: " + failure.getMessage(), failure);
+                }
+                return -1;
+            }
+            current = next;
+        }
+
+        int n = Math.min(len, current.remaining());
+        current.get(b, off, n);
+        return n;
+    }
+
+    @Override
+    public void close() {
+        if (!ended) {
+            cancel();
+        }
+    }
+
+}
@@ -1,4 +1,4 @@
-package sk.isdd.validator.fx;
+package sk.isdd.validator.i18n;
 
 import java.util.Locale;
 import java.util.ResourceBundle;
@@ -0,0 +1,17 @@
+package sk.isdd.validator.io;
+
+/**
+ * Priority classes of the {@link IoScheduler}.
+ */
+public enum IoPriority {
+
+    /**
+     * Requests of GUI or services waiting for the result. They preempt background work.
+     */
+    INTERACTIVE,
+
+    /**
+     * Batch work, throttled and yielding to interactive requests.
+     */
+    BACKGROUND
+}
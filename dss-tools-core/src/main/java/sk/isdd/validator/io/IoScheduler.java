@@ -0,0 +1,348 @@
+package sk.isdd.validator.io;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.management.ObjectName;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Read path I/O scheduler limiting bandwidth and operation rate by token buckets, per {@link IoPriority} class.
+ *
+ * <p> Each class has its own bytes/s and IOPS bucket (burst of one second). Interactive requests preempt
+ * background ones: background requests wait while any interactive request waits, and while interactive I/O was
+ * active in the last {@value #INTERACTIVE_ACTIVITY_MILLIS} ms, background limits are reduced to the configured share.
+ * Requests larger than the bucket are admitted once it is not in debt, which then delays following requests.
+ *
+ * <p> The default instance is configured by system properties {@code dss-tools.io.interactive.bytes},
+ * {@code dss-tools.io.interactive.iops}, {@code dss-tools.io.background.bytes}, {@code dss-tools.io.background.iops}
+ * and {@code dss-tools.io.background.share} (percent), unlimited by default. It is registered in the platform MBean
+ * server, where limits can be watched and changed at runtime. Unlimited classes take a lock-free fast path.
+ */
+public class IoScheduler implements IoSchedulerMXBean {
+
+    private static final Logger LOG = LoggerFactory.getLogger(IoScheduler.class);
+
+    private static final long INTERACTIVE_ACTIVITY_MILLIS = 500;
+    private static final long MAX_WAIT_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+
+    private static final IoScheduler DEFAULT = createDefault();
+
+    /**
+     * Token bucket refilled continuously at the limit rate, 0 rate means unlimited. Tokens are guarded
+     * by the scheduler lock, unlimited bucket holds no tokens and takes none, so it never runs into debt.
+     */
+    private static class Bucket {
+
+        private volatile long limit;
+        private double tokens;
+        private long refilled = System.nanoTime();
+
+        boolean isLimited() {
+            return limit > 0;
+        }
+
+        /**
+         * Change the limit, the bucket starts full and the debt made under the previous limit is forgiven.
+         */
+        void setLimit(long limit) {
+            this.limit = limit;
+            tokens = limit;
+            refilled = System.nanoTime();
+        }
+
+        /**
+         * Refill by elapsed time at given share of the rate, return nanoseconds until the bucket is out of debt.
+         */
+        long refill(long now, int sharePercent) {
+
+            double rate = limit * sharePercent / 100.0;
+            if (rate <= 0) {
+                tokens = 0;
+                refilled = now;
+                return 0;
+            }
+            tokens = Math.min(rate, tokens + (now - refilled) * rate / 1e9);
+            refilled = now;
+            return (tokens > 0) ? 0 : (long) (-tokens * 1e9 / rate) + 1;
+        }
+
+        void take(long amount) {
+            if (isLimited()) {
+                tokens -= amount;
+            }
+        }
+    }
+
+    /**
+     * Counters of single class with rate sampling.
+     */
+    private static class Meter {
+
+        private final LongAdder bytes = new LongAdder();
+        private final LongAdder operations = new LongAdder();
+        private long sampleTime = System.nanoTime();
+        private long sampleBytes;
+        private long sampleOperations;
+        private double bytesRate;
+        private double operationsRate;
+
+        synchronized void sample() {
+
+            long now = System.nanoTime();
+            if (now - sampleTime >= TimeUnit.SECONDS.toNanos(1)) {
+                long totalBytes = bytes.sum();
+                long totalOperations = operations.sum();
+                bytesRate = (totalBytes - sampleBytes) * 1e9 / (now - sampleTime);
+                operationsRate = (totalOperations - sampleOperations) * 1e9 / (now - sampleTime);
+                sampleTime = now;
+                sampleBytes = totalBytes;
+                sampleOperations = totalOperations;
+            }
+        }
+    }
+
+    private final Bucket[] byteBuckets = {new Bucket(), new Bucket()};
+    private final Bucket[] operationBuckets = {new Bucket(), new Bucket()};
+    private final Meter[] meters = {new Meter(), new Meter()};
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition released = lock.newCondition();
+    // written under the lock, read without it by the fast path
+    private volatile int interactiveWaiting;
+    private int waiting;
+
+    private volatile int backgroundSharePercent = 100;
+    private volatile long lastInteractive;
+
+    /**
+     * Create unlimited scheduler.
+     */
+    public IoScheduler() {
+    }
+
+    /**
+     * Return the default scheduler of the read path.
+     */
+    public static IoScheduler getDefault() {
+        return DEFAULT;
+    }
+
+    private static IoScheduler createDefault() {
+
+        IoScheduler scheduler = new IoScheduler();
+        scheduler.setInteractiveBytesPerSecondLimit(Long.getLong("dss-tools.io.interactive.bytes", 0));
+        scheduler.setInteractiveIopsLimit(Long.getLong("dss-tools.io.interactive.iops", 0));
+        scheduler.setBackgroundBytesPerSecondLimit(Long.getLong("dss-tools.io.background.bytes", 0));
+        scheduler.setBackgroundIopsLimit(Long.getLong("dss-tools.io.background.iops", 0));
+        scheduler.setBackgroundSharePercent(Integer.getInteger("dss-tools.io.background.share", 10));
+
+        try {
+            ManagementFactory.getPlatformMBeanServer().registerMBean(scheduler, new ObjectName("sk.isdd.validator:type=IoScheduler"));
+        } catch (Exception e) {
+            LOG.warn("I/O scheduler metrics not registered: " + e.getMessage());
+        }
+        return scheduler;
+    }
+
+    /**
+     * Wait for permission to read given number of bytes in one operation.
+     *
+     * @param priority class of the request
+     * @param bytes number of bytes to be read
+     * @throws InterruptedIOException if interrupted while waiting
+     */
+    public void acquire(IoPriority priority, long bytes) throws InterruptedIOException {
+
+        int index = priority.ordinal();
+        boolean interactive = priority == IoPriority.INTERACTIVE;
+        if (interactive) {
+            lastInteractive = System.nanoTime();
+        }
+        meters[index].bytes.add(bytes);
+        meters[index].operations.increment();
+
+        Bucket byteBucket = byteBuckets[index];
+        Bucket operationBucket = operationBuckets[index];
+        if (!byteBucket.isLimited() && !operationBucket.isLimited() && (interactive || interactiveWaiting == 0)) {
+            return;
+        }
+
+        lock.lock();
+        try {
+            waiting++;
+            if (interactive) {
+                interactiveWaiting++;
+            }
+
+            while (true) {
+                long now = System.nanoTime();
+                int share = (interactive || now - lastInteractive > TimeUnit.MILLISECONDS.toNanos(INTERACTIVE_ACTIVITY_MILLIS))
+                        ? 100 : backgroundSharePercent;
+                long wait = Math.max(byteBucket.refill(now, share), operationBucket.refill(now, share));
+
+                if (wait == 0 && (interactive || interactiveWaiting == 0)) {
+                    byteBucket.take(bytes);
+                    operationBucket.take(1);
+                    break;
+                }
+                released.awaitNanos((wait == 0) ? MAX_WAIT_NANOS : Math.min(wait, MAX_WAIT_NANOS));
+            }
+
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for I/O tokens.");
+
+        } finally {
+            waiting--;
+            if (interactive) {
+                interactiveWaiting--;
+                released.signalAll();
+            }
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Return bytes to the bucket when less than acquired was read.
+     */
+    void release(IoPriority priority, long bytes) {
+
+        meters[priority.ordinal()].bytes.add(-bytes);
+        Bucket bucket = byteBuckets[priority.ordinal()];
+        if (bucket.isLimited()) {
+            lock.lock();
+            try {
+                bucket.take(-bytes);
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    /**
+     * Wrap stream so that its reads are scheduled.
+     *
+     * @param in the stream to be throttled
+     * @param priority class of the reads
+     * @return throttled stream
+     */
+    public InputStream wrap(InputStream in, IoPriority priority) {
+        return new ThrottledInputStream(in, this, priority);
+    }
+
+    @Override
+    public long getInteractiveBytesPerSecondLimit() {
+        return byteBuckets[IoPriority.INTERACTIVE.ordinal()].limit;
+    }
+
+    @Override
+    public void setInteractiveBytesPerSecondLimit(long limit) {
+        setLimit(byteBuckets[IoPriority.INTERACTIVE.ordinal()], limit);
+    }
+
+    @Override
+    public long getInteractiveIopsLimit() {
+        return operationBuckets[IoPriority.INTERACTIVE.ordinal()].limit;
+    }
+
+    @Override
+    public void setInteractiveIopsLimit(long limit) {
+        setLimit(operationBuckets[IoPriority.INTERACTIVE.ordinal()], limit);
+    }
+
+    @Override
+    public long getBackgroundBytesPerSecondLimit() {
+        return byteBuckets[IoPriority.BACKGROUND.ordinal()].limit;
+    }
+
+    @Override
+    public void setBackgroundBytesPerSecondLimit(long limit) {
+        setLimit(byteBuckets[IoPriority.BACKGROUND.ordinal()], limit);
+    }
+
+    @Override
+    public long getBackgroundIopsLimit() {
+        return operationBuckets[IoPriority.BACKGROUND.ordinal()].limit;
+    }
+
+    @Override
+    public void setBackgroundIopsLimit(long limit) {
+        setLimit(operationBuckets[IoPriority.BACKGROUND.ordinal()], limit);
+    }
+
+    private void setLimit(Bucket bucket, long limit) {
+        lock.lock();
+        try {
+            bucket.setLimit(Math.max(0, limit));
+            released.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public int getBackgroundSharePercent() {
+        return backgroundSharePercent;
+    }
+
+    @Override
+    public void setBackgroundSharePercent(int percent) {
+        this.backgroundSharePercent = Math.max(1, Math.min(100, percent));
+    }
+
+    @Override
+    public double getInteractiveBytesPerSecond() {
+        Meter meter = meters[IoPriority.INTERACTIVE.ordinal()];
+        meter.sample();
+        return meter.bytesRate;
+    }
+
+    @Override
+    public double getInteractiveIops() {
+        Meter meter = meters[IoPriority.INTERACTIVE.ordinal()];
+        meter.sample();
+        return meter.operationsRate;
+    }
+
+    @Override
+    public double getBackgroundBytesPerSecond() {
+        Meter meter = meters[IoPriority.BACKGROUND.ordinal()];
+        meter.sample();
+        return meter.bytesRate;
+    }
+
+    @Override
+    public double getBackgroundIops() {
+        Meter meter = meters[IoPriority.BACKGROUND.ordinal()];
+        meter.sample();
+        return meter.operationsRate;
+    }
+
+    @Override
+    public long getInteractiveBytesTotal() {
+        return meters[IoPriority.INTERACTIVE.ordinal()].bytes.sum();
+    }
+
+    @Override
+    public long getBackgroundBytesTotal() {
+        return meters[IoPriority.BACKGROUND.ordinal()].bytes.sum();
+    }
+
+    @Override
+    public int getWaitingRequests() {
+        lock.lock();
+        try {
+            return waiting;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+}
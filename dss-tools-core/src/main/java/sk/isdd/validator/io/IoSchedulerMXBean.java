@@ -0,0 +1,51 @@
+package sk.isdd.validator.io;
+
+/**
+ * Management interface of {@link IoScheduler}, registered as "sk.isdd.validator:type=IoScheduler".
+ *
+ * <p> Limits are targets in bytes or operations per second, 0 means unlimited. They can be changed at runtime.
+ * Current rates are averages over the last second (or longer interval since the previous query).
+ */
+public interface IoSchedulerMXBean {
+
+    long getInteractiveBytesPerSecondLimit();
+
+    void setInteractiveBytesPerSecondLimit(long limit);
+
+    long getInteractiveIopsLimit();
+
+    void setInteractiveIopsLimit(long limit);
+
+    long getBackgroundBytesPerSecondLimit();
+
+    void setBackgroundBytesPerSecondLimit(long limit);
+
+    long getBackgroundIopsLimit();
+
+    void setBackgroundIopsLimit(long limit);
+
+    /**
+     * Percentage of background limits applied while interactive I/O is active.
+     */
+    int getBackgroundSharePercent();
+
+    void setBackgroundSharePercent(int percent);
+
+    double getInteractiveBytesPerSecond();
+
+    double getInteractiveIops();
+
+    double getBackgroundBytesPerSecond();
+
+    double getBackgroundIops();
+
+    long getInteractiveBytesTotal();
+
+    long getBackgroundBytesTotal();
+
+    /**
+     * Number of requests currently waiting for tokens.
+     */
+    int getWaitingRequests();
+
+}
@@ -0,0 +1,48 @@
+package sk.isdd.validator.io;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Input stream whose reads are admitted by {@link IoScheduler}. Each read is one operation of at most 64 kB.
+ */
+public class ThrottledInputStream extends FilterInputStream {
+
+    private static final int MAX_OPERATION = 64 * 1024;
+
+    private final IoScheduler scheduler;
+    private final IoPriority priority;
+
+    /**
+     * @param in the stream to be throttled
+     * @param scheduler the scheduler admitting reads
+     * @param priority class of the reads
+     */
+    public ThrottledInputStream(InputStream in, IoScheduler scheduler, IoPriority priority) {
+        super(in);
+        this.scheduler = scheduler;
+        this.priority = priority;
+    }
+
+    @Override
+    public int read() throws IOException {
+
+        byte[] single = new byte[1];
+        int n = read(single, 0, 1);
+        return (n < 0) ? -1 : (single[0] & 0xff);
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+
+        int requested = Math.min(len, MAX_OPERATION);
+        scheduler.acquire(priority, requested);
+        int n = in.read(b, off, requested);
+        if (n < requested) {
+            scheduler.release(priority, requested - Math.max(0, n));
+        }
+        return n;
+    }
+
+}
@@ -0,0 +1,126 @@
+package sk.isdd.validator.manifest;
+
+import sk.isdd.validator.io.IoPriority;
+import sk.isdd.validator.io.IoScheduler;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32C;
+
+/**
+ * Quick fingerprint of a file for change detection: size, modification time and hash of sampled blocks.
+ *
+ * <p> Blocks at the head, the tail and at evenly strided offsets in between are read by positional
+ * {@link FileChannel} reads (admitted by {@link IoScheduler} as background I/O), so the cost is a few blocks
+ * per file regardless of its size. Small files are hashed whole. Equal fingerprint does not prove equal
+ * content, it only tells the full digest is not worth recalculating.
+ */
+public final class FileFingerprint {
+
+    /**
+     * Size of single sampled block.
+     */
+    static final int BLOCK = 4 * 1024;
+
+    /**
+     * Number of sampled blocks including head and tail.
+     */
+    static final int SAMPLES = 16;
+
+    private final long size;
+    private final long modifiedMillis;
+    private final long sampleHash;
+
+    public FileFingerprint(long size, long modifiedMillis, long sampleHash) {
+        this.size = size;
+        this.modifiedMillis = modifiedMillis;
+        this.sampleHash = sampleHash;
+    }
+
+    /**
+     * Take fingerprint of the file.
+     *
+     * @param file regular file
+     * @return new fingerprint
+     * @throws IOException if reading of the file fails
+     */
+    public static FileFingerprint of(Path file) throws IOException {
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long modified = Files.getLastModifiedTime(file).toMillis();
+            long size = channel.size();
+
+            ByteBuffer block = ByteBuffer.allocate(BLOCK);
+            CRC32C crc = new CRC32C();
+            long hash = size;
+
+            int samples = (int) Math.min(SAMPLES, (size + BLOCK - 1) / BLOCK);
+            for (int i = 0; i < samples; i++) {
+                // head, strided offsets and tail, aligned down to blocks (file smaller than all samples is read whole)
+                long position = (samples < SAMPLES) ? (long) i * BLOCK
+                        : (i == samples - 1) ? size - BLOCK : (size - BLOCK) / (SAMPLES - 1) * i / BLOCK * BLOCK;
+
+                IoScheduler.getDefault().acquire(IoPriority.BACKGROUND, BLOCK);
+                block.clear();
+                while (block.hasRemaining()) {
+                    int n = channel.read(block, position + block.position());
+                    if (n < 0) {
+                        break;
+                    }
+                }
+                block.flip();
+                crc.reset();
+                crc.update(block);
+                hash = hash * 0x9E3779B97F4A7C15L + (crc.getValue() ^ position);
+            }
+            return new FileFingerprint(size, modified, hash);
+        }
+    }
+
+    /**
+     * Number of bytes read to take fingerprint of file of given size.
+     */
+    static long sampledBytes(long size) {
+        return Math.min(size, (long) SAMPLES * BLOCK);
+    }
+
+    public long getSize() {
+        return size;
+    }
+
+    public long getModifiedMillis() {
+        return modifiedMillis;
+    }
+
+    public long getSampleHash() {
+        return sampleHash;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof FileFingerprint)) {
+            return false;
+        }
+        FileFingerprint other = (FileFingerprint) o;
+        return size == other.size && modifiedMillis == other.modifiedMillis && sampleHash == other.sampleHash;
+    }
+
+    @Override
+    public int hashCode() {
+        return Long.hashCode(sampleHash);
+    }
+
+    @Override
+    public String toString() {
+        return size + " B, modified " + modifiedMillis + ", samples " + Long.toHexString(sampleHash);
+    }
+
+}
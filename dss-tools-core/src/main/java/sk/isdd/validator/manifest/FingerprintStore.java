@@ -0,0 +1,160 @@
+package sk.isdd.validator.manifest;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Fingerprints of files verified by previous sweeps, stored alongside their verified digests.
+ *
+ * <p> Store is loaded whole into memory and saved atomically (written to temporary file and moved over),
+ * so an interrupted sweep leaves the previous store intact. File format is {@code int magic | int count |
+ * count * (UTF path | long size | long modified | long samples | long verified | byte length | digest)}.
+ * Thread safe.
+ */
+public class FingerprintStore {
+
+    private static final Logger LOG = LoggerFactory.getLogger(FingerprintStore.class);
+
+    private static final int MAGIC = 0x44534631;
+
+    /**
+     * Fingerprint of file whose full digest was verified.
+     */
+    public static final class Record {
+
+        private final FileFingerprint fingerprint;
+        private final byte[] digest;
+        private final long verifiedMillis;
+
+        /**
+         * @param fingerprint fingerprint taken before the full digest
+         * @param digest the verified digest
+         * @param verifiedMillis time of the full digest
+         */
+        public Record(FileFingerprint fingerprint, byte[] digest, long verifiedMillis) {
+            this.fingerprint = fingerprint;
+            this.digest = digest;
+            this.verifiedMillis = verifiedMillis;
+        }
+
+        public FileFingerprint getFingerprint() {
+            return fingerprint;
+        }
+
+        public byte[] getDigest() {
+            return digest;
+        }
+
+        public long getVerifiedMillis() {
+            return verifiedMillis;
+        }
+    }
+
+    private final Path file;
+    private final Map<String, Record> records = new ConcurrentHashMap<>();
+
+    private FingerprintStore(Path file) {
+        this.file = file;
+    }
+
+    /**
+     * Load the store, missing file gives empty store.
+     *
+     * @param file the store file
+     * @return loaded store
+     * @throws IOException if the file exists but cannot be read
+     */
+    public static FingerprintStore load(Path file) throws IOException {
+
+        FingerprintStore store = new FingerprintStore(file);
+        if (!Files.exists(file)) {
+            return store;
+        }
+
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file), 64 * 1024))) {
+            if (in.readInt() != MAGIC) {
+                throw new IOException("File \"" + file + "\" is not a fingerprint store.");
+            }
+            int count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                String path = in.readUTF();
+                FileFingerprint fingerprint = new FileFingerprint(in.readLong(), in.readLong(), in.readLong());
+                long verified = in.readLong();
+                byte[] digest = new byte[in.readUnsignedByte()];
+                in.readFully(digest);
+                store.records.put(path, new Record(fingerprint, digest, verified));
+            }
+        } catch (EOFException e) {
+            throw new IOException("Fingerprint store \"" + file + "\" is truncated.", e);
+        }
+
+        LOG.info("Loaded " + store.records.size() + " fingerprints from \"" + file + "\".");
+        return store;
+    }
+
+    /**
+     * Save all records, replacing the store file atomically.
+     *
+     * @throws IOException if writing fails
+     */
+    public void save() throws IOException {
+
+        Path parent = file.toAbsolutePath().getParent();
+        Path temporary = Files.createTempFile(parent, file.getFileName().toString(), ".tmp");
+        try {
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temporary), 64 * 1024))) {
+                Map<String, Record> snapshot = Map.copyOf(records);
+                out.writeInt(MAGIC);
+                out.writeInt(snapshot.size());
+                for (Map.Entry<String, Record> entry : snapshot.entrySet()) {
+                    Record record = entry.getValue();
+                    out.writeUTF(entry.getKey());
+                    out.writeLong(record.fingerprint.getSize());
+                    out.writeLong(record.fingerprint.getModifiedMillis());
+                    out.writeLong(record.fingerprint.getSampleHash());
+                    out.writeLong(record.verifiedMillis);
+                    out.writeByte(record.digest.length);
+                    out.write(record.digest);
+                }
+            }
+            Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+        } finally {
+            Files.deleteIfExists(temporary);
+        }
+        LOG.info("Saved " + records.size() + " fingerprints to \"" + file + "\".");
+    }
+
+    /**
+     * @param path absolute normalized path of the file
+     * @return the record or null if the file was not verified yet
+     */
+    public Record get(String path) {
+        return records.get(path);
+    }
+
+    public void put(String path, Record record) {
+        records.put(path, record);
+    }
+
+    public void remove(String path) {
+        records.remove(path);
+    }
+
+    public int size() {
+        return records.size();
+    }
+
+}
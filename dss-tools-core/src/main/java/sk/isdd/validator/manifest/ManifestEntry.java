@@ -0,0 +1,173 @@
+package sk.isdd.validator.manifest;
+
+import sk.isdd.validator.enumerations.DigestAlgorithm;
+import sk.isdd.validator.enumerations.XmlC14nMethod;
+
+import java.util.Base64;
+
+/**
+ * Single line of digest manifest: expected digest of a file under algorithm and canonicalization method.
+ *
+ * <p> File names containing backslash or new line are escaped the GNU way: the line starts with backslash,
+ * backslash in the name is written as "\\" and new line as "\n".
+ */
+public final class ManifestEntry {
+
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    private final DigestAlgorithm algorithm;
+    private final XmlC14nMethod method;
+    private final byte[] digest;
+    private final String path;
+
+    /**
+     * @param algorithm the digest algorithm
+     * @param method canonicalization method applied before hashing, {@link XmlC14nMethod#C14N_NONE} for raw bytes
+     * @param digest the digest
+     * @param path path of the file as written in the manifest
+     */
+    public ManifestEntry(DigestAlgorithm algorithm, XmlC14nMethod method, byte[] digest, String path) {
+        this.algorithm = algorithm;
+        this.method = method;
+        this.digest = digest;
+        this.path = path;
+    }
+
+    public DigestAlgorithm getAlgorithm() {
+        return algorithm;
+    }
+
+    public XmlC14nMethod getMethod() {
+        return method;
+    }
+
+    public byte[] getDigest() {
+        return digest;
+    }
+
+    public String getPath() {
+        return path;
+    }
+
+    /**
+     * Format the entry as manifest line (without line separator).
+     *
+     * @throws IllegalArgumentException if the entry cannot be expressed in the format
+     *                                  (canonicalization in other than {@link ManifestFormat#C14N})
+     */
+    public String format(ManifestFormat format) {
+
+        if (format != ManifestFormat.C14N && method != XmlC14nMethod.C14N_NONE) {
+            throw new IllegalArgumentException("Canonicalization can be recorded in " + ManifestFormat.C14N.getText()
+                    + " manifest only.");
+        }
+
+        boolean escaped = path.indexOf('\\') >= 0 || path.indexOf('\n') >= 0 || path.indexOf('\r') >= 0;
+        String name = escaped ? path.replace("\\", "\\\\").replace("\n", "\\n").replace("\r", "\\r") : path;
+        String prefix = escaped ? "\\" : "";
+
+        switch (format) {
+            case GNU:
+                return prefix + toHex(digest) + "  " + name;
+            case BSD:
+                return prefix + algorithm.getName() + " (" + name + ") = " + toHex(digest);
+            default:
+                return prefix + algorithm.getName() + "/" + method.getText() + " (" + name + ") = "
+                        + Base64.getEncoder().encodeToString(digest);
+        }
+    }
+
+    /**
+     * Parse manifest line of any supported format.
+     *
+     * @param line the line without line separator
+     * @param gnuAlgorithm algorithm implied for GNU style lines, lines in other formats carry their own
+     * @return parsed entry, {@code null} for empty and comment ("#") lines
+     * @throws IllegalArgumentException if the line is malformed
+     */
+    public static ManifestEntry parse(String line, DigestAlgorithm gnuAlgorithm) {
+
+        if (line.isEmpty() || line.startsWith("#")) {
+            return null;
+        }
+        boolean escaped = line.startsWith("\\");
+        if (escaped) {
+            line = line.substring(1);
+        }
+
+        int open = line.indexOf(" (");
+        int close = line.lastIndexOf(") = ");
+        if (open > 0 && close > open) {
+            // BSD tag style, optionally extended by c14n method
+            String tag = line.substring(0, open);
+            String value = line.substring(close + 4);
+            String name = line.substring(open + 2, close);
+
+            int slash = tag.indexOf('/');
+            if (slash < 0) {
+                return new ManifestEntry(DigestAlgorithm.forName(tag), XmlC14nMethod.C14N_NONE, fromHex(value),
+                        unescape(name, escaped));
+            }
+            return new ManifestEntry(DigestAlgorithm.forName(tag.substring(0, slash)),
+                    XmlC14nMethod.forText(tag.substring(slash + 1)), Base64.getDecoder().decode(value),
+                    unescape(name, escaped));
+        }
+
+        // GNU style, "*" marks binary mode which makes no difference here
+        int space = line.indexOf(' ');
+        if (space <= 0 || space + 2 > line.length() || (line.charAt(space + 1) != ' ' && line.charAt(space + 1) != '*')) {
+            throw new IllegalArgumentException("Malformed manifest line");
+        }
+        byte[] digest = fromHex(line.substring(0, space));
+        if (digest.length != gnuAlgorithm.getDigestLength()) {
+            throw new IllegalArgumentException("Digest length does not match " + gnuAlgorithm.getName());
+        }
+        return new ManifestEntry(gnuAlgorithm, XmlC14nMethod.C14N_NONE, digest, unescape(line.substring(space + 2), escaped));
+    }
+
+    private static String unescape(String name, boolean escaped) {
+
+        if (!escaped) {
+            return name;
+        }
+        StringBuilder builder = new StringBuilder(name.length());
+        for (int i = 0; i < name.length(); i++) {
+            char c = name.charAt(i);
+            if (c == '\\' && i + 1 < name.length()) {
+                char next = name.charAt(++i);
+                builder.append((next == 'n') ? '\n' : (next == 'r') ? '\r' : next);
+            } else {
+                builder.append(c);
+            }
+        }
+        return builder.toString();
+    }
+
+    static String toHex(byte[] bytes) {
+
+        char[] chars = new char[bytes.length * 2];
+        for (int i = 0; i < bytes.length; i++) {
+            chars[2 * i] = HEX[(bytes[i] >> 4) & 0xf];
+            chars[2 * i + 1] = HEX[bytes[i] & 0xf];
+        }
+        return new String(chars);
+    }
+
+    static byte[] fromHex(String hex) {
+
+        if (hex.length() % 2 != 0) {
+            throw new IllegalArgumentException("Odd length of hexadecimal digest");
+        }
+        byte[] bytes = new byte[hex.length() / 2];
+        for (int i = 0; i < bytes.length; i++) {
+            int high = Character.digit(hex.charAt(2 * i), 16);
+            int low = Character.digit(hex.charAt(2 * i + 1), 16);
+            if (high < 0 || low < 0) {
+                throw new IllegalArgumentException("Invalid hexadecimal digest");
+            }
+            bytes[i] = (byte) ((high << 4) | low);
+        }
+        return bytes;
+    }
+
+}
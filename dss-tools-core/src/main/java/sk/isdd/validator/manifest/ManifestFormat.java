@@ -0,0 +1,49 @@
+package sk.isdd.validator.manifest;
+
+/**
+ * Enumeration of supported line formats of digest manifests.
+ */
+public enum ManifestFormat {
+
+    /**
+     * GNU coreutils style as printed by sha256sum: {@code <hex>  <path>}. The algorithm is implied by the tool.
+     */
+    GNU("gnu"),
+
+    /**
+     * BSD tag style as printed by {@code sha256sum --tag}: {@code SHA256 (<path>) = <hex>}.
+     */
+    BSD("bsd"),
+
+    /**
+     * Extension of BSD tag style with canonicalization method and Base64 digest, as shown by the GUI:
+     * {@code SHA256/excl-c14n (<path>) = <base64>}.
+     */
+    C14N("c14n");
+
+    private final String text;
+
+    ManifestFormat(String text) {
+        this.text = text;
+    }
+
+    public String getText() {
+        return text;
+    }
+
+    /**
+     * Returns the format for given text.
+     *
+     * @throws IllegalArgumentException if the text doesn't match any format
+     */
+    public static ManifestFormat forText(String text) {
+
+        for (ManifestFormat format : values()) {
+            if (format.text.equals(text)) {
+                return format;
+            }
+        }
+        throw new IllegalArgumentException("Unsupported manifest format: " + text);
+    }
+
+}
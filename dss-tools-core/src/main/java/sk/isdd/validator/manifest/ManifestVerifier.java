@@ -0,0 +1,339 @@
+package sk.isdd.validator.manifest;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import sk.isdd.validator.ApplicationException;
+import sk.isdd.validator.enumerations.DigestAlgorithm;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Verifies files against digest manifest of any {@link ManifestFormat}.
+ *
+ * <p> The manifest is streamed line by line and entries are checked in parallel. Number of entries in flight
+ * is bounded, so manifests with millions of lines are verified in constant memory. Results are reported as a stream
+ * to the {@link Listener} as they complete (not in manifest order), together with periodic progress.
+ *
+ * <p> With {@link FingerprintStore} set, sweeps take quick {@link FileFingerprint} first. File whose fingerprint
+ * and expected digest did not change since its last full verification is reported OK without reading it whole,
+ * unless its full-scan period is due. The period of each file is shortened by up to a quarter (derived from its
+ * path), so files verified together at first spread over later sweeps.
+ */
+public class ManifestVerifier {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ManifestVerifier.class);
+
+    /**
+     * Outcome of single manifest line.
+     */
+    public enum Status {
+        OK, MISMATCH, MISSING, FAILED, MALFORMED
+    }
+
+    /**
+     * Result of single manifest line.
+     */
+    public static final class Result {
+
+        private final long lineNumber;
+        private final ManifestEntry entry;
+        private final Status status;
+        private final String message;
+
+        Result(long lineNumber, ManifestEntry entry, Status status, String message) {
+            this.lineNumber = lineNumber;
+            this.entry = entry;
+            this.status = status;
+            this.message = message;
+        }
+
+        public long getLineNumber() {
+            return lineNumber;
+        }
+
+        /**
+         * Parsed entry, {@code null} for malformed line.
+         */
+        public ManifestEntry getEntry() {
+            return entry;
+        }
+
+        public Status getStatus() {
+            return status;
+        }
+
+        public String getMessage() {
+            return message;
+        }
+
+        @Override
+        public String toString() {
+            String name = (entry != null) ? entry.getPath() : "line " + lineNumber;
+            return name + ": " + ((status == Status.OK) ? "OK" : status + ((message != null) ? " " + message : ""));
+        }
+    }
+
+    /**
+     * Snapshot of verification progress.
+     */
+    public static final class Progress {
+
+        private final long lines;
+        private final long ok;
+        private final long unchanged;
+        private final long problems;
+        private final long bytes;
+        private final long elapsedMillis;
+
+        Progress(long lines, long ok, long unchanged, long problems, long bytes, long elapsedMillis) {
+            this.lines = lines;
+            this.ok = ok;
+            this.unchanged = unchanged;
+            this.problems = problems;
+            this.bytes = bytes;
+            this.elapsedMillis = elapsedMillis;
+        }
+
+        /**
+         * Number of manifest entries read so far.
+         */
+        public long getLines() {
+            return lines;
+        }
+
+        public long getOk() {
+            return ok;
+        }
+
+        /**
+         * Number of OK entries verified by unchanged fingerprint only.
+         */
+        public long getUnchanged() {
+            return unchanged;
+        }
+
+        /**
+         * Number of mismatched, missing, failed and malformed entries.
+         */
+        public long getProblems() {
+            return problems;
+        }
+
+        public long getBytes() {
+            return bytes;
+        }
+
+        public long getElapsedMillis() {
+            return elapsedMillis;
+        }
+
+        public double getFilesPerSecond() {
+            return (ok + problems) * 1000.0 / Math.max(1, elapsedMillis);
+        }
+
+        public double getMegabytesPerSecond() {
+            return bytes * 1000.0 / 1024 / 1024 / Math.max(1, elapsedMillis);
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%d checked (%d ok%s, %d problems) of %d read, %.1f files/s, %.1f MB/s",
+                    ok + problems, ok, (unchanged > 0) ? ", " + unchanged + " unchanged" : "", problems, lines,
+                    getFilesPerSecond(), getMegabytesPerSecond());
+        }
+    }
+
+    /**
+     * Receiver of results and progress. Calls are serialized, but come from worker threads.
+     */
+    public interface Listener {
+
+        void onResult(Result result);
+
+        default void onProgress(Progress progress) {
+        }
+    }
+
+    private final Path baseDirectory;
+    private final DigestAlgorithm gnuAlgorithm;
+    private final int threads;
+    private long progressInterval = 1000;
+    private FingerprintStore fingerprints;
+    private long fullScanMillis;
+
+    /**
+     * @param baseDirectory directory to resolve relative manifest paths against
+     * @param gnuAlgorithm algorithm implied by GNU style lines
+     * @param threads number of files verified in parallel
+     */
+    public ManifestVerifier(Path baseDirectory, DigestAlgorithm gnuAlgorithm, int threads) {
+        this.baseDirectory = baseDirectory;
+        this.gnuAlgorithm = gnuAlgorithm;
+        this.threads = Math.max(1, threads);
+    }
+
+    /**
+     * Set minimal interval between progress reports in milliseconds.
+     */
+    public void setProgressInterval(long progressInterval) {
+        this.progressInterval = progressInterval;
+    }
+
+    /**
+     * Enable quick fingerprint stage, the store is updated by verified files (but not saved).
+     *
+     * @param fingerprints fingerprints of previous sweeps
+     * @param fullScanMillis period of full verification of unchanged files, 0 to verify always
+     */
+    public void setFingerprints(FingerprintStore fingerprints, long fullScanMillis) {
+        this.fingerprints = fingerprints;
+        this.fullScanMillis = fullScanMillis;
+    }
+
+    /**
+     * Verify all entries of the manifest.
+     *
+     * @param manifest the manifest, read to its end but not closed
+     * @param listener receiver of results and progress
+     * @return final progress
+     * @throws IOException if reading of the manifest fails
+     */
+    public Progress verify(BufferedReader manifest, Listener listener) throws IOException {
+
+        long started = System.currentTimeMillis();
+        LongAdder lines = new LongAdder();
+        LongAdder ok = new LongAdder();
+        LongAdder unchanged = new LongAdder();
+        LongAdder problems = new LongAdder();
+        LongAdder bytes = new LongAdder();
+        long[] lastProgress = {started};
+
+        // serializes listener calls and throttles progress reports
+        Listener reporter = new Listener() {
+            @Override
+            public synchronized void onResult(Result result) {
+                ((result.getStatus() == Status.OK) ? ok : problems).increment();
+                listener.onResult(result);
+
+                long now = System.currentTimeMillis();
+                if (now - lastProgress[0] >= progressInterval) {
+                    lastProgress[0] = now;
+                    listener.onProgress(new Progress(lines.sum(), ok.sum(), unchanged.sum(), problems.sum(), bytes.sum(), now - started));
+                }
+            }
+        };
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        Semaphore inFlight = new Semaphore(threads * 4);
+        long lineNumber = 0;
+
+        try {
+            String line;
+            while ((line = manifest.readLine()) != null) {
+                lineNumber++;
+
+                ManifestEntry entry;
+                try {
+                    entry = ManifestEntry.parse(line, gnuAlgorithm);
+                } catch (IllegalArgumentException e) {
+                    lines.increment();
+                    reporter.onResult(new Result(lineNumber, null, Status.MALFORMED, e.getMessage()));
+                    continue;
+                }
+                if (entry == null) {
+                    continue;
+                }
+                lines.increment();
+
+                long number = lineNumber;
+                inFlight.acquire();
+                executor.execute(() -> {
+                    try {
+                        reporter.onResult(check(number, entry, bytes, unchanged));
+                    } finally {
+                        inFlight.release();
+                    }
+                });
+            }
+
+            executor.shutdown();
+            executor.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ApplicationException("Manifest verification interrupted.", e);
+        } finally {
+            executor.shutdownNow();
+        }
+
+        Progress progress = new Progress(lines.sum(), ok.sum(), unchanged.sum(), problems.sum(), bytes.sum(),
+                System.currentTimeMillis() - started);
+        listener.onProgress(progress);
+        LOG.info("Manifest verified: " + progress);
+        return progress;
+    }
+
+    private Result check(long lineNumber, ManifestEntry entry, LongAdder bytes, LongAdder unchanged) {
+
+        Path file = baseDirectory.resolve(entry.getPath());
+        try {
+            if (!Files.isRegularFile(file)) {
+                return new Result(lineNumber, entry, Status.MISSING, null);
+            }
+
+            String key = null;
+            FileFingerprint fingerprint = null;
+            if (fingerprints != null) {
+                key = file.toAbsolutePath().normalize().toString();
+                fingerprint = FileFingerprint.of(file);
+                bytes.add(FileFingerprint.sampledBytes(fingerprint.getSize()));
+                if (isUnchanged(key, fingerprint, entry.getDigest())) {
+                    unchanged.increment();
+                    return new Result(lineNumber, entry, Status.OK, null);
+                }
+            }
+
+            long size = Files.size(file);
+            byte[] digest = ManifestWriter.digest(file, entry.getAlgorithm(), entry.getMethod());
+            bytes.add(size);
+
+            if (!MessageDigest.isEqual(digest, entry.getDigest())) {
+                if (key != null) {
+                    fingerprints.remove(key);
+                }
+                return new Result(lineNumber, entry, Status.MISMATCH, null);
+            }
+            if (key != null) {
+                fingerprints.put(key, new FingerprintStore.Record(fingerprint, digest, System.currentTimeMillis()));
+            }
+            return new Result(lineNumber, entry, Status.OK, null);
+
+        } catch (IOException | RuntimeException e) {
+            return new Result(lineNumber, entry, Status.FAILED, e.getMessage());
+        }
+    }
+
+    /**
+     * Return true if the file is unchanged since its last full verification against the same digest
+     * and its full-scan period is not due.
+     */
+    private boolean isUnchanged(String key, FileFingerprint fingerprint, byte[] expected) {
+
+        FingerprintStore.Record record = fingerprints.get(key);
+        if (record == null || !record.getFingerprint().equals(fingerprint) || !MessageDigest.isEqual(record.getDigest(), expected)) {
+            return false;
+        }
+        long period = fullScanMillis - fullScanMillis / 4 * Math.floorMod(key.hashCode(), 1024) / 1024;
+        return System.currentTimeMillis() - record.getVerifiedMillis() < period;
+    }
+
+}
@@ -0,0 +1,145 @@
+package sk.isdd.validator.manifest;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import sk.isdd.validator.ApplicationException;
+import sk.isdd.validator.digest.DigestEngine;
+import sk.isdd.validator.digest.DigestResult;
+import sk.isdd.validator.enumerations.DigestAlgorithm;
+import sk.isdd.validator.enumerations.XmlC14nMethod;
+import sk.isdd.validator.io.IoPriority;
+import sk.isdd.validator.io.IoScheduler;
+import sk.isdd.validator.xml.CanonicalInputStream;
+import sk.isdd.validator.xml.ParseBudget;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Generates digest manifest of files in chosen {@link ManifestFormat}.
+ *
+ * <p> Files are digested in parallel, lines are written in the order of given files. Only a bounded window
+ * of files is in flight, so manifests of any number of files are generated in constant memory.
+ */
+public class ManifestWriter {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ManifestWriter.class);
+
+    private final DigestAlgorithm algorithm;
+    private final XmlC14nMethod method;
+    private final ManifestFormat format;
+    private final int threads;
+
+    /**
+     * @param algorithm the digest algorithm
+     * @param method canonicalization applied before hashing, {@link XmlC14nMethod#C14N_NONE} for raw bytes
+     * @param format line format, canonicalization requires {@link ManifestFormat#C14N}
+     * @param threads number of files digested in parallel
+     */
+    public ManifestWriter(DigestAlgorithm algorithm, XmlC14nMethod method, ManifestFormat format, int threads) {
+
+        if (format != ManifestFormat.C14N && method != XmlC14nMethod.C14N_NONE) {
+            throw new IllegalArgumentException("Canonicalization requires " + ManifestFormat.C14N.getText() + " manifest format.");
+        }
+        this.algorithm = algorithm;
+        this.method = method;
+        this.format = format;
+        this.threads = Math.max(1, threads);
+    }
+
+    /**
+     * Digest files and write manifest lines.
+     *
+     * @param files files to be listed, paths are written as given
+     * @param output manifest output, lines are separated by '\n'
+     * @return number of written lines, files which cannot be digested are logged and left out
+     * @throws IOException if writing fails
+     */
+    public long write(Iterable<Path> files, Writer output) throws IOException {
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        Deque<Future<String>> window = new ArrayDeque<>();
+        long written = 0;
+
+        try {
+            for (Path file : files) {
+                if (window.size() >= threads * 4) {
+                    written += writeLine(window.poll(), output);
+                }
+                window.add(executor.submit(() -> {
+                    try {
+                        return new ManifestEntry(algorithm, method, digest(file, algorithm, method), file.toString()).format(format);
+
+                    } catch (IOException | RuntimeException e) {
+                        LOG.warn("Cannot digest file \"" + file + "\": " + e.getMessage());
+                        return null;
+                    }
+                }));
+            }
+            while (!window.isEmpty()) {
+                written += writeLine(window.poll(), output);
+            }
+
+        } finally {
+            executor.shutdownNow();
+        }
+        output.flush();
+        return written;
+    }
+
+    private static int writeLine(Future<String> line, Writer output) throws IOException {
+
+        try {
+            String text = line.get();
+            if (text == null) {
+                return 0;
+            }
+            output.write(text);
+            output.write('\n');
+            return 1;
+
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ApplicationException("Manifest generation interrupted.", e);
+        } catch (ExecutionException e) {
+            throw new ApplicationException("Manifest generation failed: " + e.getCause().getMessage(), e.getCause());
+        }
+    }
+
+    /**
+     * Stream file through optional canonicalization into the digest.
+     *
+     * @throws IOException if the file cannot be read
+     * @throws ApplicationException if the algorithm is not provided or c14n fails
+     */
+    static byte[] digest(Path file, DigestAlgorithm algorithm, XmlC14nMethod method) throws IOException {
+
+        // the raw stream is closed even if wrapping it fails
+        try (InputStream raw = Files.newInputStream(file)) {
+            InputStream in = new BufferedInputStream(IoScheduler.getDefault().wrap(raw, IoPriority.BACKGROUND), 64 * 1024);
+            if (method != XmlC14nMethod.C14N_NONE) {
+                in = new CanonicalInputStream(in, method, ParseBudget.getDefault());
+            }
+            try (InputStream source = in) {
+                List<DigestResult> results = DigestEngine.calculate(source, Collections.singletonList(algorithm));
+                if (results.isEmpty()) {
+                    throw new ApplicationException("Message digest algorithm \"" + algorithm.getJavaName() + "\" not provided.");
+                }
+                return results.get(0).getDigest();
+            }
+        }
+    }
+
+}
@@ -0,0 +1,63 @@
+package sk.isdd.validator.source;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * Input document decoupled from local files: a file, standard input, an object of S3 compatible storage, etc.
+ *
+ * <p> Sources are created by {@link SourceProvider}s resolving locations (see {@link DocumentSources}).
+ * Source is a lightweight descriptor, no resources are held between reads.
+ */
+public interface DocumentSource {
+
+    /**
+     * Name of the source for reports, e.g. the path or the location of the object.
+     */
+    String getName();
+
+    /**
+     * Size hint of the content.
+     *
+     * @return size in bytes or -1 if not known in advance
+     * @throws IOException if the size cannot be obtained
+     */
+    long getSize() throws IOException;
+
+    /**
+     * Return true if the source supports positional reads by {@link #read(long, ByteBuffer)}.
+     */
+    boolean isPositional();
+
+    /**
+     * Open sequential read of the whole content.
+     *
+     * @return new stream, the caller closes it
+     * @throws IOException if the source cannot be opened
+     */
+    InputStream openStream() throws IOException;
+
+    /**
+     * Read bytes starting at given position into the remaining space of the buffer.
+     *
+     * @param position position in the content
+     * @param target buffer filled from its position
+     * @return number of bytes read, -1 if the position is at the end of the content
+     * @throws IOException if reading fails or the source is not positional
+     */
+    int read(long position, ByteBuffer target) throws IOException;
+
+    /**
+     * Read the whole content into a buffer.
+     *
+     * @return buffer ready to be read (flipped)
+     * @throws IOException if reading fails
+     */
+    default ByteBuffer readAll() throws IOException {
+        try (InputStream in = openStream()) {
+            return ByteBuffer.wrap(in.readAllBytes());
+        }
+    }
+
+}
@@ -0,0 +1,79 @@
+package sk.isdd.validator.source;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.ServiceLoader;
+import java.util.stream.Stream;
+
+/**
+ * Resolution of locations by registered {@link SourceProvider}s.
+ *
+ * <p> Built-in locations are:
+ * <ul>
+ *     <li> local path or {@code file:} URI, directories are walked recursively ({@link LocalFileSourceProvider}),
+ *     <li> {@code -} for standard input ({@link StdinSourceProvider}),
+ *     <li> {@code list:FILE} resp. {@code list0:FILE} for newline resp. NUL delimited list of locations,
+ *          {@code -} as FILE reads the list from standard input ({@link PathListSourceProvider}),
+ *     <li> {@code s3://bucket/key} object or {@code s3://bucket/prefix/} listing of S3 compatible storage
+ *          ({@code sk.isdd.validator.source.s3.S3SourceProvider}).
+ * </ul>
+ */
+public final class DocumentSources {
+
+    private static volatile List<SourceProvider> providers;
+
+    private DocumentSources() {
+    }
+
+    /**
+     * Return providers found by {@link ServiceLoader} of the context class loader, loaded once.
+     */
+    public static List<SourceProvider> getProviders() {
+
+        if (providers == null) {
+            List<SourceProvider> loaded = new ArrayList<>();
+            ServiceLoader.load(SourceProvider.class).forEach(loaded::add);
+            providers = Collections.unmodifiableList(loaded);
+        }
+        return providers;
+    }
+
+    /**
+     * Resolve single location.
+     *
+     * @param location location in syntax of any provider
+     * @return lazy stream of sources, closed by the caller
+     * @throws IOException if the location cannot be resolved
+     * @throws IllegalArgumentException if no provider accepts the location
+     */
+    public static Stream<DocumentSource> resolve(String location) throws IOException {
+
+        for (SourceProvider provider : getProviders()) {
+            if (provider.accepts(location)) {
+                return provider.resolve(location);
+            }
+        }
+        throw new IllegalArgumentException("No source provider for \"" + location + "\".");
+    }
+
+    /**
+     * Resolve locations in order, lazily.
+     *
+     * @param locations locations in syntax of any provider
+     * @return lazy stream of sources, closed by the caller; failures of resolution are thrown as {@link UncheckedIOException}
+     */
+    public static Stream<DocumentSource> resolve(List<String> locations) {
+
+        return locations.stream().flatMap(location -> {
+            try {
+                return resolve(location);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+    }
+
+}
@@ -0,0 +1,79 @@
+package sk.isdd.validator.source;
+
+import sk.isdd.validator.io.IoPriority;
+import sk.isdd.validator.io.IoScheduler;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Regular file of local file system.
+ */
+public class LocalFileSource implements DocumentSource {
+
+    private final Path file;
+    private final IoPriority ioPriority;
+
+    public LocalFileSource(Path file) {
+        this(file, IoPriority.INTERACTIVE);
+    }
+
+    /**
+     * @param file the file
+     * @param ioPriority priority class of reads scheduled by {@link IoScheduler}
+     */
+    public LocalFileSource(Path file, IoPriority ioPriority) {
+        this.file = file;
+        this.ioPriority = ioPriority;
+    }
+
+    public Path getFile() {
+        return file;
+    }
+
+    @Override
+    public String getName() {
+        return file.toString();
+    }
+
+    @Override
+    public long getSize() throws IOException {
+        return Files.size(file);
+    }
+
+    @Override
+    public boolean isPositional() {
+        return true;
+    }
+
+    @Override
+    public InputStream openStream() throws IOException {
+        return IoScheduler.getDefault().wrap(Files.newInputStream(file), ioPriority);
+    }
+
+    @Override
+    public int read(long position, ByteBuffer target) throws IOException {
+        IoScheduler.getDefault().acquire(ioPriority, target.remaining());
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            return channel.read(target, position);
+        }
+    }
+
+    @Override
+    public ByteBuffer readAll() throws IOException {
+        try (InputStream in = openStream()) {
+            return ByteBuffer.wrap(in.readAllBytes());
+        }
+    }
+
+    @Override
+    public String toString() {
+        return getName();
+    }
+
+}
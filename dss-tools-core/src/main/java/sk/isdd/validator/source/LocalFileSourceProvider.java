@@ -0,0 +1,36 @@
+package sk.isdd.validator.source;
+
+import java.io.IOException;
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * Local paths and {@code file:} URIs, directories are walked recursively in sorted order.
+ *
+ * <p> Accepts every location without URI scheme (single letter is a Windows drive, not a scheme).
+ */
+public class LocalFileSourceProvider implements SourceProvider {
+
+    private static final Pattern SCHEME = Pattern.compile("^[a-zA-Z][a-zA-Z0-9+.-]+:.*", Pattern.DOTALL);
+
+    @Override
+    public boolean accepts(String location) {
+        return !location.equals("-") && (location.startsWith("file:") || !SCHEME.matcher(location).matches());
+    }
+
+    @Override
+    public Stream<DocumentSource> resolve(String location) throws IOException {
+
+        Path path = location.startsWith("file:") ? Paths.get(URI.create(location)) : Paths.get(location);
+        if (!Files.isDirectory(path)) {
+            return Stream.of(new LocalFileSource(path));
+        }
+
+        return Files.walk(path).filter(Files::isRegularFile).sorted().map(LocalFileSource::new);
+    }
+
+}
@@ -0,0 +1,116 @@
+package sk.isdd.validator.source;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Lists of locations produced by other tools: {@code list:FILE} is newline delimited (e.g. {@code find}),
+ * {@code list0:FILE} is NUL delimited (e.g. {@code find -print0}). {@code -} as FILE reads the list
+ * from standard input.
+ *
+ * <p> The list is read lazily, entry by entry, and every entry is resolved by {@link DocumentSources}
+ * (so it can be a directory or an object of another provider). Empty entries are skipped.
+ */
+public class PathListSourceProvider implements SourceProvider {
+
+    private static final String LINES = "list:";
+    private static final String NULS = "list0:";
+
+    @Override
+    public boolean accepts(String location) {
+        return location.startsWith(LINES) || location.startsWith(NULS);
+    }
+
+    @Override
+    public Stream<DocumentSource> resolve(String location) throws IOException {
+
+        boolean nul = location.startsWith(NULS);
+        String list = location.substring(nul ? NULS.length() : LINES.length());
+        BufferedReader reader = list.equals("-")
+                ? new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8))
+                : Files.newBufferedReader(Paths.get(list), StandardCharsets.UTF_8);
+
+        Iterator<String> entries = new Entries(reader, nul ? '\0' : '\n');
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(entries, Spliterator.ORDERED | Spliterator.NONNULL), false)
+                .onClose(() -> {
+                    try {
+                        reader.close();
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                })
+                .flatMap(entry -> {
+                    try {
+                        return DocumentSources.resolve(entry);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+    }
+
+    /**
+     * Non-empty entries of the list split by the delimiter (carriage return before newline is dropped).
+     */
+    private static class Entries implements Iterator<String> {
+
+        private final BufferedReader reader;
+        private final char delimiter;
+        private final StringBuilder entry = new StringBuilder();
+        private String next;
+        private boolean finished;
+
+        Entries(BufferedReader reader, char delimiter) {
+            this.reader = reader;
+            this.delimiter = delimiter;
+        }
+
+        @Override
+        public boolean hasNext() {
+
+            try {
+                while (next == null && !finished) {
+                    int c = reader.read();
+                    if (c < 0 || c == delimiter) {
+                        finished = c < 0;
+                        if (delimiter == '\n' && entry.length() > 0 && entry.charAt(entry.length() - 1) == '\r') {
+                            entry.setLength(entry.length() - 1);
+                        }
+                        if (entry.length() > 0) {
+                            next = entry.toString();
+                            entry.setLength(0);
+                        }
+                    } else {
+                        entry.append((char) c);
+                    }
+                }
+                return next != null;
+
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        @Override
+        public String next() {
+
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            String entry = next;
+            next = null;
+            return entry;
+        }
+    }
+
+}
@@ -0,0 +1,32 @@
+package sk.isdd.validator.source;
+
+import java.io.IOException;
+import java.util.stream.Stream;
+
+/**
+ * Service provider resolving locations into {@link DocumentSource}s, loaded by {@link java.util.ServiceLoader}.
+ *
+ * <p> Implementations are registered in {@code META-INF/services/sk.isdd.validator.source.SourceProvider}.
+ * Location is accepted by the first provider claiming it, so providers must claim distinct location syntaxes
+ * (e.g. by URI scheme).
+ */
+public interface SourceProvider {
+
+    /**
+     * Return true if the location has syntax of this provider.
+     *
+     * @param location location given by the user, e.g. path or URI
+     */
+    boolean accepts(String location);
+
+    /**
+     * Resolve the location into documents, e.g. single file, walked directory or listed prefix.
+     * The stream may be lazy and is closed by the caller.
+     *
+     * @param location accepted location
+     * @return stream of sources
+     * @throws IOException if the location cannot be resolved
+     */
+    Stream<DocumentSource> resolve(String location) throws IOException;
+
+}
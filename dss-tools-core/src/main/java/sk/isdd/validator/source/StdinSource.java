@@ -0,0 +1,76 @@
+package sk.isdd.validator.source;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Standard input (or any other pipe): size is unknown and content can be read only once, sequentially.
+ */
+public class StdinSource implements DocumentSource {
+
+    private final InputStream in;
+    private final String name;
+    private final AtomicBoolean opened = new AtomicBoolean();
+
+    /**
+     * Standard input of the process, named "-".
+     */
+    public StdinSource() {
+        this(System.in, "-");
+    }
+
+    /**
+     * @param in the pipe, not closed by readers
+     * @param name name of the source for reports
+     */
+    public StdinSource(InputStream in, String name) {
+        this.in = in;
+        this.name = name;
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public long getSize() {
+        return -1;
+    }
+
+    @Override
+    public boolean isPositional() {
+        return false;
+    }
+
+    /**
+     * @throws IOException if the pipe was already opened
+     */
+    @Override
+    public InputStream openStream() throws IOException {
+
+        if (opened.getAndSet(true)) {
+            throw new IOException("Source \"" + name + "\" can be read only once.");
+        }
+        return new FilterInputStream(in) {
+            @Override
+            public void close() {
+                // the pipe is owned by the process
+            }
+        };
+    }
+
+    @Override
+    public int read(long position, ByteBuffer target) throws IOException {
+        throw new IOException("Source \"" + name + "\" does not support positional reads.");
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+
+}
@@ -0,0 +1,20 @@
+package sk.isdd.validator.source;
+
+import java.util.stream.Stream;
+
+/**
+ * Location {@code -} for standard input.
+ */
+public class StdinSourceProvider implements SourceProvider {
+
+    @Override
+    public boolean accepts(String location) {
+        return location.equals("-");
+    }
+
+    @Override
+    public Stream<DocumentSource> resolve(String location) {
+        return Stream.of(new StdinSource());
+    }
+
+}
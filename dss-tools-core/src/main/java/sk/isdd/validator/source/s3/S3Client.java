@@ -0,0 +1,430 @@
+package sk.isdd.validator.source.s3;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.NodeList;
+
+import javax.xml.XMLConstants;
+import javax.xml.parsers.DocumentBuilderFactory;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Minimal client of S3 compatible storage: HEAD, (ranged) GET and ListObjectsV2 over {@code java.net.http}.
+ *
+ * <p> Requests are signed by {@link S3Signer} unless the configuration is anonymous. Failed requests (I/O errors,
+ * throttling and server errors) are retried a few times with growing delay. Ranged GETs are accepted only with
+ * the requested {@code Content-Range} and a body of its length, so neither a server ignoring the range nor
+ * a response cut short passes for the object content; given ETag pins them to a single version of the object
+ * ({@code If-Match}). Thread safe.
+ */
+public class S3Client {
+
+    private static final Logger LOG = LoggerFactory.getLogger(S3Client.class);
+
+    private static final int ATTEMPTS = 3;
+    private static final Pattern ERROR_CODE = Pattern.compile("<Code>([^<]*)</Code>");
+    private static final Pattern CONTENT_RANGE = Pattern.compile("bytes (\\d+)-(\\d+)/(\\d+|\\*)");
+
+    /**
+     * Object found by listing.
+     */
+    public static final class ObjectInfo {
+
+        private final String key;
+        private final long size;
+        private final String etag;
+
+        ObjectInfo(String key, long size, String etag) {
+            this.key = key;
+            this.size = size;
+            this.etag = etag;
+        }
+
+        public String getKey() {
+            return key;
+        }
+
+        public long getSize() {
+            return size;
+        }
+
+        /**
+         * Entity tag of the object version (quoted as sent by the server), null if not known.
+         */
+        public String getEtag() {
+            return etag;
+        }
+    }
+
+    /**
+     * Response body not matching the requested range (connection cut short), worth another attempt.
+     */
+    private static final class ShortBodyException extends IOException {
+
+        private static final long serialVersionUID = 1L;
+
+        ShortBodyException(String message) {
+            super(message);
+        }
+    }
+
+    /**
+     * Single page of listing.
+     */
+    public static final class Listing {
+
+        private final List<ObjectInfo> objects;
+        private final String continuationToken;
+
+        Listing(List<ObjectInfo> objects, String continuationToken) {
+            this.objects = objects;
+            this.continuationToken = continuationToken;
+        }
+
+        public List<ObjectInfo> getObjects() {
+            return objects;
+        }
+
+        /**
+         * Token of the next page, null for the last page.
+         */
+        public String getContinuationToken() {
+            return continuationToken;
+        }
+    }
+
+    private static volatile S3Client defaultClient;
+
+    private final S3Config config;
+    private final S3Signer signer;
+    private final HttpClient http;
+
+    public S3Client(S3Config config) {
+        this.config = config;
+        this.signer = config.isAnonymous() ? null
+                : new S3Signer(config.getRegion(), config.getAccessKey(), config.getSecretKey(), config.getSessionToken());
+        this.http = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(10))
+                .build();
+    }
+
+    /**
+     * Client of {@link S3Config#getDefault()}, created once.
+     */
+    public static S3Client getDefault() {
+
+        if (defaultClient == null) {
+            synchronized (S3Client.class) {
+                if (defaultClient == null) {
+                    defaultClient = new S3Client(S3Config.getDefault());
+                }
+            }
+        }
+        return defaultClient;
+    }
+
+    public S3Config getConfig() {
+        return config;
+    }
+
+    /**
+     * Get size of the object.
+     *
+     * @throws IOException if the object does not exist or the request fails
+     */
+    public long size(String bucket, String key) throws IOException {
+        return stat(bucket, key).getSize();
+    }
+
+    /**
+     * Get size and ETag of the object.
+     *
+     * @throws IOException if the object does not exist or the request fails
+     */
+    public ObjectInfo stat(String bucket, String key) throws IOException {
+
+        HttpResponse<byte[]> response = send(request("HEAD", objectUri(bucket, key), null, null), bucket, key);
+        return new ObjectInfo(key, response.headers().firstValueAsLong("content-length").orElse(-1),
+                response.headers().firstValue("etag").orElse(null));
+    }
+
+    /**
+     * Get range of the object.
+     *
+     * @param from first byte
+     * @param to last byte (inclusive), -1 for the end of the object
+     * @return the bytes, empty if the range starts past the end of the object
+     * @throws IOException if the request fails
+     */
+    public byte[] get(String bucket, String key, long from, long to) throws IOException {
+        return get(bucket, key, from, to, null);
+    }
+
+    /**
+     * Get range of the object version.
+     *
+     * @param from first byte
+     * @param to last byte (inclusive), -1 for the end of the object
+     * @param etag ETag the object must still have, null for any
+     * @return the bytes, empty if the range starts past the end of the object
+     * @throws IOException if the request fails or the object has changed
+     */
+    public byte[] get(String bucket, String key, long from, long to, String etag) throws IOException {
+        return join(getAsync(bucket, key, from, to, etag));
+    }
+
+    /**
+     * Get range of the object asynchronously, with retries.
+     *
+     * @param from first byte
+     * @param to last byte (inclusive), -1 for the end of the object
+     * @return future bytes, empty if the range starts past the end of the object
+     */
+    public CompletableFuture<byte[]> getAsync(String bucket, String key, long from, long to) {
+        return getAsync(bucket, key, from, to, null);
+    }
+
+    /**
+     * Get range of the object version asynchronously, with retries.
+     *
+     * @param from first byte
+     * @param to last byte (inclusive), -1 for the end of the object
+     * @param etag ETag the object must still have, null for any
+     * @return future bytes, empty if the range starts past the end of the object
+     */
+    public CompletableFuture<byte[]> getAsync(String bucket, String key, long from, long to, String etag) {
+        return getAsync(bucket, key, from, to, etag, 1);
+    }
+
+    private CompletableFuture<byte[]> getAsync(String bucket, String key, long from, long to, String etag, int attempt) {
+
+        String range = "bytes=" + from + "-" + ((to < 0) ? "" : String.valueOf(to));
+        HttpRequest request = request("GET", objectUri(bucket, key), range, etag);
+        return http.sendAsync(request, HttpResponse.BodyHandlers.ofByteArray())
+                .handle((response, failure) -> {
+                    Throwable error = failure;
+                    byte[] body = new byte[0];
+                    if (error == null && response.statusCode() != 416) {
+                        try {
+                            body = body(check(response, bucket, key), bucket, key, from, to);
+                        } catch (IOException e) {
+                            error = e;
+                        }
+                    }
+                    boolean retry = (response == null)
+                            ? failure instanceof IOException || failure.getCause() instanceof IOException
+                            : error instanceof ShortBodyException || response.statusCode() == 429 || response.statusCode() >= 500;
+                    if (retry && attempt < ATTEMPTS) {
+                        LOG.debug("Retrying GET s3://" + bucket + "/" + key + " " + range + " (attempt " + attempt + ").");
+                        return CompletableFuture.runAsync(() -> { },
+                                        CompletableFuture.delayedExecutor(100L << attempt, TimeUnit.MILLISECONDS))
+                                .thenCompose(ignored -> getAsync(bucket, key, from, to, etag, attempt + 1));
+                    }
+                    if (error != null) {
+                        return CompletableFuture.<byte[]>failedFuture(error);
+                    }
+                    return CompletableFuture.completedFuture(body);
+                })
+                .thenCompose(future -> future);
+    }
+
+    /**
+     * Body of successful ranged GET, checked to be exactly the requested range.
+     */
+    private static byte[] body(HttpResponse<byte[]> response, String bucket, String key, long from, long to)
+            throws IOException {
+
+        byte[] body = response.body();
+        String name = "GET s3://" + bucket + "/" + key + " bytes=" + from + "-" + ((to < 0) ? "" : String.valueOf(to));
+        if (response.statusCode() == 200) {
+            // range ignored, whole object is fine only if that is what was requested
+            if (from != 0 || (to >= 0 && body.length > to + 1)) {
+                throw new IOException(name + " failed: range ignored by the server.");
+            }
+            long length = response.headers().firstValueAsLong("content-length").orElse(body.length);
+            if (body.length != length) {
+                throw new ShortBodyException(name + " failed: " + body.length + " of " + length + " bytes received.");
+            }
+            return body;
+        }
+        if (response.statusCode() != 206) {
+            throw new IOException(name + " failed: unexpected HTTP " + response.statusCode());
+        }
+
+        String contentRange = response.headers().firstValue("content-range").orElse("");
+        Matcher matcher = CONTENT_RANGE.matcher(contentRange);
+        if (!matcher.matches()) {
+            throw new IOException(name + " failed: Content-Range \"" + contentRange + "\" not valid.");
+        }
+        long start = Long.parseLong(matcher.group(1));
+        long end = Long.parseLong(matcher.group(2));
+        long last = (to < 0) ? Long.MAX_VALUE : to;
+        if (!matcher.group(3).equals("*")) {
+            last = Math.min(last, Long.parseLong(matcher.group(3)) - 1);
+        }
+        if (start != from || end < start || end > last || (last != Long.MAX_VALUE && end != last)) {
+            throw new IOException(name + " failed: Content-Range \"" + contentRange + "\" received.");
+        }
+        if (body.length != end - start + 1) {
+            throw new ShortBodyException(name + " failed: " + body.length + " of " + (end - start + 1) + " bytes received.");
+        }
+        return body;
+    }
+
+    /**
+     * List single page of objects by prefix.
+     *
+     * @param prefix key prefix, may be empty
+     * @param continuationToken token of previous page, null for the first page
+     * @throws IOException if the request fails
+     */
+    public Listing list(String bucket, String prefix, String continuationToken) throws IOException {
+
+        StringBuilder query = new StringBuilder("list-type=2&prefix=").append(S3Signer.encode(prefix, false));
+        if (continuationToken != null) {
+            query.append("&continuation-token=").append(S3Signer.encode(continuationToken, false));
+        }
+        URI uri = URI.create(config.getEndpoint() + "/" + S3Signer.encode(bucket, false) + "?" + query);
+        HttpResponse<byte[]> response = send(request("GET", uri, null, null), bucket, prefix);
+
+        try {
+            DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
+            factory.setNamespaceAware(true);
+            factory.setFeature(XMLConstants.FEATURE_SECURE_PROCESSING, true);
+            Document document = factory.newDocumentBuilder().parse(new ByteArrayInputStream(response.body()));
+
+            List<ObjectInfo> objects = new ArrayList<>();
+            NodeList contents = document.getElementsByTagNameNS("*", "Contents");
+            for (int i = 0; i < contents.getLength(); i++) {
+                Element content = (Element) contents.item(i);
+                objects.add(new ObjectInfo(text(content, "Key"), Long.parseLong(text(content, "Size")),
+                        text(content, "ETag")));
+            }
+            String next = "true".equals(text(document.getDocumentElement(), "IsTruncated"))
+                    ? text(document.getDocumentElement(), "NextContinuationToken") : null;
+            return new Listing(Collections.unmodifiableList(objects), next);
+
+        } catch (IOException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new IOException("Malformed listing of s3://" + bucket + "/" + prefix + ": " + e.getMessage(), e);
+        }
+    }
+
+    private static String text(Element parent, String name) {
+        NodeList nodes = parent.getElementsByTagNameNS("*", name);
+        return (nodes.getLength() == 0) ? null : nodes.item(0).getTextContent();
+    }
+
+    private URI objectUri(String bucket, String key) {
+        return URI.create(config.getEndpoint() + "/" + S3Signer.encode(bucket, false) + "/" + S3Signer.encode(key, true));
+    }
+
+    private HttpRequest request(String method, URI uri, String range, String etag) {
+
+        HttpRequest.Builder builder = HttpRequest.newBuilder(uri)
+                .method(method, HttpRequest.BodyPublishers.noBody())
+                .timeout(Duration.ofMinutes(5));
+        Map<String, String> headers = new HashMap<>();
+        if (range != null) {
+            headers.put("range", range);
+        }
+        if (etag != null) {
+            headers.put("if-match", etag);
+        }
+        headers.forEach(builder::header);
+        if (signer != null) {
+            signer.sign(method, uri, headers, Instant.now()).forEach((name, value) -> {
+                if (!headers.containsKey(name)) {
+                    builder.header(name, value);
+                }
+            });
+        }
+        return builder.build();
+    }
+
+    private HttpResponse<byte[]> send(HttpRequest request, String bucket, String key) throws IOException {
+
+        try {
+            for (int attempt = 1; ; attempt++) {
+                try {
+                    HttpResponse<byte[]> response = http.send(request, HttpResponse.BodyHandlers.ofByteArray());
+                    if ((response.statusCode() != 429 && response.statusCode() < 500) || attempt >= ATTEMPTS) {
+                        return check(response, bucket, key);
+                    }
+                } catch (IOException e) {
+                    if (attempt >= ATTEMPTS) {
+                        throw e;
+                    }
+                }
+                LOG.debug("Retrying " + request.method() + " s3://" + bucket + "/" + key + " (attempt " + attempt + ").");
+                Thread.sleep(100L << attempt);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Request to s3://" + bucket + "/" + key + " interrupted.");
+        }
+    }
+
+    private static HttpResponse<byte[]> check(HttpResponse<byte[]> response, String bucket, String key) throws IOException {
+
+        int status = response.statusCode();
+        if (status >= 200 && status < 300) {
+            return response;
+        }
+        String code = "";
+        if (response.body() != null) {
+            Matcher matcher = ERROR_CODE.matcher(new String(response.body(), StandardCharsets.UTF_8));
+            if (matcher.find()) {
+                code = " " + matcher.group(1);
+            }
+        }
+        if (status == 412) {
+            throw new IOException(response.request().method() + " s3://" + bucket + "/" + key
+                    + " failed: object changed while being read.");
+        }
+        throw new IOException(response.request().method() + " s3://" + bucket + "/" + key + " failed: HTTP " + status + code);
+    }
+
+    /**
+     * Wait for the future, unwrapping its failure.
+     */
+    static <T> T join(CompletableFuture<T> future) throws IOException {
+
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new IOException(cause.getMessage(), cause);
+        }
+    }
+
+}
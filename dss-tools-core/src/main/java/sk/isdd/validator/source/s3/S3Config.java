@@ -0,0 +1,109 @@
+package sk.isdd.validator.source.s3;
+
+import java.net.URI;
+
+/**
+ * Settings of S3 compatible storage (AWS S3, MinIO, Ceph RGW, ...).
+ *
+ * <p> Objects are always addressed path-style ({@code endpoint/bucket/key}), which every compatible
+ * implementation supports. Requests are anonymous when no credentials are set.
+ */
+public final class S3Config {
+
+    private final URI endpoint;
+    private final String region;
+    private final String accessKey;
+    private final String secretKey;
+    private final String sessionToken;
+    private final int partSize;
+    private final int parallelism;
+
+    /**
+     * @param endpoint base URI of the service, e.g. {@code http://127.0.0.1:9000}
+     * @param region signing region
+     * @param accessKey access key id, null for anonymous requests
+     * @param secretKey secret access key
+     * @param sessionToken session token of temporary credentials, may be null
+     * @param partSize size of single ranged GET in bytes
+     * @param parallelism number of ranged GETs of single object in flight
+     */
+    public S3Config(URI endpoint, String region, String accessKey, String secretKey, String sessionToken,
+                    int partSize, int parallelism) {
+
+        if (partSize <= 0 || parallelism <= 0) {
+            throw new IllegalArgumentException("Part size and parallelism of S3 reads must be positive.");
+        }
+        this.endpoint = endpoint;
+        this.region = region;
+        this.accessKey = accessKey;
+        this.secretKey = secretKey;
+        this.sessionToken = sessionToken;
+        this.partSize = partSize;
+        this.parallelism = parallelism;
+    }
+
+    /**
+     * Settings from system properties {@code dss-tools.s3.endpoint}, {@code dss-tools.s3.region},
+     * {@code dss-tools.s3.access-key}, {@code dss-tools.s3.secret-key}, {@code dss-tools.s3.part-size}
+     * (default 8 MB) and {@code dss-tools.s3.parallelism} (default 4), falling back to the usual environment
+     * variables {@code AWS_ENDPOINT_URL}, {@code AWS_REGION}, {@code AWS_ACCESS_KEY_ID},
+     * {@code AWS_SECRET_ACCESS_KEY} and {@code AWS_SESSION_TOKEN}.
+     */
+    public static S3Config getDefault() {
+
+        String region = setting("dss-tools.s3.region", "AWS_REGION");
+        if (region == null) {
+            region = (System.getenv("AWS_DEFAULT_REGION") != null) ? System.getenv("AWS_DEFAULT_REGION") : "us-east-1";
+        }
+        String endpoint = setting("dss-tools.s3.endpoint", "AWS_ENDPOINT_URL");
+        if (endpoint == null) {
+            endpoint = "https://s3." + region + ".amazonaws.com";
+        }
+
+        return new S3Config(URI.create(endpoint.endsWith("/") ? endpoint.substring(0, endpoint.length() - 1) : endpoint),
+                region,
+                setting("dss-tools.s3.access-key", "AWS_ACCESS_KEY_ID"),
+                setting("dss-tools.s3.secret-key", "AWS_SECRET_ACCESS_KEY"),
+                setting("dss-tools.s3.session-token", "AWS_SESSION_TOKEN"),
+                Integer.getInteger("dss-tools.s3.part-size", 8 * 1024 * 1024),
+                Integer.getInteger("dss-tools.s3.parallelism", 4));
+    }
+
+    private static String setting(String property, String variable) {
+        String value = System.getProperty(property);
+        return (value != null) ? value : System.getenv(variable);
+    }
+
+    public URI getEndpoint() {
+        return endpoint;
+    }
+
+    public String getRegion() {
+        return region;
+    }
+
+    public String getAccessKey() {
+        return accessKey;
+    }
+
+    public String getSecretKey() {
+        return secretKey;
+    }
+
+    public String getSessionToken() {
+        return sessionToken;
+    }
+
+    public boolean isAnonymous() {
+        return accessKey == null || secretKey == null;
+    }
+
+    public int getPartSize() {
+        return partSize;
+    }
+
+    public int getParallelism() {
+        return parallelism;
+    }
+
+}
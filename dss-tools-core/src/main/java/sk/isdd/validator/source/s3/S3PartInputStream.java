@@ -0,0 +1,104 @@
+package sk.isdd.validator.source.s3;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Sequential read of an object by parallel ranged GETs: up to parallelism parts are requested ahead
+ * and consumed in order, so memory use is bounded by parallelism times part size. All parts are pinned
+ * to the ETag of the object, so a part of an object replaced meanwhile fails the read instead of being spliced in.
+ */
+class S3PartInputStream extends InputStream {
+
+    private final S3Client client;
+    private final String bucket;
+    private final String key;
+    private final long size;
+    private final String etag;
+    private final int partSize;
+    private final int parallelism;
+    private final Deque<CompletableFuture<byte[]>> parts = new ArrayDeque<>();
+    private final Deque<Long> partLengths = new ArrayDeque<>();
+
+    private long requested;
+    private byte[] part = new byte[0];
+    private int position;
+
+    /**
+     * @param size size of the object
+     * @param etag ETag of the object, null for any
+     */
+    S3PartInputStream(S3Client client, String bucket, String key, long size, String etag) {
+        this.client = client;
+        this.bucket = bucket;
+        this.key = key;
+        this.size = size;
+        this.etag = etag;
+        this.partSize = client.getConfig().getPartSize();
+        this.parallelism = client.getConfig().getParallelism();
+    }
+
+    @Override
+    public int read() throws IOException {
+
+        byte[] single = new byte[1];
+        int n = read(single, 0, 1);
+        return (n < 0) ? -1 : (single[0] & 0xff);
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+
+        if (len == 0) {
+            return 0;
+        }
+        while (position == part.length) {
+            if (!nextPart()) {
+                return -1;
+            }
+        }
+        int n = Math.min(len, part.length - position);
+        System.arraycopy(part, position, b, off, n);
+        position += n;
+        return n;
+    }
+
+    @Override
+    public int available() {
+        return part.length - position;
+    }
+
+    @Override
+    public void close() {
+        parts.forEach(future -> future.cancel(true));
+        parts.clear();
+        partLengths.clear();
+        requested = size;
+        part = new byte[0];
+        position = 0;
+    }
+
+    private boolean nextPart() throws IOException {
+
+        while (parts.size() < parallelism && requested < size) {
+            long to = Math.min(size, requested + partSize) - 1;
+            parts.add(client.getAsync(bucket, key, requested, to, etag));
+            partLengths.add(to + 1 - requested);
+            requested = to + 1;
+        }
+        if (parts.isEmpty()) {
+            return false;
+        }
+
+        part = S3Client.join(parts.poll());
+        position = 0;
+        if (part.length != partLengths.poll()) {
+            throw new IOException("Object s3://" + bucket + "/" + key + " is shorter than " + size + " bytes.");
+        }
+        return true;
+    }
+
+}
@@ -0,0 +1,177 @@
+package sk.isdd.validator.source.s3;
+
+import sk.isdd.validator.ApplicationException;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * AWS Signature Version 4 of S3 requests without payload (GET, HEAD).
+ *
+ * <p> Canonical request uses the raw (already encoded by {@link #encode(String, boolean)}) path and query
+ * of the URI, S3 does not encode the path twice.
+ */
+public class S3Signer {
+
+    /**
+     * SHA-256 of empty payload.
+     */
+    public static final String EMPTY_PAYLOAD = "e3b0c44298fc1c149afbf4c8996fb92427ae41e4649b934ca495991b7852b855";
+
+    private static final String ALGORITHM = "AWS4-HMAC-SHA256";
+    private static final String SERVICE = "s3";
+    private static final DateTimeFormatter TIMESTAMP = DateTimeFormatter.ofPattern("yyyyMMdd'T'HHmmss'Z'").withZone(ZoneOffset.UTC);
+
+    private final String region;
+    private final String accessKey;
+    private final String secretKey;
+    private final String sessionToken;
+
+    public S3Signer(String region, String accessKey, String secretKey, String sessionToken) {
+        this.region = region;
+        this.accessKey = accessKey;
+        this.secretKey = secretKey;
+        this.sessionToken = sessionToken;
+    }
+
+    /**
+     * Sign request without payload.
+     *
+     * @param method HTTP method
+     * @param uri request URI with encoded path and query
+     * @param headers additional headers to be signed (e.g. range), names in any case
+     * @param time time of the request
+     * @return headers to be added to the request: the signed headers, x-amz-date, x-amz-content-sha256 and authorization
+     */
+    public Map<String, String> sign(String method, URI uri, Map<String, String> headers, Instant time) {
+
+        String timestamp = TIMESTAMP.format(time);
+        String date = timestamp.substring(0, 8);
+
+        TreeMap<String, String> signed = new TreeMap<>();
+        headers.forEach((name, value) -> signed.put(name.toLowerCase(Locale.ROOT), value.trim()));
+        signed.put("host", host(uri));
+        signed.put("x-amz-content-sha256", EMPTY_PAYLOAD);
+        signed.put("x-amz-date", timestamp);
+        if (sessionToken != null) {
+            signed.put("x-amz-security-token", sessionToken);
+        }
+
+        StringBuilder canonicalHeaders = new StringBuilder();
+        signed.forEach((name, value) -> canonicalHeaders.append(name).append(':').append(value).append('\n'));
+        String signedHeaders = String.join(";", signed.keySet());
+
+        String canonicalRequest = method + "\n"
+                + ((uri.getRawPath() == null || uri.getRawPath().isEmpty()) ? "/" : uri.getRawPath()) + "\n"
+                + canonicalQuery(uri.getRawQuery()) + "\n"
+                + canonicalHeaders + "\n"
+                + signedHeaders + "\n"
+                + EMPTY_PAYLOAD;
+
+        String scope = date + "/" + region + "/" + SERVICE + "/aws4_request";
+        String stringToSign = ALGORITHM + "\n" + timestamp + "\n" + scope + "\n" + hex(sha256(canonicalRequest));
+
+        byte[] key = hmac(("AWS4" + secretKey).getBytes(StandardCharsets.UTF_8), date);
+        key = hmac(key, region);
+        key = hmac(key, SERVICE);
+        key = hmac(key, "aws4_request");
+        String signature = hex(hmac(key, stringToSign));
+
+        Map<String, String> result = new LinkedHashMap<>(signed);
+        result.remove("host");
+        result.put("authorization", ALGORITHM + " Credential=" + accessKey + "/" + scope
+                + ", SignedHeaders=" + signedHeaders + ", Signature=" + signature);
+        return result;
+    }
+
+    /**
+     * URI encoding of SigV4: everything but unreserved characters is percent-encoded (upper case hex).
+     *
+     * @param value the value
+     * @param path true to keep slashes (object key in path)
+     * @return encoded value
+     */
+    public static String encode(String value, boolean path) {
+
+        StringBuilder builder = new StringBuilder();
+        for (byte b : value.getBytes(StandardCharsets.UTF_8)) {
+            char c = (char) (b & 0xff);
+            if ((c >= 'A' && c <= 'Z') || (c >= 'a' && c <= 'z') || (c >= '0' && c <= '9')
+                    || c == '-' || c == '_' || c == '.' || c == '~' || (path && c == '/')) {
+                builder.append(c);
+            } else {
+                builder.append('%').append(Character.toUpperCase(Character.forDigit((c >> 4) & 0xf, 16)))
+                        .append(Character.toUpperCase(Character.forDigit(c & 0xf, 16)));
+            }
+        }
+        return builder.toString();
+    }
+
+    private static String host(URI uri) {
+
+        int port = uri.getPort();
+        boolean defaultPort = port == -1 || (port == 80 && "http".equals(uri.getScheme()))
+                || (port == 443 && "https".equals(uri.getScheme()));
+        return defaultPort ? uri.getHost() : uri.getHost() + ":" + port;
+    }
+
+    private static String canonicalQuery(String rawQuery) {
+
+        if (rawQuery == null || rawQuery.isEmpty()) {
+            return "";
+        }
+        List<String> parameters = new ArrayList<>(Arrays.asList(rawQuery.split("&")));
+        for (int i = 0; i < parameters.size(); i++) {
+            if (!parameters.get(i).contains("=")) {
+                parameters.set(i, parameters.get(i) + "=");
+            }
+        }
+        // by name, then by value
+        parameters.sort(Comparator.comparing((String parameter) -> parameter.substring(0, parameter.indexOf('=')))
+                .thenComparing(parameter -> parameter.substring(parameter.indexOf('=') + 1)));
+        return String.join("&", parameters);
+    }
+
+    private static byte[] sha256(String value) {
+        try {
+            return MessageDigest.getInstance("SHA-256").digest(value.getBytes(StandardCharsets.UTF_8));
+        } catch (GeneralSecurityException e) {
+            throw new ApplicationException("SHA-256 not available: " + e.getMessage(), e);
+        }
+    }
+
+    private static byte[] hmac(byte[] key, String value) {
+        try {
+            Mac mac = Mac.getInstance("HmacSHA256");
+            mac.init(new SecretKeySpec(key, "HmacSHA256"));
+            return mac.doFinal(value.getBytes(StandardCharsets.UTF_8));
+        } catch (GeneralSecurityException e) {
+            throw new ApplicationException("HmacSHA256 not available: " + e.getMessage(), e);
+        }
+    }
+
+    private static String hex(byte[] bytes) {
+
+        StringBuilder builder = new StringBuilder(bytes.length * 2);
+        for (byte b : bytes) {
+            builder.append(Character.forDigit((b >> 4) & 0xf, 16)).append(Character.forDigit(b & 0xf, 16));
+        }
+        return builder.toString();
+    }
+
+}
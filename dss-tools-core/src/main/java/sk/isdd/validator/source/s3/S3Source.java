@@ -0,0 +1,123 @@
+package sk.isdd.validator.source.s3;
+
+import sk.isdd.validator.source.DocumentSource;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * Object of S3 compatible storage. Objects larger than single part are read by parallel ranged GETs.
+ * Reads are pinned to the ETag of the object once known (from listing or HEAD).
+ */
+public class S3Source implements DocumentSource {
+
+    private final S3Client client;
+    private final String bucket;
+    private final String key;
+    private volatile long size;
+    private volatile String etag;
+
+    /**
+     * @param size size of the object if known (from listing), -1 to get it by HEAD request when needed
+     */
+    public S3Source(S3Client client, String bucket, String key, long size) {
+        this(client, bucket, key, size, null);
+    }
+
+    /**
+     * @param size size of the object if known (from listing), -1 to get it by HEAD request when needed
+     * @param etag ETag of the object if known (from listing), null to get it by HEAD request when needed
+     */
+    public S3Source(S3Client client, String bucket, String key, long size, String etag) {
+        this.client = client;
+        this.bucket = bucket;
+        this.key = key;
+        this.size = size;
+        this.etag = etag;
+    }
+
+    public String getBucket() {
+        return bucket;
+    }
+
+    public String getKey() {
+        return key;
+    }
+
+    @Override
+    public String getName() {
+        return "s3://" + bucket + "/" + key;
+    }
+
+    @Override
+    public long getSize() throws IOException {
+
+        if (size < 0) {
+            stat();
+        }
+        return size;
+    }
+
+    private void stat() throws IOException {
+
+        S3Client.ObjectInfo info = client.stat(bucket, key);
+        etag = info.getEtag();
+        size = info.getSize();
+    }
+
+    @Override
+    public boolean isPositional() {
+        return true;
+    }
+
+    @Override
+    public InputStream openStream() throws IOException {
+
+        if (size < 0 || etag == null) {
+            stat();
+        }
+        long size = this.size;
+        if (size <= client.getConfig().getPartSize()) {
+            byte[] bytes = client.get(bucket, key, 0, -1, etag);
+            if (bytes.length != size) {
+                throw new IOException("Object " + getName() + " has " + bytes.length + " bytes, " + size + " expected.");
+            }
+            return new ByteArrayInputStream(bytes);
+        }
+        return new S3PartInputStream(client, bucket, key, size, etag);
+    }
+
+    @Override
+    public int read(long position, ByteBuffer target) throws IOException {
+
+        if (!target.hasRemaining()) {
+            return 0;
+        }
+        byte[] bytes = client.get(bucket, key, position, position + target.remaining() - 1, etag);
+        if (bytes.length == 0) {
+            return -1;
+        }
+        target.put(bytes);
+        return bytes.length;
+    }
+
+    @Override
+    public ByteBuffer readAll() throws IOException {
+
+        long size = getSize();
+        if (size > Integer.MAX_VALUE - 8) {
+            throw new IOException("Object " + getName() + " is too large to be read into memory.");
+        }
+        try (InputStream in = openStream()) {
+            return ByteBuffer.wrap(in.readNBytes((int) size));
+        }
+    }
+
+    @Override
+    public String toString() {
+        return getName();
+    }
+
+}
@@ -0,0 +1,104 @@
+package sk.isdd.validator.source.s3;
+
+import sk.isdd.validator.source.DocumentSource;
+import sk.isdd.validator.source.SourceProvider;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Locations {@code s3://bucket/key} (single object) and {@code s3://bucket/prefix/} or {@code s3://bucket}
+ * (all objects under the prefix, listed lazily page by page) of storage set by {@link S3Config#getDefault()}.
+ */
+public class S3SourceProvider implements SourceProvider {
+
+    private static final String SCHEME = "s3://";
+
+    @Override
+    public boolean accepts(String location) {
+        return location.startsWith(SCHEME);
+    }
+
+    @Override
+    public Stream<DocumentSource> resolve(String location) {
+
+        String path = location.substring(SCHEME.length());
+        int slash = path.indexOf('/');
+        String bucket = (slash < 0) ? path : path.substring(0, slash);
+        String key = (slash < 0) ? "" : path.substring(slash + 1);
+        if (bucket.isEmpty()) {
+            throw new IllegalArgumentException("Bucket missing in \"" + location + "\".");
+        }
+
+        S3Client client = S3Client.getDefault();
+        if (!key.isEmpty() && !key.endsWith("/")) {
+            return Stream.of(new S3Source(client, bucket, key, -1));
+        }
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(
+                new ObjectListing(client, bucket, key), Spliterator.ORDERED | Spliterator.NONNULL), false);
+    }
+
+    /**
+     * Objects under the prefix, next page is listed when the previous is consumed. Folder markers are skipped.
+     */
+    private static class ObjectListing implements Iterator<DocumentSource> {
+
+        private final S3Client client;
+        private final String bucket;
+        private final String prefix;
+        private Iterator<S3Client.ObjectInfo> page;
+        private String continuationToken;
+        private boolean finished;
+        private S3Client.ObjectInfo next;
+
+        ObjectListing(S3Client client, String bucket, String prefix) {
+            this.client = client;
+            this.bucket = bucket;
+            this.prefix = prefix;
+        }
+
+        @Override
+        public boolean hasNext() {
+
+            while (next == null) {
+                if (page != null && page.hasNext()) {
+                    S3Client.ObjectInfo object = page.next();
+                    if (!object.getKey().endsWith("/")) {
+                        next = object;
+                    }
+                    continue;
+                }
+                if (finished) {
+                    return false;
+                }
+                try {
+                    S3Client.Listing listing = client.list(bucket, prefix, continuationToken);
+                    page = listing.getObjects().iterator();
+                    continuationToken = listing.getContinuationToken();
+                    finished = continuationToken == null;
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+            return true;
+        }
+
+        @Override
+        public DocumentSource next() {
+
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            S3Client.ObjectInfo object = next;
+            next = null;
+            return new S3Source(client, bucket, object.getKey(), object.getSize(), object.getEtag());
+        }
+    }
+
+}
@@ -0,0 +1,275 @@
+package sk.isdd.validator.store;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import sk.isdd.validator.ApplicationException;
+import sk.isdd.validator.enumerations.DigestAlgorithm;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.FileSystemException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.PosixFileAttributeView;
+import java.nio.file.attribute.PosixFilePermission;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Content-addressed store of blobs (e.g. canonical forms saved for archival), each distinct content is stored once.
+ *
+ * <p> Blob is keyed by hex SHA-256 of its content and stored in sharded directories {@code root/ab/cd/abcd...}.
+ * Content already present is not written again, keys seen by this instance are skipped even without
+ * checking the file system, blobs of earlier runs are checked (size and SHA-256) and replaced if damaged.
+ * New blob is written to temporary file in its shard, forced to the device and linked to its name,
+ * so readers never see partial blobs and concurrent writers of the same content are harmless
+ * (the first one stores, the others count as deduplicated).
+ *
+ * <p> Thread safe, multiple processes may share the store directory.
+ */
+public class BlobStore {
+
+    private static final Logger LOG = LoggerFactory.getLogger(BlobStore.class);
+
+    private static final Set<PosixFilePermission> BLOB_PERMISSIONS = PosixFilePermissions.fromString("rw-r--r--");
+
+    private final Path root;
+    private final Set<String> known = ConcurrentHashMap.newKeySet();
+    private final LongAdder stored = new LongAdder();
+    private final LongAdder storedBytes = new LongAdder();
+    private final LongAdder deduplicated = new LongAdder();
+    private final LongAdder deduplicatedBytes = new LongAdder();
+
+    /**
+     * @param root directory of the store, created if missing
+     * @throws IOException if the directory cannot be created
+     */
+    public BlobStore(Path root) throws IOException {
+        this.root = Files.createDirectories(root);
+    }
+
+    /**
+     * Store the content unless it is already present.
+     *
+     * @param content the blob
+     * @return the key, hex SHA-256 of the content
+     * @throws IOException if writing fails
+     */
+    public String put(byte[] content) throws IOException {
+
+        try {
+            return put(content, DigestAlgorithm.SHA256.getMessageDigest().digest(content));
+        } catch (NoSuchAlgorithmException e) {
+            throw new ApplicationException("SHA-256 not available: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Store the content with already calculated SHA-256 unless it is already present.
+     *
+     * @param content the blob
+     * @param sha256 SHA-256 digest of the content
+     * @return the key, hex SHA-256 of the content
+     * @throws IOException if writing fails
+     */
+    public String put(byte[] content, byte[] sha256) throws IOException {
+
+        String key = toHex(sha256);
+        if (known.contains(key)) {
+            countDuplicate(content.length);
+            return key;
+        }
+
+        Path blob = resolve(key);
+        boolean present = Files.exists(blob);
+        if (present && isIntact(blob, content.length, sha256)) {
+            known.add(key);
+            countDuplicate(content.length);
+            return key;
+        }
+
+        Path shard = Files.createDirectories(blob.getParent());
+        Path temporary = Files.createTempFile(shard, key, ".tmp");
+        try {
+            write(temporary, content);
+            if (present) {
+                // damaged blob of an earlier run (e.g. torn by crash), replaced by the complete one
+                LOG.warn("Replacing damaged blob " + blob + ".");
+                Files.move(temporary, blob, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } else {
+                publish(temporary, blob);
+            }
+            syncDirectory(shard);
+            stored.increment();
+            storedBytes.add(content.length);
+
+        } catch (FileAlreadyExistsException e) {
+            countDuplicate(content.length);
+        } finally {
+            Files.deleteIfExists(temporary);
+        }
+        known.add(key);
+        return key;
+    }
+
+    /**
+     * @param key hex SHA-256 of the content
+     * @return true if the blob is stored
+     */
+    public boolean contains(String key) {
+        return known.contains(key) || Files.exists(resolve(key));
+    }
+
+    /**
+     * Open stored blob.
+     *
+     * @param key hex SHA-256 of the content
+     * @return new stream, the caller closes it
+     * @throws IOException if the blob is not stored or cannot be read
+     */
+    public InputStream open(String key) throws IOException {
+        return Files.newInputStream(resolve(key));
+    }
+
+    /**
+     * Path of the blob with given key, which may not exist.
+     *
+     * @param key hex SHA-256 of the content
+     */
+    public Path resolve(String key) {
+
+        if (key.length() != DigestAlgorithm.SHA256.getDigestLength() * 2 || !key.matches("[0-9a-f]+")) {
+            throw new IllegalArgumentException("Not a blob key: \"" + key + "\".");
+        }
+        return root.resolve(key.substring(0, 2)).resolve(key.substring(2, 4)).resolve(key);
+    }
+
+    public Path getRoot() {
+        return root;
+    }
+
+    /**
+     * Number of blobs written by this instance.
+     */
+    public long getStored() {
+        return stored.sum();
+    }
+
+    public long getStoredBytes() {
+        return storedBytes.sum();
+    }
+
+    /**
+     * Number of puts skipped by this instance, because the content was already stored.
+     */
+    public long getDeduplicated() {
+        return deduplicated.sum();
+    }
+
+    public long getDeduplicatedBytes() {
+        return deduplicatedBytes.sum();
+    }
+
+    private void countDuplicate(long bytes) {
+        deduplicated.increment();
+        deduplicatedBytes.add(bytes);
+        LOG.debug("Blob of " + bytes + " bytes already stored.");
+    }
+
+    /**
+     * Write the content durably: forced to the device before the blob is published.
+     */
+    private static void write(Path temporary, byte[] content) throws IOException {
+
+        try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer buffer = ByteBuffer.wrap(content);
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            channel.force(true);
+        }
+        // temporary files are private (0600), blobs are readable like other files of the store
+        if (Files.getFileStore(temporary).supportsFileAttributeView(PosixFileAttributeView.class)) {
+            Files.setPosixFilePermissions(temporary, BLOB_PERMISSIONS);
+        }
+    }
+
+    /**
+     * Give the temporary file the blob's name unless it exists. Atomic move replaces existing target silently
+     * on POSIX file systems, therefore hard link is used, which fails if the name is taken by concurrent writer.
+     *
+     * @throws FileAlreadyExistsException if the blob was written meanwhile
+     */
+    private static void publish(Path temporary, Path blob) throws IOException {
+
+        try {
+            Files.createLink(blob, temporary);
+        } catch (FileAlreadyExistsException e) {
+            throw e;
+        } catch (UnsupportedOperationException | FileSystemException e) {
+            // no hard links on this file system
+            if (Files.exists(blob)) {
+                throw new FileAlreadyExistsException(blob.toString());
+            }
+            Files.move(temporary, blob, StandardCopyOption.ATOMIC_MOVE);
+        }
+    }
+
+    /**
+     * Force the directory entry of the new blob, where the platform allows opening directories.
+     */
+    private static void syncDirectory(Path directory) {
+
+        try (FileChannel channel = FileChannel.open(directory, StandardOpenOption.READ)) {
+            channel.force(true);
+        } catch (IOException e) {
+            LOG.debug("Cannot sync directory " + directory + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Check blob of an earlier run: its size and SHA-256 must match the content.
+     */
+    private static boolean isIntact(Path blob, long size, byte[] sha256) throws IOException {
+
+        if (Files.size(blob) != size) {
+            return false;
+        }
+        try (InputStream in = Files.newInputStream(blob)) {
+            MessageDigest md = DigestAlgorithm.SHA256.getMessageDigest();
+            byte[] buffer = new byte[64 * 1024];
+            for (int read = in.read(buffer); read != -1; read = in.read(buffer)) {
+                md.update(buffer, 0, read);
+            }
+            return MessageDigest.isEqual(md.digest(), sha256);
+
+        } catch (NoSuchAlgorithmException e) {
+            throw new ApplicationException("SHA-256 not available: " + e.getMessage(), e);
+        }
+    }
+
+    private static String toHex(byte[] bytes) {
+
+        StringBuilder builder = new StringBuilder(bytes.length * 2);
+        for (byte b : bytes) {
+            builder.append(Character.forDigit((b >> 4) & 0xf, 16)).append(Character.forDigit(b & 0xf, 16));
+        }
+        return builder.toString();
+    }
+
+    @Override
+    public String toString() {
+        return "Blob store " + root + ": " + getStored() + " stored (" + getStoredBytes() + " B), "
+                + getDeduplicated() + " deduplicated (" + getDeduplicatedBytes() + " B)";
+    }
+
+}
@@ -0,0 +1,103 @@
+package sk.isdd.validator.store;
+
+import sk.isdd.validator.enumerations.DigestAlgorithm;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Column of fixed width records for single digest algorithm.
+ *
+ * <p> Each record consists of 4 bytes path id followed by the raw digest ({@link DigestAlgorithm#getDigestLength()} bytes).
+ * Records are packed into equally sized segments, each segment is off-heap or memory-mapped buffer
+ * provided by the owning {@link DigestResultStore}. Not thread safe, owner is responsible for synchronization.
+ */
+class DigestColumn {
+
+    private final DigestAlgorithm algorithm;
+    private final int recordWidth;
+    private final int rowsPerSegment;
+    private final List<ByteBuffer> segments = new ArrayList<>();
+    private long rows;
+
+    DigestColumn(DigestAlgorithm algorithm, int segmentBytes) {
+        this.algorithm = algorithm;
+        this.recordWidth = Integer.BYTES + algorithm.getDigestLength();
+        this.rowsPerSegment = segmentBytes / recordWidth;
+    }
+
+    /**
+     * Append record to the column.
+     *
+     * @param pathId interned path id
+     * @param digest raw digest of exactly algorithm's length
+     * @param store the owner providing new segments on demand
+     * @return the row index of the new record
+     */
+    long append(int pathId, byte[] digest, DigestResultStore store) {
+
+        if (digest.length != algorithm.getDigestLength()) {
+            throw new IllegalArgumentException("Digest of " + algorithm.getJavaName() + " must have "
+                    + algorithm.getDigestLength() + " bytes, got " + digest.length);
+        }
+        return append(pathId, digest, 0, store);
+    }
+
+    /**
+     * Append record with digest taken from packed array of digests.
+     *
+     * @param pathId interned path id
+     * @param digests array holding the raw digest
+     * @param digestOffset offset of the digest in the array, algorithm's length bytes are used
+     * @param store the owner providing new segments on demand
+     * @return the row index of the new record
+     */
+    long append(int pathId, byte[] digests, int digestOffset, DigestResultStore store) {
+
+        int offset = (int) (rows % rowsPerSegment) * recordWidth;
+        if (offset == 0) {
+            segments.add(store.allocateSegment(algorithm.getName(), rowsPerSegment * recordWidth));
+        }
+
+        ByteBuffer segment = segments.get(segments.size() - 1);
+        segment.putInt(offset, pathId);
+        segment.duplicate().position(offset + Integer.BYTES).put(digests, digestOffset, recordWidth - Integer.BYTES);
+        return rows++;
+    }
+
+    int getPathId(long row) {
+        checkRow(row);
+        return segment(row).getInt(offset(row));
+    }
+
+    /**
+     * Copy digest of given row into target array.
+     *
+     * @param row the row index
+     * @param target array of at least algorithm's digest length
+     */
+    void copyDigest(long row, byte[] target) {
+        checkRow(row);
+        segment(row).duplicate().position(offset(row) + Integer.BYTES).get(target, 0, algorithm.getDigestLength());
+    }
+
+    long size() {
+        return rows;
+    }
+
+    private ByteBuffer segment(long row) {
+        return segments.get((int) (row / rowsPerSegment));
+    }
+
+    private int offset(long row) {
+        return (int) (row % rowsPerSegment) * recordWidth;
+    }
+
+    private void checkRow(long row) {
+        if (row < 0 || row >= rows) {
+            throw new IndexOutOfBoundsException("Row " + row + " out of " + rows + " for " + algorithm.getJavaName());
+        }
+    }
+
+}
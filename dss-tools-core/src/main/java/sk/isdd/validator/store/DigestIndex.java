@@ -0,0 +1,851 @@
+package sk.isdd.validator.store;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import sk.isdd.validator.ApplicationException;
+import sk.isdd.validator.enumerations.DigestAlgorithm;
+import sk.isdd.validator.enumerations.XmlC14nMethod;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.zip.CRC32C;
+
+/**
+ * Persistent reverse index answering "which files have this digest?" for single {@link DigestAlgorithm}.
+ *
+ * <p> Index directory contains three files:
+ * <ul>
+ *     <li> {@value #LOG_FILE} - append-only log of checksummed records (digest, file path, c14n method, timestamp)
+ *          after a header naming the digest algorithm. Records of the same digest are chained from the newest
+ *          to the oldest one. The log is the source of truth.
+ *     <li> {@value #TABLE_FILE} - memory-mapped open addressing hash table (linear probing) of fixed width slots,
+ *          each slot holds the digest and the offset of its newest log record. Table is rebuilt from the log if lost.
+ *     <li> {@value #META_FILE} - counters and the log size covered by the table; records appended after it (crash)
+ *          are replayed into the table on open, the table is rebuilt from the whole log only if it is lost or damaged.
+ * </ul>
+ *
+ * <p> Point lookup costs one probe sequence in the mapped table plus one positional read per matching record.
+ * Table is mapped in chunks of up to 1 GiB, so it is not limited by the 2 GiB limit of single mapped buffer
+ * and holds hundreds of millions of digests.
+ *
+ * <p> Log appends are buffered together with their pending table updates. The table (whose pages the system may
+ * write back at any time) is updated only after the buffered records are written and forced to disk, so it never
+ * references records lost by a crash. A torn or corrupted tail of the log is detected by its checksum and truncated
+ * when the table is rebuilt on open.
+ *
+ * <p> Repeated runs append the same (digest, path, method) records again. {@link #compact()} rewrites the log keeping
+ * only the newest record of each of them, it runs automatically from {@link #compactIfNeeded()} when the log doubled
+ * since the last compaction.
+ *
+ * <p> All methods are synchronized.
+ */
+public class DigestIndex implements Closeable {
+
+    private static final Logger LOG = LoggerFactory.getLogger(DigestIndex.class);
+
+    static final String TABLE_FILE = "digest.table";
+    static final String LOG_FILE = "digest.log";
+    static final String META_FILE = "digest.properties";
+
+    private static final long INITIAL_CAPACITY = 1 << 16;
+    private static final int MAX_CHUNK_BYTES = 1 << 30;
+    private static final int LOG_BUFFER_BYTES = 1 << 20;
+    private static final long MIN_COMPACTION_BYTES = 64L * 1024 * 1024;
+    private static final int HEADER_BYTES = 2 * Integer.BYTES;
+    private static final int LOG_MAGIC = 0x44494458;
+
+    /**
+     * Single record of the index.
+     */
+    public static class Entry {
+
+        private final String path;
+        private final XmlC14nMethod method;
+        private final long timestamp;
+
+        Entry(String path, XmlC14nMethod method, long timestamp) {
+            this.path = path;
+            this.method = method;
+            this.timestamp = timestamp;
+        }
+
+        /**
+         * Path of the file having the digest.
+         */
+        public String getPath() {
+            return path;
+        }
+
+        /**
+         * Canonicalization method the digest was calculated with.
+         */
+        public XmlC14nMethod getMethod() {
+            return method;
+        }
+
+        /**
+         * Time of the calculation in milliseconds since epoch.
+         */
+        public long getTimestamp() {
+            return timestamp;
+        }
+
+        @Override
+        public String toString() {
+            return path + " [" + method.getText() + "] @" + timestamp;
+        }
+    }
+
+    private final Path directory;
+    private final DigestAlgorithm algorithm;
+    private final int width;
+    private final int slotWidth;
+
+    private FileChannel logChannel;
+    private final ByteBuffer logBuffer = ByteBuffer.allocateDirect(LOG_BUFFER_BYTES);
+    private long logSize;
+    private long logStart;
+    private long coveredLogSize;
+    private long compactedLogSize;
+
+    // newest record offset + 1 of digests appended to the log but not forced and applied to the table yet
+    private final Map<ByteBuffer, Long> pending = new LinkedHashMap<>();
+
+    private FileChannel tableChannel;
+    private MappedByteBuffer[] chunks;
+    private long capacity;
+    private int chunkShift;
+    private long entries;
+    private long records;
+
+    private DigestIndex(Path directory, DigestAlgorithm algorithm) {
+        this.directory = directory;
+        this.algorithm = algorithm;
+        this.width = algorithm.getDigestLength();
+        this.slotWidth = width + Long.BYTES;
+    }
+
+    /**
+     * Open existing index or create new one in given directory.
+     *
+     * @param directory the index directory, created if missing
+     * @param algorithm the algorithm of indexed digests, must match the existing index
+     * @return opened index
+     * @throws ApplicationException if the index cannot be opened
+     */
+    public static DigestIndex open(Path directory, DigestAlgorithm algorithm) {
+
+        DigestIndex index = new DigestIndex(directory, algorithm);
+        try {
+            index.load();
+        } catch (IOException e) {
+            index.closeQuietly();
+            throw new ApplicationException("Unable to open digest index \"" + directory + "\": " + e.getMessage(), e);
+        }
+        return index;
+    }
+
+    /**
+     * Add single record.
+     *
+     * @param digest raw digest of the index algorithm
+     * @param path path of the digested file
+     * @param method canonicalization method used before digesting
+     * @param timestamp time of the calculation
+     */
+    public synchronized void put(byte[] digest, String path, XmlC14nMethod method, long timestamp) {
+
+        if (digest.length != width) {
+            throw new IllegalArgumentException("Digest of " + algorithm.getJavaName() + " must have " + width + " bytes, got " + digest.length);
+        }
+
+        try {
+            ByteBuffer key = ByteBuffer.wrap(digest.clone());
+            Long pendingHead = pending.get(key);
+            long head = (pendingHead != null) ? pendingHead : getHead(probe(digest));
+
+            long written = logSize;
+            long offset = appendRecord(digest, head, timestamp, method, path);
+            pending.put(key, offset + 1);
+            records++;
+
+            // buffer was written out, make it durable and apply it to the table
+            if (logSize != written) {
+                commit();
+            }
+
+        } catch (IOException e) {
+            throw new ApplicationException("Unable to write digest index \"" + directory + "\": " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Bulk build from the batch results: index all rows of the index algorithm.
+     *
+     * @param store the batch results
+     * @param method canonicalization method the batch used
+     * @param timestamp time of the batch
+     * @return number of indexed rows
+     */
+    public synchronized long putAll(DigestResultStore store, XmlC14nMethod method, long timestamp) {
+
+        long before = records;
+        store.forEach(algorithm, (row, path, digest) -> put(digest, path, method, timestamp));
+        flush();
+        compactIfNeeded();
+        return records - before;
+    }
+
+    /**
+     * Find all files having given digest.
+     *
+     * @param digest raw digest of the index algorithm
+     * @return entries from the newest to the oldest, empty list if the digest is unknown
+     */
+    public synchronized List<Entry> lookup(byte[] digest) {
+
+        List<Entry> result = new ArrayList<>();
+        if (digest.length != width) {
+            return result;
+        }
+
+        try {
+            commit();
+            long next = getHead(probe(digest));
+            while (next != 0) {
+                ByteBuffer record = readRecord(next - 1);
+                next = record.getLong(width);
+                result.add(decodeEntry(record));
+            }
+        } catch (IOException e) {
+            throw new ApplicationException("Unable to read digest index \"" + directory + "\": " + e.getMessage(), e);
+        }
+        return result;
+    }
+
+    /**
+     * Test if any file has given digest, without touching the log.
+     */
+    public synchronized boolean contains(byte[] digest) {
+        return digest.length == width && (pending.containsKey(ByteBuffer.wrap(digest)) || getHead(probe(digest)) != 0);
+    }
+
+    /**
+     * Number of distinct digests.
+     */
+    public synchronized long size() {
+
+        try {
+            commit();
+        } catch (IOException e) {
+            throw new ApplicationException("Unable to write digest index \"" + directory + "\": " + e.getMessage(), e);
+        }
+        return entries;
+    }
+
+    /**
+     * Number of records in the log, including superseded ones.
+     */
+    public synchronized long getRecordCount() {
+        return records;
+    }
+
+    public DigestAlgorithm getAlgorithm() {
+        return algorithm;
+    }
+
+    /**
+     * Compact the log if it doubled since the last compaction.
+     *
+     * @return true if compaction was performed
+     */
+    public synchronized boolean compactIfNeeded() {
+
+        long logical = logSize + logBuffer.position();
+        if (logical < MIN_COMPACTION_BYTES || logical < 2 * compactedLogSize) {
+            return false;
+        }
+        compact();
+        return true;
+    }
+
+    /**
+     * Rewrite the log keeping only the newest record for each (digest, path, method) and rebuild the table.
+     */
+    public synchronized void compact() {
+
+        Path logTmp = directory.resolve(LOG_FILE + ".tmp");
+        long started = System.currentTimeMillis();
+        long before = records;
+
+        try {
+            commit();
+            DigestIndex target = new DigestIndex(directory, algorithm);
+            target.logChannel = FileChannel.open(logTmp, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                    StandardOpenOption.READ, StandardOpenOption.WRITE);
+            target.initLog();
+            target.createTable(directory.resolve(TABLE_FILE + ".tmp"), capacity);
+
+            byte[] digest = new byte[width];
+            for (long slot = 0; slot < capacity; slot++) {
+                long head = getHead(slot);
+                if (head == 0) {
+                    continue;
+                }
+                getDigest(slot, digest);
+
+                // newest record of each path and method wins, chain is rewritten from the oldest to keep its order
+                List<ByteBuffer> kept = new ArrayList<>();
+                Set<List<Object>> keys = new HashSet<>();
+                for (long next = head; next != 0; ) {
+                    ByteBuffer record = readRecord(next - 1);
+                    next = record.getLong(width);
+                    Entry entry = decodeEntry(record);
+                    if (keys.add(Arrays.asList(entry.getPath(), entry.getMethod()))) {
+                        kept.add(record);
+                    }
+                }
+
+                long targetSlot = target.probe(digest);
+                long previous = 0;
+                for (int i = kept.size() - 1; i >= 0; i--) {
+                    Entry entry = decodeEntry(kept.get(i));
+                    previous = target.appendRecord(digest, previous, entry.getTimestamp(), entry.getMethod(), entry.getPath()) + 1;
+                    target.records++;
+                }
+                target.setDigest(targetSlot, digest);
+                target.setHead(targetSlot, previous);
+                target.entries++;
+            }
+            target.flushLog();
+            target.logChannel.force(false);
+            target.forceTable();
+            target.closeQuietly();
+            closeQuietly();
+
+            // without meta the table is rebuilt, should the process die between the moves
+            Files.deleteIfExists(directory.resolve(META_FILE));
+            Files.move(logTmp, directory.resolve(LOG_FILE), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            Files.move(directory.resolve(TABLE_FILE + ".tmp"), directory.resolve(TABLE_FILE),
+                    StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+            entries = target.entries;
+            records = target.records;
+            compactedLogSize = target.logSize;
+            openFiles();
+            coveredLogSize = logSize;
+            writeMeta();
+
+        } catch (IOException e) {
+            throw new ApplicationException("Unable to compact digest index \"" + directory + "\": " + e.getMessage(), e);
+        }
+
+        LOG.info("Digest index \"" + directory + "\" compacted from " + before + " to " + records + " records in "
+                + (System.currentTimeMillis() - started) + " ms.");
+    }
+
+    /**
+     * Write buffered log records, table pages and counters to disk.
+     */
+    public synchronized void flush() {
+
+        try {
+            commit();
+            logChannel.force(false);
+            forceTable();
+            coveredLogSize = logSize;
+            writeMeta();
+
+        } catch (IOException e) {
+            throw new ApplicationException("Unable to flush digest index \"" + directory + "\": " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public synchronized void close() {
+
+        if (logChannel == null) {
+            return;
+        }
+        flush();
+        closeQuietly();
+    }
+
+    /*
+     * Opening and recovery
+     */
+
+    private void load() throws IOException {
+
+        Files.createDirectories(directory);
+        Path meta = directory.resolve(META_FILE);
+        boolean tableValid = false;
+
+        if (Files.exists(meta)) {
+            Properties properties = new Properties();
+            try (InputStream in = Files.newInputStream(meta)) {
+                properties.load(in);
+            }
+
+            String stored = properties.getProperty("algorithm");
+            if (!algorithm.getName().equals(stored)) {
+                throw new IllegalArgumentException("Index \"" + directory + "\" holds " + stored + " digests, not " + algorithm.getName());
+            }
+            capacity = Long.parseLong(properties.getProperty("capacity"));
+            entries = Long.parseLong(properties.getProperty("entries"));
+            records = Long.parseLong(properties.getProperty("records"));
+            coveredLogSize = Long.parseLong(properties.getProperty("logSize"));
+            compactedLogSize = Long.parseLong(properties.getProperty("compactedLogSize"));
+            Path table = directory.resolve(TABLE_FILE);
+            tableValid = Files.exists(table) && Files.size(table) == capacity * slotWidth;
+
+        } else {
+            capacity = INITIAL_CAPACITY;
+        }
+
+        openFiles();
+
+        // table covering a prefix of the log (crash after it was flushed) is brought up to date by the rest of the log,
+        // a lost table or a log shorter than the covered part (damaged) rebuilds it from the whole log
+        if (!tableValid || coveredLogSize < logStart || coveredLogSize > logSize) {
+            LOG.warn("Digest index table \"" + directory + "\" is missing or damaged, rebuilding from the log.");
+            closeTable();
+            Files.deleteIfExists(directory.resolve(TABLE_FILE));
+            entries = 0;
+            records = 0;
+            mapTable(directory.resolve(TABLE_FILE), capacity);
+            coveredLogSize = logStart;
+        } else if (logSize > coveredLogSize) {
+            LOG.warn("Digest index table \"" + directory + "\" is behind the log, replaying " + (logSize - coveredLogSize) + " bytes.");
+        }
+
+        if (logSize > coveredLogSize) {
+            replay(coveredLogSize);
+            forceTable();
+            coveredLogSize = logSize;
+            writeMeta();
+        }
+
+        LOG.info("Digest index \"" + directory + "\" opened with " + entries + " digests and " + records + " records.");
+    }
+
+    /**
+     * Insert log records starting at given offset into the table, truncate torn or corrupted tail of the log.
+     * Records may be in the table already (applied before a crash), a digest is counted by its first record.
+     */
+    private void replay(long offset) throws IOException {
+
+        while (offset < logSize) {
+            ByteBuffer record = readValidRecord(offset);
+            if (record == null) {
+                LOG.warn("Digest log \"" + directory + "\" has torn tail of " + (logSize - offset) + " bytes, truncating.");
+                logChannel.truncate(offset);
+                logChannel.force(false);
+                logSize = offset;
+                break;
+            }
+            byte[] digest = new byte[width];
+            record.duplicate().get(digest);
+
+            if (entries + 1 > capacity * 3 / 4) {
+                resize(capacity * 2);
+            }
+            long slot = probe(digest);
+            if (getHead(slot) == 0) {
+                setDigest(slot, digest);
+            }
+            if (record.getLong(width) == 0) {
+                entries++;
+            }
+            setHead(slot, offset + 1);
+            records++;
+            offset += HEADER_BYTES + record.capacity();
+        }
+    }
+
+    private void openFiles() throws IOException {
+
+        logChannel = FileChannel.open(directory.resolve(LOG_FILE), StandardOpenOption.CREATE,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+        initLog();
+        mapTable(directory.resolve(TABLE_FILE), capacity);
+    }
+
+    /**
+     * Write the header of new (or torn before its first record) log, otherwise check it names the index algorithm.
+     * Header: int magic | int+bytes algorithm name.
+     */
+    private void initLog() throws IOException {
+
+        byte[] name = algorithm.getName().getBytes(StandardCharsets.UTF_8);
+        logStart = 2 * Integer.BYTES + name.length;
+        logSize = logChannel.size();
+        logBuffer.clear();
+
+        if (logSize < logStart) {
+            ByteBuffer header = ByteBuffer.allocate((int) logStart).putInt(LOG_MAGIC).putInt(name.length).put(name);
+            header.flip();
+            logChannel.truncate(0);
+            logSize = 0;
+            writeFully(header);
+            logChannel.force(false);
+            return;
+        }
+
+        ByteBuffer header = ByteBuffer.allocate(2 * Integer.BYTES);
+        readFully(header, 0);
+        int length = header.getInt(Integer.BYTES);
+        if (header.getInt(0) != LOG_MAGIC || length < 0 || length > 64 || length > logSize - 2 * Integer.BYTES) {
+            throw new IOException("File \"" + directory.resolve(LOG_FILE) + "\" is not a digest index log.");
+        }
+        ByteBuffer stored = ByteBuffer.allocate(length);
+        readFully(stored, 2 * Integer.BYTES);
+        String storedName = new String(stored.array(), StandardCharsets.UTF_8);
+        if (!algorithm.getName().equals(storedName)) {
+            throw new IllegalArgumentException("Index \"" + directory + "\" holds " + storedName + " digests, not " + algorithm.getName());
+        }
+    }
+
+    /**
+     * Write the log buffer, force it to disk and only then apply pending records to the table.
+     */
+    private void commit() throws IOException {
+
+        flushLog();
+        if (pending.isEmpty()) {
+            return;
+        }
+        logChannel.force(false);
+
+        while (entries + pending.size() > capacity * 3 / 4) {
+            resize(capacity * 2);
+        }
+        for (Map.Entry<ByteBuffer, Long> record : pending.entrySet()) {
+            byte[] digest = record.getKey().array();
+            long slot = probe(digest);
+            if (getHead(slot) == 0) {
+                setDigest(slot, digest);
+                entries++;
+            }
+            setHead(slot, record.getValue());
+        }
+        pending.clear();
+    }
+
+    private void writeMeta() throws IOException {
+
+        Properties properties = new Properties();
+        properties.setProperty("algorithm", algorithm.getName());
+        properties.setProperty("capacity", Long.toString(capacity));
+        properties.setProperty("entries", Long.toString(entries));
+        properties.setProperty("records", Long.toString(records));
+        properties.setProperty("logSize", Long.toString(coveredLogSize));
+        properties.setProperty("compactedLogSize", Long.toString(compactedLogSize));
+
+        Path tmp = directory.resolve(META_FILE + ".tmp");
+        try (OutputStream out = Files.newOutputStream(tmp)) {
+            properties.store(out, "Digest index of " + algorithm.getJavaName());
+        }
+        Files.move(tmp, directory.resolve(META_FILE), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private void closeQuietly() {
+
+        try {
+            if (logChannel != null) {
+                logChannel.close();
+            }
+        } catch (IOException e) {
+            LOG.debug("Unable to close digest log: " + e.getMessage(), e);
+        }
+        logChannel = null;
+        closeTable();
+    }
+
+    /*
+     * Hash table
+     */
+
+    private void createTable(Path file, long newCapacity) throws IOException {
+        Files.deleteIfExists(file);
+        mapTable(file, newCapacity);
+    }
+
+    private void mapTable(Path file, long newCapacity) throws IOException {
+
+        int slotsPerChunk = Integer.highestOneBit(MAX_CHUNK_BYTES / slotWidth);
+        long chunkSlots = Math.min(slotsPerChunk, newCapacity);
+        int chunkCount = (int) (newCapacity / chunkSlots);
+
+        tableChannel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        chunks = new MappedByteBuffer[chunkCount];
+        for (int i = 0; i < chunkCount; i++) {
+            chunks[i] = tableChannel.map(FileChannel.MapMode.READ_WRITE, i * chunkSlots * slotWidth, chunkSlots * slotWidth);
+        }
+        capacity = newCapacity;
+        chunkShift = Long.numberOfTrailingZeros(chunkSlots);
+    }
+
+    private void forceTable() {
+        for (MappedByteBuffer chunk : chunks) {
+            chunk.force();
+        }
+    }
+
+    private void closeTable() {
+
+        try {
+            if (tableChannel != null) {
+                tableChannel.close();
+            }
+        } catch (IOException e) {
+            LOG.debug("Unable to close digest table: " + e.getMessage(), e);
+        }
+        tableChannel = null;
+        chunks = new MappedByteBuffer[0];
+    }
+
+    /**
+     * Double the table: slots are reinserted straight from the old table, the log is not touched.
+     */
+    private void resize(long newCapacity) throws IOException {
+
+        MappedByteBuffer[] oldChunks = chunks;
+        FileChannel oldChannel = tableChannel;
+        long oldCapacity = capacity;
+        int oldShift = chunkShift;
+        Path tmp = directory.resolve(TABLE_FILE + ".tmp");
+
+        createTable(tmp, newCapacity);
+        byte[] digest = new byte[width];
+        long mask = (1L << oldShift) - 1;
+        for (long slot = 0; slot < oldCapacity; slot++) {
+            ByteBuffer chunk = oldChunks[(int) (slot >>> oldShift)];
+            int offset = (int) (slot & mask) * slotWidth;
+            long head = chunk.getLong(offset + width);
+            if (head == 0) {
+                continue;
+            }
+            for (int i = 0; i < width; i++) {
+                digest[i] = chunk.get(offset + i);
+            }
+            long target = probe(digest);
+            setDigest(target, digest);
+            setHead(target, head);
+        }
+
+        forceTable();
+        oldChannel.close();
+        tableChannel.close();
+        Files.move(tmp, directory.resolve(TABLE_FILE), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        mapTable(directory.resolve(TABLE_FILE), newCapacity);
+        // covered log size is not advanced, the table is stale until the pending records are applied and flushed
+        writeMeta();
+
+        LOG.info("Digest index \"" + directory + "\" resized to " + newCapacity + " slots.");
+    }
+
+    /**
+     * Find slot holding the digest or the first empty slot of its probe sequence.
+     */
+    private long probe(byte[] digest) {
+
+        long mask = capacity - 1;
+        long slot = hash(digest) & mask;
+        while (true) {
+            if (getHead(slot) == 0 || digestEquals(slot, digest)) {
+                return slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+    }
+
+    /**
+     * Digests are uniformly distributed already, first 8 bytes are mixed just to be safe with short-cycled inputs.
+     */
+    private static long hash(byte[] digest) {
+
+        long h = 0;
+        for (int i = 0; i < Math.min(Long.BYTES, digest.length); i++) {
+            h = (h << 8) | (digest[i] & 0xff);
+        }
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        return h;
+    }
+
+    private ByteBuffer chunk(long slot) {
+        return chunks[(int) (slot >>> chunkShift)];
+    }
+
+    private int offset(long slot) {
+        return (int) (slot & ((1L << chunkShift) - 1)) * slotWidth;
+    }
+
+    private long getHead(long slot) {
+        return chunk(slot).getLong(offset(slot) + width);
+    }
+
+    private void setHead(long slot, long head) {
+        chunk(slot).putLong(offset(slot) + width, head);
+    }
+
+    private void getDigest(long slot, byte[] target) {
+        ByteBuffer chunk = chunk(slot);
+        int offset = offset(slot);
+        for (int i = 0; i < width; i++) {
+            target[i] = chunk.get(offset + i);
+        }
+    }
+
+    private void setDigest(long slot, byte[] digest) {
+        ByteBuffer chunk = chunk(slot);
+        int offset = offset(slot);
+        for (int i = 0; i < width; i++) {
+            chunk.put(offset + i, digest[i]);
+        }
+    }
+
+    private boolean digestEquals(long slot, byte[] digest) {
+        ByteBuffer chunk = chunk(slot);
+        int offset = offset(slot);
+        for (int i = 0; i < width; i++) {
+            if (chunk.get(offset + i) != digest[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /*
+     * Log records: int length | int crc32c | digest | long previous | long timestamp | int+bytes method | int+bytes path
+     * (length and checksum cover the body after them)
+     */
+
+    private long appendRecord(byte[] digest, long previous, long timestamp, XmlC14nMethod method, String path) throws IOException {
+
+        byte[] methodBytes = ((method == null) ? XmlC14nMethod.C14N_NONE : method).getName().getBytes(StandardCharsets.UTF_8);
+        byte[] pathBytes = path.getBytes(StandardCharsets.UTF_8);
+        int length = width + 2 * Long.BYTES + 2 * Integer.BYTES + methodBytes.length + pathBytes.length;
+
+        if (logBuffer.remaining() < HEADER_BYTES + length) {
+            flushLog();
+        }
+
+        long offset = logSize + logBuffer.position();
+        ByteBuffer target = (logBuffer.remaining() < HEADER_BYTES + length) ? ByteBuffer.allocate(HEADER_BYTES + length) : logBuffer;
+        int start = target.position();
+        target.putInt(length).putInt(0).put(digest).putLong(previous).putLong(timestamp)
+                .putInt(methodBytes.length).put(methodBytes)
+                .putInt(pathBytes.length).put(pathBytes);
+
+        CRC32C checksum = new CRC32C();
+        checksum.update(target.duplicate().position(start + HEADER_BYTES).limit(target.position()));
+        target.putInt(start + Integer.BYTES, (int) checksum.getValue());
+
+        if (target != logBuffer) {
+            target.flip();
+            writeFully(target);
+        }
+        return offset;
+    }
+
+    private void flushLog() throws IOException {
+
+        if (logBuffer.position() == 0) {
+            return;
+        }
+        logBuffer.flip();
+        writeFully(logBuffer);
+        logBuffer.clear();
+    }
+
+    private void writeFully(ByteBuffer buffer) throws IOException {
+
+        while (buffer.hasRemaining()) {
+            logSize += logChannel.write(buffer, logSize);
+        }
+    }
+
+    /**
+     * Read record body (without length and checksum) at given offset.
+     */
+    private ByteBuffer readRecord(long offset) throws IOException {
+
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+        readFully(header, offset);
+        ByteBuffer record = ByteBuffer.allocate(header.getInt(0));
+        readFully(record, offset + HEADER_BYTES);
+        return record;
+    }
+
+    /**
+     * Read record body at given offset if it is complete and its checksum matches.
+     *
+     * @return the body, null for torn or corrupted record
+     */
+    private ByteBuffer readValidRecord(long offset) throws IOException {
+
+        if (logSize - offset < HEADER_BYTES) {
+            return null;
+        }
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+        readFully(header, offset);
+        int length = header.getInt(0);
+        if (length < width + 2 * Long.BYTES + 2 * Integer.BYTES || length > logSize - offset - HEADER_BYTES) {
+            return null;
+        }
+        ByteBuffer record = ByteBuffer.allocate(length);
+        readFully(record, offset + HEADER_BYTES);
+
+        CRC32C checksum = new CRC32C();
+        checksum.update(record.duplicate());
+        return ((int) checksum.getValue() == header.getInt(Integer.BYTES)) ? record : null;
+    }
+
+    private void readFully(ByteBuffer buffer, long position) throws IOException {
+
+        while (buffer.hasRemaining()) {
+            int read = logChannel.read(buffer, position + buffer.position());
+            if (read < 0) {
+                throw new IOException("Unexpected end of digest log at " + position);
+            }
+        }
+        buffer.flip();
+    }
+
+    private Entry decodeEntry(ByteBuffer record) {
+
+        ByteBuffer buffer = record.duplicate();
+        buffer.position(width + Long.BYTES);
+        long timestamp = buffer.getLong();
+        byte[] method = new byte[buffer.getInt()];
+        buffer.get(method);
+        byte[] path = new byte[buffer.getInt()];
+        buffer.get(path);
+
+        return new Entry(new String(path, StandardCharsets.UTF_8),
+                XmlC14nMethod.forName(new String(method, StandardCharsets.UTF_8), XmlC14nMethod.C14N_NONE),
+                timestamp);
+    }
+
+}
@@ -0,0 +1,287 @@
+package sk.isdd.validator.store;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import sk.isdd.validator.ApplicationException;
+import sk.isdd.validator.digest.DigestResult;
+import sk.isdd.validator.enumerations.DigestAlgorithm;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Base64;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Compact columnar store of (file, algorithm, digest) rows intended for large batch runs.
+ *
+ * <p> Compared to a list of result objects, the store keeps:
+ * <ul>
+ *     <li> one column per {@link DigestAlgorithm} with fixed width records packed into off-heap segments,
+ *     <li> each distinct path only once, UTF-8 encoded in off-heap segments, rows reference it by integer id,
+ *     <li> no encoded representation, Base 64 is produced only when explicitly requested.
+ * </ul>
+ *
+ * <p> If spill directory is given, segments allocated after the memory budget is exhausted are memory-mapped
+ * from spill files (one per algorithm and one for paths), so result sets larger than the heap (and physical memory)
+ * can be held. Spill files are temporary and deleted on {@link #close()}.
+ *
+ * <p> All methods are synchronized, store can be filled from multiple worker threads.
+ */
+public class DigestResultStore implements Closeable {
+
+    private static final Logger LOG = LoggerFactory.getLogger(DigestResultStore.class);
+
+    /**
+     * Target size of single segment, actual size is rounded down to whole records.
+     */
+    static final int SEGMENT_BYTES = 16 * 1024 * 1024;
+
+    /**
+     * Callback for sequential scanning of the column.
+     */
+    public interface RowVisitor {
+
+        /**
+         * Visit single row.
+         *
+         * @param row the row index
+         * @param path the interned path of the file
+         * @param digest the raw digest, array is reused between calls and must be copied to be retained
+         */
+        void visit(long row, String path, byte[] digest);
+    }
+
+    private final PathTable paths = new PathTable(SEGMENT_BYTES);
+    private final Map<DigestAlgorithm, DigestColumn> columns = new EnumMap<>(DigestAlgorithm.class);
+    private final Map<String, FileChannel> spillChannels = new HashMap<>();
+    private final Map<String, Path> spillFiles = new HashMap<>();
+
+    private final Path spillDirectory;
+    private final long memoryBudget;
+    private long allocatedMemory;
+    private boolean closed;
+
+    /**
+     * Create purely off-heap store without spilling.
+     */
+    public DigestResultStore() {
+        this(null, Long.MAX_VALUE);
+    }
+
+    /**
+     * Create store spilling to memory-mapped files once the off-heap budget is exhausted.
+     *
+     * @param spillDirectory directory for temporary spill files, null disables spilling
+     * @param memoryBudget maximum number of off-heap bytes allocated before spilling starts
+     */
+    public DigestResultStore(Path spillDirectory, long memoryBudget) {
+        this.spillDirectory = spillDirectory;
+        this.memoryBudget = memoryBudget;
+    }
+
+    /**
+     * Add single row.
+     *
+     * @param path the file path (interned)
+     * @param algorithm the algorithm used
+     * @param digest the raw digest of exactly {@link DigestAlgorithm#getDigestLength()} bytes
+     * @return the row index within the algorithm's column
+     */
+    public synchronized long add(String path, DigestAlgorithm algorithm, byte[] digest) {
+
+        checkOpen();
+        DigestColumn column = columns.computeIfAbsent(algorithm, a -> new DigestColumn(a, SEGMENT_BYTES));
+        return column.append(paths.intern(path, this), digest, this);
+    }
+
+    /**
+     * Add rows of many files calculated by single algorithm, under one lock acquisition.
+     *
+     * @param filePaths the file paths (interned), first count are used
+     * @param count number of rows
+     * @param algorithm the algorithm used
+     * @param digests raw digests packed one after another, {@link DigestAlgorithm#getDigestLength()} bytes each
+     */
+    public synchronized void addBatch(String[] filePaths, int count, DigestAlgorithm algorithm, byte[] digests) {
+
+        checkOpen();
+        if (digests.length < count * algorithm.getDigestLength()) {
+            throw new IllegalArgumentException("Packed digests too short for " + count + " rows.");
+        }
+        DigestColumn column = columns.computeIfAbsent(algorithm, a -> new DigestColumn(a, SEGMENT_BYTES));
+        for (int i = 0; i < count; i++) {
+            column.append(paths.intern(filePaths[i], this), digests, i * algorithm.getDigestLength(), this);
+        }
+    }
+
+    /**
+     * Add all results calculated for single file.
+     *
+     * @param path the file path (interned)
+     * @param results the calculated results
+     */
+    public synchronized void addAll(String path, Collection<DigestResult> results) {
+
+        for (DigestResult result : results) {
+            add(path, result.getAlgorithm(), result.getDigest());
+        }
+    }
+
+    /**
+     * Number of rows stored for given algorithm.
+     */
+    public synchronized long size(DigestAlgorithm algorithm) {
+
+        DigestColumn column = columns.get(algorithm);
+        return (column == null) ? 0 : column.size();
+    }
+
+    /**
+     * Number of rows stored across all algorithms.
+     */
+    public synchronized long size() {
+
+        long size = 0;
+        for (DigestColumn column : columns.values()) {
+            size += column.size();
+        }
+        return size;
+    }
+
+    /**
+     * Number of distinct paths.
+     */
+    public synchronized int getPathCount() {
+        return paths.size();
+    }
+
+    /**
+     * Return path of the given row.
+     */
+    public synchronized String getPath(DigestAlgorithm algorithm, long row) {
+        return paths.get(column(algorithm).getPathId(row));
+    }
+
+    /**
+     * Return copy of the raw digest of the given row.
+     */
+    public synchronized byte[] getDigest(DigestAlgorithm algorithm, long row) {
+
+        byte[] digest = new byte[algorithm.getDigestLength()];
+        column(algorithm).copyDigest(row, digest);
+        return digest;
+    }
+
+    /**
+     * Return Base 64 encoded digest of the given row, encoded on each call and not retained.
+     */
+    public String getDigestBase64(DigestAlgorithm algorithm, long row) {
+        return Base64.getEncoder().encodeToString(getDigest(algorithm, row));
+    }
+
+    /**
+     * Return the given row as result object.
+     */
+    public DigestResult getResult(DigestAlgorithm algorithm, long row) {
+        return new DigestResult(algorithm, getDigest(algorithm, row));
+    }
+
+    /**
+     * Visit all rows of given algorithm in insertion order without allocating per-row objects.
+     *
+     * @param algorithm the column to be scanned
+     * @param visitor the callback
+     */
+    public synchronized void forEach(DigestAlgorithm algorithm, RowVisitor visitor) {
+
+        DigestColumn column = columns.get(algorithm);
+        if (column == null) {
+            return;
+        }
+
+        byte[] digest = new byte[algorithm.getDigestLength()];
+        for (long row = 0; row < column.size(); row++) {
+            column.copyDigest(row, digest);
+            visitor.visit(row, paths.get(column.getPathId(row)), digest);
+        }
+    }
+
+    /**
+     * Provide new segment for the column or path table, off-heap within budget, memory-mapped afterwards.
+     *
+     * @param name name of the column or table, segments of the same name share the spill file
+     * @param size size of the segment
+     */
+    ByteBuffer allocateSegment(String name, int size) {
+
+        if (spillDirectory == null || allocatedMemory + size <= memoryBudget) {
+            allocatedMemory += size;
+            return ByteBuffer.allocateDirect(size);
+        }
+
+        try {
+            FileChannel channel = spillChannels.get(name);
+            if (channel == null) {
+                Files.createDirectories(spillDirectory);
+                Path file = Files.createTempFile(spillDirectory, "digest-" + name + "-", ".spill");
+                channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE);
+                spillChannels.put(name, channel);
+                spillFiles.put(name, file);
+                LOG.info("Memory budget exhausted, spilling " + name + " to \"" + file + "\".");
+            }
+            return channel.map(FileChannel.MapMode.READ_WRITE, channel.size(), size);
+
+        } catch (IOException e) {
+            throw new ApplicationException("Unable to spill results to \"" + spillDirectory + "\": " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Release spill files. Off-heap segments are released by garbage collector.
+     */
+    @Override
+    public synchronized void close() {
+
+        if (closed) {
+            return;
+        }
+        closed = true;
+        columns.clear();
+
+        for (Map.Entry<String, FileChannel> entry : spillChannels.entrySet()) {
+            try {
+                entry.getValue().close();
+                Files.deleteIfExists(spillFiles.get(entry.getKey()));
+
+            } catch (IOException e) {
+                LOG.warn("Unable to delete spill file \"" + spillFiles.get(entry.getKey()) + "\": " + e.getMessage());
+            }
+        }
+        spillChannels.clear();
+        spillFiles.clear();
+    }
+
+    private DigestColumn column(DigestAlgorithm algorithm) {
+
+        DigestColumn column = columns.get(algorithm);
+        if (column == null) {
+            throw new IndexOutOfBoundsException("No rows stored for " + algorithm.getJavaName());
+        }
+        return column;
+    }
+
+    private void checkOpen() {
+        if (closed) {
+            throw new IllegalStateException("Result store is closed.");
+        }
+    }
+
+}
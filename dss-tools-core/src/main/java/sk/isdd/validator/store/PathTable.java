@@ -0,0 +1,162 @@
+package sk.isdd.validator.store;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Interning table of file paths.
+ *
+ * <p> Each distinct path is stored once and referenced by its integer id from result rows. Paths are kept
+ * UTF-8 encoded (4 bytes length followed by the bytes) in segments provided by the owning {@link DigestResultStore},
+ * so they are off-heap or memory-mapped like the digests. The heap holds only the offsets of the paths
+ * and open addressing hash table of ids, about 16 bytes per path. Not thread safe, owner is responsible
+ * for synchronization.
+ */
+class PathTable {
+
+    private static final String SEGMENT_NAME = "paths";
+
+    private final int segmentBytes;
+    private final List<ByteBuffer> segments = new ArrayList<>();
+    private long[] offsets = new long[1024];
+    private int size;
+    private long end;
+
+    // slot holds id + 1 (0 for empty slot) and hash code of the path
+    private int[] slots = new int[2048];
+    private int[] slotHashes = new int[2048];
+
+    private byte[] scratch = new byte[256];
+
+    PathTable(int segmentBytes) {
+        this.segmentBytes = segmentBytes;
+    }
+
+    /**
+     * Return id of the path, register the path if not known yet.
+     *
+     * @param path the path to be interned
+     * @param store the owner providing new segments on demand
+     * @return the id of the path
+     */
+    int intern(String path, DigestResultStore store) {
+
+        byte[] bytes = path.getBytes(StandardCharsets.UTF_8);
+        int hash = path.hashCode();
+        int mask = slots.length - 1;
+        int slot = mix(hash) & mask;
+        while (slots[slot] != 0) {
+            if (slotHashes[slot] == hash && matches(slots[slot] - 1, bytes)) {
+                return slots[slot] - 1;
+            }
+            slot = (slot + 1) & mask;
+        }
+
+        int id = append(bytes, store);
+        slots[slot] = id + 1;
+        slotHashes[slot] = hash;
+        if (size * 2 > slots.length) {
+            rehash();
+        }
+        return id;
+    }
+
+    /**
+     * Return path registered under given id.
+     *
+     * @param id the id returned by {@link #intern(String, DigestResultStore)}
+     * @return the path
+     */
+    String get(int id) {
+
+        if (id < 0 || id >= size) {
+            throw new IndexOutOfBoundsException("Path id " + id + " out of " + size);
+        }
+        int length = read(id);
+        return new String(scratch, 0, length, StandardCharsets.UTF_8);
+    }
+
+    int size() {
+        return size;
+    }
+
+    private int append(byte[] bytes, DigestResultStore store) {
+
+        int recordBytes = Integer.BYTES + bytes.length;
+        if (recordBytes > segmentBytes) {
+            throw new IllegalArgumentException("Path of " + bytes.length + " bytes is too long.");
+        }
+        int offset = (int) (end % segmentBytes);
+        if (segments.isEmpty() || offset + recordBytes > segmentBytes) {
+            segments.add(store.allocateSegment(SEGMENT_NAME, segmentBytes));
+            end = (long) (segments.size() - 1) * segmentBytes;
+            offset = 0;
+        }
+
+        ByteBuffer segment = segments.get(segments.size() - 1);
+        segment.putInt(offset, bytes.length);
+        segment.duplicate().position(offset + Integer.BYTES).put(bytes);
+
+        if (size == offsets.length) {
+            offsets = Arrays.copyOf(offsets, size * 2);
+        }
+        offsets[size] = end;
+        end += recordBytes;
+        return size++;
+    }
+
+    /**
+     * Read the path bytes into scratch array.
+     *
+     * @return length of the path in bytes
+     */
+    private int read(int id) {
+
+        ByteBuffer segment = segments.get((int) (offsets[id] / segmentBytes));
+        int offset = (int) (offsets[id] % segmentBytes);
+        int length = segment.getInt(offset);
+        if (scratch.length < length) {
+            scratch = new byte[Math.max(length, scratch.length * 2)];
+        }
+        segment.duplicate().position(offset + Integer.BYTES).get(scratch, 0, length);
+        return length;
+    }
+
+    private boolean matches(int id, byte[] bytes) {
+
+        ByteBuffer segment = segments.get((int) (offsets[id] / segmentBytes));
+        if (segment.getInt((int) (offsets[id] % segmentBytes)) != bytes.length) {
+            return false;
+        }
+        int length = read(id);
+        return Arrays.equals(scratch, 0, length, bytes, 0, bytes.length);
+    }
+
+    private void rehash() {
+
+        int[] oldSlots = slots;
+        int[] oldHashes = slotHashes;
+        slots = new int[oldSlots.length * 2];
+        slotHashes = new int[oldSlots.length * 2];
+        int mask = slots.length - 1;
+        for (int i = 0; i < oldSlots.length; i++) {
+            if (oldSlots[i] != 0) {
+                int slot = mix(oldHashes[i]) & mask;
+                while (slots[slot] != 0) {
+                    slot = (slot + 1) & mask;
+                }
+                slots[slot] = oldSlots[i];
+                slotHashes[slot] = oldHashes[i];
+            }
+        }
+    }
+
+    private static int mix(int hash) {
+        hash *= 0x9e3779b9;
+        return hash ^ (hash >>> 16);
+    }
+
+}
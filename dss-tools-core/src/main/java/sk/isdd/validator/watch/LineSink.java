@@ -0,0 +1,56 @@
+package sk.isdd.validator.watch;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Path;
+
+/**
+ * Destination of result lines emitted by {@link WatchDaemon}. Implementations are thread safe.
+ */
+public interface LineSink extends Closeable {
+
+    /**
+     * Emit single line, the line separator is appended by the sink.
+     *
+     * @throws IOException if writing fails
+     */
+    void emit(String line) throws IOException;
+
+    /**
+     * Sink appending lines to file, each line is flushed immediately.
+     *
+     * @throws IOException if the file cannot be opened
+     */
+    static LineSink toFile(Path file) throws IOException {
+        return new FileLineSink(file);
+    }
+
+    /**
+     * Sink serving lines to clients connected to TCP port on loopback interface (e.g. {@code nc localhost 9000}).
+     * Lines are sent to all currently connected clients, nothing is buffered for clients connecting later.
+     *
+     * @param port the port, 0 for any free port
+     * @throws IOException if the port cannot be bound
+     */
+    static LineSink toSocket(int port) throws IOException {
+        return new SocketLineSink(port);
+    }
+
+    /**
+     * Sink printing lines to standard output.
+     */
+    static LineSink toStandardOutput() {
+        return new LineSink() {
+            @Override
+            public void emit(String line) {
+                System.out.println(line);
+            }
+
+            @Override
+            public void close() {
+                System.out.flush();
+            }
+        };
+    }
+
+}
@@ -0,0 +1,151 @@
+package sk.isdd.validator.watch;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Serves lines to clients connected to loopback TCP port. Each client has its own bounded queue drained by
+ * its writer thread, so emitting never blocks on the network. Clients which fail to receive, or fall behind
+ * by more than {@value #QUEUE_LINES} lines, are dropped.
+ */
+class SocketLineSink implements LineSink {
+
+    private static final Logger LOG = LoggerFactory.getLogger(SocketLineSink.class);
+
+    private static final int QUEUE_LINES = 10000;
+    private static final long CLOSE_TIMEOUT_MILLIS = 1000;
+
+    /**
+     * Marker of the end of lines, queued on close.
+     */
+    private static final byte[] END = new byte[0];
+
+    /**
+     * Connected client with its queue of lines to be sent.
+     */
+    private class Client implements Runnable {
+
+        private final Socket socket;
+        private final BlockingQueue<byte[]> queue = new ArrayBlockingQueue<>(QUEUE_LINES);
+        private final Thread writer;
+
+        Client(Socket socket) {
+            this.socket = socket;
+            this.writer = new Thread(this, "watch-sink-writer");
+            this.writer.setDaemon(true);
+        }
+
+        @Override
+        public void run() {
+
+            try (OutputStream out = new BufferedOutputStream(socket.getOutputStream())) {
+                for (byte[] line = queue.take(); line != END; line = queue.take()) {
+                    out.write(line);
+                    if (queue.isEmpty()) {
+                        out.flush();
+                    }
+                }
+            } catch (IOException | InterruptedException e) {
+                LOG.debug("Result client failed: " + e.getMessage());
+            }
+            drop(this, "disconnected");
+        }
+    }
+
+    private final ServerSocket server;
+    private final List<Client> clients = new CopyOnWriteArrayList<>();
+
+    SocketLineSink(int port) throws IOException {
+
+        this.server = new ServerSocket(port, 50, InetAddress.getLoopbackAddress());
+        Thread acceptor = new Thread(this::accept, "watch-sink-acceptor");
+        acceptor.setDaemon(true);
+        acceptor.start();
+        LOG.info("Results are served on " + server.getLocalSocketAddress() + ".");
+    }
+
+    /**
+     * Return bound port.
+     */
+    int getPort() {
+        return server.getLocalPort();
+    }
+
+    private void accept() {
+
+        while (!server.isClosed()) {
+            try {
+                Socket socket = server.accept();
+                socket.shutdownInput();
+                Client client = new Client(socket);
+                clients.add(client);
+                client.writer.start();
+                LOG.debug("Result client connected: " + socket.getRemoteSocketAddress());
+
+            } catch (IOException e) {
+                if (!server.isClosed()) {
+                    LOG.warn("Cannot accept result client: " + e.getMessage());
+                }
+            }
+        }
+    }
+
+    @Override
+    public void emit(String line) {
+
+        byte[] bytes = (line + "\n").getBytes(StandardCharsets.UTF_8);
+        for (Client client : clients) {
+            if (!client.queue.offer(bytes)) {
+                drop(client, "too slow");
+            }
+        }
+    }
+
+    /**
+     * Stop accepting clients, send lines already queued (for a second at most) and disconnect.
+     */
+    @Override
+    public void close() throws IOException {
+
+        server.close();
+        for (Client client : clients) {
+            if (!client.queue.offer(END)) {
+                drop(client, "too slow");
+            }
+        }
+        try {
+            for (Client client : clients) {
+                client.writer.join(CLOSE_TIMEOUT_MILLIS);
+                drop(client, "sink closed");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void drop(Client client, String reason) {
+
+        if (clients.remove(client)) {
+            LOG.debug("Result client dropped (" + reason + "): " + client.socket.getRemoteSocketAddress());
+        }
+        client.writer.interrupt();
+        try {
+            client.socket.close();
+        } catch (IOException e) {
+            // already broken
+        }
+    }
+
+}
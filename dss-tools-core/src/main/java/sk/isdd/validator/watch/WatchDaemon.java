@@ -0,0 +1,325 @@
+package sk.isdd.validator.watch;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import sk.isdd.validator.compress.CompressionFormat;
+import sk.isdd.validator.digest.DigestEngine;
+import sk.isdd.validator.digest.DigestResult;
+import sk.isdd.validator.enumerations.DigestAlgorithm;
+import sk.isdd.validator.enumerations.XmlC14nMethod;
+import sk.isdd.validator.io.IoPriority;
+import sk.isdd.validator.io.IoScheduler;
+import sk.isdd.validator.xml.CanonicalInputStream;
+import sk.isdd.validator.xml.ParseBudget;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Watch-folder daemon digesting new and modified files as they appear in inbox directories.
+ *
+ * <p> Changes are detected by {@link WatchService} (inotify on Linux), directories are never rescanned except after
+ * the service reports lost events (overflow). A file is processed once it gets no events for the debounce period
+ * and its size and modification time stay the same over another period, so partially written files are not digested. Hidden files and usual
+ * partial-download names (*.tmp, *.part, *~) are ignored, writers should move complete files in.
+ *
+ * <p> Files are streamed through transparent decompression, optional canonicalization and the digest engine
+ * by bounded number of workers. Result lines are emitted to {@link LineSink} as
+ * {@code timestamp \t path \t ALG=base64... \t latency ms}, where latency is measured from the first event.
+ */
+public class WatchDaemon implements Closeable {
+
+    private static final Logger LOG = LoggerFactory.getLogger(WatchDaemon.class);
+
+    /**
+     * File waiting for debounce period to pass.
+     */
+    private static class Pending {
+
+        private final long firstEvent;
+        private long lastChange;
+        private long size = -1;
+        private long modified = -1;
+
+        Pending(long now) {
+            this.firstEvent = now;
+            this.lastChange = now;
+        }
+    }
+
+    private final XmlC14nMethod method;
+    private final List<DigestAlgorithm> algorithms;
+    private final int threads;
+    private final long debounceMillis;
+    private final boolean recursive;
+    private final LineSink sink;
+
+    private final WatchService watchService;
+    private final Map<WatchKey, Path> directories = new ConcurrentHashMap<>();
+    private final Map<Path, Pending> pending = new HashMap<>();
+    private final Set<Path> running = ConcurrentHashMap.newKeySet();
+    private final ExecutorService workers;
+    private final ScheduledExecutorService scheduler;
+
+    private volatile boolean closed;
+
+    /**
+     * @param method canonicalization method, {@link XmlC14nMethod#C14N_NONE} digests raw (decompressed) bytes
+     * @param algorithms digest algorithms
+     * @param threads maximum number of files processed concurrently
+     * @param debounceMillis period a file has to stay unchanged before it is processed
+     * @param recursive watch subdirectories too, including ones created later
+     * @param sink destination of result lines
+     * @throws IOException if the watch service cannot be created
+     */
+    public WatchDaemon(XmlC14nMethod method, List<DigestAlgorithm> algorithms, int threads, long debounceMillis,
+                       boolean recursive, LineSink sink) throws IOException {
+
+        this.method = method;
+        this.algorithms = algorithms;
+        this.threads = Math.max(1, threads);
+        this.debounceMillis = debounceMillis;
+        this.recursive = recursive;
+        this.sink = sink;
+
+        this.watchService = FileSystems.getDefault().newWatchService();
+        this.workers = Executors.newFixedThreadPool(this.threads);
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "watch-debounce");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Start watching the directory. Files already present are not processed.
+     *
+     * @throws IOException if the directory cannot be registered
+     */
+    public void watch(Path directory) throws IOException {
+
+        if (recursive) {
+            try (Stream<Path> tree = Files.walk(directory)) {
+                for (Iterator<Path> i = tree.filter(Files::isDirectory).iterator(); i.hasNext(); ) {
+                    register(i.next());
+                }
+            }
+        } else {
+            register(directory);
+        }
+    }
+
+    private void register(Path directory) throws IOException {
+
+        WatchKey key = directory.register(watchService, StandardWatchEventKinds.ENTRY_CREATE,
+                StandardWatchEventKinds.ENTRY_MODIFY);
+        directories.put(key, directory);
+        LOG.debug("Watching directory \"" + directory + "\".");
+    }
+
+    /**
+     * Run the daemon, blocks until {@link #close()} is called from another thread.
+     */
+    public void run() {
+
+        long tick = Math.max(10, debounceMillis / 4);
+        scheduler.scheduleWithFixedDelay(this::dispatch, tick, tick, TimeUnit.MILLISECONDS);
+        LOG.info("Watching " + directories.size() + " directories, debounce " + debounceMillis + " ms.");
+
+        try {
+            while (!closed) {
+                WatchKey key = watchService.take();
+                Path directory = directories.get(key);
+
+                for (WatchEvent<?> event : key.pollEvents()) {
+                    if (directory == null) {
+                        continue;
+                    }
+                    if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                        LOG.warn("Events of \"" + directory + "\" were lost, rescanning it.");
+                        rescan(directory);
+                        continue;
+                    }
+
+                    Path file = directory.resolve((Path) event.context());
+                    try {
+                        if (recursive && event.kind() == StandardWatchEventKinds.ENTRY_CREATE && Files.isDirectory(file)) {
+                            // directory moved or created inside: watch it and take files already inside
+                            watch(file);
+                            try (Stream<Path> tree = Files.walk(file)) {
+                                tree.filter(Files::isRegularFile).forEach(this::changed);
+                            }
+                        } else {
+                            changed(file);
+                        }
+                    } catch (IOException | UncheckedIOException e) {
+                        // e.g. directory removed right after its creation, the daemon goes on
+                        LOG.warn("Cannot watch \"" + file + "\": " + e.getMessage());
+                    }
+                }
+
+                if (!key.reset()) {
+                    directories.remove(key);
+                    LOG.info("Directory \"" + directory + "\" is no longer watched.");
+                }
+            }
+
+        } catch (ClosedWatchServiceException e) {
+            // closed
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void rescan(Path directory) {
+
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory)) {
+            for (Path file : files) {
+                changed(file);
+            }
+        } catch (IOException e) {
+            LOG.warn("Cannot rescan \"" + directory + "\": " + e.getMessage());
+        }
+    }
+
+    private void changed(Path file) {
+
+        String name = file.getFileName().toString();
+        if (name.startsWith(".") || name.endsWith(".tmp") || name.endsWith(".part") || name.endsWith("~")) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        synchronized (pending) {
+            Pending state = pending.get(file);
+            if (state == null) {
+                pending.put(file, new Pending(now));
+            } else {
+                state.lastChange = now;
+            }
+        }
+    }
+
+    /**
+     * Periodically move files unchanged for the debounce period to workers, keeping at most 2 * threads in flight.
+     */
+    private void dispatch() {
+
+        long now = System.currentTimeMillis();
+        synchronized (pending) {
+            for (Iterator<Map.Entry<Path, Pending>> i = pending.entrySet().iterator(); i.hasNext(); ) {
+                Map.Entry<Path, Pending> entry = i.next();
+                Path file = entry.getKey();
+                Pending state = entry.getValue();
+
+                if (now - state.lastChange < debounceMillis || running.contains(file)) {
+                    continue;
+                }
+
+                BasicFileAttributes attributes;
+                try {
+                    attributes = Files.readAttributes(file, BasicFileAttributes.class);
+                } catch (IOException e) {
+                    i.remove();
+                    continue;
+                }
+                if (!attributes.isRegularFile()) {
+                    i.remove();
+                    continue;
+                }
+                if (attributes.size() != state.size || attributes.lastModifiedTime().toMillis() != state.modified) {
+                    // first check, or changed without events (e.g. network share): wait for another period
+                    state.size = attributes.size();
+                    state.modified = attributes.lastModifiedTime().toMillis();
+                    state.lastChange = now;
+                    continue;
+                }
+
+                if (running.size() >= threads * 2) {
+                    return;
+                }
+                i.remove();
+                running.add(file);
+                workers.execute(() -> process(file, state.firstEvent));
+            }
+        }
+    }
+
+    private void process(Path file, long firstEvent) {
+
+        String line;
+        try {
+            List<DigestResult> results;
+            // the raw stream is closed even if wrapping it fails
+            try (InputStream raw = Files.newInputStream(file)) {
+                InputStream in = CompressionFormat.open(IoScheduler.getDefault().wrap(raw, IoPriority.INTERACTIVE), false);
+                if (method != XmlC14nMethod.C14N_NONE) {
+                    in = new CanonicalInputStream(in, method, ParseBudget.getDefault());
+                }
+                try (InputStream source = in) {
+                    results = DigestEngine.calculate(source, algorithms);
+                }
+            }
+
+            StringBuilder builder = new StringBuilder().append(Instant.now()).append('\t').append(file);
+            for (DigestResult result : results) {
+                builder.append('\t').append(result);
+            }
+            line = builder.append('\t').append(System.currentTimeMillis() - firstEvent).append(" ms").toString();
+
+        } catch (IOException | RuntimeException e) {
+            LOG.warn("File \"" + file + "\" failed: " + e.getMessage());
+            line = Instant.now() + "\t" + file + "\tFAILED: " + e.getMessage();
+
+        } finally {
+            running.remove(file);
+        }
+
+        try {
+            sink.emit(line);
+        } catch (IOException e) {
+            LOG.error("Cannot emit result of \"" + file + "\": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Stop watching, finish files in progress. The sink is not closed.
+     */
+    @Override
+    public void close() throws IOException {
+
+        closed = true;
+        watchService.close();
+        scheduler.shutdownNow();
+        workers.shutdown();
+        try {
+            workers.awaitTermination(1, TimeUnit.MINUTES);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+}
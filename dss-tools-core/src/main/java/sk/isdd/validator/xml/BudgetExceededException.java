@@ -0,0 +1,31 @@
+package sk.isdd.validator.xml;
+
+import sk.isdd.validator.ApplicationException;
+
+/**
+ * Document exceeded its {@link ParseBudget}, the processing was stopped.
+ */
+public class BudgetExceededException extends ApplicationException {
+
+    private static final long serialVersionUID = 4718236610495512L;
+
+    private final ParseBudget.Limit limit;
+
+    public BudgetExceededException(ParseBudget.Limit limit, String message) {
+        super(message);
+        this.limit = limit;
+    }
+
+    public BudgetExceededException(ParseBudget.Limit limit, String message, Throwable cause) {
+        super(message, cause);
+        this.limit = limit;
+    }
+
+    /**
+     * @return the exceeded limit
+     */
+    public ParseBudget.Limit getLimit() {
+        return limit;
+    }
+
+}
@@ -0,0 +1,135 @@
+package sk.isdd.validator.xml;
+
+import sk.isdd.validator.enumerations.XmlC14nMethod;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Compares canonical forms of two XML documents without materializing them.
+ *
+ * <p> Both documents are canonicalized as streams in lockstep and comparison stops at the first differing byte,
+ * so time spent on non-equivalent documents is proportional to the position of the first difference.
+ */
+public class CanonicalComparator {
+
+    private static final int CHUNK_SIZE = 8 * 1024;
+
+    /**
+     * The first difference of two canonical forms.
+     */
+    public static class Difference {
+
+        private final long offset;
+        private final String firstPath;
+        private final String secondPath;
+        private final int firstByte;
+        private final int secondByte;
+
+        Difference(long offset, String firstPath, String secondPath, int firstByte, int secondByte) {
+            this.offset = offset;
+            this.firstPath = firstPath;
+            this.secondPath = secondPath;
+            this.firstByte = firstByte;
+            this.secondByte = secondByte;
+        }
+
+        /**
+         * Offset of the first differing byte within the canonical form.
+         */
+        public long getOffset() {
+            return offset;
+        }
+
+        /**
+         * Element path of the difference in the first document.
+         */
+        public String getFirstPath() {
+            return firstPath;
+        }
+
+        /**
+         * Element path of the difference in the second document.
+         */
+        public String getSecondPath() {
+            return secondPath;
+        }
+
+        /**
+         * Differing byte of the first document, -1 if its canonical form ended.
+         */
+        public int getFirstByte() {
+            return firstByte;
+        }
+
+        /**
+         * Differing byte of the second document, -1 if its canonical form ended.
+         */
+        public int getSecondByte() {
+            return secondByte;
+        }
+
+        @Override
+        public String toString() {
+            return "offset " + offset + ": " + firstPath + " vs " + secondPath;
+        }
+    }
+
+    /**
+     * Compare canonical forms of two documents.
+     *
+     * @param first the first document, closed when done
+     * @param second the second document, closed when done
+     * @param method canonicalization method defining the equivalence
+     * @return null if canonical forms are equal, the first difference otherwise
+     * @throws IOException if reading fails
+     * @throws sk.isdd.validator.ApplicationException if document is not well formed up to the difference
+     * @throws BudgetExceededException if a document is over the default {@link ParseBudget} up to the difference
+     */
+    public static Difference compare(InputStream first, InputStream second, XmlC14nMethod method) throws IOException {
+
+        try (CanonicalInputStream a = new CanonicalInputStream(first, method, ParseBudget.getDefault());
+             CanonicalInputStream b = new CanonicalInputStream(second, method, ParseBudget.getDefault())) {
+
+            byte[] bufferA = new byte[CHUNK_SIZE];
+            byte[] bufferB = new byte[CHUNK_SIZE];
+            int lengthA = 0, positionA = 0, lengthB = 0, positionB = 0;
+            String pathA = "/", pathB = "/";
+            long offset = 0;
+
+            while (true) {
+                if (positionA == lengthA) {
+                    lengthA = a.read(bufferA, 0, CHUNK_SIZE);
+                    positionA = 0;
+                    pathA = a.getElementPath();
+                }
+                if (positionB == lengthB) {
+                    lengthB = b.read(bufferB, 0, CHUNK_SIZE);
+                    positionB = 0;
+                    pathB = b.getElementPath();
+                }
+
+                if (lengthA < 0 || lengthB < 0) {
+                    if (lengthA < 0 && lengthB < 0) {
+                        return null;
+                    }
+                    return new Difference(offset, pathA, pathB,
+                            (lengthA < 0) ? -1 : bufferA[positionA] & 0xff,
+                            (lengthB < 0) ? -1 : bufferB[positionB] & 0xff);
+                }
+
+                int n = Math.min(lengthA - positionA, lengthB - positionB);
+                for (int i = 0; i < n; i++) {
+                    if (bufferA[positionA + i] != bufferB[positionB + i]) {
+                        return new Difference(offset + i, pathA, pathB,
+                                bufferA[positionA + i] & 0xff, bufferB[positionB + i] & 0xff);
+                    }
+                }
+                positionA += n;
+                positionB += n;
+                offset += n;
+            }
+        }
+    }
+
+}
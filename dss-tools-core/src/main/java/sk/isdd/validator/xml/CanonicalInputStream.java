@@ -0,0 +1,223 @@
+package sk.isdd.validator.xml;
+
+import org.apache.xml.security.stax.ext.Transformer;
+import org.apache.xml.security.stax.ext.stax.XMLSecEvent;
+import org.apache.xml.security.stax.ext.stax.XMLSecEventFactory;
+import org.apache.xml.security.stax.ext.stax.XMLSecStartElement;
+import sk.isdd.validator.ApplicationException;
+import sk.isdd.validator.enumerations.XmlC14nMethod;
+
+import javax.xml.namespace.QName;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+/**
+ * Canonical form of XML document as lazily produced input stream.
+ *
+ * <p> Source is parsed only as far as needed to satisfy reads, so a consumer that stops early
+ * (e.g. comparison finding a difference) never pays for the rest of the document.
+ * Each read returns bytes of a single parser event at most, so {@link #getElementPath()} always
+ * describes the element the last returned bytes belong to.
+ *
+ * <p> With {@link XmlC14nMethod#C14N_NONE} source bytes are passed through (within size and time limits of the budget)
+ * and element path is not tracked.
+ *
+ * <p> {@link ParseBudget} (the default one unless given) is checked on every parser event and read of the source,
+ * exceeding it fails the read with {@link BudgetExceededException}.
+ */
+public class CanonicalInputStream extends InputStream {
+
+    /**
+     * Output buffer of the transformer, drained directly without copying.
+     */
+    private static class Buffer extends ByteArrayOutputStream {
+
+        private int position;
+
+        int available() {
+            return count - position;
+        }
+
+        int drain(byte[] target, int offset, int length) {
+            int n = Math.min(length, available());
+            System.arraycopy(buf, position, target, offset, n);
+            position += n;
+            if (position == count) {
+                reset();
+                position = 0;
+            }
+            return n;
+        }
+    }
+
+    /**
+     * Open element with counters of its children names, used for element path.
+     */
+    private static class Level {
+
+        private final String name;
+        private final Map<String, Integer> children = new HashMap<>();
+
+        Level(String name) {
+            this.name = name;
+        }
+    }
+
+    private final InputStream source;
+    private final XMLStreamReader reader;
+    private final Transformer transformer;
+    private final Buffer buffer = new Buffer();
+    private final Deque<Level> path = new ArrayDeque<>();
+    private final ParseBudget.Meter meter;
+
+    private XMLSecStartElement parent;
+    private boolean popPending;
+    private boolean finished;
+
+    /**
+     * @param source the XML document
+     * @param method canonicalization method, {@code null} or {@link XmlC14nMethod#C14N_NONE} passes source through
+     */
+    public CanonicalInputStream(InputStream source, XmlC14nMethod method) {
+        this(source, method, ParseBudget.getDefault());
+    }
+
+    /**
+     * @param source the XML document
+     * @param method canonicalization method, {@code null} or {@link XmlC14nMethod#C14N_NONE} passes source through
+     * @param budget limits of the document (time limit starts now), null for none
+     */
+    public CanonicalInputStream(InputStream source, XmlC14nMethod method, ParseBudget budget) {
+
+        this.meter = (budget == null) ? null : budget.start();
+        if (method == null || method == XmlC14nMethod.C14N_NONE) {
+            this.source = (meter == null) ? source : new DeadlineInputStream(source, meter);
+            this.reader = null;
+            this.transformer = null;
+        } else {
+            this.source = source;
+            this.reader = (meter == null) ? StreamingCanonicalizer.newReader(source) : StreamingCanonicalizer.newReader(source, meter);
+            this.transformer = StreamingCanonicalizer.newTransformer(method, buffer);
+        }
+        path.push(new Level(""));
+    }
+
+    @Override
+    public int read() throws IOException {
+
+        byte[] single = new byte[1];
+        int n = read(single, 0, 1);
+        return (n < 0) ? -1 : (single[0] & 0xff);
+    }
+
+    @Override
+    public int read(byte[] target, int offset, int length) throws IOException {
+
+        if (length == 0) {
+            return 0;
+        }
+        if (transformer == null) {
+            return source.read(target, offset, length);
+        }
+
+        while (buffer.available() == 0) {
+            if (finished) {
+                return -1;
+            }
+            nextEvent();
+        }
+        return buffer.drain(target, offset, length);
+    }
+
+    /**
+     * XPath-like location of the element whose bytes were returned last, e.g. "/root[1]/item[3]".
+     *
+     * @return element path, "/" at document level
+     */
+    public String getElementPath() {
+
+        if (path.size() == 1) {
+            return "/";
+        }
+        StringBuilder builder = new StringBuilder();
+        Iterator<Level> levels = path.descendingIterator();
+        levels.next();
+        while (levels.hasNext()) {
+            builder.append('/').append(levels.next().name);
+        }
+        return builder.toString();
+    }
+
+    @Override
+    public void close() throws IOException {
+
+        try {
+            if (reader != null) {
+                reader.close();
+            }
+        } catch (XMLStreamException e) {
+            throw new IOException(e.getMessage(), e);
+        } finally {
+            source.close();
+        }
+    }
+
+    /**
+     * Advance parser by single event and feed it to the transformer.
+     */
+    private void nextEvent() throws IOException {
+
+        try {
+            if (popPending) {
+                path.pop();
+                popPending = false;
+            }
+
+            if (meter != null) {
+                meter.event(reader);
+            }
+            XMLSecEvent event = XMLSecEventFactory.allocate(reader, parent);
+            if (event.isStartElement()) {
+                parent = event.asStartElement();
+                pushElement(parent.getName());
+            } else if (event.isEndElement()) {
+                if (parent != null) {
+                    parent = parent.getParentXMLSecStartElement();
+                }
+                popPending = true;
+            }
+
+            transformer.transform(event);
+
+            if (reader.hasNext()) {
+                reader.next();
+            } else {
+                transformer.doFinal();
+                finished = true;
+            }
+
+        } catch (XMLStreamException e) {
+            BudgetExceededException exceeded = ParseBudget.exceeded(e);
+            if (exceeded != null) {
+                throw exceeded;
+            }
+            throw new ApplicationException("Cannot canonicalize the document at " + getElementPath() + ": " + e.getMessage(), e);
+        }
+    }
+
+    private void pushElement(QName name) {
+
+        String qualified = name.getPrefix().isEmpty() ? name.getLocalPart() : name.getPrefix() + ":" + name.getLocalPart();
+        int index = path.peek().children.merge(qualified, 1, Integer::sum);
+        path.push(new Level(qualified + "[" + index + "]"));
+    }
+
+}
@@ -0,0 +1,51 @@
+package sk.isdd.validator.xml;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Input stream checking the deadline of a {@link ParseBudget.Meter} on every read, so that parser working on
+ * the source is cancelled cooperatively. Each read is limited to 8 kB, bounding the work between checks.
+ * Bytes read are accounted to the size limit of the meter.
+ */
+class DeadlineInputStream extends FilterInputStream {
+
+    private static final int MAX_READ = 8 * 1024;
+
+    private final ParseBudget.Meter meter;
+
+    DeadlineInputStream(InputStream in, ParseBudget.Meter meter) {
+        super(in);
+        this.meter = meter;
+    }
+
+    @Override
+    public int read() throws IOException {
+        meter.checkTime();
+        int b = in.read();
+        if (b >= 0) {
+            meter.read(1);
+        }
+        return b;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        meter.checkTime();
+        int n = in.read(b, off, Math.min(len, MAX_READ));
+        if (n > 0) {
+            meter.read(n);
+        }
+        return n;
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+        meter.checkTime();
+        long skipped = in.skip(n);
+        meter.read(skipped);
+        return skipped;
+    }
+
+}
@@ -0,0 +1,44 @@
+package sk.isdd.validator.xml;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Output stream checking the deadline of a {@link ParseBudget.Meter} every 8 kB written, so that DOM canonicalizer
+ * writing into it (which gives no other chance to check) is cancelled cooperatively.
+ */
+class DeadlineOutputStream extends FilterOutputStream {
+
+    private static final int CHECK_INTERVAL = 8 * 1024;
+
+    private final ParseBudget.Meter meter;
+    private int sinceCheck;
+
+    DeadlineOutputStream(OutputStream out, ParseBudget.Meter meter) {
+        super(out);
+        this.meter = meter;
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        out.write(b);
+        written(1);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        out.write(b, off, len);
+        written(len);
+    }
+
+    private void written(int count) {
+
+        sinceCheck += count;
+        if (sinceCheck >= CHECK_INTERVAL) {
+            sinceCheck = 0;
+            meter.checkTime();
+        }
+    }
+
+}
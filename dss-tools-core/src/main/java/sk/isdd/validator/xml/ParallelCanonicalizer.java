@@ -0,0 +1,425 @@
+package sk.isdd.validator.xml;
+
+import org.apache.xml.security.stax.ext.Transformer;
+import org.apache.xml.security.stax.ext.stax.XMLSecEvent;
+import org.apache.xml.security.stax.ext.stax.XMLSecEventFactory;
+import org.apache.xml.security.stax.ext.stax.XMLSecStartElement;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import sk.isdd.validator.ApplicationException;
+import sk.isdd.validator.enumerations.XmlC14nMethod;
+
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.SequenceInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Parallel streaming canonicalization of documents with many children of the root element (e.g. exports of records).
+ *
+ * <p> Source bytes are scanned (not parsed) for boundaries of the root's children and cut into partitions of about
+ * given size. Each partition is parsed and canonicalized on its own thread as the synthetic document
+ * {@code prolog + root start tag + partition + root end tag}: its transformer sees the original root start element
+ * first, so namespaces and {@code xml:*} attributes in scope, and namespaces already rendered by the output ancestor,
+ * are the same as in the sequential run of any {@link XmlC14nMethod}. Output of the prolog and root start tag
+ * is discarded except in the first partition, the synthetic end is never transformed except in the last partition
+ * holding the real one. Outputs are written in order, so the result is byte-identical to {@link StreamingCanonicalizer}.
+ *
+ * <p> Memory use is bounded by two partitions (source and output) per thread. Documents which can't be split safely
+ * by byte scanning (DOCTYPE declaring entities, encodings other than ASCII compatible ones, empty root) are
+ * canonicalized sequentially.
+ */
+public class ParallelCanonicalizer {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ParallelCanonicalizer.class);
+
+    private static final int DEFAULT_PARTITION_BYTES = 1024 * 1024;
+
+    private static final Pattern ENCODING = Pattern.compile("^\\s*<\\?xml[^>]*encoding\\s*=\\s*[\"']([^\"']+)[\"']");
+    private static final Pattern SPLITTABLE_ENCODING = Pattern.compile("(?i)utf-?8|us-ascii|ascii|iso-8859-\\d+|windows-125\\d");
+
+    private final XmlC14nMethod method;
+    private final int threads;
+    private final int partitionBytes;
+
+    /**
+     * @param method canonicalization method other than {@link XmlC14nMethod#C14N_NONE}
+     * @param threads number of partitions canonicalized at once
+     * @param partitionBytes minimal size of partition, a partition ends at the first child boundary after it
+     */
+    public ParallelCanonicalizer(XmlC14nMethod method, int threads, int partitionBytes) {
+        if (method == null || method == XmlC14nMethod.C14N_NONE) {
+            throw new IllegalArgumentException("Canonicalization method expected.");
+        }
+        this.method = method;
+        this.threads = Math.max(1, threads);
+        this.partitionBytes = Math.max(1, partitionBytes);
+    }
+
+    public ParallelCanonicalizer(XmlC14nMethod method, int threads) {
+        this(method, threads, DEFAULT_PARTITION_BYTES);
+    }
+
+    /**
+     * Canonicalize whole document from input to output.
+     *
+     * @param source the XML document, not closed
+     * @param target the output of canonical bytes, not closed
+     * @throws IOException if reading or writing fails
+     * @throws ApplicationException if the document is not well formed XML
+     */
+    public void canonicalize(InputStream source, OutputStream target) throws IOException {
+
+        BoundaryScanner scanner = new BoundaryScanner();
+        Partition prefix = new Partition(4096);
+        Partition current = null;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        Deque<Future<ByteArrayOutputStream>> window = new ArrayDeque<>();
+        byte[] suffix = null;
+        boolean first = true;
+
+        try {
+            byte[] chunk = new byte[64 * 1024];
+            int n;
+            while ((n = source.read(chunk)) >= 0) {
+                int from = 0;
+                for (int i = 0; i < n; i++) {
+                    int boundary = scanner.next(chunk[i]);
+                    if (boundary == BoundaryScanner.NONE) {
+                        continue;
+                    }
+
+                    if (current == null) {
+                        if (boundary == BoundaryScanner.UNSPLITTABLE) {
+                            prefix.append(chunk, from, n - from);
+                            sequential(new SequenceInputStream(new ByteArrayInputStream(prefix.bytes, 0, prefix.length), source), target);
+                            return;
+                        }
+                        if (boundary == BoundaryScanner.ROOT_START) {
+                            prefix.append(chunk, from, i + 1 - from);
+                            from = i + 1;
+                            if (!isSplittable(prefix)) {
+                                prefix.append(chunk, from, n - from);
+                                sequential(new SequenceInputStream(new ByteArrayInputStream(prefix.bytes, 0, prefix.length), source), target);
+                                return;
+                            }
+                            suffix = scanner.getRootEndTag();
+                            current = new Partition(partitionBytes + chunk.length);
+                        }
+
+                    } else if (boundary == BoundaryScanner.CHILD_END && current.length + i + 1 - from >= partitionBytes) {
+                        current.append(chunk, from, i + 1 - from);
+                        from = i + 1;
+                        submit(executor, window, target, prefix, current, suffix, first, false);
+                        first = false;
+                        current = new Partition(partitionBytes + chunk.length);
+                    }
+                }
+                (current == null ? prefix : current).append(chunk, from, n - from);
+            }
+
+            if (current == null) {
+                sequential(new ByteArrayInputStream(prefix.bytes, 0, prefix.length), target);
+                return;
+            }
+            submit(executor, window, target, prefix, current, null, first, true);
+            while (!window.isEmpty()) {
+                take(window).writeTo(target);
+            }
+
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private void sequential(InputStream source, OutputStream target) throws IOException {
+        LOG.info("Document can't be split, canonicalized sequentially.");
+        StreamingCanonicalizer.canonicalize(source, method, target);
+    }
+
+    private void submit(ExecutorService executor, Deque<Future<ByteArrayOutputStream>> window, OutputStream target,
+                        Partition prefix, Partition partition, byte[] suffix, boolean first, boolean last) throws IOException {
+
+        while (window.size() >= 2 * threads || (!window.isEmpty() && window.peekFirst().isDone())) {
+            take(window).writeTo(target);
+        }
+        window.addLast(executor.submit(() -> canonicalizePartition(prefix, partition, suffix, first, last)));
+    }
+
+    private static ByteArrayOutputStream take(Deque<Future<ByteArrayOutputStream>> window) throws IOException {
+
+        try {
+            return window.removeFirst().get();
+
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ApplicationException("Canonicalization interrupted.", e);
+
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IOException(e.getCause().getMessage(), e.getCause());
+        }
+    }
+
+    /**
+     * Canonicalize the partition within synthetic document, return its part of the output.
+     */
+    private ByteArrayOutputStream canonicalizePartition(Partition prefix, Partition partition, byte[] suffix,
+                                                        boolean first, boolean last) throws IOException {
+
+        List<InputStream> parts = Arrays.asList(new ByteArrayInputStream(prefix.bytes, 0, prefix.length),
+                new ByteArrayInputStream(partition.bytes, 0, partition.length),
+                new ByteArrayInputStream(last ? new byte[0] : suffix));
+        ByteArrayOutputStream output = new ByteArrayOutputStream(partition.length + partition.length / 4);
+
+        XMLStreamReader reader = StreamingCanonicalizer.newReader(new SequenceInputStream(Collections.enumeration(parts)));
+        Transformer transformer = StreamingCanonicalizer.newTransformer(method, output);
+        XMLSecStartElement parent = null;
+        int depth = 0;
+
+        try {
+            while (true) {
+                XMLSecEvent event = XMLSecEventFactory.allocate(reader, parent);
+                if (event.isStartElement()) {
+                    parent = event.asStartElement();
+                    depth++;
+                } else if (event.isEndElement()) {
+                    if (--depth == 0 && !last) {
+                        break;
+                    }
+                    parent = parent.getParentXMLSecStartElement();
+                }
+
+                transformer.transform(event);
+                if (depth == 1 && event.isStartElement() && !first) {
+                    output.reset();
+                }
+
+                if (!reader.hasNext()) {
+                    transformer.doFinal();
+                    break;
+                }
+                reader.next();
+            }
+            reader.close();
+
+        } catch (XMLStreamException e) {
+            throw new ApplicationException("Cannot canonicalize the document: " + e.getMessage(), e);
+        }
+        return output;
+    }
+
+    /**
+     * Test that prolog doesn't prevent splitting by bytes: ASCII compatible encoding without byte order mark of UTF-16.
+     */
+    private static boolean isSplittable(Partition prefix) {
+
+        if (prefix.length >= 2 && (prefix.bytes[0] == 0 || prefix.bytes[1] == 0
+                || (prefix.bytes[0] & 0xff) == 0xfe || (prefix.bytes[0] & 0xff) == 0xff)) {
+            return false;
+        }
+        String prolog = new String(prefix.bytes, 0, prefix.length, StandardCharsets.ISO_8859_1);
+        if (prolog.startsWith("\u00ef\u00bb\u00bf")) {
+            prolog = prolog.substring(3);
+        }
+        Matcher matcher = ENCODING.matcher(prolog);
+        return !matcher.find() || SPLITTABLE_ENCODING.matcher(matcher.group(1)).matches();
+    }
+
+    /**
+     * Growable byte array.
+     */
+    private static final class Partition {
+
+        private byte[] bytes;
+        private int length;
+
+        Partition(int capacity) {
+            bytes = new byte[capacity];
+        }
+
+        void append(byte[] source, int offset, int count) {
+            if (length + count > bytes.length) {
+                bytes = Arrays.copyOf(bytes, Math.max(length + count, bytes.length * 2));
+            }
+            System.arraycopy(source, offset, bytes, length, count);
+            length += count;
+        }
+    }
+
+    /**
+     * Byte level scanner of XML markup, tracking element depth without parsing.
+     *
+     * <p> Recognizes start and end tags (with quoted attribute values), empty element tags, comments, CDATA sections
+     * and processing instructions, which is enough to find boundaries of root's children in well-formed document
+     * in ASCII compatible encoding. Malformed markup is left to the parser of the partition to report.
+     */
+    private static final class BoundaryScanner {
+
+        static final int NONE = 0;
+        static final int ROOT_START = 1;
+        static final int CHILD_END = 2;
+        static final int UNSPLITTABLE = 3;
+
+        private static final int TEXT = 0;
+        private static final int MARKUP = 1;
+        private static final int START_TAG = 2;
+        private static final int QUOTED = 3;
+        private static final int END_TAG = 4;
+        private static final int DECLARATION = 5;
+        private static final int COMMENT = 6;
+        private static final int CDATA = 7;
+        private static final int INSTRUCTION = 8;
+
+        private final ByteArrayOutputStream rootName = new ByteArrayOutputStream();
+        private int state = TEXT;
+        private int depth;
+        private boolean rootSeen;
+        private boolean naming;
+        private boolean slash;
+        private byte quote;
+        private byte previous;
+        private byte beforePrevious;
+
+        int next(byte b) {
+
+            switch (state) {
+                case TEXT:
+                    if (b == '<') {
+                        state = MARKUP;
+                    }
+                    return NONE;
+
+                case MARKUP:
+                    if (b == '/') {
+                        state = END_TAG;
+                    } else if (b == '!') {
+                        state = DECLARATION;
+                    } else if (b == '?') {
+                        state = INSTRUCTION;
+                        previous = 0;
+                    } else {
+                        state = START_TAG;
+                        slash = false;
+                        naming = depth == 0 && !rootSeen;
+                        if (naming) {
+                            rootName.write(b);
+                        }
+                    }
+                    return NONE;
+
+                case START_TAG:
+                    if (b == '>') {
+                        state = TEXT;
+                        naming = false;
+                        if (slash) {
+                            return (depth == 0 && !rootSeen) ? UNSPLITTABLE : (depth == 1) ? CHILD_END : NONE;
+                        }
+                        if (++depth == 1 && !rootSeen) {
+                            rootSeen = true;
+                            return ROOT_START;
+                        }
+                    } else if (b == '"' || b == '\'') {
+                        state = QUOTED;
+                        quote = b;
+                        slash = false;
+                    } else {
+                        if (naming && (b == ' ' || b == '\t' || b == '\r' || b == '\n' || b == '/')) {
+                            naming = false;
+                        } else if (naming) {
+                            rootName.write(b);
+                        }
+                        slash = b == '/';
+                    }
+                    return NONE;
+
+                case QUOTED:
+                    if (b == quote) {
+                        state = START_TAG;
+                    }
+                    return NONE;
+
+                case END_TAG:
+                    if (b == '>') {
+                        state = TEXT;
+                        if (--depth == 1) {
+                            return CHILD_END;
+                        }
+                    }
+                    return NONE;
+
+                case DECLARATION:
+                    previous = 0;
+                    beforePrevious = 0;
+                    if (b == '-') {
+                        state = COMMENT;
+                    } else if (b == '[') {
+                        state = CDATA;
+                    } else if (!rootSeen) {
+                        return UNSPLITTABLE;
+                    } else {
+                        state = TEXT;
+                    }
+                    return NONE;
+
+                case COMMENT:
+                    return closes(b, (byte) '-', (byte) '-');
+
+                case CDATA:
+                    return closes(b, (byte) ']', (byte) ']');
+
+                case INSTRUCTION:
+                    if (b == '>' && previous == '?') {
+                        state = TEXT;
+                    }
+                    previous = b;
+                    return NONE;
+
+                default:
+                    throw new IllegalStateException("Unknown scanner state " + state);
+            }
+        }
+
+        private int closes(byte b, byte first, byte second) {
+
+            if (b == '>' && previous == second && beforePrevious == first) {
+                state = TEXT;
+            }
+            beforePrevious = previous;
+            previous = b;
+            return NONE;
+        }
+
+        /**
+         * Return end tag of the root element.
+         */
+        byte[] getRootEndTag() {
+
+            ByteArrayOutputStream tag = new ByteArrayOutputStream();
+            tag.write('<');
+            tag.write('/');
+            tag.writeBytes(rootName.toByteArray());
+            tag.write('>');
+            return tag.toByteArray();
+        }
+    }
+
+}
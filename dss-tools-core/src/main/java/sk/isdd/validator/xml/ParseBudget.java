@@ -0,0 +1,364 @@
+package sk.isdd.validator.xml;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.xml.XMLConstants;
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.ByteArrayInputStream;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+/**
+ * Resource budget of parsing and canonicalization of single document, so that pathological or malicious
+ * document fails fast instead of stalling a batch.
+ *
+ * <p> Parsers always run with secure processing (limits of entity expansion, entity sizes and no external access).
+ * On top of it the budget limits decoded document size, element depth, attributes per element, number of nodes
+ * and wall-clock time. Limit 0 means unlimited. Size of streamed documents is counted as they are read.
+ * Time limit is enforced cooperatively: reads of the source, parser events and output of DOM canonicalization
+ * check the deadline, so the work done past the deadline is bounded by single event.
+ *
+ * <p> Exceeded budget is reported by {@link BudgetExceededException} naming the {@link Limit}.
+ */
+public final class ParseBudget {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ParseBudget.class);
+
+    // Woodstox limits, its defaults (1000 levels, 1000 attributes) are below the defaults of the budget
+    private static final String WSTX_MAX_ELEMENT_DEPTH = "com.ctc.wstx.maxElementDepth";
+    private static final String WSTX_MAX_ATTRIBUTES = "com.ctc.wstx.maxAttributesPerElement";
+    private static final Pattern WSTX_LIMIT = Pattern.compile("[Ll]imit \\(\\d+\\) [Ee]xceeded");
+
+    /**
+     * Limited resources.
+     */
+    public enum Limit {
+
+        SIZE("size"),
+        DEPTH("depth"),
+        ATTRIBUTES("attributes"),
+        NODES("nodes"),
+        TIME("time"),
+
+        /**
+         * Secure processing limit of the parser itself (entity expansion, entity size, etc.).
+         */
+        PARSER("parser");
+
+        private final String text;
+
+        Limit(String text) {
+            this.text = text;
+        }
+
+        public String getText() {
+            return text;
+        }
+    }
+
+    /**
+     * Default time limit, generous for documents of gigabytes, still ending a stalled document of a batch.
+     */
+    public static final long DEFAULT_TIME_LIMIT_MILLIS = TimeUnit.MINUTES.toMillis(5);
+
+    /**
+     * Budget without limits other than secure processing of the parsers.
+     */
+    public static final ParseBudget UNLIMITED = new ParseBudget(0, 0, 0, 0, 0);
+
+    private final long maxBytes;
+    private final int maxDepth;
+    private final int maxAttributes;
+    private final long maxNodes;
+    private final long timeLimitMillis;
+
+    /**
+     * @param maxBytes max size of decoded document in bytes
+     * @param maxDepth max depth of elements
+     * @param maxAttributes max attributes (including namespace declarations) of single element
+     * @param maxNodes max number of elements, texts, comments and processing instructions
+     * @param timeLimitMillis wall-clock limit of single parse or canonicalization
+     */
+    public ParseBudget(long maxBytes, int maxDepth, int maxAttributes, long maxNodes, long timeLimitMillis) {
+
+        if (maxBytes < 0 || maxDepth < 0 || maxAttributes < 0 || maxNodes < 0 || timeLimitMillis < 0) {
+            throw new IllegalArgumentException("Limits of parse budget must not be negative.");
+        }
+        this.maxBytes = maxBytes;
+        this.maxDepth = maxDepth;
+        this.maxAttributes = maxAttributes;
+        this.maxNodes = maxNodes;
+        this.timeLimitMillis = timeLimitMillis;
+    }
+
+    /**
+     * Budget configured by system properties {@code dss-tools.parse.max-bytes}, {@code dss-tools.parse.max-depth}
+     * (default 10000), {@code dss-tools.parse.max-attributes} (default 10000), {@code dss-tools.parse.max-nodes}
+     * and {@code dss-tools.parse.time-limit} (milliseconds, default 5 minutes, 0 for unlimited).
+     */
+    public static ParseBudget getDefault() {
+        return new ParseBudget(
+                Long.getLong("dss-tools.parse.max-bytes", 0),
+                Integer.getInteger("dss-tools.parse.max-depth", 10000),
+                Integer.getInteger("dss-tools.parse.max-attributes", 10000),
+                Long.getLong("dss-tools.parse.max-nodes", 0),
+                Long.getLong("dss-tools.parse.time-limit", DEFAULT_TIME_LIMIT_MILLIS));
+    }
+
+    public long getMaxBytes() {
+        return maxBytes;
+    }
+
+    public int getMaxDepth() {
+        return maxDepth;
+    }
+
+    public int getMaxAttributes() {
+        return maxAttributes;
+    }
+
+    public long getMaxNodes() {
+        return maxNodes;
+    }
+
+    public long getTimeLimitMillis() {
+        return timeLimitMillis;
+    }
+
+    /**
+     * Check size of the document.
+     *
+     * @param size decoded size in bytes
+     * @throws BudgetExceededException if the size is over the limit
+     */
+    public void checkSize(long size) {
+        if (maxBytes > 0 && size > maxBytes) {
+            throw new BudgetExceededException(Limit.SIZE, "Document has more than " + maxBytes + " bytes.");
+        }
+    }
+
+    /**
+     * Start metering of single parse or canonicalization, the time limit starts now.
+     */
+    public Meter start() {
+        return new Meter();
+    }
+
+    /**
+     * Apply secure processing and the limits the DOM parser can enforce itself (depth, attributes).
+     *
+     * @param factory factory of DOM parsers
+     * @throws ParserConfigurationException if secure processing is not supported
+     */
+    void configure(DocumentBuilderFactory factory) throws ParserConfigurationException {
+
+        factory.setFeature(XMLConstants.FEATURE_SECURE_PROCESSING, true);
+        try {
+            if (maxDepth > 0) {
+                factory.setAttribute("jdk.xml.maxElementDepth", String.valueOf(maxDepth));
+            }
+            if (maxAttributes > 0) {
+                factory.setAttribute("jdk.xml.elementAttributeLimit", String.valueOf(maxAttributes));
+            }
+        } catch (IllegalArgumentException e) {
+            LOG.debug("Parser " + factory.getClass().getName() + " does not support JDK limits: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Apply the limits the StAX parser can enforce itself (depth, attributes), so that the parser does not fail
+     * on documents within the budget.
+     *
+     * @param factory factory of StAX readers
+     */
+    void configure(XMLInputFactory factory) {
+
+        setIfSupported(factory, WSTX_MAX_ELEMENT_DEPTH, (maxDepth > 0) ? maxDepth : Integer.MAX_VALUE);
+        setIfSupported(factory, WSTX_MAX_ATTRIBUTES, (maxAttributes > 0) ? maxAttributes : Integer.MAX_VALUE);
+    }
+
+    private static void setIfSupported(XMLInputFactory factory, String name, int value) {
+        if (factory.isPropertySupported(name)) {
+            factory.setProperty(name, value);
+        }
+    }
+
+    /**
+     * Translate failure of a parser into exceeded budget, if it was caused by a limit.
+     *
+     * @param failure exception thrown by the parser
+     * @return the exceeded budget or null if the failure is not caused by a limit
+     */
+    public static BudgetExceededException exceeded(Throwable failure) {
+
+        for (Throwable t = failure; t != null; t = t.getCause()) {
+            if (t instanceof BudgetExceededException) {
+                return (BudgetExceededException) t;
+            }
+            String message = t.getMessage();
+            if (message != null && message.contains("JAXP0001")) {
+                // JDK codes of depth and attribute limits, the rest are entity limits
+                Limit limit = message.contains("JAXP00010006") ? Limit.DEPTH
+                        : message.contains("JAXP00010002") ? Limit.ATTRIBUTES
+                        : Limit.PARSER;
+                return new BudgetExceededException(limit, message, failure);
+            }
+            if (message != null && WSTX_LIMIT.matcher(message).find()) {
+                // Woodstox limits, e.g. "Attribute limit (1000) exceeded"
+                Limit limit = message.contains("Element Depth") ? Limit.DEPTH
+                        : message.startsWith("Attribute limit") ? Limit.ATTRIBUTES
+                        : Limit.PARSER;
+                return new BudgetExceededException(limit, message, failure);
+            }
+            if (t.getCause() == t) {
+                break;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Metering of single parse or canonicalization against the budget. Not thread safe.
+     */
+    public final class Meter {
+
+        /**
+         * Deadline is checked every few events only, reading the clock costs more than the event.
+         */
+        private static final int CLOCK_INTERVAL = 64;
+
+        private final long deadline;
+        private long bytes;
+        private int depth;
+        private long nodes;
+        private int sinceClock;
+
+        private Meter() {
+            this.deadline = (timeLimitMillis > 0) ? System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeLimitMillis) : 0;
+        }
+
+        /**
+         * Account start of element.
+         *
+         * @param attributes number of attributes including namespace declarations
+         */
+        public void startElement(int attributes) {
+
+            if (maxDepth > 0 && ++depth > maxDepth) {
+                throw new BudgetExceededException(Limit.DEPTH, "Elements are nested deeper than " + maxDepth + " levels.");
+            }
+            if (maxAttributes > 0 && attributes > maxAttributes) {
+                throw new BudgetExceededException(Limit.ATTRIBUTES, "Element has more than " + maxAttributes + " attributes.");
+            }
+            node();
+        }
+
+        public void endElement() {
+            depth--;
+        }
+
+        /**
+         * Account node other than element end (which is part of its start).
+         */
+        public void node() {
+
+            if (maxNodes > 0 && ++nodes > maxNodes) {
+                throw new BudgetExceededException(Limit.NODES, "Document has more than " + maxNodes + " nodes.");
+            }
+            if (++sinceClock >= CLOCK_INTERVAL) {
+                sinceClock = 0;
+                checkTime();
+            }
+        }
+
+        /**
+         * Account bytes read from the source.
+         *
+         * @param count number of bytes read
+         * @throws BudgetExceededException if the document is over the size limit
+         */
+        void read(long count) {
+
+            bytes += count;
+            if (maxBytes > 0 && bytes > maxBytes) {
+                throw new BudgetExceededException(Limit.SIZE, "Document has more than " + maxBytes + " bytes.");
+            }
+        }
+
+        ParseBudget getBudget() {
+            return ParseBudget.this;
+        }
+
+        /**
+         * @throws BudgetExceededException if the deadline passed
+         */
+        public void checkTime() {
+            if (deadline != 0 && System.nanoTime() - deadline > 0) {
+                throw new BudgetExceededException(Limit.TIME, "Processing took more than " + timeLimitMillis + " ms.");
+            }
+        }
+
+        /**
+         * Account single event of StAX reader positioned at it.
+         *
+         * @param reader reader created by {@link StreamingCanonicalizer#newReader(java.io.InputStream, Meter)}
+         */
+        public void event(XMLStreamReader reader) {
+
+            switch (reader.getEventType()) {
+                case XMLStreamConstants.START_ELEMENT:
+                    startElement(reader.getAttributeCount() + reader.getNamespaceCount());
+                    break;
+                case XMLStreamConstants.END_ELEMENT:
+                    endElement();
+                    break;
+                case XMLStreamConstants.START_DOCUMENT:
+                case XMLStreamConstants.END_DOCUMENT:
+                    checkTime();
+                    break;
+                default:
+                    node();
+            }
+        }
+
+        /**
+         * Account the whole document by streaming pass, used before DOM parsing which cannot count nodes.
+         *
+         * @param document bytes of the document
+         * @throws BudgetExceededException if the document is over the budget
+         */
+        void scan(byte[] document) {
+
+            // the same bytes are read again by the DOM parser
+            long counted = bytes;
+            XMLStreamReader reader = StreamingCanonicalizer.newReader(new ByteArrayInputStream(document), this);
+            try {
+                event(reader);
+                while (reader.hasNext()) {
+                    reader.next();
+                    event(reader);
+                }
+                reader.close();
+
+            } catch (XMLStreamException e) {
+                // not well-formed, reported by the DOM parser
+                LOG.debug("Budget scan stopped: " + e.getMessage());
+            } finally {
+                bytes = counted;
+            }
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "max-bytes=" + maxBytes + ", max-depth=" + maxDepth + ", max-attributes=" + maxAttributes
+                + ", max-nodes=" + maxNodes + ", time-limit=" + timeLimitMillis + " ms";
+    }
+
+}
@@ -0,0 +1,183 @@
+package sk.isdd.validator.xml;
+
+import org.apache.xml.security.exceptions.XMLSecurityException;
+import org.apache.xml.security.stax.ext.Transformer;
+import org.apache.xml.security.stax.ext.stax.XMLSecAttribute;
+import org.apache.xml.security.stax.ext.stax.XMLSecEvent;
+import org.apache.xml.security.stax.ext.stax.XMLSecStartElement;
+import org.apache.xml.security.stax.impl.transformer.canonicalizer.Canonicalizer11;
+import org.apache.xml.security.stax.impl.transformer.canonicalizer.Canonicalizer20010315_Excl;
+import org.apache.xml.security.stax.impl.transformer.canonicalizer.Canonicalizer20010315_ExclOmitCommentsTransformer;
+import org.apache.xml.security.stax.impl.transformer.canonicalizer.Canonicalizer20010315_ExclWithCommentsTransformer;
+import org.apache.xml.security.stax.impl.transformer.canonicalizer.Canonicalizer20010315_OmitCommentsTransformer;
+import org.apache.xml.security.stax.impl.transformer.canonicalizer.Canonicalizer20010315_WithCommentsTransformer;
+import sk.isdd.validator.ApplicationException;
+import sk.isdd.validator.enumerations.XmlC14nMethod;
+
+import javax.xml.XMLConstants;
+import javax.xml.namespace.QName;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Streaming canonicalization engine, the document is never held in memory as a whole.
+ *
+ * <p> Document is read by StAX parser and its events are fed one by one into Apache Santuario streaming
+ * canonicalizer of the chosen {@link XmlC14nMethod}. Output is byte-identical to the DOM based
+ * {@link XmlCanonicalizer}, memory use depends only on the depth of the document.
+ *
+ * @see CanonicalInputStream pull variant producing canonical bytes on demand
+ */
+public class StreamingCanonicalizer {
+
+    /**
+     * Canonicalize whole document from input to output.
+     *
+     * @param source the XML document, not closed
+     * @param method canonicalization method, {@code null} or {@link XmlC14nMethod#C14N_NONE} copies source untouched
+     * @param target the output of canonical bytes, not closed
+     * @throws IOException if reading or writing fails
+     * @throws ApplicationException if the document is not well formed XML
+     * @throws BudgetExceededException if the document is over the default {@link ParseBudget}
+     */
+    public static void canonicalize(InputStream source, XmlC14nMethod method, OutputStream target) throws IOException {
+
+        try (CanonicalInputStream in = new CanonicalInputStream(source, method, ParseBudget.getDefault())) {
+            in.transferTo(target);
+        }
+    }
+
+    /**
+     * Create new Santuario streaming transformer for given method.
+     *
+     * @param method canonicalization method other than {@link XmlC14nMethod#C14N_NONE}
+     * @param output where the canonical bytes are written to
+     * @return transformer accepting XMLSecEvents
+     */
+    public static Transformer newTransformer(XmlC14nMethod method, OutputStream output) {
+        return newTransformer(method, null, output);
+    }
+
+    /**
+     * Create new Santuario streaming transformer for given method.
+     *
+     * @param method canonicalization method other than {@link XmlC14nMethod#C14N_NONE}
+     * @param inclusivePrefixes InclusiveNamespaces PrefixList of exclusive c14n ("#default" for default namespace),
+     *                          ignored by inclusive methods, may be null
+     * @param output where the canonical bytes are written to
+     * @return transformer accepting XMLSecEvents
+     */
+    public static Transformer newTransformer(XmlC14nMethod method, List<String> inclusivePrefixes, OutputStream output) {
+
+        Transformer transformer;
+        switch (method) {
+            case C14N_OMIT_COMMENTS:
+                transformer = new Canonicalizer20010315_OmitCommentsTransformer();
+                break;
+            case C14N_WITH_COMMENTS:
+                transformer = new Canonicalizer20010315_WithCommentsTransformer();
+                break;
+            case C14N_EXCL_OMIT_COMMENTS:
+                transformer = new Canonicalizer20010315_ExclOmitCommentsTransformer();
+                break;
+            case C14N_EXCL_WITH_COMMENTS:
+                transformer = new Canonicalizer20010315_ExclWithCommentsTransformer();
+                break;
+            case C14N11_OMIT_COMMENTS:
+                transformer = new Canonicalizer11Transformer(false);
+                break;
+            case C14N11_WITH_COMMENTS:
+                transformer = new Canonicalizer11Transformer(true);
+                break;
+            default:
+                throw new IllegalArgumentException("No streaming canonicalizer for " + method.getText());
+        }
+
+        try {
+            transformer.setOutputStream(output);
+            if (inclusivePrefixes != null && !inclusivePrefixes.isEmpty() && transformer instanceof Canonicalizer20010315_Excl) {
+                transformer.setProperties(Collections.singletonMap(
+                        Canonicalizer20010315_Excl.INCLUSIVE_NAMESPACES_PREFIX_LIST, inclusivePrefixes));
+            }
+        } catch (XMLSecurityException e) {
+            throw new ApplicationException("Unable to initialize canonicalizer: " + e.getMessage(), e);
+        }
+        return transformer;
+    }
+
+    /**
+     * Santuario C14N 1.1 transformer emitting {@code xml:base} and {@code xml:id} of the first element.
+     *
+     * <p> The original leaves them out of the first element (the document root, or the apex of a subset): they are
+     * neither copied as inherited attributes nor taken as attributes of the element, while the DOM engine keeps them.
+     */
+    private static final class Canonicalizer11Transformer extends Canonicalizer11 {
+
+        Canonicalizer11Transformer(boolean includeComments) {
+            super(includeComments);
+        }
+
+        @Override
+        protected List<XMLSecAttribute> getInitialUtilizedAttributes(XMLSecStartElement element,
+                                                                    C14NStack<XMLSecEvent> outputStack) {
+
+            List<XMLSecAttribute> attributes = new ArrayList<>(super.getInitialUtilizedAttributes(element, outputStack));
+            for (XMLSecAttribute attribute : element.getOnElementDeclaredAttributes()) {
+                QName name = attribute.getName();
+                if (XMLConstants.XML_NS_URI.equals(name.getNamespaceURI())
+                        && ("base".equals(name.getLocalPart()) || "id".equals(name.getLocalPart()))) {
+                    attributes.add(attribute);
+                }
+            }
+            return attributes;
+        }
+    }
+
+    /**
+     * Create StAX reader configured for canonicalization (no external entities, no coalescing of text),
+     * with parser limits of the default {@link ParseBudget}.
+     *
+     * @param source the XML document
+     * @return new stream reader
+     * @throws ApplicationException if the reader cannot be created
+     */
+    public static XMLStreamReader newReader(InputStream source) {
+        return newReader(source, ParseBudget.getDefault());
+    }
+
+    /**
+     * Create StAX reader configured for canonicalization metered by the budget: reads of the source are accounted
+     * to its size and time limits, parser limits follow the budget. The caller passes events to
+     * {@link ParseBudget.Meter#event(XMLStreamReader)}.
+     *
+     * @param source the XML document
+     * @param meter metering of the document
+     * @return new stream reader
+     * @throws ApplicationException if the reader cannot be created
+     */
+    public static XMLStreamReader newReader(InputStream source, ParseBudget.Meter meter) {
+        return newReader(new DeadlineInputStream(source, meter), meter.getBudget());
+    }
+
+    private static XMLStreamReader newReader(InputStream source, ParseBudget budget) {
+
+        XMLInputFactory factory = XMLInputFactory.newInstance();
+        factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+        factory.setProperty(XMLInputFactory.IS_COALESCING, false);
+        budget.configure(factory);
+
+        try {
+            return factory.createXMLStreamReader(source);
+        } catch (XMLStreamException e) {
+            throw new ApplicationException("Unable to create XML reader: " + e.getMessage(), e);
+        }
+    }
+
+}
@@ -0,0 +1,488 @@
+package sk.isdd.validator.xml;
+
+import org.apache.xml.security.c14n.Canonicalizer;
+import org.apache.xml.security.stax.ext.Transformer;
+import org.apache.xml.security.stax.ext.stax.XMLSecAttribute;
+import org.apache.xml.security.stax.ext.stax.XMLSecEvent;
+import org.apache.xml.security.stax.ext.stax.XMLSecEventFactory;
+import org.apache.xml.security.stax.ext.stax.XMLSecStartElement;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.NamedNodeMap;
+import org.w3c.dom.Node;
+import sk.isdd.validator.ApplicationException;
+import sk.isdd.validator.enumerations.XmlC14nMethod;
+
+import javax.xml.XMLConstants;
+import javax.xml.namespace.NamespaceContext;
+import javax.xml.namespace.QName;
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import javax.xml.xpath.XPath;
+import javax.xml.xpath.XPathConstants;
+import javax.xml.xpath.XPathExpressionException;
+import javax.xml.xpath.XPathFactory;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Canonicalization of a document subset - the subtree of single element selected by its Id or by XPath.
+ *
+ * <p> This is what XML-DSig references usually point at ({@code URI="#id"} or XPath filter).
+ * Selection is streaming whenever possible: events before the selected element are parsed but not stored
+ * (only the chain of open ancestors is kept to supply inherited namespaces), and parsing stops right after
+ * the selected element ends. No DOM is built.
+ * <ul>
+ *     <li> Id selection is streaming. Attributes "Id", "ID", "id" (any namespace, e.g. wsu:Id) and xml:id are considered.
+ *     <li> XPath in the form of simple absolute location path of element names with optional positions
+ *          (e.g. {@code /env:Envelope/env:Body[1]/*}) is streaming. Names are matched by namespace URI and local name,
+ *          prefixes are resolved against the document element as in the DOM evaluation, unprefixed names
+ *          are in no namespace; {@code *} matches any element.
+ *     <li> Any other XPath expression falls back to DOM: the document is parsed, expression evaluated
+ *          (prefixes resolved against the document element) and the first selected element is canonicalized.
+ * </ul>
+ *
+ * <p> Inclusive methods copy xml:* attributes (xml:base, xml:lang, ...) inherited from ancestors of the selected
+ * element, the streaming transformers do not produce them the same way as the DOM canonicalizer. If an ancestor
+ * of the selected element carries any xml:* attribute, streaming selection is abandoned before any output is written
+ * and the document is opened again for the DOM evaluation, so the output is always the same as of DOM.
+ * xml:* attributes of the selected element itself are emitted by the streaming transformers as by DOM
+ * (see {@link StreamingCanonicalizer#newTransformer(XmlC14nMethod, List, java.io.OutputStream)}).
+ *
+ * <p> In all cases the first selected element and its descendants form the subset. Parsing is limited by
+ * {@link ParseBudget}, both parsers run with secure processing.
+ */
+public class SubsetCanonicalizer {
+
+    private static final Pattern SIMPLE_PATH = Pattern.compile("(/(\\*|[\\w.\\-]+(:[\\w.\\-]+)?)(\\[\\d+])?)+");
+    private static final Pattern STEP = Pattern.compile("/(\\*|(?:([\\w.\\-]+):)?([\\w.\\-]+))(?:\\[(\\d+)])?");
+    private static final List<String> ID_NAMES = Arrays.asList("Id", "ID", "id");
+    private static final String ANY = "*";
+
+    /**
+     * Opens the document, called once more if streaming selection falls back to DOM.
+     */
+    public interface Source {
+
+        /**
+         * @return new stream of the document, closed by the caller
+         * @throws IOException if the document cannot be opened
+         */
+        InputStream open() throws IOException;
+    }
+
+    /**
+     * Decides if the element starts the selected subtree.
+     */
+    private interface Selector {
+
+        /**
+         * @param element the start element with access to its ancestors
+         * @param path open elements from the root, the last one is the element
+         */
+        boolean matches(XMLSecStartElement element, List<Level> path);
+    }
+
+    /**
+     * Open element: expanded name and positions among its siblings of the same name and among all siblings.
+     */
+    private static final class Level {
+
+        private final String namespaceUri;
+        private final String localName;
+        private final int position;
+        private final int index;
+        private final Map<String, Integer> children = new HashMap<>();
+
+        Level(String namespaceUri, String localName, int position, int index) {
+            this.namespaceUri = namespaceUri;
+            this.localName = localName;
+            this.position = position;
+            this.index = index;
+        }
+    }
+
+    /**
+     * Step of simple location path, prefix null for unprefixed name, local name {@code *} for any element.
+     */
+    private static final class Step {
+
+        private final String prefix;
+        private final String localName;
+        private final int position;
+
+        Step(String prefix, String localName, int position) {
+            this.prefix = prefix;
+            this.localName = localName;
+            this.position = position;
+        }
+    }
+
+    private enum Selection {
+        FOUND, NOT_FOUND, DOM
+    }
+
+    /**
+     * Canonicalize subtree of the element with given Id.
+     *
+     * @param source the XML document
+     * @param id the Id value, leading '#' (same-document reference) is stripped
+     * @param method canonicalization method other than {@link XmlC14nMethod#C14N_NONE}
+     * @param inclusivePrefixes InclusiveNamespaces PrefixList for exclusive c14n, may be null
+     * @param budget limits of the document, time limit starts now
+     * @param target the output of canonical bytes, not closed
+     * @return true if the element was found
+     * @throws IOException if reading or writing fails
+     * @throws BudgetExceededException if the document is over the budget
+     */
+    public static boolean canonicalizeById(Source source, String id, XmlC14nMethod method, List<String> inclusivePrefixes,
+                                           ParseBudget budget, OutputStream target) throws IOException {
+
+        String value = id.startsWith("#") ? id.substring(1) : id;
+        Selection selection = canonicalizeStreaming(source, (element, path) -> hasId(element, value),
+                method, inclusivePrefixes, budget, target);
+        if (selection == Selection.DOM) {
+            return canonicalizeDom(source, "#" + value, document -> findById(document.getDocumentElement(), value),
+                    method, inclusivePrefixes, budget, target);
+        }
+        return selection == Selection.FOUND;
+    }
+
+    /**
+     * Canonicalize subtree of the first element selected by XPath expression.
+     *
+     * @param source the XML document
+     * @param expression XPath expression, simple location paths are evaluated by streaming
+     * @param method canonicalization method other than {@link XmlC14nMethod#C14N_NONE}
+     * @param inclusivePrefixes InclusiveNamespaces PrefixList for exclusive c14n, may be null
+     * @param budget limits of the document, time limit starts now
+     * @param target the output of canonical bytes, not closed
+     * @return true if an element was selected
+     * @throws IOException if reading or writing fails
+     * @throws BudgetExceededException if the document is over the budget
+     */
+    public static boolean canonicalizeByXPath(Source source, String expression, XmlC14nMethod method, List<String> inclusivePrefixes,
+                                              ParseBudget budget, OutputStream target) throws IOException {
+
+        if (isStreamable(expression)) {
+            List<Step> steps = parseSteps(expression);
+            Selection selection = canonicalizeStreaming(source, (element, path) -> matchesSteps(element, path, steps),
+                    method, inclusivePrefixes, budget, target);
+            if (selection != Selection.DOM) {
+                return selection == Selection.FOUND;
+            }
+        }
+        return canonicalizeDom(source, expression, document -> evaluate(document, expression),
+                method, inclusivePrefixes, budget, target);
+    }
+
+    /**
+     * Test if expression can be evaluated by streaming selection.
+     */
+    public static boolean isStreamable(String expression) {
+        return SIMPLE_PATH.matcher(expression.trim()).matches();
+    }
+
+    /*
+     * Streaming selection
+     */
+
+    private static Selection canonicalizeStreaming(Source source, Selector selector, XmlC14nMethod method,
+                                                   List<String> inclusivePrefixes, ParseBudget budget,
+                                                   OutputStream target) throws IOException {
+
+        checkMethod(method);
+        ParseBudget.Meter meter = budget.start();
+        try (InputStream in = source.open()) {
+            XMLStreamReader reader = StreamingCanonicalizer.newReader(in, meter);
+            try {
+                return select(reader, meter, selector, method, inclusivePrefixes, target);
+            } finally {
+                try {
+                    reader.close();
+                } catch (XMLStreamException e) {
+                    // nothing to release beyond the parser itself
+                }
+            }
+        }
+    }
+
+    private static Selection select(XMLStreamReader reader, ParseBudget.Meter meter, Selector selector, XmlC14nMethod method,
+                                    List<String> inclusivePrefixes, OutputStream target) {
+
+        Transformer transformer = null;
+        List<Level> path = new ArrayList<>();
+        Level document = new Level("", "", 1, 1);
+        XMLSecStartElement parent = null;
+        int selectedDepth = 0;
+
+        try {
+            for (; ; reader.next()) {
+                meter.event(reader);
+
+                // outside of the selection only elements matter (ancestor chain), skip the rest without allocation
+                int type = reader.getEventType();
+                if (selectedDepth == 0 && type != XMLStreamConstants.START_ELEMENT && type != XMLStreamConstants.END_ELEMENT) {
+                    if (!reader.hasNext()) {
+                        return Selection.NOT_FOUND;
+                    }
+                    continue;
+                }
+
+                XMLSecEvent event = XMLSecEventFactory.allocate(reader, parent);
+
+                if (event.isStartElement()) {
+                    parent = event.asStartElement();
+                    QName name = parent.getName();
+                    Level siblings = path.isEmpty() ? document : path.get(path.size() - 1);
+                    path.add(new Level(name.getNamespaceURI(), name.getLocalPart(),
+                            siblings.children.merge("{" + name.getNamespaceURI() + "}" + name.getLocalPart(), 1, Integer::sum),
+                            siblings.children.merge(ANY, 1, Integer::sum)));
+
+                    if (selectedDepth == 0 && selector.matches(parent, path)) {
+                        if (inheritsXmlAttributes(method) && hasInheritedXmlAttributes(parent)) {
+                            return Selection.DOM;
+                        }
+                        selectedDepth = path.size();
+                        transformer = StreamingCanonicalizer.newTransformer(method, inclusivePrefixes, target);
+                    }
+                }
+
+                if (selectedDepth > 0) {
+                    transformer.transform(event);
+                }
+
+                if (event.isEndElement()) {
+                    if (path.size() == selectedDepth) {
+                        transformer.doFinal();
+                        return Selection.FOUND;
+                    }
+                    parent = parent.getParentXMLSecStartElement();
+                    path.remove(path.size() - 1);
+                }
+
+                if (!reader.hasNext()) {
+                    return Selection.NOT_FOUND;
+                }
+            }
+
+        } catch (XMLStreamException e) {
+            BudgetExceededException exceeded = ParseBudget.exceeded(e);
+            if (exceeded != null) {
+                throw exceeded;
+            }
+            throw new ApplicationException("Cannot canonicalize document subset: " + e.getMessage(), e);
+        }
+    }
+
+    private static boolean hasId(XMLSecStartElement element, String value) {
+
+        for (XMLSecAttribute attribute : element.getOnElementDeclaredAttributes()) {
+            QName name = attribute.getName();
+            boolean isId = ID_NAMES.contains(name.getLocalPart())
+                    || (XMLConstants.XML_NS_URI.equals(name.getNamespaceURI()) && "id".equals(name.getLocalPart()));
+            if (isId && value.equals(attribute.getValue())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Inclusive methods (unlike exclusive ones) copy xml:* attributes of ancestors to the apex of the subset.
+     */
+    private static boolean inheritsXmlAttributes(XmlC14nMethod method) {
+        return method != XmlC14nMethod.C14N_EXCL_OMIT_COMMENTS && method != XmlC14nMethod.C14N_EXCL_WITH_COMMENTS;
+    }
+
+    private static boolean hasInheritedXmlAttributes(XMLSecStartElement element) {
+
+        for (XMLSecStartElement ancestor = element.getParentXMLSecStartElement(); ancestor != null;
+             ancestor = ancestor.getParentXMLSecStartElement()) {
+            for (XMLSecAttribute attribute : ancestor.getOnElementDeclaredAttributes()) {
+                if (XMLConstants.XML_NS_URI.equals(attribute.getName().getNamespaceURI())) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Split simple path into steps.
+     */
+    private static List<Step> parseSteps(String expression) {
+
+        List<Step> steps = new ArrayList<>();
+        Matcher matcher = STEP.matcher(expression.trim());
+        while (matcher.find()) {
+            steps.add(new Step(matcher.group(2), ANY.equals(matcher.group(1)) ? ANY : matcher.group(3),
+                    (matcher.group(4) == null) ? 0 : Integer.parseInt(matcher.group(4))));
+        }
+        return steps;
+    }
+
+    private static boolean matchesSteps(XMLSecStartElement element, List<Level> path, List<Step> steps) {
+
+        if (path.size() != steps.size()) {
+            return false;
+        }
+
+        // prefixes of the expression are resolved against the document element, like in DOM evaluation
+        XMLSecStartElement root = element;
+        while (root.getParentXMLSecStartElement() != null) {
+            root = root.getParentXMLSecStartElement();
+        }
+
+        for (int i = 0; i < steps.size(); i++) {
+            Step step = steps.get(i);
+            Level level = path.get(i);
+            if (ANY.equals(step.localName)) {
+                if (step.position > 0 && step.position != level.index) {
+                    return false;
+                }
+                continue;
+            }
+
+            String namespaceUri = (step.prefix == null) ? XMLConstants.NULL_NS_URI : root.getNamespaceURI(step.prefix);
+            if (namespaceUri == null || namespaceUri.isEmpty() && step.prefix != null) {
+                throw new IllegalArgumentException("Prefix \"" + step.prefix + "\" is not declared on the document element.");
+            }
+            if (!step.localName.equals(level.localName) || !namespaceUri.equals(level.namespaceUri)
+                    || (step.position > 0 && step.position != level.position)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /*
+     * DOM fallback
+     */
+
+    private static boolean canonicalizeDom(Source source, String selector, Function<Document, Node> selection,
+                                           XmlC14nMethod method, List<String> inclusivePrefixes, ParseBudget budget,
+                                           OutputStream target) throws IOException {
+
+        checkMethod(method);
+        ParseBudget.Meter meter = budget.start();
+        try {
+            byte[] bytes;
+            try (InputStream in = source.open()) {
+                bytes = (budget.getMaxBytes() > 0)
+                        ? in.readNBytes((int) Math.min(budget.getMaxBytes() + 1, Integer.MAX_VALUE - 8))
+                        : in.readAllBytes();
+            }
+            budget.checkSize(bytes.length);
+            if (budget.getMaxNodes() > 0) {
+                meter.scan(bytes);
+            }
+
+            DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
+            factory.setNamespaceAware(true);
+            budget.configure(factory);
+            Document document = factory.newDocumentBuilder().parse(new DeadlineInputStream(new ByteArrayInputStream(bytes), meter));
+
+            Node node = selection.apply(document);
+            if (!(node instanceof Element)) {
+                return false;
+            }
+
+            org.apache.xml.security.Init.init();
+            Canonicalizer c14n = Canonicalizer.getInstance(method.getUri());
+            c14n.setWriter(new DeadlineOutputStream(target, meter));
+            // keep the output if the target happens to be ByteArrayOutputStream
+            c14n.notReset();
+            if (inclusivePrefixes == null || inclusivePrefixes.isEmpty()) {
+                c14n.canonicalizeSubtree(node);
+            } else {
+                c14n.canonicalizeSubtree(node, String.join(" ", inclusivePrefixes));
+            }
+            return true;
+
+        } catch (IOException e) {
+            throw e;
+        } catch (Exception e) {
+            BudgetExceededException exceeded = ParseBudget.exceeded(e);
+            if (exceeded != null) {
+                throw exceeded;
+            }
+            throw new ApplicationException("Cannot canonicalize document subset \"" + selector + "\": " + e.getMessage(), e);
+        }
+    }
+
+    private static Node evaluate(Document document, String expression) {
+
+        XPath xpath = XPathFactory.newInstance().newXPath();
+        xpath.setNamespaceContext(new NamespaceContext() {
+            @Override
+            public String getNamespaceURI(String prefix) {
+                String uri = document.getDocumentElement().lookupNamespaceURI(prefix);
+                return (uri == null) ? XMLConstants.NULL_NS_URI : uri;
+            }
+
+            @Override
+            public String getPrefix(String namespaceURI) {
+                return document.getDocumentElement().lookupPrefix(namespaceURI);
+            }
+
+            @Override
+            public Iterator<String> getPrefixes(String namespaceURI) {
+                return null;
+            }
+        });
+
+        try {
+            return (Node) xpath.evaluate(expression, document, XPathConstants.NODE);
+        } catch (XPathExpressionException e) {
+            throw new IllegalArgumentException("Invalid XPath \"" + expression + "\": " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * First element in document order with the Id, same attributes as of streaming selection.
+     */
+    private static Element findById(Element element, String value) {
+
+        NamedNodeMap attributes = element.getAttributes();
+        for (int i = 0; i < attributes.getLength(); i++) {
+            Node attribute = attributes.item(i);
+            String localName = attribute.getLocalName();
+            boolean isId = ID_NAMES.contains(localName)
+                    || (XMLConstants.XML_NS_URI.equals(attribute.getNamespaceURI()) && "id".equals(localName));
+            if (isId && value.equals(attribute.getNodeValue())) {
+                return element;
+            }
+        }
+        for (Node child = element.getFirstChild(); child != null; child = child.getNextSibling()) {
+            if (child instanceof Element) {
+                Element found = findById((Element) child, value);
+                if (found != null) {
+                    return found;
+                }
+            }
+        }
+        return null;
+    }
+
+    private static void checkMethod(XmlC14nMethod method) {
+
+        if (method == null || method == XmlC14nMethod.C14N_NONE) {
+            throw new IllegalArgumentException("Subset canonicalization requires c14n method.");
+        }
+    }
+
+}
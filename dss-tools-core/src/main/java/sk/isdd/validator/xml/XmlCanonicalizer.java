@@ -0,0 +1,113 @@
+package sk.isdd.validator.xml;
+
+import org.apache.xml.security.c14n.Canonicalizer;
+import org.w3c.dom.Document;
+import org.xml.sax.SAXException;
+import sk.isdd.validator.ApplicationException;
+import sk.isdd.validator.enumerations.XmlC14nMethod;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+/**
+ * Plain Java canonicalization engine, usable without any GUI toolkit.
+ *
+ * <p> Thin wrapper around Apache Santuario {@link Canonicalizer} driven by {@link XmlC14nMethod} enumeration.
+ */
+public class XmlCanonicalizer {
+
+    /**
+     * Transform XML bytes into their canonical form within the default {@link ParseBudget}.
+     *
+     * @param source the XML document bytes
+     * @param method canonicalization method, {@code null} or {@link XmlC14nMethod#C14N_NONE} returns source untouched
+     * @return canonical output (should be well formed XML)
+     * @throws BudgetExceededException if the document is over the budget
+     * @throws ApplicationException if the source cannot be parsed or canonicalized
+     */
+    public static byte[] canonicalize(byte[] source, XmlC14nMethod method) {
+        return canonicalize(source, method, ParseBudget.getDefault());
+    }
+
+    /**
+     * Transform XML bytes into their canonical form within the budget.
+     *
+     * <p> Document is parsed the same way as by {@link Canonicalizer#canonicalize(byte[])}, by parser limited
+     * by the budget. Parsing and canonicalization share the time limit and are cancelled at its deadline.
+     *
+     * @param source the XML document bytes
+     * @param method canonicalization method, {@code null} or {@link XmlC14nMethod#C14N_NONE} returns source untouched
+     * @param budget limits of the document, time limit starts now
+     * @return canonical output (should be well formed XML)
+     * @throws BudgetExceededException if the document is over the budget
+     * @throws ApplicationException if the source cannot be parsed or canonicalized
+     */
+    public static byte[] canonicalize(byte[] source, XmlC14nMethod method, ParseBudget budget) {
+
+        if (method == null || method == XmlC14nMethod.C14N_NONE) {
+            return source;
+        }
+
+        try {
+            ParseBudget.Meter meter = budget.start();
+            Document document = parse(source, meter);
+
+            org.apache.xml.security.Init.init();
+            Canonicalizer c14n = Canonicalizer.getInstance(method.getUri());
+            ByteArrayOutputStream output = new ByteArrayOutputStream();
+            c14n.setWriter(new DeadlineOutputStream(output, meter));
+            c14n.notReset();
+            c14n.canonicalizeSubtree(document);
+            return output.toByteArray();
+
+        } catch (Exception e) {
+            BudgetExceededException exceeded = ParseBudget.exceeded(e);
+            if (exceeded != null) {
+                throw exceeded;
+            }
+            throw new ApplicationException("Canonicalization failed; Transformation \"" + method.getText() + "\": " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Parse XML bytes into namespace aware DOM document within the budget, with secure processing.
+     *
+     * @param source the XML document bytes
+     * @param budget limits of the document, time limit starts now
+     * @return the document
+     * @throws BudgetExceededException if the document is over the budget
+     * @throws IOException if the source cannot be read
+     * @throws SAXException if the source is not well formed XML
+     * @throws ParserConfigurationException if secure processing is not supported
+     */
+    public static Document parse(byte[] source, ParseBudget budget) throws IOException, SAXException, ParserConfigurationException {
+        return parse(source, budget.start());
+    }
+
+    private static Document parse(byte[] source, ParseBudget.Meter meter) throws IOException, SAXException, ParserConfigurationException {
+
+        ParseBudget budget = meter.getBudget();
+        try {
+            budget.checkSize(source.length);
+            if (budget.getMaxNodes() > 0) {
+                meter.scan(source);
+            }
+
+            DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
+            factory.setNamespaceAware(true);
+            budget.configure(factory);
+            return factory.newDocumentBuilder().parse(new DeadlineInputStream(new ByteArrayInputStream(source), meter));
+
+        } catch (SAXException e) {
+            BudgetExceededException exceeded = ParseBudget.exceeded(e);
+            if (exceeded != null) {
+                throw exceeded;
+            }
+            throw e;
+        }
+    }
+
+}
@@ -0,0 +1,664 @@
+package sk.isdd.validator.xml;
+
+import org.apache.commons.io.FileUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.w3c.dom.Document;
+import sk.isdd.validator.ApplicationException;
+import sk.isdd.validator.compress.CompressionFormat;
+import sk.isdd.validator.digest.DigestEngine;
+import sk.isdd.validator.digest.DigestResult;
+import sk.isdd.validator.enumerations.DigestAlgorithm;
+import sk.isdd.validator.enumerations.XmlC14nMethod;
+import sk.isdd.validator.io.IoPriority;
+import sk.isdd.validator.io.IoScheduler;
+import sk.isdd.validator.store.BlobStore;
+
+import javax.xml.parsers.DocumentBuilder;
+import javax.xml.parsers.DocumentBuilderFactory;
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.security.NoSuchAlgorithmException;
+import java.text.DecimalFormat;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Extending {@code File} with basic XML loading and parsing ability.
+ *
+ * <p>Internal states of file reading and xml parsing is remembered.
+ * These states are not reversible. To reread and reparse file, new object needs to be created.
+ * Memory is bounded by a single document: only the canonical form of the last canonicalization is retained,
+ * raw bytes and DOM are released once it is computed (and read or parsed again if asked for later).
+ * Failures and digests are remembered for good.
+ *
+ * <p>Lazy states are safe for concurrent use with single-flight semantics: the first caller computes the state,
+ * concurrent callers wait for the same result instead of reading or parsing the file again. States are published
+ * by compare-and-set of a {@link FutureTask}, there is no lock shared by independent states, so e.g. parsing,
+ * canonicalization by different methods and digests by different algorithms of one file can run concurrently.
+ * The parsed DOM document is shared, it must not be accessed by more threads at once.
+ *
+ * <p>Reading, parsing and canonicalization are limited by {@link ParseBudget} (by default from system properties).
+ * Document exceeding the budget fails fast, the reason is available by {@link #getBudgetFailure()}.
+ *
+ * TODO: I/O streaming feature: To support large files, contents of the whole file should not be retained within arrays.
+ */
+public class XmlFile extends File {
+
+    private static final Logger LOG = LoggerFactory.getLogger(XmlFile.class);
+
+    /**
+     * Reading of raw byte content of the whole file, null result if loading failed (irreversibly).
+     */
+    private final AtomicReference<FutureTask<byte[]>> reading = new AtomicReference<>();
+
+    /**
+     * Parsing of document from file (org.w3c.dom.Document), null result if parsing failed (irreversibly).
+     */
+    private final AtomicReference<FutureTask<Document>> parsing = new AtomicReference<>();
+
+    /**
+     * Canonical forms by method being computed, or null result if transformation failed.
+     * Computed form is kept only as the last transformation.
+     */
+    private final ConcurrentMap<XmlC14nMethod, FutureTask<byte[]>> canonicalForms = new ConcurrentHashMap<>();
+
+    /**
+     * Digests of canonical forms by method and algorithm, null result if not available.
+     */
+    private final ConcurrentMap<String, FutureTask<DigestResult>> digests = new ConcurrentHashMap<>();
+
+    /**
+     * Compression of the file detected while reading, raw bytes are always decompressed.
+     */
+    private volatile CompressionFormat compression = CompressionFormat.NONE;
+
+    /**
+     * The last transformation of source file (transformation depends on the method).
+     */
+    private volatile Transformation transformation = null;
+
+    /**
+     * True once the file was parsed successfully, remembered when the DOM is released.
+     */
+    private volatile boolean wellFormed = false;
+
+    /**
+     * Priority class of file reads scheduled by {@link IoScheduler}.
+     */
+    private volatile IoPriority ioPriority = IoPriority.INTERACTIVE;
+
+    /**
+     * Limits of reading, parsing and canonicalization.
+     */
+    private volatile ParseBudget budget = ParseBudget.getDefault();
+
+    /**
+     * The exceeded budget, if any state failed for it.
+     */
+    private volatile BudgetExceededException budgetFailure = null;
+
+    /**
+     * Canonical form with the method it was computed by.
+     */
+    private static final class Transformation {
+
+        private final XmlC14nMethod method;
+        private final byte[] bytes;
+
+        /**
+         * @param method the method, null for subset canonicalization
+         */
+        Transformation(XmlC14nMethod method, byte[] bytes) {
+            this.method = method;
+            this.bytes = bytes;
+        }
+    }
+
+    /**
+     * Custom constructor supports initialization directly from File
+     *
+     * @param file the file where the pathname will be extracted from
+     */
+    public XmlFile(File file)
+    {
+        super((file == null)? "" : file.getAbsolutePath());
+    }
+
+    /**
+     * All required constructors call super()
+     */
+    public XmlFile(String pathname) {
+        super(pathname);
+    }
+    public XmlFile(String parent, String child) {
+        super(parent, child);
+    }
+    public XmlFile(File parent, String child) {
+        super(parent, child);
+    }
+    public XmlFile(URI uri) {
+        super(uri);
+    }
+
+    /**
+     * Load content of the file to internal field and return its byte array.
+     *
+     * <p>Byte array is cached within the instance of this object until a canonical form is computed.
+     * Each method is using this internal array of bytes for future processing.
+     * It will load only once (again after release). If it failed once, it will always fail.
+     *
+     * <p>Compressed files (see {@link CompressionFormat}) are decompressed transparently.
+     *
+     * @return the array of file bytes or null if unable to read content of the file.
+     */
+    public byte[] readFile() {
+        return singleFlight(reading, this::load);
+    }
+
+    private byte[] load() {
+
+        byte[] rawBytes;
+        ParseBudget budget = this.budget;
+        try (InputStream in = new BufferedInputStream(IoScheduler.getDefault().wrap(new FileInputStream(this), ioPriority), 64 * 1024)) {
+            compression = CompressionFormat.detect(in);
+            try (InputStream decoded = compression.decode(in)) {
+                if (budget.getMaxBytes() > 0) {
+                    // bounded read, decompression bomb stops at the limit
+                    rawBytes = decoded.readNBytes((int) Math.min(budget.getMaxBytes() + 1, Integer.MAX_VALUE - 8));
+                    budget.checkSize(rawBytes.length);
+                } else {
+                    rawBytes = decoded.readAllBytes();
+                }
+            }
+
+        } catch (BudgetExceededException e) {
+            budgetExceeded(e);
+            return null;
+
+        } catch (IOException e) {
+            LOG.warn("Could not read content of the file \"" + getAbsolutePath() + "\": " + e.getMessage(), e);
+            return null;
+        }
+
+        if (compression != CompressionFormat.NONE) {
+            LOG.info("File \"" + getAbsolutePath() + "\" was decompressed from " + compression.getName() + ".");
+        }
+        LOG.info("File \"" + getAbsolutePath() +"\" was loaded successfully.");
+        return rawBytes;
+    }
+
+    /**
+     * Save transformed output to chosen file.
+     *
+     * @param file the file where to save output
+     * @return true if file was saved, false otherwise
+     */
+    public boolean saveTransformedFile(File file) {
+
+        if (file == null) {
+            LOG.error("Unable to save transformation to unknown file.");
+            return false;
+        }
+
+        byte[] transformed = getTransformedBytes();
+        if (transformed == null) {
+            LOG.error("Transformed data not found.");
+            return false;
+        }
+
+        try {
+            FileUtils.writeByteArrayToFile(file, transformed);
+
+        } catch (IOException e) {
+            LOG.error("Unable to save transformation to file \"" + file.getAbsolutePath() + "\": " + e.getMessage());
+            return false;
+        }
+
+        return true;
+    }
+
+    /**
+     * Save transformed output to content-addressed store, identical output is stored only once.
+     *
+     * @param store the blob store
+     * @return the key of the saved output (hex SHA-256) or null if it was not saved
+     */
+    public String saveTransformedFile(BlobStore store) {
+
+        byte[] transformed = getTransformedBytes();
+        if (transformed == null) {
+            LOG.error("Transformed data not found.");
+            return null;
+        }
+
+        try {
+            return store.put(transformed);
+
+        } catch (IOException e) {
+            LOG.error("Unable to save transformation to store \"" + store.getRoot() + "\": " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Parse loaded file into DOM document once.
+     *
+     * On subsequent calls just return already parsed xml document. All exceptions are suppressed.
+     * It will parse only once (again after the document is released, see {@link #canonicalize(XmlC14nMethod)}).
+     * If parsing failed once, it will always fail.
+     *
+     * @return valid DOM document parsed from current file or null for any other possible reason, no exception is thrown
+     */
+    public Document parseXml() {
+        return singleFlight(parsing, this::parse);
+    }
+
+    private Document parse() {
+
+        // read file or fail
+        byte[] rawBytes = readFile();
+        if (rawBytes == null) {
+            return null;
+        }
+
+        DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
+        DocumentBuilder builder;
+        Document xmlDocument;
+
+        ParseBudget budget = this.budget;
+        ParseBudget.Meter meter = budget.start();
+        try {
+            // DOM parser cannot count nodes, they are counted by streaming pass
+            if (budget.getMaxNodes() > 0) {
+                meter.scan(rawBytes);
+            }
+            budget.configure(factory);
+            builder = factory.newDocumentBuilder();
+            xmlDocument = builder.parse(new DeadlineInputStream(new ByteArrayInputStream(rawBytes), meter));
+
+        } catch (Throwable t) {
+            BudgetExceededException exceeded = ParseBudget.exceeded(t);
+            if (exceeded != null) {
+                budgetExceeded(exceeded);
+            } else {
+                LOG.warn("XML parser failed: " + t.getMessage());
+            }
+            return null;
+        }
+
+        wellFormed = true;
+        LOG.info("Content of file was parsed to XML document successfully.");
+        return xmlDocument;
+    }
+
+    /**
+     * Perform canonicalization on internally loaded file.
+     *
+     * <p>Canonical form is remembered as transformed bytes until canonicalization by another method,
+     * raw bytes and DOM document are released once it is computed.
+     *
+     * @param method Canonicalization method.
+     * @return Canonical output (should be well formed XML) or null
+     */
+    public byte[] canonicalize(XmlC14nMethod method) {
+        return canonicalize(method, 1);
+    }
+
+    /**
+     * Perform canonicalization on internally loaded file, in parallel by partitions of root's children
+     * (see {@link ParallelCanonicalizer}). The output is the same as of {@link #canonicalize(XmlC14nMethod)}.
+     *
+     * @param method Canonicalization method.
+     * @param threads number of threads, 1 for the sequential canonicalization
+     * @return Canonical output (should be well formed XML) or null
+     */
+    public byte[] canonicalize(XmlC14nMethod method, int threads) {
+
+        XmlC14nMethod key = (method == null) ? XmlC14nMethod.C14N_NONE : method;
+        Transformation last = transformation;
+        if (last != null && last.method == key) {
+            return last.bytes;
+        }
+        return singleFlight(canonicalForms, key, () -> {
+            // published by the previous flight after the check above, its entry was removed in between
+            Transformation published = transformation;
+            if (published != null && published.method == key) {
+                canonicalForms.remove(key);
+                return published.bytes;
+            }
+            byte[] transformed = transform(key, threads);
+            if (transformed != null) {
+                // published before the in-flight state is removed, so later callers find it
+                transformation = new Transformation(key, transformed);
+                canonicalForms.remove(key);
+                release();
+            }
+            return transformed;
+        });
+    }
+
+    /**
+     * Release successfully read raw bytes and parsed DOM document, failures stay remembered.
+     */
+    private void release() {
+
+        FutureTask<byte[]> read = reading.get();
+        if (read != null && read.isDone() && !isFailed(read)) {
+            reading.compareAndSet(read, null);
+        }
+        FutureTask<Document> parsed = parsing.get();
+        if (parsed != null && parsed.isDone() && !isFailed(parsed)) {
+            parsing.compareAndSet(parsed, null);
+        }
+    }
+
+    private byte[] transform(XmlC14nMethod method, int threads) {
+
+        // read the file if not already loaded
+        byte[] rawBytes = readFile();
+        if (rawBytes == null) {
+            return null;
+        }
+
+        // return without transformation
+        if (method == XmlC14nMethod.C14N_NONE) {
+            return rawBytes;
+        }
+
+        byte[] transformed;
+        try {
+            if (threads <= 1) {
+                transformed = XmlCanonicalizer.canonicalize(rawBytes, method, budget);
+            } else {
+                ByteArrayOutputStream output = new ByteArrayOutputStream(rawBytes.length);
+                new ParallelCanonicalizer(method, threads).canonicalize(
+                        new DeadlineInputStream(new ByteArrayInputStream(rawBytes), budget.start()), output);
+                transformed = output.toByteArray();
+            }
+
+        } catch (BudgetExceededException e) {
+            budgetExceeded(e);
+            return null;
+
+        } catch (Exception e) {
+            LOG.error("Cannot canonicalize the source file; Transformation \"" + method.getText() + "\": " + method.getUri(), e);
+            return null;
+        }
+
+        LOG.info("Canonicalization was successful; Transformation \"" + method.getText() + "\": " + method.getUri());
+        return transformed;
+    }
+
+    /**
+     * Calculate message digest of the canonical form, once per method and algorithm.
+     * Digests by different algorithms can be calculated concurrently over the same canonical form.
+     *
+     * @param method Canonicalization method.
+     * @param algorithm digest algorithm
+     * @return the digest or null if canonicalization failed or the algorithm is not provided
+     */
+    public DigestResult digest(XmlC14nMethod method, DigestAlgorithm algorithm) {
+
+        XmlC14nMethod key = (method == null) ? XmlC14nMethod.C14N_NONE : method;
+        return singleFlight(digests, key.name() + "/" + algorithm.name(), () -> {
+            byte[] canonical = canonicalize(key);
+            if (canonical == null) {
+                return null;
+            }
+            try {
+                return DigestEngine.calculate(canonical, algorithm);
+            } catch (NoSuchAlgorithmException e) {
+                LOG.warn("Message digest algorithm \"" + algorithm.getJavaName() + "\" not provided.");
+                return null;
+            }
+        });
+    }
+
+    /**
+     * Perform canonicalization of the document subset - subtree of single element selected by Id or XPath.
+     *
+     * <p> File is streamed from disk, it is neither loaded into internal byte array nor parsed into DOM
+     * (unless complex XPath or inherited xml:* attributes require it, see {@link SubsetCanonicalizer}),
+     * within the budget. Result is remembered as transformed bytes, replacing the last canonical form.
+     *
+     * @param selector same-document reference "#id" or XPath expression selecting the element
+     * @param method canonicalization method other than {@link XmlC14nMethod#C14N_NONE}
+     * @return canonical output of the subset or null if the element was not found or transformation failed
+     */
+    public byte[] canonicalizeSubset(String selector, XmlC14nMethod method) {
+
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        SubsetCanonicalizer.Source source = () -> CompressionFormat.open(IoScheduler.getDefault().wrap(new FileInputStream(this), ioPriority), false);
+        try {
+            boolean found = selector.startsWith("#")
+                    ? SubsetCanonicalizer.canonicalizeById(source, selector, method, null, budget, output)
+                    : SubsetCanonicalizer.canonicalizeByXPath(source, selector, method, null, budget, output);
+
+            if (!found) {
+                LOG.warn("Element \"" + selector + "\" not found in file \"" + getAbsolutePath() + "\".");
+                return null;
+            }
+
+        } catch (BudgetExceededException e) {
+            budgetExceeded(e);
+            return null;
+
+        } catch (Exception e) {
+            LOG.error("Cannot canonicalize subset \"" + selector + "\" of the source file; Transformation \"" + method.getText() + "\": " + method.getUri(), e);
+            return null;
+        }
+
+        byte[] transformed = output.toByteArray();
+        transformation = new Transformation(null, transformed);
+        return transformed;
+    }
+
+    /**
+     * Test if file is normal file and has reading permissions.
+     *
+     * @return <code>true</code> if file is readable
+     */
+    public boolean isReadableFile() {
+
+        try {
+            if (this.isFile() && this.canRead()) {
+                return true;
+            }
+        } catch (Exception e) {
+            LOG.debug("File is not readable: " + e.getMessage(), e);
+        }
+
+        return false;
+    }
+
+    /**
+     * Test if file is well formed XML document. If true, document is internally parsed and can
+     * be retrieved by {@code getXMLDocument()} until released.
+     *
+     * @return true if document is readable file and parses as XML, otherwise false
+     */
+    public boolean isXmlDocument() {
+
+        return (isReadableFile() && (wellFormed || parseXml() != null));
+    }
+
+    /**
+     * Returns the length of file in human readable format including appropriate
+     * unit (kB, MB, etc) depending on its size.
+     *
+     * @return formatted file size including unit
+     */
+    public String humanFileSize() {
+
+        if (length() <= 0) {
+            return "0 B";
+        }
+        final String[] units = new String[] { "B", "kB", "MB", "GB", "TB", "PB"};
+        int digitGroups = (int) (Math.log10(length()) / Math.log10(1024));
+        return new DecimalFormat("#,##0.#").format(length() / Math.pow(1024, digitGroups)) + " " + units[digitGroups];
+    }
+
+    /**
+     * Return true if reading of the file failed (irreversibly).
+     */
+    public boolean isReadingFailed() {
+        return isFailed(reading.get());
+    }
+
+    /**
+     * Return true if parsing of the file failed (irreversibly), including failed reading before parsing.
+     */
+    public boolean isParsingFailed() {
+        return isFailed(parsing.get());
+    }
+
+    /**
+     * Return parsed document, null if not parsed (yet) or released.
+     */
+    public Document getXmlDocument() {
+        return completed(parsing.get());
+    }
+
+    /**
+     * Return compression of the file, known after it was read.
+     */
+    public CompressionFormat getCompression() {
+        return compression;
+    }
+
+    public IoPriority getIoPriority() {
+        return ioPriority;
+    }
+
+    /**
+     * Set priority class of subsequent file reads, batch jobs should use {@link IoPriority#BACKGROUND}.
+     */
+    public void setIoPriority(IoPriority ioPriority) {
+        this.ioPriority = ioPriority;
+    }
+
+    /**
+     * Return loaded content, null if not loaded (yet) or released.
+     */
+    public byte[] getRawBytes() {
+        return completed(reading.get());
+    }
+
+    public byte[] getTransformedBytes() {
+        Transformation last = transformation;
+        return (last != null) ? last.bytes : null;
+    }
+
+    public ParseBudget getBudget() {
+        return budget;
+    }
+
+    /**
+     * Set limits of reading, parsing and canonicalization, effective for states not computed yet.
+     */
+    public void setBudget(ParseBudget budget) {
+        this.budget = budget;
+    }
+
+    /**
+     * Return the reason of failure for exceeded budget, null if no state failed for the budget.
+     */
+    public BudgetExceededException getBudgetFailure() {
+        return budgetFailure;
+    }
+
+    private void budgetExceeded(BudgetExceededException e) {
+        LOG.warn("File \"" + getAbsolutePath() + "\" exceeded " + e.getLimit().getText() + " budget: " + e.getMessage());
+        budgetFailure = e;
+    }
+
+    /**
+     * Return the state computed by the first caller, computing it if this is the first caller.
+     */
+    private static <T> T singleFlight(AtomicReference<FutureTask<T>> state, Callable<T> computation) {
+
+        FutureTask<T> task = state.get();
+        if (task == null) {
+            FutureTask<T> created = new FutureTask<>(computation);
+            task = state.compareAndExchange(null, created);
+            if (task == null) {
+                task = created;
+                created.run();
+            }
+        }
+        return await(task);
+    }
+
+    /**
+     * Return the state of the key computed by the first caller, computing it if this is the first caller.
+     */
+    private static <K, T> T singleFlight(ConcurrentMap<K, FutureTask<T>> states, K key, Callable<T> computation) {
+
+        FutureTask<T> task = states.get(key);
+        if (task == null) {
+            FutureTask<T> created = new FutureTask<>(computation);
+            task = states.putIfAbsent(key, created);
+            if (task == null) {
+                task = created;
+                created.run();
+            }
+        }
+        return await(task);
+    }
+
+    /**
+     * Wait for the result uninterruptibly (interruption is restored), errors of the computation are rethrown.
+     */
+    private static <T> T await(FutureTask<T> task) {
+
+        boolean interrupted = false;
+        try {
+            while (true) {
+                try {
+                    return task.get();
+
+                } catch (InterruptedException e) {
+                    interrupted = true;
+
+                } catch (ExecutionException e) {
+                    Throwable cause = e.getCause();
+                    if (cause instanceof Error) {
+                        throw (Error) cause;
+                    }
+                    if (cause instanceof RuntimeException) {
+                        throw (RuntimeException) cause;
+                    }
+                    throw new ApplicationException("Lazy state of file failed: " + cause.getMessage(), cause);
+                }
+            }
+        } finally {
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private static <T> T completed(FutureTask<T> task) {
+        return (task != null && task.isDone()) ? await(task) : null;
+    }
+
+    private static boolean isFailed(FutureTask<?> task) {
+        try {
+            return task != null && task.isDone() && await(task) == null;
+        } catch (RuntimeException | Error e) {
+            return true;
+        }
+    }
+
+}
\ No newline at end of file
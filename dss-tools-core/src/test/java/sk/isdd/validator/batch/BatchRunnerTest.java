@@ -0,0 +1,112 @@
+package sk.isdd.validator.batch;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import sk.isdd.validator.enumerations.DigestAlgorithm;
+import sk.isdd.validator.enumerations.XmlC14nMethod;
+import sk.isdd.validator.xml.XmlFile;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class BatchRunnerTest {
+
+    private static final XmlC14nMethod METHOD = XmlC14nMethod.C14N_EXCL_OMIT_COMMENTS;
+    private static final List<DigestAlgorithm> ALGORITHMS = List.of(DigestAlgorithm.SHA256);
+
+    @Test
+    void interruptedRunIsResumed(@TempDir Path directory) throws Exception {
+
+        List<Path> files = files(directory, 20);
+        Path journalFile = directory.resolve("run.journal");
+
+        // first run sees only half of the files, as if it was killed after them
+        try (CheckpointJournal journal = CheckpointJournal.open(journalFile, METHOD, ALGORITHMS, null)) {
+            BatchRunner.Summary summary = new BatchRunner(METHOD, ALGORITHMS, true, 4).run(files.subList(0, 10), journal, null);
+            assertEquals(10, summary.getProcessed());
+            assertEquals(1, summary.getFailed());
+        }
+
+        Map<String, BatchEntry> entries = new HashMap<>();
+        try (CheckpointJournal journal = CheckpointJournal.open(journalFile, METHOD, ALGORITHMS,
+                entry -> entries.put(entry.getPath(), entry))) {
+            BatchRunner.Summary summary = new BatchRunner(METHOD, ALGORITHMS, true, 4).run(files, journal,
+                    entry -> entries.put(entry.getPath(), entry));
+            assertEquals(10, summary.getProcessed());
+            assertEquals(10, summary.getSkipped());
+            assertEquals(0, summary.getFailed());
+        }
+
+        assertEquals(20, entries.size());
+        for (Path file : files) {
+            BatchEntry entry = entries.get(file.toAbsolutePath().normalize().toString());
+            if (file.getFileName().toString().startsWith("broken")) {
+                assertEquals(BatchEntry.Status.PARSE_FAILED, entry.getStatus());
+            } else {
+                assertEquals(BatchEntry.Status.DONE, entry.getStatus());
+                byte[] expected = MessageDigest.getInstance("SHA-256").digest(new XmlFile(file.toString()).canonicalize(METHOD));
+                assertArrayEquals(expected, entry.getResults().get(0).getDigest());
+            }
+        }
+    }
+
+    @Test
+    void runtimeFailuresAreRecordedAsFailedFiles(@TempDir Path directory) throws Exception {
+
+        List<Path> files = files(directory, 8);
+        Path journalFile = directory.resolve("run.journal");
+
+        // appending digests of algorithm the journal doesn't know fails at runtime for every processed file
+        try (CheckpointJournal journal = CheckpointJournal.open(journalFile, METHOD, List.of(DigestAlgorithm.SHA1), null)) {
+            BatchRunner.Summary summary = new BatchRunner(METHOD, ALGORITHMS, false, 2).run(files, journal, null);
+            assertEquals(8, summary.getProcessed());
+            assertEquals(8, summary.getFailed());
+        }
+        List<BatchEntry> recorded = new ArrayList<>();
+        CheckpointJournal.open(journalFile, METHOD, List.of(DigestAlgorithm.SHA1), recorded::add).close();
+        assertEquals(8, recorded.size());
+        for (BatchEntry entry : recorded) {
+            assertEquals(entry.getPath().contains("broken") ? BatchEntry.Status.C14N_FAILED : BatchEntry.Status.FAILED,
+                    entry.getStatus());
+        }
+
+        // failing listener doesn't stop the run, the entries are journaled
+        Path secondJournal = directory.resolve("second.journal");
+        try (CheckpointJournal journal = CheckpointJournal.open(secondJournal, METHOD, ALGORITHMS, null)) {
+            BatchRunner.Summary summary = new BatchRunner(METHOD, ALGORITHMS, false, 2).run(files, journal, entry -> {
+                throw new IllegalStateException("listener");
+            });
+            assertEquals(8, summary.getProcessed());
+        }
+        try (CheckpointJournal journal = CheckpointJournal.open(secondJournal, METHOD, ALGORITHMS, null)) {
+            assertEquals(8, journal.getResumedCount());
+        }
+    }
+
+    private static List<Path> files(Path directory, int count) throws Exception {
+
+        List<Path> files = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            Path file;
+            if (i == 5) {
+                file = directory.resolve("broken-" + i + ".xml");
+                Files.write(file, "<a><b></a>".getBytes(StandardCharsets.UTF_8));
+            } else {
+                file = directory.resolve("file-" + i + ".xml");
+                Files.write(file, ("<a  xmlns='urn:x'><b id=\"" + i + "\"/><!-- c --></a>").getBytes(StandardCharsets.UTF_8));
+            }
+            files.add(file);
+        }
+        return files;
+    }
+
+}
@@ -0,0 +1,127 @@
+package sk.isdd.validator.batch;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import sk.isdd.validator.ApplicationException;
+import sk.isdd.validator.digest.DigestResult;
+import sk.isdd.validator.enumerations.DigestAlgorithm;
+import sk.isdd.validator.enumerations.XmlC14nMethod;
+
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CheckpointJournalTest {
+
+    private static final XmlC14nMethod METHOD = XmlC14nMethod.C14N_EXCL_OMIT_COMMENTS;
+    private static final List<DigestAlgorithm> ALGORITHMS = List.of(DigestAlgorithm.SHA256, DigestAlgorithm.SHA1);
+
+    @Test
+    void reopenedJournalReplaysEntries(@TempDir Path directory) throws Exception {
+
+        Path file = directory.resolve("run.journal");
+        try (CheckpointJournal journal = CheckpointJournal.open(file, METHOD, ALGORITHMS, null)) {
+            for (int i = 0; i < 100; i++) {
+                journal.append(entry(i));
+            }
+        }
+
+        List<BatchEntry> replayed = new ArrayList<>();
+        try (CheckpointJournal journal = CheckpointJournal.open(file, METHOD, ALGORITHMS, replayed::add)) {
+            assertEquals(100, journal.getResumedCount());
+            assertTrue(journal.isCompleted("/data/42.xml"));
+            assertFalse(journal.isCompleted("/data/100.xml"));
+        }
+        assertEquals(100, replayed.size());
+        for (int i = 0; i < 100; i++) {
+            BatchEntry expected = entry(i);
+            BatchEntry actual = replayed.get(i);
+            assertEquals(expected.getStatus(), actual.getStatus());
+            assertEquals(expected.getPath(), actual.getPath());
+            assertEquals(expected.getResults().size(), actual.getResults().size());
+            for (int r = 0; r < expected.getResults().size(); r++) {
+                assertEquals(expected.getResults().get(r).getAlgorithm(), actual.getResults().get(r).getAlgorithm());
+                assertArrayEquals(expected.getResults().get(r).getDigest(), actual.getResults().get(r).getDigest());
+            }
+        }
+    }
+
+    @Test
+    void tornTailIsTruncated(@TempDir Path directory) throws Exception {
+
+        Path file = directory.resolve("run.journal");
+        try (CheckpointJournal journal = CheckpointJournal.open(file, METHOD, ALGORITHMS, null)) {
+            for (int i = 0; i < 10; i++) {
+                journal.append(entry(i));
+            }
+        }
+        long intact = Files.size(file);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            // crash in the middle of the eleventh record
+            channel.truncate(intact);
+            channel.position(intact);
+            channel.write(ByteBuffer.wrap(new byte[] {0, 0, 0, 60, 1, 2, 3}));
+        }
+
+        try (CheckpointJournal journal = CheckpointJournal.open(file, METHOD, ALGORITHMS, null)) {
+            assertEquals(10, journal.getResumedCount());
+            assertEquals(intact, Files.size(file));
+            journal.append(entry(10));
+        }
+        try (CheckpointJournal journal = CheckpointJournal.open(file, METHOD, ALGORITHMS, null)) {
+            assertEquals(11, journal.getResumedCount());
+        }
+    }
+
+    @Test
+    void tornHeaderIsReportedAsDamaged(@TempDir Path directory) throws Exception {
+
+        Path file = directory.resolve("run.journal");
+        CheckpointJournal.open(file, METHOD, ALGORITHMS, null).close();
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            channel.truncate(Files.size(file) - 3);
+        }
+
+        ApplicationException e = assertThrows(ApplicationException.class,
+                () -> CheckpointJournal.open(file, METHOD, ALGORITHMS, null));
+        assertTrue(e.getMessage().contains("damaged"), e.getMessage());
+    }
+
+    @Test
+    void otherSettingsAreRejected(@TempDir Path directory) throws Exception {
+
+        Path file = directory.resolve("run.journal");
+        CheckpointJournal.open(file, METHOD, ALGORITHMS, null).close();
+
+        ApplicationException e = assertThrows(ApplicationException.class,
+                () -> CheckpointJournal.open(file, XmlC14nMethod.C14N_OMIT_COMMENTS, ALGORITHMS, null));
+        assertTrue(e.getMessage().contains("different settings"), e.getMessage());
+    }
+
+    private static BatchEntry entry(int i) {
+
+        if (i % 7 == 3) {
+            return new BatchEntry(BatchEntry.Status.PARSE_FAILED, "/data/" + i + ".xml", Collections.emptyList());
+        }
+        List<DigestResult> results = new ArrayList<>();
+        for (DigestAlgorithm algorithm : ALGORITHMS) {
+            byte[] digest = new byte[algorithm.getDigestLength()];
+            digest[0] = (byte) i;
+            digest[digest.length - 1] = (byte) algorithm.ordinal();
+            results.add(new DigestResult(algorithm, digest));
+        }
+        return new BatchEntry(BatchEntry.Status.DONE, "/data/" + i + ".xml", results);
+    }
+
+}
@@ -0,0 +1,44 @@
+package sk.isdd.validator.cli;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import sk.isdd.validator.digest.DigestResult;
+import sk.isdd.validator.enumerations.DigestAlgorithm;
+import sk.isdd.validator.enumerations.XmlC14nMethod;
+import sk.isdd.validator.xml.XmlFile;
+
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Digests of the CLI must equal digests of {@link XmlFile} (GUI, batch) for the same file.
+ */
+class DigestCommandTest {
+
+    private static final String DOCUMENT = "<p:r xmlns:p=\"urn:p\" xml:space=\"preserve\" xml:base=\"http://x/y/\">"
+            + "<p:c xml:lang=\"en\">1</p:c><p:c xml:base=\"z/\" xml:id=\"c2\">2</p:c><!-- c --></p:r>";
+
+    @Test
+    void digestMatchesXmlFile(@TempDir Path directory) throws Exception {
+
+        Path file = Files.writeString(directory.resolve("document.xml"), DOCUMENT);
+        for (XmlC14nMethod method : XmlC14nMethod.values()) {
+            byte[] expected = new XmlFile(file.toFile()).digest(method, DigestAlgorithm.SHA256).getDigest();
+            for (int threads : new int[] {1, 4}) {
+                try (InputStream in = Files.newInputStream(file)) {
+                    List<DigestResult> results = DigestCommand.digest(in, false, method, threads,
+                            Collections.singletonList(DigestAlgorithm.SHA256));
+                    assertEquals(1, results.size());
+                    assertArrayEquals(expected, results.get(0).getDigest(), method.getText() + ", threads " + threads);
+                }
+            }
+        }
+    }
+
+}
@@ -0,0 +1,90 @@
+package sk.isdd.validator.dsig;
+
+import org.apache.xml.security.Init;
+import org.apache.xml.security.signature.XMLSignature;
+import org.apache.xml.security.transforms.Transforms;
+import org.apache.xml.security.utils.Constants;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.transform.TransformerFactory;
+import javax.xml.transform.dom.DOMSource;
+import javax.xml.transform.stream.StreamResult;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class ReferenceVerifierTest {
+
+    private static final int RECORDS = 8;
+
+    @Test
+    void parallelVerificationMatchesSequential(@TempDir Path directory) throws Exception {
+
+        byte[] document = signedDocument();
+        for (int threads : new int[] {1, 4}) {
+            List<ReferenceResult> results = new ReferenceVerifier(threads).verify(document, directory);
+            assertEquals(RECORDS + 1, results.size());
+            for (ReferenceResult result : results) {
+                assertEquals(ReferenceResult.Status.VALID, result.getStatus(), result.getReference() + ": " + result.getMessage());
+            }
+        }
+
+        // a changed record breaks its own reference and the enveloped one only
+        byte[] tampered = new String(document, StandardCharsets.UTF_8).replace(">record 3<", ">record X<")
+                .getBytes(StandardCharsets.UTF_8);
+        for (int threads : new int[] {1, 4}) {
+            long invalid = new ReferenceVerifier(threads).verify(tampered, directory).stream()
+                    .filter(result -> result.getStatus() == ReferenceResult.Status.INVALID).count();
+            assertEquals(2, invalid);
+        }
+    }
+
+    private static byte[] signedDocument() throws Exception {
+
+        Init.init();
+        DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
+        factory.setNamespaceAware(true);
+        Document document = factory.newDocumentBuilder().newDocument();
+        Element root = document.createElementNS("urn:records", "r:records");
+        root.setAttributeNS(Constants.NamespaceSpecNS, "xmlns:r", "urn:records");
+        document.appendChild(root);
+        for (int i = 0; i < RECORDS; i++) {
+            Element record = document.createElementNS("urn:records", "r:record");
+            record.setAttributeNS(null, "Id", "record-" + i);
+            record.setIdAttributeNS(null, "Id", true);
+            record.setTextContent("record " + i);
+            root.appendChild(record);
+        }
+
+        XMLSignature signature = new XMLSignature(document, "", XMLSignature.ALGO_ID_SIGNATURE_RSA_SHA256);
+        root.appendChild(signature.getElement());
+        for (int i = 0; i < RECORDS; i++) {
+            Transforms transforms = new Transforms(document);
+            transforms.addTransform(Transforms.TRANSFORM_C14N_EXCL_OMIT_COMMENTS);
+            signature.addDocument("#record-" + i, transforms, "http://www.w3.org/2001/04/xmlenc#sha256");
+        }
+        Transforms enveloped = new Transforms(document);
+        enveloped.addTransform(Transforms.TRANSFORM_ENVELOPED_SIGNATURE);
+        enveloped.addTransform(Transforms.TRANSFORM_C14N_OMIT_COMMENTS);
+        signature.addDocument("", enveloped, "http://www.w3.org/2001/04/xmlenc#sha256");
+
+        KeyPairGenerator generator = KeyPairGenerator.getInstance("RSA");
+        generator.initialize(2048);
+        KeyPair keys = generator.generateKeyPair();
+        signature.sign(keys.getPrivate());
+
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        TransformerFactory.newInstance().newTransformer().transform(new DOMSource(document), new StreamResult(output));
+        return output.toByteArray();
+    }
+
+}
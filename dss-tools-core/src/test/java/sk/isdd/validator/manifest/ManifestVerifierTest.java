@@ -0,0 +1,131 @@
+package sk.isdd.validator.manifest;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import sk.isdd.validator.enumerations.DigestAlgorithm;
+import sk.isdd.validator.enumerations.XmlC14nMethod;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Manifests written by {@link ManifestWriter} are verified by {@link ManifestVerifier}.
+ */
+class ManifestVerifierTest {
+
+    @Test
+    void writtenManifestVerifies(@TempDir Path directory) throws Exception {
+
+        List<Path> files = files(directory, 12);
+        for (ManifestFormat format : ManifestFormat.values()) {
+            XmlC14nMethod method = (format == ManifestFormat.C14N) ? XmlC14nMethod.C14N_EXCL_OMIT_COMMENTS : XmlC14nMethod.C14N_NONE;
+            String manifest = write(files, method, format);
+
+            Map<String, ManifestVerifier.Status> statuses = verify(directory, manifest);
+            assertEquals(12, statuses.size(), format.getText());
+            for (ManifestVerifier.Status status : statuses.values()) {
+                assertEquals(ManifestVerifier.Status.OK, status, format.getText());
+            }
+        }
+    }
+
+    @Test
+    void changedAndMissingFilesAreReported(@TempDir Path directory) throws Exception {
+
+        List<Path> files = files(directory, 4);
+        String manifest = write(files, XmlC14nMethod.C14N_EXCL_OMIT_COMMENTS, ManifestFormat.C14N);
+
+        // comment and attribute quoting are not part of the canonical form, the text is
+        Files.writeString(files.get(0), "<r xmlns=\"urn:r\"><a b=\"0\"></a><!-- other --></r>");
+        Files.writeString(files.get(1), "<r xmlns='urn:r'><a b='1'/>changed</r>");
+        Files.delete(files.get(2));
+
+        Map<String, ManifestVerifier.Status> statuses = verify(directory, manifest);
+        assertEquals(ManifestVerifier.Status.OK, statuses.get(files.get(0).toString()));
+        assertEquals(ManifestVerifier.Status.MISMATCH, statuses.get(files.get(1).toString()));
+        assertEquals(ManifestVerifier.Status.MISSING, statuses.get(files.get(2).toString()));
+        assertEquals(ManifestVerifier.Status.OK, statuses.get(files.get(3).toString()));
+    }
+
+    @Test
+    void tornManifestFailsOnlyItsLastLine(@TempDir Path directory) throws Exception {
+
+        List<Path> files = files(directory, 6);
+        String manifest = write(files, XmlC14nMethod.C14N_NONE, ManifestFormat.GNU);
+        // writer killed in the middle of the digest of the last line
+        String torn = manifest.substring(0, manifest.lastIndexOf('\n', manifest.length() - 2) + 20);
+
+        List<ManifestVerifier.Result> results = new ArrayList<>();
+        ManifestVerifier.Progress progress = new ManifestVerifier(directory, DigestAlgorithm.SHA256, 2)
+                .verify(new BufferedReader(new StringReader(torn)), results::add);
+        assertEquals(6, progress.getLines());
+        assertEquals(5, progress.getOk());
+        assertEquals(1, progress.getProblems());
+        for (ManifestVerifier.Result result : results) {
+            if (result.getStatus() != ManifestVerifier.Status.OK) {
+                assertEquals(ManifestVerifier.Status.MALFORMED, result.getStatus());
+                assertEquals(6, result.getLineNumber());
+            }
+        }
+    }
+
+    @Test
+    void fingerprintsSurviveReload(@TempDir Path directory) throws Exception {
+
+        Path file = directory.resolve("fingerprints");
+        FingerprintStore store = FingerprintStore.load(file);
+        for (int i = 0; i < 50; i++) {
+            store.put("/data/" + i, new FingerprintStore.Record(new FileFingerprint(i, 1000L * i, 31L * i), new byte[] {(byte) i, 2, 3}, i));
+        }
+        store.save();
+
+        FingerprintStore loaded = FingerprintStore.load(file);
+        assertEquals(50, loaded.size());
+        FingerprintStore.Record record = loaded.get("/data/7");
+        assertEquals(new FileFingerprint(7, 7000, 217), record.getFingerprint());
+        assertEquals(7, record.getDigest()[0]);
+        assertEquals(7, record.getVerifiedMillis());
+
+        // a torn store is refused rather than loaded partially
+        byte[] bytes = Files.readAllBytes(file);
+        Files.write(file, Arrays.copyOf(bytes, bytes.length - 5));
+        assertThrows(IOException.class, () -> FingerprintStore.load(file));
+    }
+
+    private static List<Path> files(Path directory, int count) throws IOException {
+
+        List<Path> files = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            files.add(Files.writeString(directory.resolve("file-" + i + ".xml"), "<r xmlns='urn:r'><a b='" + i + "'/><!-- c --></r>"));
+        }
+        return files;
+    }
+
+    private static String write(List<Path> files, XmlC14nMethod method, ManifestFormat format) throws IOException {
+
+        StringWriter manifest = new StringWriter();
+        assertEquals(files.size(), new ManifestWriter(DigestAlgorithm.SHA256, method, format, 4).write(files, manifest));
+        return manifest.toString();
+    }
+
+    private static Map<String, ManifestVerifier.Status> verify(Path directory, String manifest) throws IOException {
+
+        Map<String, ManifestVerifier.Status> statuses = new TreeMap<>();
+        new ManifestVerifier(directory, DigestAlgorithm.SHA256, 4).verify(new BufferedReader(new StringReader(manifest)),
+                result -> statuses.put(result.getEntry().getPath(), result.getStatus()));
+        return statuses;
+    }
+
+}
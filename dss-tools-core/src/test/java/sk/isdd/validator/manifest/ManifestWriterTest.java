@@ -0,0 +1,29 @@
+package sk.isdd.validator.manifest;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import sk.isdd.validator.enumerations.DigestAlgorithm;
+import sk.isdd.validator.enumerations.XmlC14nMethod;
+import sk.isdd.validator.xml.XmlFile;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+
+class ManifestWriterTest {
+
+    private static final String DOCUMENT = "<r xml:base=\"http://a/b/c\" xml:lang=\"sk\"><x xml:base=\"../d\"/>"
+            + "<x xml:space=\"preserve\"> y </x></r>";
+
+    @Test
+    void digestMatchesXmlFile(@TempDir Path directory) throws Exception {
+
+        Path file = Files.writeString(directory.resolve("document.xml"), DOCUMENT);
+        for (XmlC14nMethod method : XmlC14nMethod.values()) {
+            assertArrayEquals(new XmlFile(file.toFile()).digest(method, DigestAlgorithm.SHA256).getDigest(),
+                    ManifestWriter.digest(file, DigestAlgorithm.SHA256, method), method.getText());
+        }
+    }
+
+}
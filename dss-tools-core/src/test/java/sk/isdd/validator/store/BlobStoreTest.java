@@ -0,0 +1,117 @@
+package sk.isdd.validator.store;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.InputStream;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BlobStoreTest {
+
+    @Test
+    void storedBlobsAreReadBackAndDeduplicated(@TempDir Path directory) throws Exception {
+
+        BlobStore store = new BlobStore(directory);
+        List<String> keys = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            keys.add(store.put(content(i)));
+        }
+        assertEquals(keys.get(3), store.put(content(3)));
+        assertEquals(20, store.getStored());
+        assertEquals(1, store.getDeduplicated());
+
+        // a new instance (next run) finds the blobs of the earlier one
+        BlobStore reopened = new BlobStore(directory);
+        for (int i = 0; i < 20; i++) {
+            assertTrue(reopened.contains(keys.get(i)));
+            try (InputStream in = reopened.open(keys.get(i))) {
+                assertArrayEquals(content(i), in.readAllBytes());
+            }
+            reopened.put(content(i));
+        }
+        assertEquals(0, reopened.getStored());
+        assertEquals(20, reopened.getDeduplicated());
+    }
+
+    @Test
+    void damagedBlobIsReplaced(@TempDir Path directory) throws Exception {
+
+        String key = new BlobStore(directory).put(content(1));
+        Path blob = new BlobStore(directory).resolve(key);
+        // crash of a writer without durable writes: the name exists, the content is torn
+        try (FileChannel channel = FileChannel.open(blob, StandardOpenOption.WRITE)) {
+            channel.truncate(10);
+        }
+        // temporary file left behind by a crashed writer
+        Files.write(blob.resolveSibling(key + "123.tmp"), new byte[] {1, 2, 3});
+
+        BlobStore store = new BlobStore(directory);
+        assertEquals(key, store.put(content(1)));
+        assertEquals(1, store.getStored());
+        assertArrayEquals(content(1), Files.readAllBytes(blob));
+
+        // the same length but other content is detected by the digest
+        byte[] other = content(1);
+        other[0] ^= 1;
+        Files.write(blob, other);
+        BlobStore again = new BlobStore(directory);
+        again.put(content(1));
+        assertEquals(1, again.getStored());
+        assertArrayEquals(content(1), Files.readAllBytes(blob));
+    }
+
+    @Test
+    void concurrentWritersStoreOnce(@TempDir Path directory) throws Exception {
+
+        int writers = 8;
+        List<BlobStore> stores = new ArrayList<>();
+        for (int i = 0; i < writers; i++) {
+            // separate instances behave like separate processes sharing the directory
+            stores.add(new BlobStore(directory));
+        }
+        ExecutorService executor = Executors.newFixedThreadPool(writers);
+        try {
+            CountDownLatch start = new CountDownLatch(1);
+            List<Future<String>> keys = new ArrayList<>();
+            for (BlobStore store : stores) {
+                keys.add(executor.submit(() -> {
+                    start.await();
+                    return store.put(content(7));
+                }));
+            }
+            start.countDown();
+            for (Future<String> key : keys) {
+                assertEquals(keys.get(0).get(), key.get());
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        long stored = stores.stream().mapToLong(BlobStore::getStored).sum();
+        long deduplicated = stores.stream().mapToLong(BlobStore::getDeduplicated).sum();
+        assertEquals(1, stored);
+        assertEquals(writers - 1, deduplicated);
+        try (var files = Files.walk(directory)) {
+            assertEquals(1, files.filter(Files::isRegularFile).count());
+        }
+    }
+
+    private static byte[] content(int i) {
+        return ("<blob n=\"" + i + "\">" + "x".repeat(i * 100) + "</blob>").getBytes(StandardCharsets.UTF_8);
+    }
+
+}
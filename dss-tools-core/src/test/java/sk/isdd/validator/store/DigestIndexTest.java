@@ -0,0 +1,143 @@
+package sk.isdd.validator.store;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import sk.isdd.validator.enumerations.DigestAlgorithm;
+import sk.isdd.validator.enumerations.XmlC14nMethod;
+
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class DigestIndexTest {
+
+    @Test
+    void reopenedIndexFindsRecords(@TempDir Path directory) throws Exception {
+
+        try (DigestIndex index = DigestIndex.open(directory, DigestAlgorithm.SHA256)) {
+            for (int i = 0; i < 1000; i++) {
+                index.put(digest(i), "/data/" + i + ".xml", XmlC14nMethod.C14N_EXCL_OMIT_COMMENTS, i);
+            }
+            index.put(digest(7), "/copy/7.xml", XmlC14nMethod.C14N_EXCL_OMIT_COMMENTS, 2000);
+        }
+
+        try (DigestIndex index = DigestIndex.open(directory, DigestAlgorithm.SHA256)) {
+            assertEquals(1000, index.size());
+            assertEquals(1001, index.getRecordCount());
+            List<DigestIndex.Entry> entries = index.lookup(digest(7));
+            assertEquals(2, entries.size());
+            assertEquals("/copy/7.xml", entries.get(0).getPath());
+            assertEquals("/data/7.xml", entries.get(1).getPath());
+            assertEquals(XmlC14nMethod.C14N_EXCL_OMIT_COMMENTS, entries.get(1).getMethod());
+            assertTrue(index.lookup(digest(5000)).isEmpty());
+        }
+    }
+
+    @Test
+    void recordsAfterLastFlushAreReplayed(@TempDir Path directory) throws Exception {
+
+        DigestIndex crashed = DigestIndex.open(directory, DigestAlgorithm.SHA256);
+        for (int i = 0; i < 100; i++) {
+            crashed.put(digest(i), "/a/" + i, XmlC14nMethod.C14N_NONE, i);
+        }
+        crashed.flush();
+        for (int i = 50; i < 150; i++) {
+            crashed.put(digest(i), "/b/" + i, XmlC14nMethod.C14N_NONE, i);
+        }
+        // commits the records to the log and the table, but the meta still covers only the flushed part
+        assertEquals(150, crashed.size());
+
+        try (DigestIndex index = DigestIndex.open(directory, DigestAlgorithm.SHA256)) {
+            assertEquals(150, index.size());
+            assertEquals(200, index.getRecordCount());
+            assertEquals(2, index.lookup(digest(60)).size());
+            assertEquals(1, index.lookup(digest(140)).size());
+        }
+    }
+
+    @Test
+    void tornTailIsTruncated(@TempDir Path directory) throws Exception {
+
+        try (DigestIndex index = DigestIndex.open(directory, DigestAlgorithm.SHA256)) {
+            for (int i = 0; i < 10; i++) {
+                index.put(digest(i), "/a/" + i, XmlC14nMethod.C14N_NONE, i);
+            }
+        }
+        Path log = directory.resolve(DigestIndex.LOG_FILE);
+        long size = Files.size(log);
+        try (FileChannel channel = FileChannel.open(log, StandardOpenOption.APPEND)) {
+            channel.write(ByteBuffer.wrap(new byte[] {0, 0, 0, 90, 1, 2, 3, 4, 5}));
+        }
+
+        try (DigestIndex index = DigestIndex.open(directory, DigestAlgorithm.SHA256)) {
+            assertEquals(10, index.size());
+            assertEquals(1, index.lookup(digest(3)).size());
+        }
+        assertEquals(size, Files.size(log));
+    }
+
+    @Test
+    void lostTableIsRebuilt(@TempDir Path directory) throws Exception {
+
+        try (DigestIndex index = DigestIndex.open(directory, DigestAlgorithm.SHA256)) {
+            for (int i = 0; i < 10; i++) {
+                index.put(digest(i), "/a/" + i, XmlC14nMethod.C14N_NONE, i);
+            }
+        }
+        Files.delete(directory.resolve(DigestIndex.TABLE_FILE));
+        Files.delete(directory.resolve(DigestIndex.META_FILE));
+
+        try (DigestIndex index = DigestIndex.open(directory, DigestAlgorithm.SHA256)) {
+            assertEquals(10, index.size());
+            assertEquals(1, index.lookup(digest(9)).size());
+        }
+    }
+
+    @Test
+    void algorithmIsCheckedWithoutMeta(@TempDir Path directory) throws Exception {
+
+        try (DigestIndex index = DigestIndex.open(directory, DigestAlgorithm.SHA256)) {
+            index.put(digest(1), "/a/1", XmlC14nMethod.C14N_NONE, 1);
+        }
+        Files.delete(directory.resolve(DigestIndex.META_FILE));
+
+        assertThrows(IllegalArgumentException.class, () -> DigestIndex.open(directory, DigestAlgorithm.SHA512));
+    }
+
+    @Test
+    void compactionKeepsRecordsOfEachMethod(@TempDir Path directory) throws Exception {
+
+        try (DigestIndex index = DigestIndex.open(directory, DigestAlgorithm.SHA256)) {
+            index.put(digest(1), "/a/1", XmlC14nMethod.C14N_NONE, 1);
+            index.put(digest(1), "/a/1", XmlC14nMethod.C14N_EXCL_OMIT_COMMENTS, 2);
+            index.put(digest(1), "/a/1", XmlC14nMethod.C14N_EXCL_OMIT_COMMENTS, 3);
+            index.put(digest(2), "/a/2", XmlC14nMethod.C14N_NONE, 4);
+            index.compact();
+
+            assertEquals(3, index.getRecordCount());
+            List<DigestIndex.Entry> entries = index.lookup(digest(1));
+            assertEquals(2, entries.size());
+            assertEquals(XmlC14nMethod.C14N_EXCL_OMIT_COMMENTS, entries.get(0).getMethod());
+            assertEquals(3, entries.get(0).getTimestamp());
+            assertEquals(XmlC14nMethod.C14N_NONE, entries.get(1).getMethod());
+        }
+
+        try (DigestIndex index = DigestIndex.open(directory, DigestAlgorithm.SHA256)) {
+            assertEquals(2, index.size());
+            assertEquals(2, index.lookup(digest(1)).size());
+        }
+    }
+
+    private static byte[] digest(int value) throws Exception {
+        return MessageDigest.getInstance("SHA-256").digest(Integer.toString(value).getBytes());
+    }
+
+}
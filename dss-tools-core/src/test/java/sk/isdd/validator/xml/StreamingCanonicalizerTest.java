@@ -0,0 +1,85 @@
+package sk.isdd.validator.xml;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import sk.isdd.validator.enumerations.XmlC14nMethod;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+
+/**
+ * Streaming engines must produce the same bytes as the DOM based {@link XmlCanonicalizer}.
+ */
+class StreamingCanonicalizerTest {
+
+    private static final List<String> DOCUMENTS = Arrays.asList(
+            "<p:r xmlns:p=\"urn:p\" xml:space=\"preserve\" xml:base=\"http://x/y/\"><p:c>1</p:c>"
+                    + "<p:c xml:base=\"z/\" xml:lang=\"en\">2</p:c><p:c> 3 </p:c></p:r>",
+            "<r xml:lang=\"sk\" xml:id=\"root\"><a xml:base=\"http://b/c/\"><b xml:base=\"d/e\" xml:space=\"default\"><c/></b></a>"
+                    + "<!-- note --><a xml:lang=\"\">text</a></r>",
+            "<?xml version=\"1.0\"?>\n<r xmlns=\"urn:r\" xml:base=\"http://a/b/c\"><x xml:base=\"../d\"/><x/><x xml:lang=\"de\"/></r>",
+            "<r><s xml:space=\"preserve\">  a  </s><s xml:lang=\"fr\"><t xml:base=\"http://t/\"/></s></r>");
+
+    @Test
+    void streamingMatchesDom() throws Exception {
+
+        for (String document : DOCUMENTS) {
+            byte[] source = document.getBytes(StandardCharsets.UTF_8);
+            for (XmlC14nMethod method : methods()) {
+                byte[] expected = XmlCanonicalizer.canonicalize(source, method);
+
+                ByteArrayOutputStream streamed = new ByteArrayOutputStream();
+                StreamingCanonicalizer.canonicalize(new ByteArrayInputStream(source), method, streamed);
+                assertArrayEquals(expected, streamed.toByteArray(), method.getText() + ": " + document);
+
+                try (InputStream in = new CanonicalInputStream(new ByteArrayInputStream(source), method)) {
+                    assertArrayEquals(expected, in.readAllBytes(), method.getText() + ": " + document);
+                }
+            }
+        }
+    }
+
+    @Test
+    void parallelMatchesDom() throws Exception {
+
+        for (String document : DOCUMENTS) {
+            byte[] source = document.getBytes(StandardCharsets.UTF_8);
+            for (XmlC14nMethod method : methods()) {
+                ByteArrayOutputStream parallel = new ByteArrayOutputStream();
+                // partition of a single byte cuts after every child of the root
+                new ParallelCanonicalizer(method, 4, 1).canonicalize(new ByteArrayInputStream(source), parallel);
+                assertArrayEquals(XmlCanonicalizer.canonicalize(source, method), parallel.toByteArray(),
+                        method.getText() + ": " + document);
+            }
+        }
+    }
+
+    @Test
+    void xmlFileParallelMatchesSequential(@TempDir Path directory) throws Exception {
+
+        for (int i = 0; i < DOCUMENTS.size(); i++) {
+            Path file = Files.writeString(directory.resolve(i + ".xml"), DOCUMENTS.get(i));
+            for (XmlC14nMethod method : methods()) {
+                assertArrayEquals(new XmlFile(file.toFile()).canonicalize(method, 1),
+                        new XmlFile(file.toFile()).canonicalize(method, 4), method.getText() + ": " + DOCUMENTS.get(i));
+            }
+        }
+    }
+
+    private static List<XmlC14nMethod> methods() {
+
+        List<XmlC14nMethod> methods = new ArrayList<>(Arrays.asList(XmlC14nMethod.values()));
+        methods.remove(XmlC14nMethod.C14N_NONE);
+        return methods;
+    }
+
+}
@@ -0,0 +1,47 @@
+package sk.isdd.validator.xml;
+
+import org.junit.jupiter.api.Test;
+import sk.isdd.validator.enumerations.XmlC14nMethod;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Streaming subset selection must produce the same bytes as the DOM evaluation of an equivalent XPath.
+ */
+class SubsetCanonicalizerTest {
+
+    private static final List<String> DOCUMENTS = Arrays.asList(
+            "<r xmlns=\"urn:r\"><s Id=\"A\" xml:base=\"http://b/\" xml:lang=\"en\" xml:space=\"preserve\"><t xml:base=\"c/\"/></s></r>",
+            "<r><s Id=\"A\" xml:id=\"q\" xml:base=\"http://b/\"><t/></s></r>",
+            "<s Id=\"A\" xml:base=\"http://b/\"><t/></s>",
+            "<r xml:lang=\"sk\" xml:base=\"http://r/x/\"><m xmlns:p=\"urn:p\"><p:s Id=\"A\" xml:base=\"y/\"><t/></p:s></m></r>");
+
+    @Test
+    void streamingSelectionMatchesDom() throws Exception {
+
+        for (String document : DOCUMENTS) {
+            byte[] source = document.getBytes(StandardCharsets.UTF_8);
+            SubsetCanonicalizer.Source open = () -> new ByteArrayInputStream(source);
+            for (XmlC14nMethod method : XmlC14nMethod.values()) {
+                if (method == XmlC14nMethod.C14N_NONE) {
+                    continue;
+                }
+                ByteArrayOutputStream expected = new ByteArrayOutputStream();
+                assertTrue(SubsetCanonicalizer.canonicalizeByXPath(open, "//*[@Id='A']", method, null,
+                        ParseBudget.getDefault(), expected));
+
+                ByteArrayOutputStream byId = new ByteArrayOutputStream();
+                assertTrue(SubsetCanonicalizer.canonicalizeById(open, "#A", method, null, ParseBudget.getDefault(), byId));
+                assertArrayEquals(expected.toByteArray(), byId.toByteArray(), method.getText() + ": " + document);
+            }
+        }
+    }
+
+}
@@ -0,0 +1,34 @@
+package sk.isdd.validator.xml;
+
+import org.junit.jupiter.api.Test;
+import sk.isdd.validator.enumerations.XmlC14nMethod;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class XmlCanonicalizerTest {
+
+    @Test
+    void defaultBudgetHasTimeLimit() {
+        assertTrue(ParseBudget.getDefault().getTimeLimitMillis() > 0);
+    }
+
+    @Test
+    void canonicalizationIsCancelledAtDeadline() throws Exception {
+
+        StringBuilder builder = new StringBuilder("<a xmlns='urn:a'>");
+        for (int i = 0; i < 200000; i++) {
+            builder.append("<b n='").append(i).append("'>text ").append(i).append("</b>");
+        }
+        byte[] document = builder.append("</a>").toString().getBytes(StandardCharsets.UTF_8);
+        ParseBudget budget = new ParseBudget(0, 0, 0, 0, 1);
+
+        BudgetExceededException e = assertThrows(BudgetExceededException.class,
+                () -> XmlCanonicalizer.canonicalize(document, XmlC14nMethod.C14N_OMIT_COMMENTS, budget));
+        assertEquals(ParseBudget.Limit.TIME, e.getLimit());
+    }
+
+}
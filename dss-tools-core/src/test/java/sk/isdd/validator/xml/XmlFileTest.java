@@ -0,0 +1,56 @@
+package sk.isdd.validator.xml;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import sk.isdd.validator.enumerations.XmlC14nMethod;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+class XmlFileTest {
+
+    private static final int THREADS = 8;
+
+    @Test
+    void concurrentCallersShareSingleCanonicalForm(@TempDir Path directory) throws Exception {
+
+        Path file = directory.resolve("document.xml");
+        Files.write(file, "<r xmlns='urn:r'><a b='1'/><!-- c --><a b='2'>text</a></r>".getBytes(StandardCharsets.UTF_8));
+
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            for (int round = 0; round < 200; round++) {
+                XmlFile xmlFile = new XmlFile(file.toString());
+                CountDownLatch start = new CountDownLatch(1);
+                List<Future<byte[]>> results = new ArrayList<>();
+                for (int i = 0; i < THREADS; i++) {
+                    results.add(executor.submit(() -> {
+                        start.await();
+                        return xmlFile.canonicalize(XmlC14nMethod.C14N_EXCL_OMIT_COMMENTS);
+                    }));
+                }
+                start.countDown();
+
+                // a form computed twice would be a different array
+                byte[] first = results.get(0).get();
+                assertNotNull(first);
+                for (Future<byte[]> result : results) {
+                    assertSame(first, result.get());
+                }
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+}
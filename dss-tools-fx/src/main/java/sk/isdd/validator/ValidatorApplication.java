@@ -10,7 +10,9 @@ import javafx.scene.layout.StackPane;
 import javafx.scene.Scene;
 import javafx.stage.Stage;
 import sk.isdd.validator.controller.MasterController;
+import sk.isdd.validator.digest.ProviderSelector;
 
+import java.nio.file.Path;
 import java.security.Security;
 import java.util.Locale;
 import java.util.ResourceBundle;
@@ -44,6 +46,17 @@ public class ValidatorApplication extends Application {
         try {
             Security.addProvider(new BouncyCastleProvider());
 
+            // Bind digests to the fastest providers before any work, calibrate a cold cache in background for next start
+            Path providerCache = ProviderSelector.getDefaultCacheFile();
+            ProviderSelector.select(providerCache);
+            if (providerCache != null && !ProviderSelector.isCalibrated(providerCache)) {
+                Thread calibration = new Thread(() -> ProviderSelector.store(providerCache, ProviderSelector.calibrate()),
+                        "provider-calibration");
+                calibration.setDaemon(true);
+                calibration.setPriority(Thread.MIN_PRIORITY);
+                calibration.start();
+            }
+
 			FXMLLoader loader = new FXMLLoader();
 
             // I18n support
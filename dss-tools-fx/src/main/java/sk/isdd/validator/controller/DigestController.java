@@ -10,12 +10,12 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import sk.isdd.validator.enumerations.XmlC14nMethod;
 import sk.isdd.validator.fx.I18nMsg;
+import sk.isdd.validator.fx.XmlFileChooser;
+import sk.isdd.validator.fx.XmlFileToInfoConverter;
+import sk.isdd.validator.fx.XmlFileToStringConverter;
 import sk.isdd.validator.model.DigestData;
 import sk.isdd.validator.model.DigestModel;
 import sk.isdd.validator.xml.XmlFile;
-import sk.isdd.validator.xml.XmlFileChooser;
-import sk.isdd.validator.xml.XmlFileToInfoConverter;
-import sk.isdd.validator.xml.XmlFileToStringConverter;
 
 import java.io.File;
 import java.util.ResourceBundle;
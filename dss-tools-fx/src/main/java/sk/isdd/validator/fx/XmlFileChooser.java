@@ -1,9 +1,9 @@
-package sk.isdd.validator.xml;
+package sk.isdd.validator.fx;
 
 import javafx.stage.FileChooser;
 import javafx.stage.Stage;
 import org.apache.commons.io.FilenameUtils;
-import sk.isdd.validator.fx.I18nMsg;
+import sk.isdd.validator.xml.XmlFile;
 
 import java.io.File;
 
@@ -1,7 +1,7 @@
-package sk.isdd.validator.xml;
+package sk.isdd.validator.fx;
 
 import javafx.util.StringConverter;
-import sk.isdd.validator.fx.I18nMsg;
+import sk.isdd.validator.xml.XmlFile;
 
 /**
  * Helper for File name conversion to string.
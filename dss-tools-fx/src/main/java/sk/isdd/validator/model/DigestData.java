@@ -1,18 +1,24 @@
 package sk.isdd.validator.model;
 
-import javafx.beans.property.ObjectProperty;
-import javafx.beans.property.SimpleObjectProperty;
 import sk.isdd.validator.enumerations.DigestAlgorithm;
 
 import java.util.Base64;
 
 /**
  * Simple data class represents message digest results.
+ *
+ * <p> Fields are plain (not wrapped in properties), table columns read them through getters.
+ * Base 64 representation is encoded lazily on first request and cached, table refreshes do not encode again.
  */
 public class DigestData {
 
-    private final ObjectProperty<DigestAlgorithm> algorithm;
-    private final ObjectProperty<byte[]> digest;
+    private DigestAlgorithm algorithm;
+    private byte[] digest;
+
+    /**
+     * Cached Base 64 encoding of the digest, null until requested.
+     */
+    private String digestBase64;
 
     /**
      * Create object out of algorithm and its calculated digest pair
@@ -21,50 +27,55 @@ public class DigestData {
      */
     public DigestData(DigestAlgorithm algorithm, byte[] digest) {
 
-        this.algorithm = new SimpleObjectProperty<>(algorithm);
-        this.digest = new SimpleObjectProperty<>(digest);
+        this.algorithm = algorithm;
+        this.digest = digest;
     }
 
     /**
      * Return digest algorithm by its name (e.g. "SHA-256").
      */
     public String getAlgorithmName() {
-        return algorithm.get().getJavaName();
+        return algorithm.getJavaName();
     }
 
     /**
      * Return Base 64 encoded message digest for given algorithm.
      */
     public String getDigestBase64() {
-        return Base64.getEncoder().encodeToString(digest.get());
+
+        if (digestBase64 == null && digest != null) {
+            digestBase64 = Base64.getEncoder().encodeToString(digest);
+        }
+        return digestBase64;
     }
 
     /**
      * Return algorithm as whole enumeration object.
      */
     public DigestAlgorithm getAlgorithm() {
-        return algorithm.get();
+        return algorithm;
     }
 
     /**
      * Set algorithm by its enumeration object.
      */
     public void setAlgorithm(DigestAlgorithm algorithm) {
-        this.algorithm.set(algorithm);
+        this.algorithm = algorithm;
     }
 
     /**
      * Get raw digest message.
      */
     public byte[] getDigest() {
-        return digest.get();
+        return digest;
     }
 
     /**
      * Set raw digest message.
      */
     public void setDigest(byte[] digest) {
-        this.digest.set(digest);
+        this.digest = digest;
+        this.digestBase64 = null;
     }
 
 }
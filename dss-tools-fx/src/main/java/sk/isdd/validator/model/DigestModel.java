@@ -6,17 +6,16 @@ import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import sk.isdd.validator.enumerations.DigestAlgorithm;
+import sk.isdd.validator.digest.DigestEngine;
+import sk.isdd.validator.digest.DigestResult;
 import sk.isdd.validator.enumerations.XmlC14nMethod;
 import sk.isdd.validator.xml.XmlFile;
 
-import java.security.MessageDigest;
-import java.security.NoSuchAlgorithmException;
-
 /**
  * Data representation and transformation support for calculating message digests.
  *
  * <p> JavaFX observable objects are used whenever deemed fit.
+ * Calculation itself is delegated to the JavaFX free {@link DigestEngine} of the core module.
  */
 public class DigestModel {
 
@@ -72,15 +71,8 @@ public class DigestModel {
 
         DigestList.clear();
 
-        for (DigestAlgorithm algorithm : DigestAlgorithm.values()) {
-            try {
-                MessageDigest md = algorithm.getMessageDigest();
-                md.update(transformedBytes);
-                DigestList.add(new DigestData(algorithm, md.digest()));
-
-            } catch (NoSuchAlgorithmException e) {
-                LOG.warn("Message digest algorithm \"" + algorithm.getJavaName() + "\" not provided.");
-            }
+        for (DigestResult result : DigestEngine.calculate(transformedBytes)) {
+            DigestList.add(new DigestData(result.getAlgorithm(), result.getDigest()));
         }
         LOG.info("Message digest list calculated successfully; Transformation \"" + method.get().getText() + "\": " + method.get().getUri());
     }